@@ -0,0 +1,254 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
+import org.entur.gbfs.v2_3.geofencing_zones.GBFSGeofencingZones;
+import org.entur.gbfs.v2_3.station_information.GBFSStationInformation;
+import org.entur.gbfs.v2_3.station_status.GBFSStationStatus;
+import org.entur.gbfs.v2_3.system_information.GBFSSystemInformation;
+import org.entur.gbfs.v2_3.system_pricing_plans.GBFSSystemPricingPlans;
+import org.entur.gbfs.v2_3.system_regions.GBFSSystemRegions;
+import org.entur.gbfs.v2_3.vehicle_types.GBFSVehicleTypes;
+import org.entur.lamassu.model.provider.FeedProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic GBFS v2.3 feeds of a configurable size, spread over an area the size of Oslo.
+ * Feeds are built as json trees and read with Jackson, the same way the feeds are loaded in production.
+ */
+public class BenchmarkData {
+    public static final String CODESPACE = "BM";
+    public static final String SYSTEM_ID = "benchmark";
+    public static final String LANGUAGE = "en";
+
+    public static final double MIN_LON = 10.6;
+    public static final double MAX_LON = 10.9;
+    public static final double MIN_LAT = 59.85;
+    public static final double MAX_LAT = 60.0;
+
+    private static final String[] FORM_FACTORS = {"scooter", "bicycle", "moped", "car"};
+    private static final String[] PROPULSION_TYPES = {"electric", "human", "electric_assist", "combustion"};
+    private static final int NUMBER_OF_PRICING_PLANS = 5;
+    private static final int NUMBER_OF_REGIONS = 20;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Random random = new Random(42);
+    private final int lastUpdated = (int) (java.lang.System.currentTimeMillis() / 1000);
+
+    public static FeedProvider feedProvider() {
+        var feedProvider = new FeedProvider();
+        feedProvider.setSystemId(SYSTEM_ID);
+        feedProvider.setCodespace(CODESPACE);
+        feedProvider.setOperatorId(CODESPACE + ":Operator:benchmark");
+        feedProvider.setOperatorName("Benchmark");
+        feedProvider.setLanguage(LANGUAGE);
+        return feedProvider;
+    }
+
+    public GBFSSystemInformation systemInformation() {
+        var data = new LinkedHashMap<String, Object>();
+        data.put("system_id", SYSTEM_ID);
+        data.put("language", LANGUAGE);
+        data.put("name", "Benchmark");
+        data.put("timezone", "Europe/Oslo");
+        return read(feed(data), GBFSSystemInformation.class);
+    }
+
+    public GBFSVehicleTypes vehicleTypes() {
+        var vehicleTypes = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < FORM_FACTORS.length; i++) {
+            var vehicleType = new LinkedHashMap<String, Object>();
+            vehicleType.put("vehicle_type_id", vehicleTypeId(i));
+            vehicleType.put("form_factor", FORM_FACTORS[i]);
+            vehicleType.put("propulsion_type", PROPULSION_TYPES[i]);
+            vehicleType.put("name", FORM_FACTORS[i]);
+            vehicleType.put("max_range_meters", 20000.0);
+            vehicleType.put("default_pricing_plan_id", pricingPlanId(i % NUMBER_OF_PRICING_PLANS));
+            vehicleType.put("pricing_plan_ids", List.of(pricingPlanId(0), pricingPlanId(1), pricingPlanId(2)));
+            vehicleTypes.add(vehicleType);
+        }
+        return read(feed(Map.of("vehicle_types", vehicleTypes)), GBFSVehicleTypes.class);
+    }
+
+    public GBFSSystemPricingPlans pricingPlans() {
+        var plans = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < NUMBER_OF_PRICING_PLANS; i++) {
+            var plan = new LinkedHashMap<String, Object>();
+            plan.put("plan_id", pricingPlanId(i));
+            plan.put("name", "Plan " + i);
+            plan.put("currency", "NOK");
+            plan.put("price", 10.0 * i);
+            plan.put("is_taxable", false);
+            plan.put("description", "Benchmark plan " + i);
+            plan.put("per_min_pricing", List.of(Map.of("start", 0, "rate", 3.5, "interval", 1)));
+            plans.add(plan);
+        }
+        return read(feed(Map.of("plans", plans)), GBFSSystemPricingPlans.class);
+    }
+
+    public GBFSSystemRegions systemRegions() {
+        var regions = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < NUMBER_OF_REGIONS; i++) {
+            regions.add(Map.of("region_id", regionId(i), "name", "Region " + i));
+        }
+        return read(feed(Map.of("regions", regions)), GBFSSystemRegions.class);
+    }
+
+    public GBFSFreeBikeStatus freeBikeStatus(int numberOfVehicles) {
+        var bikes = new ArrayList<Map<String, Object>>(numberOfVehicles);
+        for (int i = 0; i < numberOfVehicles; i++) {
+            var vehicleType = random.nextInt(FORM_FACTORS.length);
+            var bike = new LinkedHashMap<String, Object>();
+            bike.put("bike_id", "bike-" + i);
+            bike.put("lat", latitude());
+            bike.put("lon", longitude());
+            bike.put("is_reserved", random.nextInt(20) == 0);
+            bike.put("is_disabled", random.nextInt(20) == 0);
+            bike.put("vehicle_type_id", vehicleTypeId(vehicleType));
+            bike.put("pricing_plan_id", pricingPlanId(random.nextInt(NUMBER_OF_PRICING_PLANS)));
+            bike.put("current_range_meters", random.nextDouble() * 20000);
+            bike.put("last_reported", lastUpdated - random.nextInt(600));
+            bike.put("rental_uris", Map.of("web", "https://example.com/rent/" + i));
+            bikes.add(bike);
+        }
+        return read(feed(Map.of("bikes", bikes)), GBFSFreeBikeStatus.class);
+    }
+
+    public GBFSStationInformation stationInformation(int numberOfStations) {
+        var stations = new ArrayList<Map<String, Object>>(numberOfStations);
+        for (int i = 0; i < numberOfStations; i++) {
+            var station = new LinkedHashMap<String, Object>();
+            station.put("station_id", stationId(i));
+            station.put("name", "Station " + i);
+            station.put("lat", latitude());
+            station.put("lon", longitude());
+            station.put("region_id", regionId(i % NUMBER_OF_REGIONS));
+            station.put("capacity", 20);
+            station.put("vehicle_type_capacity", Map.of(vehicleTypeId(0), 10, vehicleTypeId(1), 10));
+            stations.add(station);
+        }
+        return read(feed(Map.of("stations", stations)), GBFSStationInformation.class);
+    }
+
+    public GBFSStationStatus stationStatus(int numberOfStations) {
+        var stations = new ArrayList<Map<String, Object>>(numberOfStations);
+        for (int i = 0; i < numberOfStations; i++) {
+            var available = random.nextInt(20);
+            var station = new LinkedHashMap<String, Object>();
+            station.put("station_id", stationId(i));
+            station.put("num_bikes_available", available);
+            station.put("num_docks_available", 20 - available);
+            station.put("is_installed", true);
+            station.put("is_renting", true);
+            station.put("is_returning", true);
+            station.put("last_reported", lastUpdated - random.nextInt(600));
+            station.put("vehicle_types_available", List.of(
+                    Map.of("vehicle_type_id", vehicleTypeId(0), "count", available / 2),
+                    Map.of("vehicle_type_id", vehicleTypeId(1), "count", available - available / 2)
+            ));
+            station.put("vehicle_docks_available", List.of(
+                    Map.of("vehicle_type_ids", List.of(vehicleTypeId(0), vehicleTypeId(1)), "count", 20 - available)
+            ));
+            stations.add(station);
+        }
+        return read(feed(Map.of("stations", stations)), GBFSStationStatus.class);
+    }
+
+    /**
+     * Zones shaped as regular polygons with the given number of vertices each.
+     */
+    public GBFSGeofencingZones geofencingZones(int numberOfZones, int verticesPerZone) {
+        var features = new ArrayList<Map<String, Object>>(numberOfZones);
+        for (int i = 0; i < numberOfZones; i++) {
+            var centerLon = longitude();
+            var centerLat = latitude();
+            var radius = 0.002 + random.nextDouble() * 0.01;
+            var ring = new ArrayList<List<Double>>(verticesPerZone + 1);
+            for (int j = 0; j < verticesPerZone; j++) {
+                var angle = 2 * Math.PI * j / verticesPerZone;
+                ring.add(List.of(centerLon + radius * 2 * Math.cos(angle), centerLat + radius * Math.sin(angle)));
+            }
+            ring.add(ring.get(0));
+
+            var feature = new LinkedHashMap<String, Object>();
+            feature.put("type", "Feature");
+            feature.put("geometry", Map.of("type", "MultiPolygon", "coordinates", List.of(List.of(ring))));
+            feature.put("properties", Map.of(
+                    "name", "Zone " + i,
+                    "rules", List.of(Map.of(
+                            "vehicle_type_ids", List.of(vehicleTypeId(0)),
+                            "ride_allowed", false,
+                            "ride_through_allowed", true,
+                            "maximum_speed_kph", 6
+                    ))
+            ));
+            features.add(feature);
+        }
+        var geofencingZones = Map.of("type", "FeatureCollection", "features", features);
+        return read(feed(Map.of("geofencing_zones", geofencingZones)), GBFSGeofencingZones.class);
+    }
+
+    public double longitude() {
+        return MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+    }
+
+    public double latitude() {
+        return MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+    }
+
+    private Map<String, Object> feed(Object data) {
+        var feed = new LinkedHashMap<String, Object>();
+        feed.put("last_updated", lastUpdated);
+        feed.put("ttl", 60);
+        feed.put("version", "2.3");
+        feed.put("data", data);
+        return feed;
+    }
+
+    private static <T> T read(Map<String, Object> feed, Class<T> type) {
+        return objectMapper.convertValue(feed, type);
+    }
+
+    private static String vehicleTypeId(int i) {
+        return "vehicle-type-" + i;
+    }
+
+    private static String pricingPlanId(int i) {
+        return "plan-" + i;
+    }
+
+    private static String regionId(int i) {
+        return "region-" + i;
+    }
+
+    private static String stationId(int i) {
+        return "station-" + i;
+    }
+}
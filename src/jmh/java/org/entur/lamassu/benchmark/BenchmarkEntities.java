@@ -0,0 +1,127 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.benchmark;
+
+import org.entur.gbfs.GbfsDelivery;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
+import org.entur.gbfs.v2_3.station_information.GBFSStationInformation;
+import org.entur.gbfs.v2_3.station_status.GBFSStationStatus;
+import org.entur.gbfs.v2_3.system_information.GBFSSystemInformation;
+import org.entur.gbfs.v2_3.system_pricing_plans.GBFSSystemPricingPlans;
+import org.entur.gbfs.v2_3.system_regions.GBFSSystemRegions;
+import org.entur.gbfs.v2_3.vehicle_types.GBFSVehicleTypes;
+import org.entur.lamassu.mapper.entitymapper.MappingContext;
+import org.entur.lamassu.mapper.entitymapper.MappingContextFactory;
+import org.entur.lamassu.mapper.entitymapper.PricingPlanMapper;
+import org.entur.lamassu.mapper.entitymapper.RentalUrisMapper;
+import org.entur.lamassu.mapper.entitymapper.StationMapper;
+import org.entur.lamassu.mapper.entitymapper.SystemMapper;
+import org.entur.lamassu.mapper.entitymapper.TranslationMapper;
+import org.entur.lamassu.mapper.entitymapper.VehicleMapper;
+import org.entur.lamassu.mapper.entitymapper.VehicleTypeMapper;
+import org.entur.lamassu.mapper.feedmapper.FreeBikeStatusFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.StationInformationFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.StationStatusFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.SystemInformationFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.SystemPricingPlansFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.SystemRegionsFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.VehicleTypesFeedMapper;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.provider.FeedProvider;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A synthetic delivery run through the same feed and entity mappers as the leader uses.
+ */
+public class BenchmarkEntities {
+    private final FeedProvider feedProvider = BenchmarkData.feedProvider();
+
+    private final TranslationMapper translationMapper = new TranslationMapper();
+    private final RentalUrisMapper rentalUrisMapper = new RentalUrisMapper();
+    private final SystemMapper systemMapper = new SystemMapper(translationMapper);
+    private final PricingPlanMapper pricingPlanMapper = new PricingPlanMapper(translationMapper);
+    private final VehicleTypeMapper vehicleTypeMapper = new VehicleTypeMapper(translationMapper);
+    private final VehicleMapper vehicleMapper = new VehicleMapper(rentalUrisMapper);
+    private final StationMapper stationMapper = new StationMapper(translationMapper, rentalUrisMapper);
+    private final MappingContextFactory mappingContextFactory = new MappingContextFactory(systemMapper, pricingPlanMapper, vehicleTypeMapper, translationMapper);
+
+    private final GBFSSystemInformation systemInformation;
+    private final GBFSVehicleTypes vehicleTypesFeed;
+    private final GBFSSystemPricingPlans pricingPlansFeed;
+    private final GBFSSystemRegions systemRegions;
+    private final GBFSFreeBikeStatus freeBikeStatus;
+    private final GBFSStationInformation stationInformation;
+    private final GBFSStationStatus stationStatus;
+
+    private final MappingContext mappingContext;
+
+    public BenchmarkEntities(int numberOfVehicles, int numberOfStations) {
+        var data = new BenchmarkData();
+        systemInformation = new SystemInformationFeedMapper().map(data.systemInformation(), feedProvider);
+        vehicleTypesFeed = new VehicleTypesFeedMapper().map(data.vehicleTypes(), feedProvider);
+        pricingPlansFeed = new SystemPricingPlansFeedMapper().map(data.pricingPlans(), feedProvider);
+        systemRegions = new SystemRegionsFeedMapper().map(data.systemRegions(), feedProvider);
+        freeBikeStatus = new FreeBikeStatusFeedMapper().map(data.freeBikeStatus(numberOfVehicles), feedProvider);
+        stationInformation = new StationInformationFeedMapper().map(data.stationInformation(numberOfStations), feedProvider);
+        stationStatus = new StationStatusFeedMapper().map(data.stationStatus(numberOfStations), feedProvider);
+
+        var delivery = new GbfsDelivery();
+        delivery.setSystemInformation(systemInformation);
+        delivery.setVehicleTypes(vehicleTypesFeed);
+        delivery.setSystemPricingPlans(pricingPlansFeed);
+        delivery.setSystemRegions(systemRegions);
+        mappingContext = mappingContextFactory.createMappingContext(feedProvider, delivery);
+    }
+
+    public FeedProvider getFeedProvider() {
+        return feedProvider;
+    }
+
+    public List<Vehicle> mapVehicles() {
+        return freeBikeStatus.getData().getBikes().stream()
+                .map(bike -> vehicleMapper.mapVehicle(
+                        bike,
+                        mappingContext.getVehicleTypesById().get(bike.getVehicleTypeId()),
+                        mappingContext.getPricingPlansById().get(bike.getPricingPlanId()),
+                        mappingContext.getSystem()
+                ))
+                .collect(Collectors.toList());
+    }
+
+    public List<Station> mapStations() {
+        var stationInformationById = stationInformation.getData().getStations().stream()
+                .collect(Collectors.toMap(
+                        org.entur.gbfs.v2_3.station_information.GBFSStation::getStationId,
+                        Function.identity()
+                ));
+
+        return stationStatus.getData().getStations().stream()
+                .map(station -> stationMapper.mapStation(
+                        mappingContext,
+                        stationInformationById.get(station.getStationId()),
+                        station
+                ))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.benchmark;
+
+import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
+import org.entur.gbfs.v2_3.geofencing_zones.GBFSGeofencingZones;
+import org.entur.gbfs.v2_3.station_information.GBFSStationInformation;
+import org.entur.gbfs.v2_3.station_status.GBFSStationStatus;
+import org.entur.lamassu.mapper.feedmapper.FreeBikeStatusFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.GeofencingZonesFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.StationInformationFeedMapper;
+import org.entur.lamassu.mapper.feedmapper.StationStatusFeedMapper;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of the incoming feeds to the codespaced feeds stored by the leader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedMappingBenchmark {
+
+    @Param({"10000", "50000", "200000"})
+    public int vehicles;
+
+    @Param({"5000"})
+    public int stations;
+
+    private FeedProvider feedProvider;
+    private GBFSFreeBikeStatus freeBikeStatus;
+    private GBFSStationInformation stationInformation;
+    private GBFSStationStatus stationStatus;
+    private GBFSGeofencingZones geofencingZones;
+
+    private final FreeBikeStatusFeedMapper freeBikeStatusFeedMapper = new FreeBikeStatusFeedMapper();
+    private final StationInformationFeedMapper stationInformationFeedMapper = new StationInformationFeedMapper();
+    private final StationStatusFeedMapper stationStatusFeedMapper = new StationStatusFeedMapper();
+    private final GeofencingZonesFeedMapper geofencingZonesFeedMapper = new GeofencingZonesFeedMapper();
+
+    @Setup
+    public void setup() {
+        var data = new BenchmarkData();
+        feedProvider = BenchmarkData.feedProvider();
+        freeBikeStatus = data.freeBikeStatus(vehicles);
+        stationInformation = data.stationInformation(stations);
+        stationStatus = data.stationStatus(stations);
+        geofencingZones = data.geofencingZones(100, 1000);
+    }
+
+    @Benchmark
+    public GBFSFreeBikeStatus mapFreeBikeStatus() {
+        return freeBikeStatusFeedMapper.map(freeBikeStatus, feedProvider);
+    }
+
+    @Benchmark
+    public GBFSStationInformation mapStationInformation() {
+        return stationInformationFeedMapper.map(stationInformation, feedProvider);
+    }
+
+    @Benchmark
+    public GBFSStationStatus mapStationStatus() {
+        return stationStatusFeedMapper.map(stationStatus, feedProvider);
+    }
+
+    @Benchmark
+    public GBFSGeofencingZones mapGeofencingZones() {
+        return geofencingZonesFeedMapper.map(geofencingZones, feedProvider);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.benchmark;
+
+import org.entur.lamassu.cache.StationSpatialIndexId;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.model.entities.FormFactor;
+import org.entur.lamassu.model.entities.PropulsionType;
+import org.entur.lamassu.service.StationFilterParameters;
+import org.entur.lamassu.service.VehicleFilterParameters;
+import org.entur.lamassu.util.SpatialIndexIdFilter;
+import org.entur.lamassu.util.SpatialIndexIdUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluation of the query filters against spatial index ids, as done for every candidate of a query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"10000", "200000"})
+    public int vehicles;
+
+    private List<VehicleSpatialIndexId> vehicleIds;
+    private List<StationSpatialIndexId> stationIds;
+    private VehicleFilterParameters vehicleFilter;
+    private StationFilterParameters stationFilter;
+
+    @Setup
+    public void setup() {
+        var entities = new BenchmarkEntities(vehicles, 5000);
+        var feedProvider = entities.getFeedProvider();
+
+        vehicleIds = entities.mapVehicles().stream()
+                .map(vehicle -> SpatialIndexIdUtil.createVehicleSpatialIndexId(vehicle, feedProvider))
+                .collect(Collectors.toList());
+        stationIds = entities.mapStations().stream()
+                .map(station -> SpatialIndexIdUtil.createStationSpatialIndexId(station, feedProvider))
+                .collect(Collectors.toList());
+
+        vehicleFilter = new VehicleFilterParameters();
+        vehicleFilter.setCodespaces(List.of("XX", BenchmarkData.CODESPACE));
+        vehicleFilter.setSystems(List.of(BenchmarkData.SYSTEM_ID));
+        vehicleFilter.setFormFactors(List.of(FormFactor.SCOOTER, FormFactor.BICYCLE));
+        vehicleFilter.setPropulsionTypes(List.of(PropulsionType.ELECTRIC, PropulsionType.HUMAN));
+        vehicleFilter.setIncludeReserved(false);
+        vehicleFilter.setIncludeDisabled(false);
+
+        stationFilter = new StationFilterParameters();
+        stationFilter.setCodespaces(List.of("XX", BenchmarkData.CODESPACE));
+        stationFilter.setSystems(List.of(BenchmarkData.SYSTEM_ID));
+        stationFilter.setAvailableFormFactors(List.of(FormFactor.BICYCLE));
+        stationFilter.setAvailablePropulsionTypes(List.of(PropulsionType.HUMAN));
+    }
+
+    @Benchmark
+    public int filterVehicles() {
+        int count = 0;
+        for (VehicleSpatialIndexId id : vehicleIds) {
+            if (SpatialIndexIdFilter.filterVehicle(id, vehicleFilter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int filterStations() {
+        int count = 0;
+        for (StationSpatialIndexId id : stationIds) {
+            if (SpatialIndexIdFilter.filterStation(id, stationFilter)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.benchmark;
+
+import no.entur.abt.netex.id.NetexIdBuilder;
+import no.entur.abt.netex.id.predicate.NetexIdPredicateBuilder;
+import org.entur.lamassu.mapper.feedmapper.IdMappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of the vehicle ids of one feed update, memoized versus building predicate and id per call.
+ * Run with {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdMappingBenchmark {
+
+    @Param({"10000", "50000"})
+    public int vehicles;
+
+    private List<String> ids;
+
+    @Setup
+    public void setup() {
+        ids = new ArrayList<>(vehicles);
+        for (int i = 0; i < vehicles; i++) {
+            ids.add("bike-" + i);
+        }
+    }
+
+    @Benchmark
+    public void mapIds(Blackhole blackhole) {
+        for (String id : ids) {
+            blackhole.consume(IdMappers.mapId(BenchmarkData.CODESPACE, IdMappers.BIKE_ID_TYPE, id));
+        }
+    }
+
+    @Benchmark
+    public void mapIdsUncached(Blackhole blackhole) {
+        for (String id : ids) {
+            var predicate = NetexIdPredicateBuilder.newInstance()
+                    .withCodespace(BenchmarkData.CODESPACE)
+                    .withType(IdMappers.BIKE_ID_TYPE)
+                    .build();
+            if (predicate.test(id)) {
+                blackhole.consume(id);
+            } else {
+                blackhole.consume(NetexIdBuilder.newInstance()
+                        .withCodespace(BenchmarkData.CODESPACE)
+                        .withType(IdMappers.BIKE_ID_TYPE)
+                        .withValue(id)
+                        .build());
+            }
+        }
+    }
+}
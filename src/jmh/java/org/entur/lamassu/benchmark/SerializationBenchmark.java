@@ -0,0 +1,126 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.redisson.codec.Kryo5Codec;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kryo encoding and decoding of entities, with the codec used for all Redis caches.
+ * Each invocation handles a batch of {@value #BATCH_SIZE} entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    private final Kryo5Codec codec = new Kryo5Codec(SerializationBenchmark.class.getClassLoader());
+
+    private List<Vehicle> vehicles;
+    private List<Station> stations;
+    private ByteBuf[] encodedVehicles;
+    private ByteBuf[] encodedStations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var entities = new BenchmarkEntities(BATCH_SIZE, BATCH_SIZE);
+        vehicles = entities.mapVehicles();
+        stations = entities.mapStations();
+        encodedVehicles = encodeAll(vehicles);
+        encodedStations = encodeAll(stations);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        releaseAll(encodedVehicles);
+        releaseAll(encodedStations);
+    }
+
+    @Benchmark
+    public void encodeVehicles(Blackhole blackhole) throws IOException {
+        encode(vehicles, blackhole);
+    }
+
+    @Benchmark
+    public void decodeVehicles(Blackhole blackhole) throws IOException {
+        decode(encodedVehicles, blackhole);
+    }
+
+    @Benchmark
+    public void encodeStations(Blackhole blackhole) throws IOException {
+        encode(stations, blackhole);
+    }
+
+    @Benchmark
+    public void decodeStations(Blackhole blackhole) throws IOException {
+        decode(encodedStations, blackhole);
+    }
+
+    private void encode(List<?> entities, Blackhole blackhole) throws IOException {
+        for (Object entity : entities) {
+            var encoded = codec.getValueEncoder().encode(entity);
+            blackhole.consume(encoded.readableBytes());
+            encoded.release();
+        }
+    }
+
+    private void decode(ByteBuf[] encoded, Blackhole blackhole) throws IOException {
+        for (ByteBuf buf : encoded) {
+            blackhole.consume(codec.getValueDecoder().decode(buf.duplicate(), null));
+        }
+    }
+
+    private ByteBuf[] encodeAll(List<?> entities) throws IOException {
+        var encoded = new ByteBuf[entities.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = codec.getValueEncoder().encode(entities.get(i));
+        }
+        return encoded;
+    }
+
+    private static void releaseAll(ByteBuf[] encoded) {
+        for (ByteBuf buf : encoded) {
+            buf.release();
+        }
+    }
+}
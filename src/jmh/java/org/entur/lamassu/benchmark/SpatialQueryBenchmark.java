@@ -0,0 +1,158 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.benchmark;
+
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.cache.impl.SpatialGrid;
+import org.entur.lamassu.cache.impl.VehicleSpatialIndexImpl;
+import org.entur.lamassu.model.entities.FormFactor;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.util.SpatialIndexIdUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.Redisson;
+import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoUnit;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.Kryo5Codec;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Radius queries against the Redis backed vehicle spatial index, running on an embedded Redis,
+ * and against the in-heap grid used by the local spatial index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialQueryBenchmark {
+    private static final int REDIS_PORT = 6399;
+    private static final double RADIUS_IN_METERS = 500;
+    private static final int COUNT = 50;
+
+    @Param({"10000", "50000", "200000"})
+    public int vehicles;
+
+    private RedisServer redisServer;
+    private RedissonClient redissonClient;
+    private VehicleSpatialIndexImpl spatialIndex;
+    private SpatialGrid<VehicleSpatialIndexId> grid;
+    private final Predicate<VehicleSpatialIndexId> scooterFilter = id -> id.getFormFactor() == FormFactor.SCOOTER;
+
+    private final BenchmarkData data = new BenchmarkData();
+    private final Random random = new Random(7);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        var config = new Config();
+        config.setCodec(new Kryo5Codec(SpatialQueryBenchmark.class.getClassLoader()));
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+
+        spatialIndex = new VehicleSpatialIndexImpl(
+                redissonClient.getGeo("vehicleSpatialIndexBenchmark"),
+                redissonClient.getScoredSortedSet("vehicleSpatialIndexExpiriesBenchmark"),
+                redissonClient
+        );
+        grid = new SpatialGrid<>(0.01);
+
+        var entities = new BenchmarkEntities(vehicles, 0);
+        var feedProvider = entities.getFeedProvider();
+        Map<VehicleSpatialIndexId, Vehicle> batch = new HashMap<>();
+
+        for (Vehicle vehicle : entities.mapVehicles()) {
+            var id = SpatialIndexIdUtil.createVehicleSpatialIndexId(vehicle, feedProvider);
+            grid.put(id, vehicle.getLon(), vehicle.getLat());
+            batch.put(id, vehicle);
+
+            if (batch.size() == 10000) {
+                spatialIndex.addAll(batch, 3600, TimeUnit.SECONDS);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            spatialIndex.addAll(batch, 3600, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        redissonClient.getGeo("vehicleSpatialIndexBenchmark").delete();
+        redissonClient.getScoredSortedSet("vehicleSpatialIndexExpiriesBenchmark").delete();
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public List<VehicleSpatialIndexId> redisRadius() {
+        return spatialIndex.radius(data.longitude(), data.latitude(), RADIUS_IN_METERS, GeoUnit.METERS, GeoOrder.ASC);
+    }
+
+    @Benchmark
+    public List<VehicleSpatialIndexId> redisFilteredRadius() {
+        return spatialIndex.radius(data.longitude(), data.latitude(), RADIUS_IN_METERS, GeoUnit.METERS, scooterFilter, COUNT);
+    }
+
+    @Benchmark
+    public List<VehicleSpatialIndexId> redisNearest() {
+        return spatialIndex.nearest(data.longitude(), data.latitude(), 50000d, GeoUnit.METERS, scooterFilter, COUNT);
+    }
+
+    @Benchmark
+    public List<VehicleSpatialIndexId> gridRadius() {
+        return grid.radius(data.longitude(), data.latitude(), RADIUS_IN_METERS, GeoUnit.METERS, GeoOrder.ASC);
+    }
+
+    @Benchmark
+    public List<VehicleSpatialIndexId> gridFilteredRadius() {
+        return grid.radius(data.longitude(), data.latitude(), RADIUS_IN_METERS, GeoUnit.METERS, scooterFilter, COUNT);
+    }
+
+    @Benchmark
+    public List<VehicleSpatialIndexId> gridNearest() {
+        return grid.nearest(data.longitude(), data.latitude(), 50000d, GeoUnit.METERS, scooterFilter, COUNT);
+    }
+}
@@ -21,7 +21,7 @@ package org.entur.lamassu.cache;
 import java.io.Serializable;
 import java.util.Objects;
 
-public abstract class AbstractSpatialIndexId implements Serializable {
+public abstract class AbstractSpatialIndexId implements SpatialIndexId, Serializable, Cloneable {
     private String id;
     private String codespace;
     private String systemId;
@@ -59,6 +59,16 @@ public abstract class AbstractSpatialIndexId implements Serializable {
         this.operatorId = operatorId;
     }
 
+    public AbstractSpatialIndexId withoutId() {
+        try {
+            var copy = (AbstractSpatialIndexId) clone();
+            copy.setId(null);
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,124 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache;
+
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes to the entity caches and spatial indexes which are sent to Redis together, in one round-trip
+ * per chunk of at most chunkSize entries. Writes which are added when the current chunk is full are
+ * sent in a new chunk, after the current chunk is executed.
+ */
+public class CacheBatch {
+    private final RedissonClient redissonClient;
+    private final BatchOptions batchOptions;
+    private final int chunkSize;
+
+    private RBatch batch;
+    private int size;
+    private final List<Runnable> executedCallbacks = new ArrayList<>();
+    private final List<Runnable> attemptedCallbacks = new ArrayList<>();
+
+    public CacheBatch(RedissonClient redissonClient, BatchOptions batchOptions, int chunkSize) {
+        this.redissonClient = redissonClient;
+        this.batchOptions = batchOptions;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get the batch to add writes of the given number of entries to, executing the current chunk
+     * first if the entries don't fit in it.
+     */
+    public RBatch getBatch(int entries) {
+        if (batch != null && size + entries > chunkSize) {
+            execute();
+        }
+
+        if (batch == null) {
+            batch = redissonClient.createBatch(batchOptions);
+        }
+
+        size += entries;
+        return batch;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Split items into chunks that fit in a batch
+     */
+    public <E> void forEachChunk(Collection<E> items, Consumer<List<E>> consumer) {
+        List<E> chunk = new ArrayList<>(Math.min(items.size(), chunkSize));
+        for (E item : items) {
+            chunk.add(item);
+            if (chunk.size() == chunkSize) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
+    }
+
+    /**
+     * Run the callback once the writes added so far have been executed
+     */
+    public void onExecuted(Runnable callback) {
+        executedCallbacks.add(callback);
+    }
+
+    /**
+     * Run the callback once the writes added so far have been sent, even if executing them failed. A failed
+     * chunk may still have been partly applied, so this is for invalidating local copies of the written entries.
+     */
+    public void onAttempted(Runnable callback) {
+        attemptedCallbacks.add(callback);
+    }
+
+    /**
+     * Send the current chunk to Redis. If that fails, the exception is thrown and the onExecuted callbacks
+     * of the chunk are not run, so that callers can tell that its writes may not have been applied.
+     */
+    public void execute() {
+        if (batch == null) {
+            return;
+        }
+
+        try {
+            batch.execute();
+            executedCallbacks.forEach(Runnable::run);
+        } finally {
+            attemptedCallbacks.forEach(Runnable::run);
+            batch = null;
+            size = 0;
+            executedCallbacks.clear();
+            attemptedCallbacks.clear();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.entur.lamassu.cache;
 
 import org.entur.lamassu.model.entities.Entity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -9,10 +10,24 @@ import java.util.concurrent.TimeUnit;
 
 public interface EntityCache<T extends Entity> {
     List<T> getAll(Set<String> keys);
+
+    /**
+     * Get entities without resolving their references to separately cached entities, for callers
+     * that resolve them on demand. Entities are returned in the iteration order of keys.
+     */
+    List<T> getAll(Set<String> keys, boolean resolveReferences);
     List<T> getAll();
     Map<String, T> getAllAsMap(Set<String> keys);
+    Map<String, T> getAllAsMap(Set<String> keys, boolean resolveReferences);
     T get(String key);
     void updateAll(Map<String, T> entities, int ttl, TimeUnit timeUnit);
+    void updateAll(CacheBatch batch, Map<String, T> entities, int ttl, TimeUnit timeUnit);
     void removeAll(Set<String> keys);
+    void removeAll(CacheBatch batch, Set<String> keys);
     boolean hasKey(String key);
+
+    /**
+     * The subset of keys present in the cache, checked with one pipelined request per call.
+     */
+    Set<String> getExistingKeys(Collection<String> keys);
 }
@@ -0,0 +1,99 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache;
+
+import org.entur.lamassu.model.entities.LocationEntity;
+
+import java.io.Serializable;
+
+/**
+ * An entity added, updated or removed by the leader, published on an {@link EntityChangeTopic}.
+ * The previous spatial index id and position are set if the entity was cached before,
+ * the current ones unless it was removed.
+ */
+public class EntityChange<S extends SpatialIndexId, T extends LocationEntity> implements Serializable {
+    private String entityId;
+    private S previousIndexId;
+    private Double previousLat;
+    private Double previousLon;
+    private S indexId;
+    private T entity;
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(String entityId) {
+        this.entityId = entityId;
+    }
+
+    public S getPreviousIndexId() {
+        return previousIndexId;
+    }
+
+    public void setPreviousIndexId(S previousIndexId) {
+        this.previousIndexId = previousIndexId;
+    }
+
+    public Double getPreviousLat() {
+        return previousLat;
+    }
+
+    public void setPreviousLat(Double previousLat) {
+        this.previousLat = previousLat;
+    }
+
+    public Double getPreviousLon() {
+        return previousLon;
+    }
+
+    public void setPreviousLon(Double previousLon) {
+        this.previousLon = previousLon;
+    }
+
+    public S getIndexId() {
+        return indexId;
+    }
+
+    public void setIndexId(S indexId) {
+        this.indexId = indexId;
+    }
+
+    public T getEntity() {
+        return entity;
+    }
+
+    public void setEntity(T entity) {
+        this.entity = entity;
+    }
+
+    public static <S extends SpatialIndexId, T extends LocationEntity> EntityChange<S, T> of(String entityId, S previousIndexId, T previousEntity, S indexId, T entity) {
+        var change = new EntityChange<S, T>();
+        change.setEntityId(entityId);
+        if (previousEntity != null) {
+            change.setPreviousIndexId(previousIndexId);
+            change.setPreviousLat(previousEntity.getLat());
+            change.setPreviousLon(previousEntity.getLon());
+        }
+        change.setIndexId(indexId);
+        change.setEntity(entity);
+        return change;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache;
+
+import org.entur.lamassu.model.entities.LocationEntity;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Redis pub/sub channel on which the leader publishes the entities it has added, updated or removed,
+ * received by every instance.
+ */
+public interface EntityChangeTopic<S extends SpatialIndexId, T extends LocationEntity> {
+
+    /**
+     * Publish the changes once the batch has been executed, so that the changed entities can be read
+     * from the caches when they are received. Nothing is published while no instance is listening.
+     */
+    void publish(CacheBatch batch, List<EntityChange<S, T>> changes);
+    int addListener(Consumer<List<EntityChange<S, T>>> listener);
+    void removeListener(int listenerId);
+}
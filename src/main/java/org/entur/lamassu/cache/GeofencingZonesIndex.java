@@ -0,0 +1,52 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache;
+
+import org.entur.lamassu.model.entities.GeofencingZones;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * In-heap index of the geofencing zone polygons of each system, for looking up the zones containing a point.
+ */
+public interface GeofencingZonesIndex {
+
+    /**
+     * Rebuild the index of the system from the geofencing zones cache, on every instance
+     */
+    void update(String systemId);
+
+    /**
+     * The zones of the system containing the point, in the order of the feed
+     */
+    List<GeofencingZones.Feature> getZonesAt(String systemId, double longitude, double latitude);
+
+    /**
+     * The zones of the system with a polygon whose envelope intersects the envelope, in the order of the feed
+     */
+    List<GeofencingZones.Feature> getZonesWithin(String systemId, double minimumLongitude, double minimumLatitude, double maximumLongitude, double maximumLatitude);
+
+    /**
+     * Called with the system id whenever the index of a system is rebuilt or dropped, after which lookups
+     * may return different zones
+     */
+    void addListener(Consumer<String> listener);
+}
@@ -0,0 +1,84 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache;
+
+import java.io.Serializable;
+
+/**
+ * A feed as served over http: the serialized json, a gzip compressed copy and an entity tag
+ * derived from the json content.
+ */
+public class RenderedFeed implements Serializable {
+    private byte[] json;
+    private byte[] gzip;
+    private String etag;
+    private Integer lastUpdated;
+    private Integer ttl;
+
+    public RenderedFeed() {}
+
+    public RenderedFeed(byte[] json, byte[] gzip, String etag, Integer lastUpdated, Integer ttl) {
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+        this.lastUpdated = lastUpdated;
+        this.ttl = ttl;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public void setJson(byte[] json) {
+        this.json = json;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    public void setGzip(byte[] gzip) {
+        this.gzip = gzip;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public Integer getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(Integer lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+
+    public Integer getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Integer ttl) {
+        this.ttl = ttl;
+    }
+}
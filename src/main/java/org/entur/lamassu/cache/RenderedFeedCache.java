@@ -0,0 +1,31 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache;
+
+import java.util.concurrent.TimeUnit;
+
+public interface RenderedFeedCache {
+    String V2_3 = "2.3";
+    String V3_0_RC = "3.0-RC";
+
+    RenderedFeed find(String version, String feedName, String systemId);
+    void update(String version, String feedName, String systemId, RenderedFeed feed, int ttl, TimeUnit timeUnit);
+    void remove(String version, String feedName, String systemId);
+}
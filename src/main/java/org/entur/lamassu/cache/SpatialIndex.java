@@ -20,16 +20,74 @@ package org.entur.lamassu.cache;
 
 import org.entur.lamassu.model.entities.LocationEntity;
 import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoPosition;
 import org.redisson.api.GeoUnit;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 public interface SpatialIndex<S extends SpatialIndexId, T extends LocationEntity> {
     void addAll(Map<S, T> spatialIndexUpdateMap);
+
+    /**
+     * Add ids which expire after ttl, like the entities they refer to in the entity caches.
+     * Expired ids are left out of query results until they are removed by {@link #removeExpired()}.
+     */
+    void addAll(Map<S, T> spatialIndexUpdateMap, int ttl, TimeUnit timeUnit);
+    void addAll(CacheBatch batch, Map<S, T> spatialIndexUpdateMap, int ttl, TimeUnit timeUnit);
     void removeAll(Set<S> ids);
+    void removeAll(CacheBatch batch, Set<S> ids);
+
+    /**
+     * Remove all expired ids.
+     *
+     * @return the removed ids
+     */
+    List<S> removeExpired();
     List<S> radius(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, GeoOrder geoOrder);
+
+    /**
+     * Find up to count ids within radius matching the filter, nearest first.
+     * The search stops as soon as count matches are found. A null count returns all matches.
+     */
+    List<S> radius(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, Predicate<S> filter, Integer count);
+
+    /**
+     * Count the ids within radius, stopping at limit. Expired ids which are not yet removed are counted.
+     */
+    int count(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, int limit);
+
+    /**
+     * Find the count ids nearest to the given position matching the filter, nearest first.
+     * The search expands outwards from the position and gives up at maxRadius.
+     */
+    List<S> nearest(Double longitude, Double latitude, Double maxRadius, GeoUnit geoUnit, Predicate<S> filter, int count);
+
+    /**
+     * Find ids inside the bounding box matching the filter. If count is given, the count ids
+     * nearest to the center of the box are returned.
+     */
+    List<S> box(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude, Predicate<S> filter, Integer count);
+
+    /**
+     * Count the ids inside the bounding box in square buckets of (at least) bucketSize degrees.
+     * The filter is applied to the ids without their entity id (see {@link SpatialIndexId#withoutId()}).
+     */
+    List<SpatialIndexCluster<S>> clusters(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude, double bucketSize, Predicate<S> filter);
     Collection<S> getAll();
+
+    /**
+     * The positions of the given ids, looked up in one request. Ids not in the index are left out.
+     */
+    Map<S, GeoPosition> getPositions(Collection<S> ids);
+
+    /**
+     * Iterate over all ids in Redis, fetching about count ids per round-trip (ZSCAN).
+     */
+    Iterator<S> scan(int count);
 }
@@ -0,0 +1,60 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of spatial index entries in one bucket of a clustering query, grouped by
+ * id without the entity id (see {@link SpatialIndexId#withoutId()}).
+ */
+public class SpatialIndexCluster<S> {
+    private double longitude;
+    private double latitude;
+    private int count;
+    private final Map<S, Integer> counts = new HashMap<>();
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Map<S, Integer> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Add count entries of the given group, with their summed coordinates
+     */
+    public void add(S group, int count, double longitudeSum, double latitudeSum) {
+        var total = this.count + count;
+        longitude = (longitude * this.count + longitudeSum) / total;
+        latitude = (latitude * this.count + latitudeSum) / total;
+        this.count = total;
+        counts.merge(group, count, Integer::sum);
+    }
+}
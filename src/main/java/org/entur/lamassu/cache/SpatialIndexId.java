@@ -19,4 +19,9 @@
 package org.entur.lamassu.cache;
 
 public interface SpatialIndexId {
+
+    /**
+     * Copy of this id without the entity id, identifying the group of entities sharing its attributes.
+     */
+    SpatialIndexId withoutId();
 }
@@ -0,0 +1,5 @@
+package org.entur.lamassu.cache;
+
+import org.entur.lamassu.model.entities.Station;
+
+public interface StationChangeTopic extends EntityChangeTopic<StationSpatialIndexId, Station> {}
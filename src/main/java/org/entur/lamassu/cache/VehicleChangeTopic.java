@@ -0,0 +1,5 @@
+package org.entur.lamassu.cache;
+
+import org.entur.lamassu.model.entities.Vehicle;
+
+public interface VehicleChangeTopic extends EntityChangeTopic<VehicleSpatialIndexId, Vehicle> {}
@@ -0,0 +1,53 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.CacheBatch;
+import org.entur.lamassu.cache.CacheBatchFactory;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CacheBatchFactoryImpl implements CacheBatchFactory {
+    private final RedissonClient redissonClient;
+    private final boolean atomic;
+    private final int chunkSize;
+
+    @Autowired
+    public CacheBatchFactoryImpl(
+            RedissonClient redissonClient,
+            @Value("${org.entur.lamassu.batchWrites.atomic:false}") boolean atomic,
+            @Value("${org.entur.lamassu.batchWrites.chunkSize:10000}") int chunkSize
+    ) {
+        this.redissonClient = redissonClient;
+        this.atomic = atomic;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public CacheBatch createBatch() {
+        var batchOptions = BatchOptions.defaults()
+                .executionMode(atomic ? BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC : BatchOptions.ExecutionMode.IN_MEMORY)
+                .skipResult();
+        return new CacheBatch(redissonClient, batchOptions, chunkSize);
+    }
+}
@@ -1,5 +1,6 @@
 package org.entur.lamassu.cache.impl;
 
+import org.entur.lamassu.cache.CacheBatch;
 import org.entur.lamassu.cache.EntityCache;
 import org.entur.lamassu.model.entities.Entity;
 import org.redisson.api.RMapCache;
@@ -7,34 +8,83 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 abstract class EntityCacheImpl<T extends Entity> implements EntityCache<T> {
     RMapCache<String, T> cache;
+    NearCache<T> nearCache;
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     protected EntityCacheImpl(RMapCache<String, T> cache) {
+        this(cache, null);
+    }
+
+    protected EntityCacheImpl(RMapCache<String, T> cache, NearCache<T> nearCache) {
         this.cache = cache;
+        this.nearCache = nearCache;
     }
 
     @Override
     public List<T> getAll(Set<String> keys) {
-        return new ArrayList<>(getAllAsMap(keys).values());
+        return getAll(keys, true);
+    }
+
+    @Override
+    public List<T> getAll(Set<String> keys, boolean resolveReferences) {
+        var entities = getAllAsMap(keys, resolveReferences);
+        return keys.stream().map(entities::get).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     @Override
     public List<T> getAll() {
-        return new ArrayList<>(cache.values());
+        var entities = new ArrayList<>(cache.values());
+        resolveReferences(entities);
+        return entities;
     }
 
     @Override
     public Map<String, T> getAllAsMap(Set<String> keys) {
+        return getAllAsMap(keys, true);
+    }
+
+    @Override
+    public Map<String, T> getAllAsMap(Set<String> keys, boolean resolveReferences) {
+        Map<String, T> entities;
+        if (nearCache == null) {
+            entities = getAllAsMapFromCache(keys);
+        } else {
+            entities = new HashMap<>(nearCache.getAllPresent(keys));
+            if (entities.size() < keys.size()) {
+                var missingKeys = keys.stream().filter(key -> !entities.containsKey(key)).collect(Collectors.toSet());
+                var missingEntities = getAllAsMapFromCache(missingKeys);
+                nearCache.putAll(missingEntities);
+                entities.putAll(missingEntities);
+            }
+        }
+
+        if (resolveReferences) {
+            if (nearCache != null) {
+                entities.replaceAll((key, entity) -> copyForResolving(entity));
+            }
+            resolveReferences(entities.values());
+        }
+        return entities;
+    }
+
+    private Map<String, T> getAllAsMapFromCache(Set<String> keys) {
         try {
             return cache.getAllAsync(keys).get(5, TimeUnit.SECONDS);
         } catch ( ExecutionException | TimeoutException e) {
@@ -49,6 +99,29 @@ abstract class EntityCacheImpl<T extends Entity> implements EntityCache<T> {
 
     @Override
     public T get(String key) {
+        T entity;
+        if (nearCache != null) {
+            entity = nearCache.getIfPresent(key);
+            if (entity == null) {
+                entity = getFromCache(key);
+                if (entity != null) {
+                    nearCache.putAll(Map.of(key, entity));
+                }
+            }
+        } else {
+            entity = getFromCache(key);
+        }
+
+        if (entity != null) {
+            if (nearCache != null) {
+                entity = copyForResolving(entity);
+            }
+            resolveReferences(List.of(entity));
+        }
+        return entity;
+    }
+
+    private T getFromCache(String key) {
         try {
             return cache.getAsync(key).get(5, TimeUnit.SECONDS);
         } catch (ExecutionException | TimeoutException e) {
@@ -60,18 +133,73 @@ abstract class EntityCacheImpl<T extends Entity> implements EntityCache<T> {
         return null;
     }
 
+    /**
+     * Resolve references to entities which are cached separately, for entities read from the cache.
+     */
+    protected void resolveReferences(Collection<T> entities) {
+    }
+
+    /**
+     * Entities in the near cache are shared by all readers, so their references are resolved onto
+     * copies of them. Caches which resolve references must return a copy here.
+     */
+    protected T copyForResolving(T entity) {
+        return entity;
+    }
+
     @Override
     public void updateAll(Map<String, T> entities, int ttl, TimeUnit timeUnit) {
         cache.putAll(entities, ttl, timeUnit);
+
+        if (nearCache != null) {
+            nearCache.invalidateAll(entities.keySet());
+        }
+    }
+
+    @Override
+    public void updateAll(CacheBatch batch, Map<String, T> entities, int ttl, TimeUnit timeUnit) {
+        batch.forEachChunk(entities.entrySet(), chunk -> {
+            Map<String, T> chunkEntities = new HashMap<>();
+            chunk.forEach(entry -> chunkEntities.put(entry.getKey(), entry.getValue()));
+
+            batch.getBatch(chunkEntities.size())
+                    .<String, T>getMapCache(cache.getName(), cache.getCodec())
+                    .putAllAsync(chunkEntities, ttl, timeUnit);
+
+            if (nearCache != null) {
+                batch.onAttempted(() -> nearCache.invalidateAll(chunkEntities.keySet()));
+            }
+        });
+    }
+
+    @Override
+    public void removeAll(CacheBatch batch, Set<String> keys) {
+        batch.forEachChunk(keys, chunk -> {
+            batch.getBatch(chunk.size())
+                    .<String, T>getMapCache(cache.getName(), cache.getCodec())
+                    .fastRemoveAsync(chunk.toArray(new String[0]));
+
+            if (nearCache != null) {
+                batch.onAttempted(() -> nearCache.invalidateAll(new HashSet<>(chunk)));
+            }
+        });
     }
 
     @Override
     public void removeAll(Set<String> keys) {
-        cache.fastRemoveAsync(String.valueOf(keys));
+        cache.fastRemoveAsync(keys.toArray(new String[0]));
+
+        if (nearCache != null) {
+            nearCache.invalidateAll(keys);
+        }
     }
 
     @Override
     public boolean hasKey(String key) {
+        if (nearCache != null && nearCache.getIfPresent(key) != null) {
+            return true;
+        }
+
         try {
             return cache.containsKeyAsync(key).get();
         } catch (InterruptedException e) {
@@ -82,4 +210,28 @@ abstract class EntityCacheImpl<T extends Entity> implements EntityCache<T> {
         }
         return false;
     }
+
+    @Override
+    public Set<String> getExistingKeys(Collection<String> keys) {
+        // The requests are sent without waiting for each response, so they share round-trips to Redis
+        Map<String, CompletableFuture<Boolean>> requests = new LinkedHashMap<>();
+        keys.forEach(key -> requests.put(key, cache.containsKeyAsync(key).toCompletableFuture()));
+
+        try {
+            CompletableFuture.allOf(requests.values().toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Treat all keys as present, so that callers don't act on missing entities that may exist
+            logger.warn("Unable to check if cache has keys within 5 seconds", e);
+            return new HashSet<>(keys);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while checking if cache has keys", e);
+            Thread.currentThread().interrupt();
+            return new HashSet<>(keys);
+        }
+
+        return requests.entrySet().stream()
+                .filter(entry -> Boolean.TRUE.equals(entry.getValue().join()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
 }
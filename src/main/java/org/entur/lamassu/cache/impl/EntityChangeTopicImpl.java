@@ -0,0 +1,76 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.CacheBatch;
+import org.entur.lamassu.cache.EntityChange;
+import org.entur.lamassu.cache.EntityChangeTopic;
+import org.entur.lamassu.cache.SpatialIndexId;
+import org.entur.lamassu.model.entities.LocationEntity;
+import org.redisson.api.RTopic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+abstract class EntityChangeTopicImpl<S extends SpatialIndexId, T extends LocationEntity> implements EntityChangeTopic<S, T> {
+    private final RTopic topic;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Value("${org.entur.lamassu.subscriptions.enabled:false}")
+    private boolean enabled;
+
+    protected EntityChangeTopicImpl(RTopic topic) {
+        this.topic = topic;
+    }
+
+    @Override
+    public void publish(CacheBatch batch, List<EntityChange<S, T>> changes) {
+        if (!enabled || changes.isEmpty()) {
+            return;
+        }
+
+        // Instances only listen while they have subscriptions, so the changes are left out
+        // unless one of them does
+        var message = new ArrayList<>(changes);
+        batch.onExecuted(() -> topic.countSubscribersAsync()
+                .thenCompose(subscribers -> subscribers > 0 ? topic.publishAsync(message) : CompletableFuture.completedFuture(0L))
+                .whenComplete((receivers, e) -> {
+                    if (e != null) {
+                        logger.warn("Unable to publish {} entity changes", message.size(), e);
+                    }
+                }));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int addListener(Consumer<List<EntityChange<S, T>>> listener) {
+        return topic.addListener(List.class, (channel, changes) -> listener.accept(changes));
+    }
+
+    @Override
+    public void removeListener(int listenerId) {
+        topic.removeListener(listenerId);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.PricingPlanCache;
+import org.entur.lamassu.cache.SystemCache;
+import org.entur.lamassu.cache.VehicleTypeCache;
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.util.CacheUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Vehicles and stations are cached with the ids of their vehicle type, pricing plans and system,
+ * which are cached separately. This resolves the ids of entities read from the cache into the
+ * referenced entities, with one lookup per referenced cache.
+ */
+@Component
+public class EntityReferenceResolver {
+    private final VehicleTypeCache vehicleTypeCache;
+    private final PricingPlanCache pricingPlanCache;
+    private final SystemCache systemCache;
+
+    @Autowired
+    public EntityReferenceResolver(
+            VehicleTypeCache vehicleTypeCache,
+            PricingPlanCache pricingPlanCache,
+            SystemCache systemCache
+    ) {
+        this.vehicleTypeCache = vehicleTypeCache;
+        this.pricingPlanCache = pricingPlanCache;
+        this.systemCache = systemCache;
+    }
+
+    public void resolveVehicleReferences(Collection<Vehicle> entities) {
+        var vehicles = entities.stream()
+                .filter(EntityReferenceResolver::hasUnresolvedReferences)
+                .collect(Collectors.toList());
+        if (vehicles.isEmpty()) {
+            return;
+        }
+
+        var vehicleTypes = vehicleTypeCache.getAllAsMap(getIds(vehicles, CacheUtil::getVehicleTypeKey));
+        var pricingPlans = pricingPlanCache.getAllAsMap(getIds(vehicles, CacheUtil::getPricingPlanKey));
+        var systems = systemCache.getAllAsMap(getIds(vehicles, Vehicle::getSystemId));
+
+        vehicles.forEach(vehicle -> {
+            if (vehicle.getVehicleTypeId() != null) {
+                vehicle.setVehicleType(vehicleTypes.get(CacheUtil.getVehicleTypeKey(vehicle)));
+            }
+            if (vehicle.getPricingPlanId() != null) {
+                vehicle.setPricingPlan(pricingPlans.get(CacheUtil.getPricingPlanKey(vehicle)));
+            }
+            if (vehicle.getSystemId() != null) {
+                vehicle.setSystem(systems.get(vehicle.getSystemId()));
+            }
+        });
+    }
+
+    public void resolveStationReferences(Collection<Station> entities) {
+        var stations = entities.stream()
+                .filter(EntityReferenceResolver::hasUnresolvedReferences)
+                .collect(Collectors.toList());
+        if (stations.isEmpty()) {
+            return;
+        }
+
+        var pricingPlans = pricingPlanCache.getAllAsMap(
+                stations.stream()
+                        .filter(station -> station.getPricingPlanIds() != null)
+                        .flatMap(station -> CacheUtil.getPricingPlanKeys(station).stream())
+                        .collect(Collectors.toSet())
+        );
+        var systems = systemCache.getAllAsMap(getIds(stations, Station::getSystemId));
+
+        stations.forEach(station -> {
+            if (station.getPricingPlanIds() != null) {
+                station.setPricingPlans(getPricingPlans(CacheUtil.getPricingPlanKeys(station), pricingPlans));
+            }
+            if (station.getSystemId() != null) {
+                station.setSystem(systems.get(station.getSystemId()));
+            }
+        });
+    }
+
+    private static boolean hasUnresolvedReferences(Vehicle vehicle) {
+        return (vehicle.getVehicleTypeId() != null && vehicle.getVehicleType() == null)
+                || (vehicle.getPricingPlanId() != null && vehicle.getPricingPlan() == null)
+                || (vehicle.getSystemId() != null && vehicle.getSystem() == null);
+    }
+
+    private static boolean hasUnresolvedReferences(Station station) {
+        return (station.getPricingPlanIds() != null && station.getPricingPlans() == null)
+                || (station.getSystemId() != null && station.getSystem() == null);
+    }
+
+    private List<PricingPlan> getPricingPlans(List<String> keys, Map<String, PricingPlan> pricingPlans) {
+        return keys.stream()
+                .map(pricingPlans::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private <T> Set<String> getIds(Collection<T> entities, Function<T, String> idFunction) {
+        return entities.stream()
+                .map(idFunction)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+}
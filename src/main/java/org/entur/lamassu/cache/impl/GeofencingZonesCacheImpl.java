@@ -23,9 +23,11 @@ import org.entur.lamassu.model.entities.GeofencingZones;
 import org.redisson.api.RMapCache;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 @Component
 public class GeofencingZonesCacheImpl extends EntityCacheImpl<GeofencingZones> implements GeofencingZonesCache {
-    protected GeofencingZonesCacheImpl(RMapCache<String, GeofencingZones> cache) {
-        super(cache);
+    protected GeofencingZonesCacheImpl(RMapCache<String, GeofencingZones> cache, Optional<NearCache<GeofencingZones>> nearCache) {
+        super(cache, nearCache.orElse(null));
     }
 }
@@ -0,0 +1,189 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.entur.lamassu.cache.GeofencingZonesCache;
+import org.entur.lamassu.cache.GeofencingZonesIndex;
+import org.entur.lamassu.model.entities.GeofencingZones;
+import org.redisson.api.RTopic;
+import org.redisson.api.listener.StatusListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Builds an R-tree over the zone polygons of a system when its geofencing zones are updated, or on the
+ * first lookup for the system. The leader publishes the ids of updated systems on a topic, and every
+ * instance rebuilds their trees from the cache. Trees also expire after a fixed time, which bounds
+ * staleness from missed messages and from zones expiring in Redis.
+ */
+@Component
+public class GeofencingZonesIndexImpl implements GeofencingZonesIndex {
+    private final GeofencingZonesCache geofencingZonesCache;
+    private final RTopic updates;
+    private final Cache<String, SystemGeofencingZones> indexes;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private final Logger logger = LoggerFactory.getLogger(GeofencingZonesIndexImpl.class);
+
+    @Autowired
+    public GeofencingZonesIndexImpl(
+            GeofencingZonesCache geofencingZonesCache,
+            @Qualifier("geofencingZonesUpdates") RTopic updates,
+            @Value("${org.entur.lamassu.geofencingZonesIndex.expireAfterWriteSeconds:300}") long expireAfterWriteSeconds
+    ) {
+        this.geofencingZonesCache = geofencingZonesCache;
+        this.updates = updates;
+        this.indexes = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        updates.addListener(new StatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                // Updates may have been missed while not subscribed
+                invalidateAll();
+            }
+
+            @Override
+            public void onUnsubscribe(String channel) {
+                invalidateAll();
+            }
+        });
+        updates.addListener(String.class, (channel, systemId) -> CompletableFuture.runAsync(() -> rebuild(systemId)));
+    }
+
+    @Override
+    public void update(String systemId) {
+        updates.publishAsync(systemId);
+    }
+
+    @Override
+    public List<GeofencingZones.Feature> getZonesAt(String systemId, double longitude, double latitude) {
+        var index = indexes.get(systemId, this::build);
+        return index.getTree().query(longitude, latitude).stream()
+                .map(index.getFeatures()::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<GeofencingZones.Feature> getZonesWithin(String systemId, double minimumLongitude, double minimumLatitude, double maximumLongitude, double maximumLatitude) {
+        var index = indexes.get(systemId, this::build);
+        return index.getTree().query(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude).stream()
+                .map(index.getFeatures()::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private void rebuild(String systemId) {
+        try {
+            indexes.put(systemId, build(systemId));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild geofencing zones index of system {}", systemId, e);
+            indexes.invalidate(systemId);
+        }
+        notifyListeners(systemId);
+    }
+
+    private void invalidateAll() {
+        var systemIds = List.copyOf(indexes.asMap().keySet());
+        indexes.invalidateAll();
+        systemIds.forEach(this::notifyListeners);
+    }
+
+    private void notifyListeners(String systemId) {
+        listeners.forEach(listener -> listener.accept(systemId));
+    }
+
+    private SystemGeofencingZones build(String systemId) {
+        var geofencingZones = geofencingZonesCache.get(systemId);
+        if (geofencingZones == null || geofencingZones.getGeojson() == null || geofencingZones.getGeojson().getFeatures() == null) {
+            return new SystemGeofencingZones(List.of(), new PolygonRTree(List.of()));
+        }
+
+        var features = geofencingZones.getGeojson().getFeatures();
+        var polygons = new ArrayList<PolygonRTree.Polygon>();
+
+        for (int i = 0; i < features.size(); i++) {
+            var geometry = features.get(i).getGeometry();
+            if (geometry == null || geometry.getCoordinates() == null) {
+                continue;
+            }
+
+            for (List<List<List<Double>>> polygon : geometry.getCoordinates()) {
+                polygons.add(new PolygonRTree.Polygon(i, toRings(polygon)));
+            }
+        }
+
+        logger.debug("Built geofencing zones index of system {} with {} polygons", systemId, polygons.size());
+        return new SystemGeofencingZones(features, new PolygonRTree(polygons));
+    }
+
+    private static double[][] toRings(List<List<List<Double>>> polygon) {
+        var rings = new double[polygon.size()][];
+        for (int i = 0; i < polygon.size(); i++) {
+            var ring = polygon.get(i);
+            rings[i] = new double[ring.size() * 2];
+            for (int j = 0; j < ring.size(); j++) {
+                rings[i][2 * j] = ring.get(j).get(0);
+                rings[i][2 * j + 1] = ring.get(j).get(1);
+            }
+        }
+        return rings;
+    }
+
+    private static class SystemGeofencingZones {
+        private final List<GeofencingZones.Feature> features;
+        private final PolygonRTree tree;
+
+        SystemGeofencingZones(List<GeofencingZones.Feature> features, PolygonRTree tree) {
+            this.features = features;
+            this.tree = tree;
+        }
+
+        List<GeofencingZones.Feature> getFeatures() {
+            return features;
+        }
+
+        PolygonRTree getTree() {
+            return tree;
+        }
+    }
+}
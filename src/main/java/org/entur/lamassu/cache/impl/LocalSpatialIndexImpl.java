@@ -0,0 +1,238 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.CacheBatch;
+import org.entur.lamassu.cache.SpatialIndexCluster;
+import org.entur.lamassu.cache.SpatialIndexId;
+import org.entur.lamassu.model.entities.LocationEntity;
+import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoPosition;
+import org.redisson.api.GeoUnit;
+import org.redisson.api.RGeo;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.listener.StatusListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index keeping an in-heap replica of the Redis spatial index, so that queries are answered
+ * without a round-trip to Redis. Writes still go to Redis, which remains the source of truth, and are
+ * then published as change sets on a topic which every instance applies to its replica. The replica
+ * is (re)loaded from Redis whenever the topic subscription is (re)established.
+ */
+public abstract class LocalSpatialIndexImpl<S extends SpatialIndexId, T extends LocationEntity> extends SpatialIndexImpl<S, T> {
+    private static final double CELL_SIZE = 0.01;
+    private static final int SNAPSHOT_CHUNK_SIZE = 10000;
+
+    private final RTopic updates;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private volatile SpatialGrid<S> grid = createGrid();
+    private List<SpatialIndexUpdate<S>> pendingUpdates;
+
+    protected LocalSpatialIndexImpl(RGeo<S> spatialIndex, RScoredSortedSet<S> expiries, RScript script, RTopic updates) {
+        super(spatialIndex, expiries, script);
+        this.updates = updates;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+        updates.addListener(new StatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                CompletableFuture.runAsync(LocalSpatialIndexImpl.this::reload);
+            }
+
+            @Override
+            public void onUnsubscribe(String channel) {
+                // Nothing to do, the replica is reloaded on the next subscribe
+            }
+        });
+        updates.addListener(SpatialIndexUpdate.class, (channel, update) -> onUpdate(update));
+    }
+
+    @Override
+    public void addAll(Map<S, T> spatialIndexUpdateMap) {
+        // Replicas only receive entries which were written, so they don't hold entries missing in redis
+        if (tryAddAll(spatialIndexUpdateMap)) {
+            publish(createAddedUpdate(spatialIndexUpdateMap));
+        }
+    }
+
+    private SpatialIndexUpdate<S> createAddedUpdate(Map<S, T> spatialIndexUpdateMap) {
+        var update = new SpatialIndexUpdate<S>();
+        spatialIndexUpdateMap.forEach((id, entity) -> {
+            if (entity != null && entity.getLat() != null && entity.getLon() != null) {
+                update.getAdded().put(id, new double[] { entity.getLon(), entity.getLat() });
+            }
+        });
+        return update;
+    }
+
+    @Override
+    public void removeAll(Set<S> ids) {
+        super.removeAll(ids);
+
+        var update = new SpatialIndexUpdate<S>();
+        update.getRemoved().addAll(ids);
+        publish(update);
+    }
+
+    @Override
+    public void addAll(CacheBatch batch, Map<S, T> spatialIndexUpdateMap, int ttl, TimeUnit timeUnit) {
+        super.addAll(batch, spatialIndexUpdateMap, ttl, timeUnit);
+        var update = createAddedUpdate(spatialIndexUpdateMap);
+        batch.onExecuted(() -> publish(update));
+    }
+
+    @Override
+    public void removeAll(CacheBatch batch, Set<S> ids) {
+        super.removeAll(batch, ids);
+        var update = new SpatialIndexUpdate<S>();
+        update.getRemoved().addAll(ids);
+        batch.onExecuted(() -> publish(update));
+    }
+
+    @Override
+    public List<S> removeExpired() {
+        var removed = super.removeExpired();
+        if (removed.isEmpty()) {
+            return removed;
+        }
+
+        // The replicas don't know about expiry, so expired ids are only left out of query results once removed
+        var update = new SpatialIndexUpdate<S>();
+        update.getRemoved().addAll(removed);
+        publish(update);
+        return removed;
+    }
+
+    @Override
+    public List<S> radius(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, GeoOrder geoOrder) {
+        return grid.radius(longitude, latitude, radius, geoUnit, geoOrder);
+    }
+
+    @Override
+    public List<S> radius(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, Predicate<S> filter, Integer count) {
+        return grid.radius(longitude, latitude, radius, geoUnit, filter, count);
+    }
+
+    @Override
+    public int count(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, int limit) {
+        return grid.count(longitude, latitude, radius, geoUnit, limit);
+    }
+
+    @Override
+    public List<S> nearest(Double longitude, Double latitude, Double maxRadius, GeoUnit geoUnit, Predicate<S> filter, int count) {
+        return grid.nearest(longitude, latitude, maxRadius, geoUnit, filter, count);
+    }
+
+    @Override
+    public List<S> box(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude, Predicate<S> filter, Integer count) {
+        return grid.box(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude, filter, count);
+    }
+
+    @Override
+    public List<SpatialIndexCluster<S>> clusters(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude, double bucketSize, Predicate<S> filter) {
+        return grid.clusters(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude, bucketSize, filter);
+    }
+
+    @Override
+    public Collection<S> getAll() {
+        return grid.getAll();
+    }
+
+    @Override
+    public Map<S, GeoPosition> getPositions(Collection<S> ids) {
+        return grid.positions(ids);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SpatialGrid<S> createGrid() {
+        return new SpatialGrid<>(CELL_SIZE, id -> (S) id.withoutId());
+    }
+
+    private void publish(SpatialIndexUpdate<S> update) {
+        if (update.getAdded().isEmpty() && update.getRemoved().isEmpty()) {
+            return;
+        }
+        updates.publishAsync(update);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onUpdate(SpatialIndexUpdate update) {
+        synchronized (this) {
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+            }
+        }
+        apply(grid, update);
+    }
+
+    private void apply(SpatialGrid<S> target, SpatialIndexUpdate<S> update) {
+        update.getRemoved().forEach(target::remove);
+        update.getAdded().forEach((id, position) -> target.put(id, position[0], position[1]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reload() {
+        synchronized (this) {
+            pendingUpdates = new ArrayList<>();
+        }
+
+        var snapshot = createGrid();
+
+        try {
+            var members = new ArrayList<>(spatialIndex.readAll());
+            for (int i = 0; i < members.size(); i += SNAPSHOT_CHUNK_SIZE) {
+                var chunk = members.subList(i, Math.min(members.size(), i + SNAPSHOT_CHUNK_SIZE));
+                spatialIndex.pos((S[]) chunk.toArray())
+                        .forEach((id, position) -> snapshot.put(id, position.getLongitude(), position.getLatitude()));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Caught exception while loading local spatial index from Redis", e);
+            synchronized (this) {
+                pendingUpdates = null;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            pendingUpdates.forEach(update -> apply(snapshot, update));
+            pendingUpdates = null;
+            grid = snapshot;
+        }
+
+        logger.info("Loaded {} entries into local spatial index", snapshot.size());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.StationSpatialIndex;
+import org.entur.lamassu.cache.StationSpatialIndexId;
+import org.entur.lamassu.model.entities.Station;
+import org.redisson.api.RGeo;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(value = "org.entur.lamassu.enableLocalSpatialIndex", havingValue = "true")
+public class LocalStationSpatialIndexImpl extends LocalSpatialIndexImpl<StationSpatialIndexId, Station> implements StationSpatialIndex {
+
+    @Autowired
+    public LocalStationSpatialIndexImpl(
+            RGeo<StationSpatialIndexId> stationSpatialIndex,
+            @Qualifier("stationSpatialIndexExpiries") RScoredSortedSet<StationSpatialIndexId> stationSpatialIndexExpiries,
+            RedissonClient redissonClient,
+            @Qualifier("stationSpatialIndexUpdates") RTopic stationSpatialIndexUpdates
+    ) {
+        super(stationSpatialIndex, stationSpatialIndexExpiries, redissonClient.getScript(ByteArrayCodec.INSTANCE), stationSpatialIndexUpdates);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.redisson.api.RTopic;
+import org.redisson.api.listener.StatusListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded in-heap copy of the most recently read entries of an entity cache. Writers publish the keys
+ * they change on a topic, and every instance evicts those keys from its near cache. Entries also expire
+ * after a fixed time, which bounds staleness from missed messages and from entries expiring in Redis.
+ */
+public class NearCache<T> {
+    private final Cache<String, T> cache;
+    private final RTopic invalidations;
+
+    public NearCache(RTopic invalidations, long maximumSize, Duration expireAfterWrite) {
+        this.invalidations = invalidations;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+
+        invalidations.addListener(new StatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                // Messages may have been missed while not subscribed
+                cache.invalidateAll();
+            }
+
+            @Override
+            public void onUnsubscribe(String channel) {
+                cache.invalidateAll();
+            }
+        });
+        invalidations.addListener(Set.class, (channel, keys) -> cache.invalidateAll(keys));
+    }
+
+    public T getIfPresent(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public Map<String, T> getAllPresent(Set<String> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    public void putAll(Map<String, T> entities) {
+        cache.putAll(entities);
+    }
+
+    public void invalidateAll(Set<String> keys) {
+        cache.invalidateAll(keys);
+        invalidations.publishAsync(new HashSet<>(keys));
+    }
+}
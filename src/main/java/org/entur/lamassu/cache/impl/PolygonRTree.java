@@ -0,0 +1,244 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Immutable R-tree over polygons, bulk loaded with Sort-Tile-Recursive packing: the polygons are
+ * sorted into vertical slices by the x of their center, each slice is sorted by y and cut into full
+ * nodes, and the nodes are packed the same way level by level up to the root.
+ */
+public class PolygonRTree {
+    private static final int NODE_CAPACITY = 16;
+
+    private final Node root;
+    private final int size;
+
+    public PolygonRTree(List<Polygon> polygons) {
+        this.size = polygons.size();
+        this.root = polygons.isEmpty() ? null : build(polygons);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Values of the polygons containing the point, in ascending order
+     */
+    public SortedSet<Integer> query(double x, double y) {
+        var values = new TreeSet<Integer>();
+        if (root == null) {
+            return values;
+        }
+
+        var nodes = new ArrayDeque<Node>();
+        nodes.push(root);
+
+        while (!nodes.isEmpty()) {
+            var node = nodes.pop();
+            if (node.children != null) {
+                for (Node child : node.children) {
+                    if (child.covers(x, y)) {
+                        nodes.push(child);
+                    }
+                }
+            } else {
+                for (Polygon polygon : node.polygons) {
+                    if (polygon.covers(x, y) && polygon.contains(x, y)) {
+                        values.add(polygon.value);
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Values of the polygons whose envelopes intersect the envelope, in ascending order
+     */
+    public SortedSet<Integer> query(double minX, double minY, double maxX, double maxY) {
+        var values = new TreeSet<Integer>();
+        if (root == null) {
+            return values;
+        }
+
+        var nodes = new ArrayDeque<Node>();
+        nodes.push(root);
+
+        while (!nodes.isEmpty()) {
+            var node = nodes.pop();
+            if (node.children != null) {
+                for (Node child : node.children) {
+                    if (child.intersects(minX, minY, maxX, maxY)) {
+                        nodes.push(child);
+                    }
+                }
+            } else {
+                for (Polygon polygon : node.polygons) {
+                    if (polygon.intersects(minX, minY, maxX, maxY)) {
+                        values.add(polygon.value);
+                    }
+                }
+            }
+        }
+
+        return values;
+    }
+
+    private static Node build(List<Polygon> polygons) {
+        var nodes = new ArrayList<Node>();
+        for (List<Polygon> group : pack(polygons)) {
+            nodes.add(new Node(null, group.toArray(new Polygon[0])));
+        }
+
+        while (nodes.size() > 1) {
+            var parents = new ArrayList<Node>();
+            for (List<Node> group : pack(nodes)) {
+                parents.add(new Node(group.toArray(new Node[0]), null));
+            }
+            nodes = parents;
+        }
+
+        return nodes.get(0);
+    }
+
+    private static <T extends Envelope> List<List<T>> pack(List<T> items) {
+        int nodeCount = (int) Math.ceil(items.size() / (double) NODE_CAPACITY);
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * NODE_CAPACITY;
+
+        var sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparingDouble(Envelope::centerX));
+
+        List<List<T>> groups = new ArrayList<>();
+        for (int sliceStart = 0; sliceStart < sorted.size(); sliceStart += sliceSize) {
+            var slice = new ArrayList<>(sorted.subList(sliceStart, Math.min(sliceStart + sliceSize, sorted.size())));
+            slice.sort(Comparator.comparingDouble(Envelope::centerY));
+
+            for (int groupStart = 0; groupStart < slice.size(); groupStart += NODE_CAPACITY) {
+                groups.add(slice.subList(groupStart, Math.min(groupStart + NODE_CAPACITY, slice.size())));
+            }
+        }
+        return groups;
+    }
+
+    private abstract static class Envelope {
+        protected double minX = Double.POSITIVE_INFINITY;
+        protected double minY = Double.POSITIVE_INFINITY;
+        protected double maxX = Double.NEGATIVE_INFINITY;
+        protected double maxY = Double.NEGATIVE_INFINITY;
+
+        protected void expand(double x, double y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        protected void expand(Envelope envelope) {
+            expand(envelope.minX, envelope.minY);
+            expand(envelope.maxX, envelope.maxY);
+        }
+
+        boolean covers(double x, double y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        boolean intersects(double minX, double minY, double maxX, double maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+
+        double centerX() {
+            return (minX + maxX) / 2;
+        }
+
+        double centerY() {
+            return (minY + maxY) / 2;
+        }
+    }
+
+    private static class Node extends Envelope {
+        private final Node[] children;
+        private final Polygon[] polygons;
+
+        Node(Node[] children, Polygon[] polygons) {
+            this.children = children;
+            this.polygons = polygons;
+
+            for (Envelope envelope : children != null ? children : polygons) {
+                expand(envelope);
+            }
+        }
+    }
+
+    /**
+     * Polygon with holes, given as rings of interleaved x and y coordinates, the first ring being the shell
+     */
+    public static class Polygon extends Envelope {
+        private final int value;
+        private final double[][] rings;
+
+        public Polygon(int value, double[][] rings) {
+            this.value = value;
+            this.rings = rings;
+
+            for (double[] ring : rings) {
+                for (int i = 0; i + 1 < ring.length; i += 2) {
+                    expand(ring[i], ring[i + 1]);
+                }
+            }
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Even-odd rule over all rings, so points within holes are outside
+         */
+        boolean contains(double x, double y) {
+            boolean inside = false;
+
+            for (double[] ring : rings) {
+                int points = ring.length / 2;
+                for (int i = 0, j = points - 1; i < points; j = i++) {
+                    double xi = ring[2 * i];
+                    double yi = ring[2 * i + 1];
+                    double xj = ring[2 * j];
+                    double yj = ring[2 * j + 1];
+
+                    if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                        inside = !inside;
+                    }
+                }
+            }
+
+            return inside;
+        }
+    }
+}
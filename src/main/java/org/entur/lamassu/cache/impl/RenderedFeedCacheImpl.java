@@ -0,0 +1,85 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.RenderedFeed;
+import org.entur.lamassu.cache.RenderedFeedCache;
+import org.redisson.api.RMapCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Component
+public class RenderedFeedCacheImpl implements RenderedFeedCache {
+    private final RMapCache<String, RenderedFeed> cache;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    public RenderedFeedCacheImpl(RMapCache<String, RenderedFeed> renderedFeedCache) {
+        this.cache = renderedFeedCache;
+    }
+
+    @Override
+    public RenderedFeed find(String version, String feedName, String systemId) {
+        try {
+            return cache.getAsync(getKey(version, feedName, systemId)).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Unable to fetch rendered feed from cache within 5 second", e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while fetching rendered feed from cache", e);
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public void update(String version, String feedName, String systemId, RenderedFeed feed, int ttl, TimeUnit timeUnit) {
+        try {
+            cache.fastPutAsync(getKey(version, feedName, systemId), feed, ttl, timeUnit).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Unable to update rendered feed cache within 5 second", e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while updating rendered feed cache", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void remove(String version, String feedName, String systemId) {
+        try {
+            cache.fastRemoveAsync(getKey(version, feedName, systemId)).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Unable to remove rendered feed from cache within 5 second", e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while removing rendered feed from cache", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String getKey(String version, String feedName, String systemId) {
+        return String.format("%s_%s_%s", version, feedName, systemId);
+    }
+}
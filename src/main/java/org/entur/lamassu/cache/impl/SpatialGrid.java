@@ -0,0 +1,595 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.SpatialIndexCluster;
+import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoPosition;
+import org.redisson.api.GeoUnit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * In-heap spatial index bucketing points into a fixed-size lat/lon grid.
+ * Distances are computed with the same haversine formula and earth radius as Redis' GEO commands.
+ * If a grouping function is given, the number of points per group is maintained for each cell,
+ * so that clusters can be computed without visiting the individual points.
+ */
+public class SpatialGrid<S> {
+    static final double EARTH_RADIUS_IN_METERS = 6372797.560856;
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS_IN_METERS * Math.PI / 180;
+
+    private final double cellSize;
+    private final Map<S, Point> points = new ConcurrentHashMap<>();
+    private final Map<Long, Set<S>> cells = new ConcurrentHashMap<>();
+    private final UnaryOperator<S> grouping;
+    private final Map<Long, Map<S, Aggregate>> aggregates = new ConcurrentHashMap<>();
+
+    public SpatialGrid(double cellSize) {
+        this(cellSize, null);
+    }
+
+    public SpatialGrid(double cellSize, UnaryOperator<S> grouping) {
+        this.cellSize = cellSize;
+        this.grouping = grouping;
+    }
+
+    public void put(S id, double longitude, double latitude) {
+        var point = new Point(longitude, latitude, cellKey(cell(longitude), cell(latitude)));
+        var previous = points.put(id, point);
+
+        if (previous != null && previous.cell != point.cell) {
+            removeFromCell(previous.cell, id);
+        }
+
+        if (previous == null || previous.cell != point.cell) {
+            cells.compute(point.cell, (k, ids) -> {
+                var cellIds = ids != null ? ids : ConcurrentHashMap.<S>newKeySet();
+                cellIds.add(id);
+                return cellIds;
+            });
+        }
+
+        if (grouping != null) {
+            var group = grouping.apply(id);
+            if (previous != null) {
+                aggregate(previous.cell, group, new Aggregate(-1, -previous.longitude, -previous.latitude));
+            }
+            aggregate(point.cell, group, new Aggregate(1, longitude, latitude));
+        }
+    }
+
+    public void remove(S id) {
+        var previous = points.remove(id);
+        if (previous != null) {
+            removeFromCell(previous.cell, id);
+            if (grouping != null) {
+                aggregate(previous.cell, grouping.apply(id), new Aggregate(-1, -previous.longitude, -previous.latitude));
+            }
+        }
+    }
+
+    public List<S> radius(double longitude, double latitude, double radius, GeoUnit geoUnit, GeoOrder geoOrder) {
+        var matches = radius(longitude, latitude, radius, geoUnit, id -> true, null);
+        if (geoOrder == GeoOrder.DESC) {
+            Collections.reverse(matches);
+        }
+        return matches;
+    }
+
+    /**
+     * Find the entries within radius matching the filter, nearest first. Cells are visited in order of
+     * their distance from the center, and the search stops as soon as no remaining cell can contain an
+     * entry nearer than the count matches already found.
+     */
+    public List<S> radius(double longitude, double latitude, double radius, GeoUnit geoUnit, Predicate<S> filter, Integer count) {
+        if (count != null && count <= 0) {
+            return new ArrayList<>();
+        }
+
+        var radiusInMeters = toMeters(radius, geoUnit);
+        var latitudeDelta = radiusInMeters / METERS_PER_DEGREE;
+        var longitudeDelta = longitudeDelta(latitude, latitudeDelta);
+
+        var minLatCell = cell(Math.max(-90, latitude - latitudeDelta));
+        var maxLatCell = cell(Math.min(90, latitude + latitudeDelta));
+        var minLonCell = cell(Math.max(-180, longitude - longitudeDelta));
+        var maxLonCell = cell(Math.min(180, longitude + longitudeDelta));
+
+        List<Match<Set<S>>> candidateCells = new ArrayList<>();
+
+        for (var latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (var lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                var cell = cells.get(cellKey(lonCell, latCell));
+                if (cell != null) {
+                    var cellDistance = cellDistance(longitude, latitude, lonCell, latCell);
+                    if (cellDistance <= radiusInMeters) {
+                        candidateCells.add(new Match<>(cell, cellDistance));
+                    }
+                }
+            }
+        }
+
+        candidateCells.sort(Comparator.comparingDouble(m -> m.distance));
+
+        // Max-heap on distance holding the best matches found so far
+        PriorityQueue<Match<S>> matches = new PriorityQueue<>(Comparator.comparingDouble((Match<S> m) -> m.distance).reversed());
+
+        var limit = count != null ? count : Integer.MAX_VALUE;
+        for (var candidateCell : candidateCells) {
+            if (!collect(candidateCell, longitude, latitude, radiusInMeters, filter, limit, matches)) {
+                break;
+            }
+        }
+
+        return sorted(matches);
+    }
+
+    /**
+     * Count the entries within radius, up to limit. Cells entirely within the radius are counted without
+     * visiting their entries, and counting stops as soon as limit is reached.
+     */
+    public int count(double longitude, double latitude, double radius, GeoUnit geoUnit, int limit) {
+        if (limit <= 0) {
+            return 0;
+        }
+
+        var radiusInMeters = toMeters(radius, geoUnit);
+        var latitudeDelta = radiusInMeters / METERS_PER_DEGREE;
+        var longitudeDelta = longitudeDelta(latitude, latitudeDelta);
+
+        var minLatCell = cell(Math.max(-90, latitude - latitudeDelta));
+        var maxLatCell = cell(Math.min(90, latitude + latitudeDelta));
+        var minLonCell = cell(Math.max(-180, longitude - longitudeDelta));
+        var maxLonCell = cell(Math.min(180, longitude + longitudeDelta));
+
+        var count = 0;
+        for (var latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (var lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                var cell = cells.get(cellKey(lonCell, latCell));
+                if (cell == null || cellDistance(longitude, latitude, lonCell, latCell) > radiusInMeters) {
+                    continue;
+                }
+
+                if (farthestCornerDistance(longitude, latitude, lonCell, latCell) <= radiusInMeters) {
+                    count += cell.size();
+                } else {
+                    for (S id : cell) {
+                        var point = points.get(id);
+                        if (point != null && distance(longitude, latitude, point.longitude, point.latitude) <= radiusInMeters) {
+                            count++;
+                        }
+                    }
+                }
+
+                if (count >= limit) {
+                    return limit;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the count entries nearest to the center matching the filter, searching outwards ring by ring
+     * of cells until no cell outside the rings visited so far can hold a nearer match, or maxRadius is reached.
+     * Rings are clipped to the cells covering maxRadius, so that near the poles, where the distance to cells
+     * outside a ring grows slowly, the search visits no more cells than a radius search would.
+     */
+    public List<S> nearest(double longitude, double latitude, double maxRadius, GeoUnit geoUnit, Predicate<S> filter, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+
+        var maxRadiusInMeters = toMeters(maxRadius, geoUnit);
+        var latitudeDelta = maxRadiusInMeters / METERS_PER_DEGREE;
+        var longitudeDelta = longitudeDelta(latitude, latitudeDelta);
+
+        var bounds = new CellBounds(
+                cell(Math.max(-180, longitude - longitudeDelta)),
+                cell(Math.max(-90, latitude - latitudeDelta)),
+                cell(Math.min(180, longitude + longitudeDelta)),
+                cell(Math.min(90, latitude + latitudeDelta))
+        );
+        var centerLonCell = cell(longitude);
+        var centerLatCell = cell(latitude);
+        var maxRing = Math.max(
+                Math.max(centerLonCell - bounds.minLonCell, bounds.maxLonCell - centerLonCell),
+                Math.max(centerLatCell - bounds.minLatCell, bounds.maxLatCell - centerLatCell)
+        );
+
+        PriorityQueue<Match<Set<S>>> pendingCells = new PriorityQueue<>(Comparator.comparingDouble(m -> m.distance));
+        PriorityQueue<Match<S>> matches = new PriorityQueue<>(Comparator.comparingDouble((Match<S> m) -> m.distance).reversed());
+
+        var ringDistance = 0d;
+        for (var ring = 0; ring <= maxRing && ringDistance <= maxRadiusInMeters; ring++) {
+            addRing(pendingCells, longitude, latitude, centerLonCell, centerLatCell, ring, bounds, maxRadiusInMeters);
+            ringDistance = ringDistance(longitude, latitude, centerLonCell, centerLatCell, ring);
+
+            while (!pendingCells.isEmpty() && pendingCells.peek().distance <= ringDistance) {
+                if (!collect(pendingCells.poll(), longitude, latitude, maxRadiusInMeters, filter, count, matches)) {
+                    return sorted(matches);
+                }
+            }
+        }
+
+        while (!pendingCells.isEmpty()) {
+            if (!collect(pendingCells.poll(), longitude, latitude, maxRadiusInMeters, filter, count, matches)) {
+                break;
+            }
+        }
+
+        return sorted(matches);
+    }
+
+    /**
+     * Find the entries inside the bounding box matching the filter. If count is given, the count
+     * entries nearest to the center of the box are returned.
+     */
+    public List<S> box(double minimumLongitude, double minimumLatitude, double maximumLongitude, double maximumLatitude, Predicate<S> filter, Integer count) {
+        var centerLongitude = (minimumLongitude + maximumLongitude) / 2;
+        var centerLatitude = (minimumLatitude + maximumLatitude) / 2;
+        var limit = count != null ? count : Integer.MAX_VALUE;
+
+        var minLonCell = cell(minimumLongitude);
+        var maxLonCell = cell(maximumLongitude);
+        var minLatCell = cell(minimumLatitude);
+        var maxLatCell = cell(maximumLatitude);
+
+        PriorityQueue<Match<S>> matches = new PriorityQueue<>(Comparator.comparingDouble((Match<S> m) -> m.distance).reversed());
+
+        Consumer<Set<S>> addCell = cell -> {
+            for (S id : cell) {
+                var point = points.get(id);
+                if (point == null
+                        || point.longitude < minimumLongitude || point.longitude > maximumLongitude
+                        || point.latitude < minimumLatitude || point.latitude > maximumLatitude
+                        || !filter.test(id)) {
+                    continue;
+                }
+                matches.add(new Match<>(id, distance(centerLongitude, centerLatitude, point.longitude, point.latitude)));
+                if (matches.size() > limit) {
+                    matches.poll();
+                }
+            }
+        };
+
+        // Visit either the cells covering the bounding box, or all non-empty cells, whichever is fewer
+        if ((long) (maxLonCell - minLonCell + 1) * (maxLatCell - minLatCell + 1) < cells.size()) {
+            for (var latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (var lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    var cell = cells.get(cellKey(lonCell, latCell));
+                    if (cell != null) {
+                        addCell.accept(cell);
+                    }
+                }
+            }
+        } else {
+            cells.forEach((cellKey, cell) -> {
+                var lonCell = (int) (cellKey & 0xffffffffL);
+                var latCell = (int) (cellKey >> 32);
+                if (lonCell >= minLonCell && lonCell <= maxLonCell && latCell >= minLatCell && latCell <= maxLatCell) {
+                    addCell.accept(cell);
+                }
+            });
+        }
+
+        return sorted(matches);
+    }
+
+    /**
+     * Count the points inside the bounding box per group, in square buckets of bucketSize degrees, rounded
+     * up to a whole number of cells. Only groups matching the filter are counted. Cells are included if their
+     * center is inside the bounding box.
+     */
+    public List<SpatialIndexCluster<S>> clusters(double minimumLongitude, double minimumLatitude, double maximumLongitude, double maximumLatitude, double bucketSize, Predicate<S> filter) {
+        if (grouping == null) {
+            throw new IllegalStateException("Clustering requires a grouping function");
+        }
+
+        var cellsPerBucket = Math.max(1, (int) Math.ceil(bucketSize / cellSize - 1e-9));
+        var minLonCell = cell(minimumLongitude);
+        var maxLonCell = cell(maximumLongitude);
+        var minLatCell = cell(minimumLatitude);
+        var maxLatCell = cell(maximumLatitude);
+
+        Map<Long, SpatialIndexCluster<S>> buckets = new HashMap<>();
+
+        BiConsumer<Long, Map<S, Aggregate>> addCell = (cellKey, cellAggregates) -> {
+            var lonCell = (int) (cellKey & 0xffffffffL);
+            var latCell = (int) (cellKey >> 32);
+            var cellCenterLongitude = (lonCell + 0.5) * cellSize;
+            var cellCenterLatitude = (latCell + 0.5) * cellSize;
+            if (cellCenterLongitude < minimumLongitude || cellCenterLongitude > maximumLongitude
+                    || cellCenterLatitude < minimumLatitude || cellCenterLatitude > maximumLatitude) {
+                return;
+            }
+            var bucketKey = cellKey(Math.floorDiv(lonCell, cellsPerBucket), Math.floorDiv(latCell, cellsPerBucket));
+            cellAggregates.forEach((group, aggregate) -> {
+                if (aggregate.count > 0 && filter.test(group)) {
+                    buckets.computeIfAbsent(bucketKey, k -> new SpatialIndexCluster<>())
+                            .add(group, aggregate.count, aggregate.longitudeSum, aggregate.latitudeSum);
+                }
+            });
+        };
+
+        // Visit either the cells covering the bounding box, or all non-empty cells, whichever is fewer
+        if ((long) (maxLonCell - minLonCell + 1) * (maxLatCell - minLatCell + 1) < aggregates.size()) {
+            for (var latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (var lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    var cellKey = cellKey(lonCell, latCell);
+                    var cellAggregates = aggregates.get(cellKey);
+                    if (cellAggregates != null) {
+                        addCell.accept(cellKey, cellAggregates);
+                    }
+                }
+            }
+        } else {
+            aggregates.forEach(addCell);
+        }
+
+        return new ArrayList<>(buckets.values());
+    }
+
+    public Collection<S> getAll() {
+        return new ArrayList<>(points.keySet());
+    }
+
+    public Map<S, GeoPosition> positions(Collection<S> ids) {
+        Map<S, GeoPosition> positions = new LinkedHashMap<>();
+        ids.forEach(id -> {
+            var point = points.get(id);
+            if (point != null) {
+                positions.put(id, new GeoPosition(point.longitude, point.latitude));
+            }
+        });
+        return positions;
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Add the matches in the cell to the bounded max-heap of matches. Returns false if the cell, and
+     * hence every cell further away, is too far away to improve on the count matches already found.
+     */
+    private boolean collect(Match<Set<S>> cell, double longitude, double latitude, double radiusInMeters, Predicate<S> filter, int count, PriorityQueue<Match<S>> matches) {
+        if (matches.size() >= count && cell.distance > matches.peek().distance) {
+            return false;
+        }
+        for (S id : cell.value) {
+            var point = points.get(id);
+            if (point == null) {
+                continue;
+            }
+            var distance = distance(longitude, latitude, point.longitude, point.latitude);
+            if (distance > radiusInMeters || (matches.size() >= count && distance >= matches.peek().distance)) {
+                continue;
+            }
+            if (filter.test(id)) {
+                matches.add(new Match<>(id, distance));
+                if (matches.size() > count) {
+                    matches.poll();
+                }
+            }
+        }
+        return true;
+    }
+
+    private void addRing(PriorityQueue<Match<Set<S>>> pendingCells, double longitude, double latitude, int centerLonCell, int centerLatCell, int ring, CellBounds bounds, double radiusInMeters) {
+        var minLonCell = Math.max(centerLonCell - ring, bounds.minLonCell);
+        var maxLonCell = Math.min(centerLonCell + ring, bounds.maxLonCell);
+        for (var latCell = Math.max(centerLatCell - ring, bounds.minLatCell); latCell <= Math.min(centerLatCell + ring, bounds.maxLatCell); latCell++) {
+            if (latCell == centerLatCell - ring || latCell == centerLatCell + ring) {
+                for (var lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    addCell(pendingCells, longitude, latitude, lonCell, latCell, radiusInMeters);
+                }
+            } else {
+                if (centerLonCell - ring >= bounds.minLonCell) {
+                    addCell(pendingCells, longitude, latitude, centerLonCell - ring, latCell, radiusInMeters);
+                }
+                if (centerLonCell + ring <= bounds.maxLonCell) {
+                    addCell(pendingCells, longitude, latitude, centerLonCell + ring, latCell, radiusInMeters);
+                }
+            }
+        }
+    }
+
+    private void addCell(PriorityQueue<Match<Set<S>>> pendingCells, double longitude, double latitude, int lonCell, int latCell, double radiusInMeters) {
+        var cell = cells.get(cellKey(lonCell, latCell));
+        if (cell != null) {
+            var cellDistance = cellDistance(longitude, latitude, lonCell, latCell);
+            if (cellDistance <= radiusInMeters) {
+                pendingCells.add(new Match<>(cell, cellDistance));
+            }
+        }
+    }
+
+    /**
+     * Lower bound of the distance from the center to any cell outside the given ring.
+     */
+    private double ringDistance(double longitude, double latitude, int centerLonCell, int centerLatCell, int ring) {
+        var minLatitude = (centerLatCell - ring) * cellSize;
+        var maxLatitude = (centerLatCell + ring + 1) * cellSize;
+        var minLongitude = (centerLonCell - ring) * cellSize;
+        var maxLongitude = (centerLonCell + ring + 1) * cellSize;
+
+        var distance = Double.POSITIVE_INFINITY;
+        if (minLatitude > -90) {
+            distance = Math.min(distance, (latitude - minLatitude) * METERS_PER_DEGREE);
+        }
+        if (maxLatitude < 90) {
+            distance = Math.min(distance, (maxLatitude - latitude) * METERS_PER_DEGREE);
+        }
+
+        var cos = Math.cos(Math.toRadians(Math.min(90, Math.max(Math.abs(minLatitude), Math.abs(maxLatitude)))));
+        if (minLongitude > -180) {
+            distance = Math.min(distance, (longitude - minLongitude) * METERS_PER_DEGREE * cos);
+        }
+        if (maxLongitude < 180) {
+            distance = Math.min(distance, (maxLongitude - longitude) * METERS_PER_DEGREE * cos);
+        }
+        return distance;
+    }
+
+    private List<S> sorted(PriorityQueue<Match<S>> matches) {
+        return matches.stream()
+                .sorted(Comparator.comparingDouble(m -> m.distance))
+                .map(m -> m.value)
+                .collect(Collectors.toList());
+    }
+
+    private void aggregate(long cellKey, S group, Aggregate delta) {
+        aggregates.compute(cellKey, (k, groups) -> {
+            var cellGroups = groups != null ? groups : new ConcurrentHashMap<S, Aggregate>();
+            var aggregate = cellGroups.getOrDefault(group, Aggregate.EMPTY).add(delta);
+            if (aggregate.count > 0) {
+                cellGroups.put(group, aggregate);
+            } else {
+                cellGroups.remove(group);
+            }
+            return cellGroups.isEmpty() ? null : cellGroups;
+        });
+    }
+
+    private void removeFromCell(long cellKey, S id) {
+        cells.computeIfPresent(cellKey, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private int cell(double degrees) {
+        return (int) Math.floor(degrees / cellSize);
+    }
+
+    private double cellDistance(double longitude, double latitude, int lonCell, int latCell) {
+        var nearestLongitude = Math.max(lonCell * cellSize, Math.min((lonCell + 1) * cellSize, longitude));
+        var nearestLatitude = Math.max(latCell * cellSize, Math.min((latCell + 1) * cellSize, latitude));
+        return distance(longitude, latitude, nearestLongitude, nearestLatitude);
+    }
+
+    private double farthestCornerDistance(double longitude, double latitude, int lonCell, int latCell) {
+        var farthestLongitude = longitude - lonCell * cellSize > (lonCell + 1) * cellSize - longitude ? lonCell * cellSize : (lonCell + 1) * cellSize;
+        return Math.max(
+                distance(longitude, latitude, farthestLongitude, latCell * cellSize),
+                distance(longitude, latitude, farthestLongitude, (latCell + 1) * cellSize)
+        );
+    }
+
+    private static long cellKey(int lonCell, int latCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    private static double longitudeDelta(double latitude, double latitudeDelta) {
+        var cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latitudeDelta)));
+        return cos < 1e-6 ? 180 : Math.min(180, latitudeDelta / cos);
+    }
+
+    static double toMeters(double value, GeoUnit geoUnit) {
+        switch (geoUnit) {
+            case KILOMETERS:
+                return value * 1000;
+            case MILES:
+                return value * 1609.34;
+            case FEET:
+                return value * 0.3048;
+            default:
+                return value;
+        }
+    }
+
+    public static double distance(double lon1, double lat1, double lon2, double lat2) {
+        var lat1r = Math.toRadians(lat1);
+        var lat2r = Math.toRadians(lat2);
+        var u = Math.sin((lat2r - lat1r) / 2);
+        var v = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        return 2 * EARTH_RADIUS_IN_METERS * Math.asin(Math.sqrt(u * u + Math.cos(lat1r) * Math.cos(lat2r) * v * v));
+    }
+
+    private static class Point {
+        private final double longitude;
+        private final double latitude;
+        private final long cell;
+
+        private Point(double longitude, double latitude, long cell) {
+            this.longitude = longitude;
+            this.latitude = latitude;
+            this.cell = cell;
+        }
+    }
+
+    private static class Aggregate {
+        private static final Aggregate EMPTY = new Aggregate(0, 0, 0);
+
+        private final int count;
+        private final double longitudeSum;
+        private final double latitudeSum;
+
+        private Aggregate(int count, double longitudeSum, double latitudeSum) {
+            this.count = count;
+            this.longitudeSum = longitudeSum;
+            this.latitudeSum = latitudeSum;
+        }
+
+        private Aggregate add(Aggregate other) {
+            return new Aggregate(count + other.count, longitudeSum + other.longitudeSum, latitudeSum + other.latitudeSum);
+        }
+    }
+
+    private static class CellBounds {
+        private final int minLonCell;
+        private final int minLatCell;
+        private final int maxLonCell;
+        private final int maxLatCell;
+
+        private CellBounds(int minLonCell, int minLatCell, int maxLonCell, int maxLatCell) {
+            this.minLonCell = minLonCell;
+            this.minLatCell = minLatCell;
+            this.maxLonCell = maxLonCell;
+            this.maxLatCell = maxLatCell;
+        }
+    }
+
+    private static class Match<V> {
+        private final V value;
+        private final double distance;
+
+        private Match(V value, double distance) {
+            this.value = value;
+            this.distance = distance;
+        }
+    }
+}
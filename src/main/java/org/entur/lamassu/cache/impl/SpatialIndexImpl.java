@@ -19,45 +19,134 @@
 package org.entur.lamassu.cache.impl;
 
 import io.lettuce.core.RedisException;
+import io.netty.buffer.Unpooled;
+import org.entur.lamassu.cache.CacheBatch;
 import org.entur.lamassu.cache.SpatialIndex;
+import org.entur.lamassu.cache.SpatialIndexCluster;
 import org.entur.lamassu.cache.SpatialIndexId;
 import org.entur.lamassu.model.entities.LocationEntity;
 import org.redisson.api.GeoEntry;
 import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoPosition;
 import org.redisson.api.GeoUnit;
 import org.redisson.api.RGeo;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
 import org.redisson.api.geo.GeoSearchArgs;
+import org.redisson.api.geo.OptionalGeoSearch;
+import org.redisson.client.handler.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public abstract class SpatialIndexImpl<S extends SpatialIndexId, T extends LocationEntity> implements SpatialIndex<S, T> {
-    private final RGeo<S> spatialIndex;
+    private static final int SEARCH_LIMIT_GROWTH_FACTOR = 4;
+    private static final double NEAREST_INITIAL_RADIUS_IN_METERS = 250;
+    private static final int NEAREST_RADIUS_GROWTH_FACTOR = 4;
+    private static final int REMOVE_EXPIRED_BATCH_SIZE = 1000;
+
+    // Removes up to ARGV[2] members with an expiry at or before ARGV[1] from both the index and the
+    // expiry set, atomically, so that members refreshed concurrently are never removed
+    private static final String REMOVE_EXPIRED_SCRIPT =
+            "local expired = redis.call('zrangebyscore', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #expired > 0 then " +
+            "redis.call('zrem', KEYS[1], unpack(expired)) " +
+            "redis.call('zrem', KEYS[2], unpack(expired)) " +
+            "end " +
+            "return expired";
+
+    protected final RGeo<S> spatialIndex;
+
+    /**
+     * Expiry time in epoch milliseconds of the members of the spatial index, as score
+     */
+    private final RScoredSortedSet<S> expiries;
+    private final RScript script;
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    protected SpatialIndexImpl(RGeo<S> spatialIndex) {
+    protected SpatialIndexImpl(RGeo<S> spatialIndex, RScoredSortedSet<S> expiries, RScript script) {
         this.spatialIndex = spatialIndex;
+        this.expiries = expiries;
+        this.script = script;
     }
 
     @Override
     public void addAll(Map<S, T> spatialIndexUpdateMap) {
+        tryAddAll(spatialIndexUpdateMap);
+    }
+
+    /**
+     * Add the entries to the spatial index, returning whether they were written
+     */
+    protected boolean tryAddAll(Map<S, T> spatialIndexUpdateMap) {
         try {
             Long added = spatialIndex.addAsync(spatialIndexUpdateMap.entrySet().stream()
                     .filter(e -> e.getValue() != null)
                     .filter(e -> e.getValue().getLat() != null && e.getValue().getLon() != null)
                     .map(this::map).toArray(GeoEntry[]::new)).get();
             logger.debug("Added {} stations", added);
+            return true;
         } catch (RedisException | ExecutionException | InterruptedException e) {
             logger.warn("Caught exception while adding entries to spatialIndex", e);
+            return false;
         }
     }
 
+    @Override
+    public void addAll(Map<S, T> spatialIndexUpdateMap, int ttl, TimeUnit timeUnit) {
+        double expiresAt = System.currentTimeMillis() + timeUnit.toMillis(ttl);
+        Map<S, Double> expiryUpdateMap = new HashMap<>();
+        spatialIndexUpdateMap.keySet().forEach(id -> expiryUpdateMap.put(id, expiresAt));
+
+        // Expiries are written first, so that a failure can't leave members in the index that never expire
+        try {
+            expiries.addAllAsync(expiryUpdateMap).get();
+        } catch (RedisException | ExecutionException e) {
+            logger.warn("Caught exception while adding expiries of entries in spatialIndex", e);
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while adding expiries of entries in spatialIndex", e);
+            Thread.currentThread().interrupt();
+        }
+
+        addAll(spatialIndexUpdateMap);
+    }
+
+    @Override
+    public void addAll(CacheBatch batch, Map<S, T> spatialIndexUpdateMap, int ttl, TimeUnit timeUnit) {
+        double expiresAt = System.currentTimeMillis() + timeUnit.toMillis(ttl);
+        var entries = spatialIndexUpdateMap.entrySet().stream()
+                .filter(e -> e.getValue() != null)
+                .filter(e -> e.getValue().getLat() != null && e.getValue().getLon() != null)
+                .collect(Collectors.toList());
+
+        batch.forEachChunk(entries, chunk -> {
+            Map<S, Double> expiryUpdateMap = new HashMap<>();
+            chunk.forEach(entry -> expiryUpdateMap.put(entry.getKey(), expiresAt));
+
+            var redisBatch = batch.getBatch(chunk.size());
+            redisBatch.<S>getScoredSortedSet(expiries.getName(), expiries.getCodec()).addAllAsync(expiryUpdateMap);
+            redisBatch.<S>getGeo(spatialIndex.getName(), spatialIndex.getCodec()).addAsync(chunk.stream().map(this::map).toArray(GeoEntry[]::new));
+        });
+    }
+
     private GeoEntry map(Map.Entry<S, T> entry) {
         var key = entry.getKey();
         var entity = entry.getValue();
@@ -67,15 +156,232 @@ public abstract class SpatialIndexImpl<S extends SpatialIndexId, T extends Locat
     @Override
     public void removeAll(Set<S> ids) {
         spatialIndex.removeAllAsync(ids);
+        expiries.removeAllAsync(ids);
+    }
+
+    @Override
+    public void removeAll(CacheBatch batch, Set<S> ids) {
+        batch.forEachChunk(ids, chunk -> {
+            var redisBatch = batch.getBatch(chunk.size());
+            redisBatch.<S>getGeo(spatialIndex.getName(), spatialIndex.getCodec()).removeAllAsync(chunk);
+            redisBatch.<S>getScoredSortedSet(expiries.getName(), expiries.getCodec()).removeAllAsync(chunk);
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<S> removeExpired() {
+        List<S> removed = new ArrayList<>();
+        var now = String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8);
+        var limit = String.valueOf(REMOVE_EXPIRED_BATCH_SIZE).getBytes(StandardCharsets.UTF_8);
+
+        try {
+            List<byte[]> expired;
+            do {
+                expired = script.eval(
+                        RScript.Mode.READ_WRITE,
+                        REMOVE_EXPIRED_SCRIPT,
+                        RScript.ReturnType.MULTI,
+                        List.<Object>of(spatialIndex.getName(), expiries.getName()),
+                        now,
+                        limit
+                );
+                for (byte[] member : expired) {
+                    removed.add((S) decode(member));
+                }
+            } while (expired.size() == REMOVE_EXPIRED_BATCH_SIZE);
+        } catch (RuntimeException | IOException e) {
+            logger.warn("Caught exception while removing expired entries from spatialIndex", e);
+        }
+
+        return removed;
+    }
+
+    private Object decode(byte[] member) throws IOException {
+        var buffer = Unpooled.wrappedBuffer(member);
+        try {
+            return spatialIndex.getCodec().getValueDecoder().decode(buffer, new State());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Replace the members that have expired, but not yet been removed, by null
+     */
+    private List<S> maskExpired(List<S> ids) {
+        List<S> members = ids.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        if (members.isEmpty()) {
+            return ids;
+        }
+
+        var scores = expiries.getScore(members);
+        var now = System.currentTimeMillis();
+        Set<S> expired = new HashSet<>();
+        for (int i = 0; i < members.size(); i++) {
+            var expiresAt = scores.get(i);
+            if (expiresAt != null && expiresAt <= now) {
+                expired.add(members.get(i));
+            }
+        }
+
+        if (expired.isEmpty()) {
+            return ids;
+        }
+
+        return ids.stream()
+                .map(id -> id != null && expired.contains(id) ? null : id)
+                .collect(Collectors.toList());
     }
 
     @Override
     public List<S> radius(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, GeoOrder geoOrder) {
-        return spatialIndex.search(GeoSearchArgs.from(longitude, latitude).radius(radius, geoUnit).order(geoOrder));
+        return maskExpired(spatialIndex.search(GeoSearchArgs.from(longitude, latitude).radius(radius, geoUnit).order(geoOrder))).stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<S> radius(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, Predicate<S> filter, Integer count) {
+        if (count == null) {
+            return radius(longitude, latitude, radius, geoUnit, GeoOrder.ASC).stream()
+                    .filter(Objects::nonNull)
+                    .filter(filter)
+                    .collect(Collectors.toList());
+        }
+
+        return searchFiltered(
+                limit -> maskExpired(spatialIndex.search(GeoSearchArgs.from(longitude, latitude).radius(radius, geoUnit).order(GeoOrder.ASC).count(limit))),
+                filter,
+                count
+        );
+    }
+
+    @Override
+    public int count(Double longitude, Double latitude, Double radius, GeoUnit geoUnit, int limit) {
+        // With ANY, Redis stops searching as soon as limit members are found
+        return spatialIndex.search(GeoSearchArgs.from(longitude, latitude).radius(radius, geoUnit).countAny(limit)).size();
+    }
+
+    @Override
+    public List<S> nearest(Double longitude, Double latitude, Double maxRadius, GeoUnit geoUnit, Predicate<S> filter, int count) {
+        var maxRadiusInMeters = SpatialGrid.toMeters(maxRadius, geoUnit);
+        var radius = Math.min(NEAREST_INITIAL_RADIUS_IN_METERS, maxRadiusInMeters);
+        while (true) {
+            var matches = radius(longitude, latitude, radius, GeoUnit.METERS, filter, count);
+            if (matches.size() >= count || radius >= maxRadiusInMeters) {
+                return matches;
+            }
+            radius = Math.min(radius * NEAREST_RADIUS_GROWTH_FACTOR, maxRadiusInMeters);
+        }
+    }
+
+    @Override
+    public List<S> box(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude, Predicate<S> filter, Integer count) {
+        if (count == null) {
+            return box(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude).keySet().stream()
+                    .filter(Objects::nonNull)
+                    .filter(filter)
+                    .collect(Collectors.toList());
+        }
+
+        IntFunction<List<S>> search = limit -> {
+            var result = spatialIndex.searchWithPosition(boxSearchArgs(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude).count(limit));
+            // Members outside the exact bounds are replaced by null rather than dropped, so the size of
+            // the raw result is kept for searchFiltered to tell whether the search was exhausted
+            return maskExpired(result.entrySet().stream()
+                    .map(entry -> isInside(entry.getValue(), minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude) ? entry.getKey() : null)
+                    .collect(Collectors.toList()));
+        };
+
+        return searchFiltered(search, filter, count);
+    }
+
+    private Map<S, GeoPosition> box(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude) {
+        Map<S, GeoPosition> result = new LinkedHashMap<>();
+        spatialIndex.searchWithPosition(boxSearchArgs(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude))
+                .forEach((id, position) -> {
+                    if (isInside(position, minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude)) {
+                        result.put(id, position);
+                    }
+                });
+        result.keySet().retainAll(maskExpired(new ArrayList<>(result.keySet())));
+        return result;
+    }
+
+    private static OptionalGeoSearch boxSearchArgs(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude) {
+        var centerLongitude = (minimumLongitude + maximumLongitude) / 2;
+        var centerLatitude = (minimumLatitude + maximumLatitude) / 2;
+
+        // Redis measures the box width at the latitude of each member, so size the box for the latitude
+        // nearest to the equator, and let the caller clip the result to the exact bounds
+        var widestLatitude = Math.max(minimumLatitude, Math.min(maximumLatitude, 0));
+        var width = 2 * SpatialGrid.distance(centerLongitude, widestLatitude, maximumLongitude, widestLatitude) + 1;
+        var height = 2 * SpatialGrid.distance(centerLongitude, centerLatitude, centerLongitude, maximumLatitude) + 1;
+
+        return GeoSearchArgs.from(centerLongitude, centerLatitude).box(width, height, GeoUnit.METERS).order(GeoOrder.ASC);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<SpatialIndexCluster<S>> clusters(Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude, double bucketSize, Predicate<S> filter) {
+        Map<List<Long>, SpatialIndexCluster<S>> buckets = new HashMap<>();
+
+        box(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude).forEach((id, position) -> {
+            var group = (S) id.withoutId();
+            if (filter.test(group)) {
+                var bucketKey = List.of((long) Math.floor(position.getLongitude() / bucketSize), (long) Math.floor(position.getLatitude() / bucketSize));
+                buckets.computeIfAbsent(bucketKey, k -> new SpatialIndexCluster<>())
+                        .add(group, 1, position.getLongitude(), position.getLatitude());
+            }
+        });
+
+        return new ArrayList<>(buckets.values());
+    }
+
+    private static boolean isInside(GeoPosition position, Double minimumLongitude, Double minimumLatitude, Double maximumLongitude, Double maximumLatitude) {
+        return position.getLongitude() >= minimumLongitude && position.getLongitude() <= maximumLongitude
+                && position.getLatitude() >= minimumLatitude && position.getLatitude() <= maximumLatitude;
+    }
+
+    /**
+     * GEOSEARCH can't filter on member attributes, so ask for a limited number of the nearest members
+     * and widen the limit until enough of them match the filter, or the search area is exhausted.
+     */
+    private List<S> searchFiltered(IntFunction<List<S>> search, Predicate<S> filter, int count) {
+        var limit = Math.max(count, 1);
+        while (true) {
+            var ids = search.apply(limit);
+            var matches = ids.stream()
+                    .filter(Objects::nonNull)
+                    .filter(filter)
+                    .limit(count)
+                    .collect(Collectors.toList());
+
+            if (matches.size() >= count || ids.size() < limit || limit == Integer.MAX_VALUE) {
+                return matches;
+            }
+
+            limit = (int) Math.min(Integer.MAX_VALUE, (long) limit * SEARCH_LIMIT_GROWTH_FACTOR);
+        }
     }
 
     @Override
     public Collection<S> getAll() {
         return spatialIndex.readAll();
     }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<S, GeoPosition> getPositions(Collection<S> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return spatialIndex.pos((S[]) ids.toArray());
+    }
+
+    @Override
+    public Iterator<S> scan(int count) {
+        return spatialIndex.iterator(count);
+    }
 }
@@ -0,0 +1,50 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Change set published by the leader after writing to a spatial index, applied by each
+ * instance to its local replica.
+ */
+public class SpatialIndexUpdate<S> implements Serializable {
+    private Map<S, double[]> added = new HashMap<>();
+    private Set<S> removed = new HashSet<>();
+
+    public Map<S, double[]> getAdded() {
+        return added;
+    }
+
+    public void setAdded(Map<S, double[]> added) {
+        this.added = added;
+    }
+
+    public Set<S> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(Set<S> removed) {
+        this.removed = removed;
+    }
+}
@@ -21,11 +21,34 @@ package org.entur.lamassu.cache.impl;
 import org.entur.lamassu.cache.StationCache;
 import org.entur.lamassu.model.entities.Station;
 import org.redisson.api.RMapCache;
+import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Optional;
+
 @Component
 public class StationCacheImpl extends EntityCacheImpl<Station> implements StationCache {
-    protected StationCacheImpl(RMapCache<String, Station> cache) {
-        super(cache);
+    private final EntityReferenceResolver entityReferenceResolver;
+
+    protected StationCacheImpl(
+            RMapCache<String, Station> cache,
+            Optional<NearCache<Station>> nearCache,
+            EntityReferenceResolver entityReferenceResolver
+    ) {
+        super(cache, nearCache.orElse(null));
+        this.entityReferenceResolver = entityReferenceResolver;
+    }
+
+    @Override
+    protected void resolveReferences(Collection<Station> entities) {
+        entityReferenceResolver.resolveStationReferences(entities);
+    }
+
+    @Override
+    protected Station copyForResolving(Station entity) {
+        var copy = new Station();
+        BeanUtils.copyProperties(entity, copy);
+        return copy;
     }
 }
@@ -22,14 +22,24 @@ import org.entur.lamassu.cache.StationSpatialIndex;
 import org.entur.lamassu.cache.StationSpatialIndexId;
 import org.entur.lamassu.model.entities.Station;
 import org.redisson.api.RGeo;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnProperty(value = "org.entur.lamassu.enableLocalSpatialIndex", havingValue = "false", matchIfMissing = true)
 public class StationSpatialIndexImpl extends SpatialIndexImpl<StationSpatialIndexId, Station> implements StationSpatialIndex {
 
     @Autowired
-    public StationSpatialIndexImpl(RGeo<StationSpatialIndexId> stationSpatialIndex) {
-        super(stationSpatialIndex);
+    public StationSpatialIndexImpl(
+            RGeo<StationSpatialIndexId> stationSpatialIndex,
+            @Qualifier("stationSpatialIndexExpiries") RScoredSortedSet<StationSpatialIndexId> stationSpatialIndexExpiries,
+            RedissonClient redissonClient
+    ) {
+        super(stationSpatialIndex, stationSpatialIndexExpiries, redissonClient.getScript(ByteArrayCodec.INSTANCE));
     }
 }
@@ -0,0 +1,31 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.SystemCache;
+import org.entur.lamassu.model.entities.System;
+import org.redisson.api.RMapCache;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SystemCacheImpl extends EntityCacheImpl<System> implements SystemCache {
+    protected SystemCacheImpl(RMapCache<String, System> cache, NearCache<System> nearCache) {
+        super(cache, nearCache);
+    }
+}
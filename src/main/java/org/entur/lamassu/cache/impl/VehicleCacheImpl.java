@@ -3,13 +3,36 @@ package org.entur.lamassu.cache.impl;
 import org.entur.lamassu.cache.VehicleCache;
 import org.entur.lamassu.model.entities.Vehicle;
 import org.redisson.api.RMapCache;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Optional;
+
 @Component
 public class VehicleCacheImpl extends EntityCacheImpl<Vehicle> implements VehicleCache {
-    protected VehicleCacheImpl(@Autowired RMapCache<String, Vehicle> cache) {
-        super(cache);
+    private final EntityReferenceResolver entityReferenceResolver;
+
+    protected VehicleCacheImpl(
+            @Autowired RMapCache<String, Vehicle> cache,
+            Optional<NearCache<Vehicle>> nearCache,
+            EntityReferenceResolver entityReferenceResolver
+    ) {
+        super(cache, nearCache.orElse(null));
+        this.entityReferenceResolver = entityReferenceResolver;
+    }
+
+    @Override
+    protected void resolveReferences(Collection<Vehicle> entities) {
+        entityReferenceResolver.resolveVehicleReferences(entities);
+    }
+
+    @Override
+    protected Vehicle copyForResolving(Vehicle entity) {
+        var copy = new Vehicle();
+        BeanUtils.copyProperties(entity, copy);
+        return copy;
     }
 }
 
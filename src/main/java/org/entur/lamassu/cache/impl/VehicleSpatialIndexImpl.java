@@ -4,14 +4,24 @@ import org.entur.lamassu.cache.VehicleSpatialIndex;
 import org.entur.lamassu.cache.VehicleSpatialIndexId;
 import org.entur.lamassu.model.entities.Vehicle;
 import org.redisson.api.RGeo;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnProperty(value = "org.entur.lamassu.enableLocalSpatialIndex", havingValue = "false", matchIfMissing = true)
 public class VehicleSpatialIndexImpl extends SpatialIndexImpl<VehicleSpatialIndexId, Vehicle> implements VehicleSpatialIndex {
 
     @Autowired
-    public VehicleSpatialIndexImpl(RGeo<VehicleSpatialIndexId> vehicleSpatialIndex) {
-        super(vehicleSpatialIndex);
+    public VehicleSpatialIndexImpl(
+            RGeo<VehicleSpatialIndexId> vehicleSpatialIndex,
+            @Qualifier("vehicleSpatialIndexExpiries") RScoredSortedSet<VehicleSpatialIndexId> vehicleSpatialIndexExpiries,
+            RedissonClient redissonClient
+    ) {
+        super(vehicleSpatialIndex, vehicleSpatialIndexExpiries, redissonClient.getScript(ByteArrayCodec.INSTANCE));
     }
 }
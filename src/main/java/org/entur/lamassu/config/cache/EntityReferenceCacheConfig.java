@@ -0,0 +1,73 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.config.cache;
+
+import org.entur.lamassu.cache.impl.NearCache;
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.System;
+import org.entur.lamassu.model.entities.VehicleType;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Vehicle types, pricing plans and systems are referenced by id from vehicles and stations, and
+ * resolved on every read, so their caches always have a near cache.
+ */
+@Configuration
+public class EntityReferenceCacheConfig {
+    public static final String VEHICLE_TYPE_CACHE_INVALIDATIONS_KEY = "vehicleTypeCacheInvalidations";
+    public static final String PRICING_PLAN_CACHE_INVALIDATIONS_KEY = "pricingPlanCacheInvalidations";
+    public static final String SYSTEM_CACHE_INVALIDATIONS_KEY = "systemCacheInvalidations";
+
+    @Value("${org.entur.lamassu.serializationVersion}")
+    private String serializationVersion;
+
+    @Value("${org.entur.lamassu.referenceCache.maximumSize:10000}")
+    private long maximumSize;
+
+    @Value("${org.entur.lamassu.referenceCache.expireAfterWriteSeconds:60}")
+    private long expireAfterWriteSeconds;
+
+    @Bean
+    public NearCache<VehicleType> vehicleTypeNearCache(RedissonClient redissonClient) {
+        return createNearCache(redissonClient, VEHICLE_TYPE_CACHE_INVALIDATIONS_KEY);
+    }
+
+    @Bean
+    public NearCache<PricingPlan> pricingPlanNearCache(RedissonClient redissonClient) {
+        return createNearCache(redissonClient, PRICING_PLAN_CACHE_INVALIDATIONS_KEY);
+    }
+
+    @Bean
+    public NearCache<System> systemNearCache(RedissonClient redissonClient) {
+        return createNearCache(redissonClient, SYSTEM_CACHE_INVALIDATIONS_KEY);
+    }
+
+    private <T> NearCache<T> createNearCache(RedissonClient redissonClient, String invalidationsKey) {
+        return new NearCache<>(
+                redissonClient.getTopic(invalidationsKey + "_" + serializationVersion),
+                maximumSize,
+                Duration.ofSeconds(expireAfterWriteSeconds)
+        );
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.config.cache;
+
+import org.entur.lamassu.cache.impl.NearCache;
+import org.entur.lamassu.model.entities.GeofencingZones;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(value = "org.entur.lamassu.nearCache.enabled", havingValue = "true")
+public class NearCacheConfig {
+    public static final String VEHICLE_CACHE_INVALIDATIONS_KEY = "vehicleCacheInvalidations";
+    public static final String STATION_CACHE_INVALIDATIONS_KEY = "stationCacheInvalidations";
+    public static final String GEOFENCING_ZONES_CACHE_INVALIDATIONS_KEY = "geofencingZonesCacheInvalidations";
+
+    @Value("${org.entur.lamassu.serializationVersion}")
+    private String serializationVersion;
+
+    @Value("${org.entur.lamassu.nearCache.maximumSize:100000}")
+    private long maximumSize;
+
+    @Value("${org.entur.lamassu.nearCache.expireAfterWriteSeconds:30}")
+    private long expireAfterWriteSeconds;
+
+    @Bean
+    public NearCache<Vehicle> vehicleNearCache(RedissonClient redissonClient) {
+        return createNearCache(redissonClient, VEHICLE_CACHE_INVALIDATIONS_KEY);
+    }
+
+    @Bean
+    public NearCache<Station> stationNearCache(RedissonClient redissonClient) {
+        return createNearCache(redissonClient, STATION_CACHE_INVALIDATIONS_KEY);
+    }
+
+    @Bean
+    public NearCache<GeofencingZones> geofencingZonesNearCache(RedissonClient redissonClient) {
+        return createNearCache(redissonClient, GEOFENCING_ZONES_CACHE_INVALIDATIONS_KEY);
+    }
+
+    private <T> NearCache<T> createNearCache(RedissonClient redissonClient, String invalidationsKey) {
+        return new NearCache<>(
+                redissonClient.getTopic(invalidationsKey + "_" + serializationVersion),
+                maximumSize,
+                Duration.ofSeconds(expireAfterWriteSeconds)
+        );
+    }
+}
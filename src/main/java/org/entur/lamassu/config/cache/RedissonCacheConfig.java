@@ -1,16 +1,22 @@
 package org.entur.lamassu.config.cache;
 
 import org.entur.gbfs.validation.model.ValidationResult;
+import org.entur.lamassu.cache.RenderedFeed;
 import org.entur.lamassu.cache.StationSpatialIndexId;
 import org.entur.lamassu.cache.VehicleSpatialIndexId;
 import org.entur.lamassu.model.entities.GeofencingZones;
+import org.entur.lamassu.model.entities.PricingPlan;
 import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.System;
 import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleType;
 import org.redisson.Redisson;
 import org.redisson.api.RBucket;
 import org.redisson.api.RGeo;
 import org.redisson.api.RListMultimap;
 import org.redisson.api.RMapCache;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
 import org.redisson.codec.Kryo5Codec;
 import org.redisson.config.Config;
@@ -25,11 +31,22 @@ import java.util.Set;
 @Configuration
 public class RedissonCacheConfig {
     public static final String GBFS_FEED_CACHE_KEY = "gbfsFeedCache";
+    public static final String GBFS_RENDERED_FEED_CACHE_KEY = "gbfsRenderedFeedCache";
     public static final String VEHICLE_CACHE_KEY = "vehicleCache";
     public static final String STATION_CACHE_KEY = "stationCache";
     public static final String GEOFENCING_ZONES_CACHE_KEY = "geofencingZonesCache";
+    public static final String VEHICLE_TYPE_CACHE_KEY = "vehicleTypeCache";
+    public static final String PRICING_PLAN_CACHE_KEY = "pricingPlanCache";
+    public static final String SYSTEM_CACHE_KEY = "systemCache";
     public static final String VEHICLE_SPATIAL_INDEX_KEY = "vehicleSpatialIndex";
     public static final String STATION_SPATIAL_INDEX_KEY = "stationSpatialIndex";
+    public static final String VEHICLE_SPATIAL_INDEX_EXPIRIES_KEY = "vehicleSpatialIndexExpiries";
+    public static final String STATION_SPATIAL_INDEX_EXPIRIES_KEY = "stationSpatialIndexExpiries";
+    public static final String VEHICLE_SPATIAL_INDEX_UPDATES_KEY = "vehicleSpatialIndexUpdates";
+    public static final String STATION_SPATIAL_INDEX_UPDATES_KEY = "stationSpatialIndexUpdates";
+    public static final String VEHICLE_CHANGES_KEY = "vehicleChanges";
+    public static final String STATION_CHANGES_KEY = "stationChanges";
+    public static final String GEOFENCING_ZONES_UPDATES_KEY = "geofencingZonesUpdates";
     public static final String VALIDATION_REPORTS_CACHE_KEY = "validationReportsCache";
     public static final String CACHE_READY_KEY = "cacheReady";
 
@@ -95,6 +112,11 @@ public class RedissonCacheConfig {
         return redissonClient.getMapCache(GBFS_FEED_CACHE_KEY + "_" + serializationVersion);
     }
 
+    @Bean
+    public RMapCache<String, RenderedFeed> renderedFeedCache(RedissonClient redissonClient) {
+        return redissonClient.getMapCache(GBFS_RENDERED_FEED_CACHE_KEY + "_" + serializationVersion);
+    }
+
     @Bean
     public RMapCache<String, Vehicle> vehicleCache(RedissonClient redissonClient) {
         return redissonClient.getMapCache(VEHICLE_CACHE_KEY + "_" + serializationVersion);
@@ -110,6 +132,21 @@ public class RedissonCacheConfig {
         return redissonClient.getMapCache(GEOFENCING_ZONES_CACHE_KEY + "_" + serializationVersion);
     }
 
+    @Bean
+    public RMapCache<String, VehicleType> vehicleTypeCache(RedissonClient redissonClient) {
+        return redissonClient.getMapCache(VEHICLE_TYPE_CACHE_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RMapCache<String, PricingPlan> pricingPlanCache(RedissonClient redissonClient) {
+        return redissonClient.getMapCache(PRICING_PLAN_CACHE_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RMapCache<String, System> systemCache(RedissonClient redissonClient) {
+        return redissonClient.getMapCache(SYSTEM_CACHE_KEY + "_" + serializationVersion);
+    }
+
     @Bean
     public RGeo<VehicleSpatialIndexId> vehicleSpatialIndex(RedissonClient redissonClient) {
         return redissonClient.getGeo(VEHICLE_SPATIAL_INDEX_KEY + "_" + serializationVersion);
@@ -120,6 +157,41 @@ public class RedissonCacheConfig {
         return redissonClient.getGeo(STATION_SPATIAL_INDEX_KEY + "_" + serializationVersion);
     }
 
+    @Bean
+    public RScoredSortedSet<VehicleSpatialIndexId> vehicleSpatialIndexExpiries(RedissonClient redissonClient) {
+        return redissonClient.getScoredSortedSet(VEHICLE_SPATIAL_INDEX_EXPIRIES_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RScoredSortedSet<StationSpatialIndexId> stationSpatialIndexExpiries(RedissonClient redissonClient) {
+        return redissonClient.getScoredSortedSet(STATION_SPATIAL_INDEX_EXPIRIES_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RTopic vehicleSpatialIndexUpdates(RedissonClient redissonClient) {
+        return redissonClient.getTopic(VEHICLE_SPATIAL_INDEX_UPDATES_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RTopic stationSpatialIndexUpdates(RedissonClient redissonClient) {
+        return redissonClient.getTopic(STATION_SPATIAL_INDEX_UPDATES_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RTopic vehicleChanges(RedissonClient redissonClient) {
+        return redissonClient.getTopic(VEHICLE_CHANGES_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RTopic stationChanges(RedissonClient redissonClient) {
+        return redissonClient.getTopic(STATION_CHANGES_KEY + "_" + serializationVersion);
+    }
+
+    @Bean
+    public RTopic geofencingZonesUpdates(RedissonClient redissonClient) {
+        return redissonClient.getTopic(GEOFENCING_ZONES_UPDATES_KEY + "_" + serializationVersion);
+    }
+
     @Bean
     public RListMultimap<String, ValidationResult> validationResultsCache(RedissonClient redissonClient) {
         return redissonClient.getListMultimap(VALIDATION_REPORTS_CACHE_KEY + "_" + serializationVersion);
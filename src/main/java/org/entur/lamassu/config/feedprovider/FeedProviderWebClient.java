@@ -2,18 +2,13 @@ package org.entur.lamassu.config.feedprovider;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
 public class FeedProviderWebClient {
     @Bean
     public WebClient getWebClientBuilder() {
-        return WebClient.builder().exchangeStrategies(ExchangeStrategies.builder()
-                .codecs(configurer -> configurer
-                        .defaultCodecs()
-                        .maxInMemorySize(16 * 1024 * 1024))
-                .build())
-                .build();
+        // Feeds are read as streams of buffers, which are not limited by the in-memory size of the codecs
+        return WebClient.builder().build();
     }
 }
@@ -20,6 +20,8 @@ import org.entur.gbfs.v3_0_RC.manifest.GBFSDataset;
 import org.entur.gbfs.v3_0_RC.manifest.GBFSManifest;
 import org.entur.gbfs.v3_0_RC.manifest.GBFSVersion;
 import org.entur.lamassu.cache.GBFSFeedCache;
+import org.entur.lamassu.cache.RenderedFeed;
+import org.entur.lamassu.cache.RenderedFeedCache;
 import org.entur.lamassu.model.discovery.System;
 import org.entur.lamassu.model.discovery.SystemDiscovery;
 import org.entur.lamassu.model.provider.FeedProvider;
@@ -29,10 +31,13 @@ import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -47,6 +52,7 @@ import java.util.stream.Collectors;
 public class GBFSFeedController {
     private final SystemDiscoveryService systemDiscoveryService;
     private final GBFSFeedCache feedCache;
+    private final RenderedFeedCache renderedFeedCache;
     private final FeedProviderService feedProviderService;
 
     @Value("${org.entur.lamassu.baseUrl}")
@@ -56,9 +62,10 @@ public class GBFSFeedController {
     private String internalLoadBalancer;
 
     @Autowired
-    public GBFSFeedController(SystemDiscoveryService systemDiscoveryService, GBFSFeedCache feedCache, FeedProviderService feedProviderService) {
+    public GBFSFeedController(SystemDiscoveryService systemDiscoveryService, GBFSFeedCache feedCache, RenderedFeedCache renderedFeedCache, FeedProviderService feedProviderService) {
         this.systemDiscoveryService = systemDiscoveryService;
         this.feedCache = feedCache;
+        this.renderedFeedCache = renderedFeedCache;
         this.feedProviderService = feedProviderService;
     }
 
@@ -94,9 +101,20 @@ public class GBFSFeedController {
     }
 
     @GetMapping(value = {"/gbfs/{systemId}/{feed}", "/gbfs/{systemId}/{feed}.json"})
-    public ResponseEntity<Object> getGbfsFeedForProvider(@PathVariable String systemId, @PathVariable String feed) {
+    public ResponseEntity<Object> getGbfsFeedForProvider(
+            @PathVariable String systemId,
+            @PathVariable String feed,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
         try {
             var feedName = GBFSFeedName.fromValue(feed);
+            var renderedFeed = getRenderedFeed(systemId, feedName);
+
+            if (renderedFeed != null) {
+                return getRenderedFeedResponse(renderedFeed, ifNoneMatch, acceptEncoding);
+            }
+
             Object data = getFeed(systemId, feed);
 
             return ResponseEntity.ok()
@@ -162,11 +180,31 @@ public class GBFSFeedController {
     }
 
     @GetMapping(value = {"/gbfs/v3beta/{systemId}/{feed}", "/gbfs/v3beta/{systemId}/{feed}.json"})
-    public ResponseEntity<Object> getV3Feed(@PathVariable String systemId, @PathVariable String feed) {
+    public ResponseEntity<Object> getV3Feed(
+            @PathVariable String systemId,
+            @PathVariable String feed,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
         try {
             Object mapped = null;
 
             var feedProvider = feedProviderService.getFeedProviderBySystemId(systemId);
+
+            if (feedProvider == null) {
+                throw new NoSuchElementException();
+            }
+
+            var renderedFeed = renderedFeedCache.find(
+                    RenderedFeedCache.V3_0_RC,
+                    org.entur.gbfs.v3_0_RC.gbfs.GBFSFeed.Name.fromValue(feed).value(),
+                    feedProvider.getSystemId()
+            );
+
+            if (renderedFeed != null) {
+                return getRenderedFeedResponse(renderedFeed, ifNoneMatch, acceptEncoding);
+            }
+
             var data = getFeed(systemId, feed.equals("vehicle_status") ? "free_bike_status" : feed);
 
             if (data instanceof GBFS) {
@@ -210,6 +248,91 @@ public class GBFSFeedController {
     }
 
 
+    private RenderedFeed getRenderedFeed(String systemId, GBFSFeedName feedName) {
+        var feedProvider = feedProviderService.getFeedProviderBySystemId(systemId);
+
+        if (feedProvider == null) {
+            throw new NoSuchElementException();
+        }
+
+        return renderedFeedCache.find(RenderedFeedCache.V2_3, feedName.value(), feedProvider.getSystemId());
+    }
+
+    private ResponseEntity<Object> getRenderedFeedResponse(RenderedFeed renderedFeed, String ifNoneMatch, String acceptEncoding) {
+        var gzip = renderedFeed.getGzip() != null && acceptsGzip(acceptEncoding);
+        var etag = gzip ? getGzipEtag(renderedFeed.getEtag()) : renderedFeed.getEtag();
+        var cacheControl = CacheControl.maxAge(getMaxAge(renderedFeed.getLastUpdated(), renderedFeed.getTtl()), TimeUnit.SECONDS).cachePublic();
+
+        if (isNotModified(ifNoneMatch, renderedFeed.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(cacheControl)
+                    .eTag(etag)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        var response = ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        if (gzip) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(renderedFeed.getGzip());
+        }
+
+        return response.body(renderedFeed.getJson());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+
+        var gzipEtag = getGzipEtag(etag);
+
+        // Both representations share the same content, so either tag validates
+        for (String candidate : ifNoneMatch.split(",")) {
+            var tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String getGzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private int getMaxAge(Integer lastUpdated, Integer ttl) {
+        if (lastUpdated != null && ttl != null) {
+            return getCurrentTimeSeconds() - lastUpdated + ttl;
+        }
+        return 60;
+    }
+
     private int getMaxAge(GBFSFeedName feedName, Object data) {
         int maxAge = 60;
         try {
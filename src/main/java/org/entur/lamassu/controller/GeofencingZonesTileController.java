@@ -0,0 +1,77 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import org.entur.lamassu.service.FeedProviderService;
+import org.entur.lamassu.service.GeofencingZonesTileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+public class GeofencingZonesTileController {
+    private static final MediaType VECTOR_TILE = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+    private static final int MAX_ZOOM = 22;
+
+    private final GeofencingZonesTileService geofencingZonesTileService;
+    private final FeedProviderService feedProviderService;
+
+    @Autowired
+    public GeofencingZonesTileController(GeofencingZonesTileService geofencingZonesTileService, FeedProviderService feedProviderService) {
+        this.geofencingZonesTileService = geofencingZonesTileService;
+        this.feedProviderService = feedProviderService;
+    }
+
+    @GetMapping("/tiles/geofencing/{systemId}/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(
+            @PathVariable String systemId,
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y
+    ) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+
+        if (feedProviderService.getFeedProviderBySystemId(systemId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+
+        var tile = geofencingZonesTileService.getTile(systemId, z, x, y);
+        var cacheControl = CacheControl.maxAge(60, TimeUnit.SECONDS).cachePublic();
+
+        if (tile.length == 0) {
+            return ResponseEntity.noContent().cacheControl(cacheControl).build();
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .contentType(VECTOR_TILE)
+                .body(tile);
+    }
+}
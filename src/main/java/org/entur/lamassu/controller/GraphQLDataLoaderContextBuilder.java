@@ -0,0 +1,99 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import graphql.kickstart.execution.context.GraphQLKickstartContext;
+import graphql.kickstart.servlet.context.DefaultGraphQLServletContext;
+import graphql.kickstart.servlet.context.DefaultGraphQLWebSocketContext;
+import graphql.kickstart.servlet.context.GraphQLServletContextBuilder;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderFactory;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.entur.lamassu.cache.EntityCache;
+import org.entur.lamassu.cache.PricingPlanCache;
+import org.entur.lamassu.cache.SystemCache;
+import org.entur.lamassu.cache.VehicleTypeCache;
+import org.entur.lamassu.model.entities.Entity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.websocket.Session;
+import javax.websocket.server.HandshakeRequest;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Creates a registry of data loaders per GraphQL request, so that the vehicle types, pricing plans
+ * and systems referenced by the entities of a response are loaded with one lookup per cache.
+ */
+@Component
+public class GraphQLDataLoaderContextBuilder implements GraphQLServletContextBuilder {
+    public static final String VEHICLE_TYPE_LOADER = "vehicleTypes";
+    public static final String PRICING_PLAN_LOADER = "pricingPlans";
+    public static final String SYSTEM_LOADER = "systems";
+
+    private final VehicleTypeCache vehicleTypeCache;
+    private final PricingPlanCache pricingPlanCache;
+    private final SystemCache systemCache;
+
+    @Autowired
+    public GraphQLDataLoaderContextBuilder(VehicleTypeCache vehicleTypeCache, PricingPlanCache pricingPlanCache, SystemCache systemCache) {
+        this.vehicleTypeCache = vehicleTypeCache;
+        this.pricingPlanCache = pricingPlanCache;
+        this.systemCache = systemCache;
+    }
+
+    @Override
+    public GraphQLKickstartContext build(HttpServletRequest request, HttpServletResponse response) {
+        return DefaultGraphQLServletContext.createServletContext(createDataLoaderRegistry(true))
+                .with(request)
+                .with(response)
+                .build();
+    }
+
+    @Override
+    public GraphQLKickstartContext build(Session session, HandshakeRequest handshakeRequest) {
+        // A websocket context lives as long as its subscriptions, so its data loaders must not cache
+        return DefaultGraphQLWebSocketContext.createWebSocketContext(createDataLoaderRegistry(false))
+                .with(session)
+                .with(handshakeRequest)
+                .build();
+    }
+
+    @Override
+    public GraphQLKickstartContext build() {
+        return GraphQLKickstartContext.of(createDataLoaderRegistry(true));
+    }
+
+    DataLoaderRegistry createDataLoaderRegistry(boolean cachingEnabled) {
+        var options = DataLoaderOptions.newOptions().setCachingEnabled(cachingEnabled);
+        var registry = new DataLoaderRegistry();
+        registry.register(VEHICLE_TYPE_LOADER, createDataLoader(vehicleTypeCache, options));
+        registry.register(PRICING_PLAN_LOADER, createDataLoader(pricingPlanCache, options));
+        registry.register(SYSTEM_LOADER, createDataLoader(systemCache, options));
+        return registry;
+    }
+
+    private static <T extends Entity> DataLoader<String, T> createDataLoader(EntityCache<T> cache, DataLoaderOptions options) {
+        return DataLoaderFactory.newMappedDataLoader(keys -> CompletableFuture.completedFuture(cache.getAllAsMap(keys)), options);
+    }
+}
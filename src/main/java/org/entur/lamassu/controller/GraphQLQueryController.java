@@ -2,18 +2,24 @@ package org.entur.lamassu.controller;
 
 import graphql.GraphqlErrorException;
 import graphql.kickstart.tools.GraphQLQueryResolver;
+import graphql.schema.DataFetchingEnvironment;
 import org.entur.lamassu.cache.GeofencingZonesCache;
 import org.entur.lamassu.cache.StationCache;
 import org.entur.lamassu.cache.VehicleCache;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.model.entities.Cluster;
 import org.entur.lamassu.model.entities.FormFactor;
+import org.entur.lamassu.model.entities.GeofencingRules;
 import org.entur.lamassu.model.entities.GeofencingZones;
 import org.entur.lamassu.model.entities.Operator;
 import org.entur.lamassu.model.entities.PropulsionType;
 import org.entur.lamassu.model.entities.Station;
 import org.entur.lamassu.model.entities.Vehicle;
 import org.entur.lamassu.model.provider.FeedProvider;
+import org.entur.lamassu.service.BoundingBoxQueryParameters;
 import org.entur.lamassu.service.FeedProviderService;
 import org.entur.lamassu.service.GeoSearchService;
+import org.entur.lamassu.service.GeofencingRulesService;
 import org.entur.lamassu.service.RangeQueryParameters;
 import org.entur.lamassu.service.StationFilterParameters;
 import org.entur.lamassu.service.VehicleFilterParameters;
@@ -22,15 +28,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Component
 public class GraphQLQueryController implements GraphQLQueryResolver {
+    private static final int MAX_ZOOM = 22;
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private final GeoSearchService geoSearchService;
@@ -38,14 +49,16 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
     private final VehicleCache vehicleCache;
     private final StationCache stationCache;
     private final GeofencingZonesCache geofencingZonesCache;
+    private final GeofencingRulesService geofencingRulesService;
 
     @Autowired
-    public GraphQLQueryController(GeoSearchService geoSearchService, FeedProviderService feedProviderService, VehicleCache vehicleCache, StationCache stationCache, GeofencingZonesCache geofencingZonesCache) {
+    public GraphQLQueryController(GeoSearchService geoSearchService, FeedProviderService feedProviderService, VehicleCache vehicleCache, StationCache stationCache, GeofencingZonesCache geofencingZonesCache, GeofencingRulesService geofencingRulesService) {
         this.geoSearchService = geoSearchService;
         this.feedProviderService = feedProviderService;
         this.vehicleCache = vehicleCache;
         this.stationCache = stationCache;
         this.geofencingZonesCache = geofencingZonesCache;
+        this.geofencingRulesService = geofencingRulesService;
     }
 
     public Collection<String> getCodespaces() {
@@ -62,29 +75,35 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
             Double lon,
             Double range,
             Integer count,
+            Double minimumLatitude,
+            Double minimumLongitude,
+            Double maximumLatitude,
+            Double maximumLongitude,
             List<String> codespaces,
             List<String> systems,
             List<String> operators,
             List<FormFactor> formFactors,
             List<PropulsionType> propulsionTypes,
             boolean includeReserved,
-            boolean includeDisabled
+            boolean includeDisabled,
+            DataFetchingEnvironment env
     ) {
         if (ids != null) {
-            return vehicleCache.getAll(ids);
+            return vehicleCache.getAll(ids, false);
         }
 
-        validateRange(range);
+        var isBoundingBoxQuery = isBoundingBoxQuery(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+
+        if (isBoundingBoxQuery) {
+            validateBoundingBox(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+        } else {
+            validateCoordinates(lat, lon);
+            validateRange(range, count);
+        }
         validateCount(count);
         validateCodespaces(codespaces);
         validateSystems(systems);
 
-        var queryParams = new RangeQueryParameters();
-        queryParams.setLat(lat);
-        queryParams.setLon(lon);
-        queryParams.setRange(range);
-        queryParams.setCount(count);
-
         var filterParams = new VehicleFilterParameters();
         filterParams.setCodespaces(codespaces);
         filterParams.setSystems(systems);
@@ -94,9 +113,26 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
         filterParams.setIncludeReserved(includeReserved);
         filterParams.setIncludeDisabled(includeDisabled);
 
+        if (isBoundingBoxQuery) {
+            var boundingBoxParams = getBoundingBoxQueryParameters(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude, count);
+            logger.debug("getVehicles called boundingBox={} filter={}", boundingBoxParams, filterParams);
+            return getVehicles(geoSearchService.getVehicleIdsWithinBoundingBox(boundingBoxParams, filterParams), env);
+        }
+
+        var queryParams = getRangeQueryParameters(lat, lon, range, count);
+
         logger.debug("getVehicles called query={} filter={}", queryParams, filterParams);
 
-        return geoSearchService.getVehiclesNearby(queryParams, filterParams);
+        return getVehicles(geoSearchService.getVehicleIdsNearby(queryParams, filterParams), env);
+    }
+
+    private Collection<Vehicle> getVehicles(List<VehicleSpatialIndexId> indexIds, DataFetchingEnvironment env) {
+        if (SpatialIndexFieldSelection.isCoveredBySpatialIndex(env.getSelectionSet())) {
+            return geoSearchService.getVehiclesFromSpatialIndex(indexIds);
+        }
+
+        var vehicleIds = indexIds.stream().map(VehicleSpatialIndexId::getId).collect(Collectors.toCollection(LinkedHashSet::new));
+        return vehicleCache.getAll(vehicleIds, false);
     }
 
     public Vehicle getVehicle(String id) {
@@ -109,6 +145,10 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
             Double lon,
             Double range,
             Integer count,
+            Double minimumLatitude,
+            Double minimumLongitude,
+            Double maximumLatitude,
+            Double maximumLongitude,
             List<String> codespaces,
             List<String> systems,
             List<String> operators,
@@ -116,20 +156,21 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
             List<PropulsionType> availablePropulsionTypes
     ) {
         if (ids != null) {
-            return stationCache.getAll(ids);
+            return stationCache.getAll(ids, false);
         }
 
-        validateRange(range);
+        var isBoundingBoxQuery = isBoundingBoxQuery(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+
+        if (isBoundingBoxQuery) {
+            validateBoundingBox(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+        } else {
+            validateCoordinates(lat, lon);
+            validateRange(range, count);
+        }
         validateCount(count);
         validateCodespaces(codespaces);
         validateSystems(systems);
 
-        var queryParams = new RangeQueryParameters();
-        queryParams.setLat(lat);
-        queryParams.setLon(lon);
-        queryParams.setRange(range);
-        queryParams.setCount(count);
-
         var filterParams = new StationFilterParameters();
         filterParams.setCodespaces(codespaces);
         filterParams.setSystems(systems);
@@ -137,20 +178,94 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
         filterParams.setAvailableFormFactors(availableFormFactors);
         filterParams.setAvailablePropulsionTypes(availablePropulsionTypes);
 
+        if (isBoundingBoxQuery) {
+            var boundingBoxParams = getBoundingBoxQueryParameters(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude, count);
+            logger.debug("getStations called boundingBox={} filter={}", boundingBoxParams, filterParams);
+            return geoSearchService.getStationsWithinBoundingBox(boundingBoxParams, filterParams);
+        }
+
+        var queryParams = getRangeQueryParameters(lat, lon, range, count);
+
         logger.debug("getStations called query={} filter={}", queryParams, filterParams);
 
         return geoSearchService.getStationsNearby(queryParams, filterParams);
     }
 
+    public Collection<Cluster> getVehicleClusters(
+            Double minimumLatitude,
+            Double minimumLongitude,
+            Double maximumLatitude,
+            Double maximumLongitude,
+            Integer zoom,
+            List<String> codespaces,
+            List<String> systems,
+            List<String> operators,
+            List<FormFactor> formFactors,
+            List<PropulsionType> propulsionTypes,
+            boolean includeReserved,
+            boolean includeDisabled
+    ) {
+        validateBoundingBox(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+        validateZoom(zoom);
+        validateCodespaces(codespaces);
+        validateSystems(systems);
+
+        var filterParams = new VehicleFilterParameters();
+        filterParams.setCodespaces(codespaces);
+        filterParams.setSystems(systems);
+        filterParams.setOperators(operators);
+        filterParams.setFormFactors(formFactors);
+        filterParams.setPropulsionTypes(propulsionTypes);
+        filterParams.setIncludeReserved(includeReserved);
+        filterParams.setIncludeDisabled(includeDisabled);
+
+        var boundingBoxParams = getBoundingBoxQueryParameters(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude, null);
+
+        logger.debug("getVehicleClusters called boundingBox={} zoom={} filter={}", boundingBoxParams, zoom, filterParams);
+
+        return geoSearchService.getVehicleClusters(boundingBoxParams, zoom, filterParams);
+    }
+
     public Station getStation(String id) {
         return stationCache.get(id);
     }
 
+    public Collection<Cluster> getStationClusters(
+            Double minimumLatitude,
+            Double minimumLongitude,
+            Double maximumLatitude,
+            Double maximumLongitude,
+            Integer zoom,
+            List<String> codespaces,
+            List<String> systems,
+            List<String> operators,
+            List<FormFactor> availableFormFactors,
+            List<PropulsionType> availablePropulsionTypes
+    ) {
+        validateBoundingBox(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+        validateZoom(zoom);
+        validateCodespaces(codespaces);
+        validateSystems(systems);
+
+        var filterParams = new StationFilterParameters();
+        filterParams.setCodespaces(codespaces);
+        filterParams.setSystems(systems);
+        filterParams.setOperators(operators);
+        filterParams.setAvailableFormFactors(availableFormFactors);
+        filterParams.setAvailablePropulsionTypes(availablePropulsionTypes);
+
+        var boundingBoxParams = getBoundingBoxQueryParameters(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude, null);
+
+        logger.debug("getStationClusters called boundingBox={} zoom={} filter={}", boundingBoxParams, zoom, filterParams);
+
+        return geoSearchService.getStationClusters(boundingBoxParams, zoom, filterParams);
+    }
+
     public Collection<Station> getStationsById(
         List<String> ids
     ) {
         logger.debug("getStationsByIds called ids={}", ids);
-        return stationCache.getAll(new HashSet<>(ids));
+        return stationCache.getAll(new HashSet<>(ids), false);
     }
 
     public Collection<GeofencingZones> geofencingZones(
@@ -167,14 +282,74 @@ public class GraphQLQueryController implements GraphQLQueryResolver {
         }
     }
 
+    public Collection<GeofencingRules> geofencingRules(
+            Double lat,
+            Double lon,
+            String vehicleTypeId,
+            List<String> systemIds
+    ) {
+        logger.debug("geofencingRules called lat={} lon={} vehicleTypeId={} systemIds={}", lat, lon, vehicleTypeId, systemIds);
+
+        validateCoordinates(lat, lon);
+        validateSystems(systemIds);
+
+        var systems = systemIds == null || systemIds.isEmpty() ? getSystems() : systemIds;
+        return geofencingRulesService.getRulesAt(lon, lat, vehicleTypeId, systems);
+    }
+
+    private RangeQueryParameters getRangeQueryParameters(Double lat, Double lon, Double range, Integer count) {
+        var queryParams = new RangeQueryParameters();
+        queryParams.setLat(lat);
+        queryParams.setLon(lon);
+        queryParams.setRange(range);
+        queryParams.setCount(count);
+        return queryParams;
+    }
+
+    private BoundingBoxQueryParameters getBoundingBoxQueryParameters(Double minimumLatitude, Double minimumLongitude, Double maximumLatitude, Double maximumLongitude, Integer count) {
+        var boundingBoxParams = new BoundingBoxQueryParameters();
+        boundingBoxParams.setMinimumLatitude(minimumLatitude);
+        boundingBoxParams.setMinimumLongitude(minimumLongitude);
+        boundingBoxParams.setMaximumLatitude(maximumLatitude);
+        boundingBoxParams.setMaximumLongitude(maximumLongitude);
+        boundingBoxParams.setCount(count);
+        return boundingBoxParams;
+    }
+
+    private boolean isBoundingBoxQuery(Double minimumLatitude, Double minimumLongitude, Double maximumLatitude, Double maximumLongitude) {
+        return minimumLatitude != null || minimumLongitude != null || maximumLatitude != null || maximumLongitude != null;
+    }
+
+    private void validateBoundingBox(Double minimumLatitude, Double minimumLongitude, Double maximumLatitude, Double maximumLongitude) {
+        validate(p -> p.stream().allMatch(Objects::nonNull), Arrays.asList(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude), "All bounding box coordinates are required");
+        validate(p -> p <= maximumLatitude, minimumLatitude, "Minimum latitude must not be greater than maximum latitude");
+        validate(p -> p <= maximumLongitude, minimumLongitude, "Minimum longitude must not be greater than maximum longitude");
+        validateCoordinates(minimumLatitude, minimumLongitude);
+        validateCoordinates(maximumLatitude, maximumLongitude);
+    }
+
+    private void validateCoordinates(Double lat, Double lon) {
+        validate(p -> p.stream().allMatch(Objects::nonNull), Arrays.asList(lat, lon), "Latitude and longitude are required");
+        validate(p -> p >= -90 && p <= 90, lat, "Latitude must be between -90 and 90");
+        validate(p -> p >= -180 && p <= 180, lon, "Longitude must be between -180 and 180");
+    }
+
+    private void validateZoom(Integer zoom) {
+        validate(p -> p >= 0 && p <= MAX_ZOOM, zoom, "Zoom must be between 0 and " + MAX_ZOOM);
+    }
+
     private void validateCount(Integer count) {
         if (count != null) {
             validate(p -> p > 0, count, "Count must be positive");
         }
     }
 
-    private void validateRange(Double range) {
-        validate(p -> p > -1, range, "Range must be non-negative");
+    private void validateRange(Double range, Integer count) {
+        if (range != null) {
+            validate(p -> p > -1, range, "Range must be non-negative");
+        } else {
+            validate(p -> p != null, count, "Count is required when range is omitted");
+        }
     }
 
 
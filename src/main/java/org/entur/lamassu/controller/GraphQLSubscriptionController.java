@@ -0,0 +1,160 @@
+package org.entur.lamassu.controller;
+
+import graphql.GraphqlErrorException;
+import graphql.kickstart.tools.GraphQLSubscriptionResolver;
+import org.entur.lamassu.model.entities.FormFactor;
+import org.entur.lamassu.model.entities.PropulsionType;
+import org.entur.lamassu.model.entities.StationUpdate;
+import org.entur.lamassu.model.entities.VehicleUpdate;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.entur.lamassu.service.BoundingBoxQueryParameters;
+import org.entur.lamassu.service.EntityChangeSubscriptionService;
+import org.entur.lamassu.service.FeedProviderService;
+import org.entur.lamassu.service.RangeQueryParameters;
+import org.entur.lamassu.service.StationFilterParameters;
+import org.entur.lamassu.service.VehicleFilterParameters;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+@Component
+public class GraphQLSubscriptionController implements GraphQLSubscriptionResolver {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final EntityChangeSubscriptionService entityChangeSubscriptionService;
+    private final FeedProviderService feedProviderService;
+
+    @Autowired
+    public GraphQLSubscriptionController(EntityChangeSubscriptionService entityChangeSubscriptionService, FeedProviderService feedProviderService) {
+        this.entityChangeSubscriptionService = entityChangeSubscriptionService;
+        this.feedProviderService = feedProviderService;
+    }
+
+    public Publisher<VehicleUpdate> getVehicles(
+            Double lat,
+            Double lon,
+            Double range,
+            Double minimumLatitude,
+            Double minimumLongitude,
+            Double maximumLatitude,
+            Double maximumLongitude,
+            List<String> codespaces,
+            List<String> systems,
+            List<String> operators,
+            List<FormFactor> formFactors,
+            List<PropulsionType> propulsionTypes,
+            boolean includeReserved,
+            boolean includeDisabled
+    ) {
+        validateFilter(codespaces, systems);
+
+        var filterParams = new VehicleFilterParameters();
+        filterParams.setCodespaces(codespaces);
+        filterParams.setSystems(systems);
+        filterParams.setOperators(operators);
+        filterParams.setFormFactors(formFactors);
+        filterParams.setPropulsionTypes(propulsionTypes);
+        filterParams.setIncludeReserved(includeReserved);
+        filterParams.setIncludeDisabled(includeDisabled);
+
+        if (isBoundingBox(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude)) {
+            var boundingBoxParams = getBoundingBoxQueryParameters(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+            logger.debug("Vehicles subscription boundingBox={} filter={}", boundingBoxParams, filterParams);
+            return entityChangeSubscriptionService.getVehicleUpdates(boundingBoxParams, filterParams);
+        }
+
+        var queryParams = getRangeQueryParameters(lat, lon, range);
+        logger.debug("Vehicles subscription query={} filter={}", queryParams, filterParams);
+        return entityChangeSubscriptionService.getVehicleUpdates(queryParams, filterParams);
+    }
+
+    public Publisher<StationUpdate> getStations(
+            Double lat,
+            Double lon,
+            Double range,
+            Double minimumLatitude,
+            Double minimumLongitude,
+            Double maximumLatitude,
+            Double maximumLongitude,
+            List<String> codespaces,
+            List<String> systems,
+            List<String> operators,
+            List<FormFactor> availableFormFactors,
+            List<PropulsionType> availablePropulsionTypes
+    ) {
+        validateFilter(codespaces, systems);
+
+        var filterParams = new StationFilterParameters();
+        filterParams.setCodespaces(codespaces);
+        filterParams.setSystems(systems);
+        filterParams.setOperators(operators);
+        filterParams.setAvailableFormFactors(availableFormFactors);
+        filterParams.setAvailablePropulsionTypes(availablePropulsionTypes);
+
+        if (isBoundingBox(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude)) {
+            var boundingBoxParams = getBoundingBoxQueryParameters(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude);
+            logger.debug("Stations subscription boundingBox={} filter={}", boundingBoxParams, filterParams);
+            return entityChangeSubscriptionService.getStationUpdates(boundingBoxParams, filterParams);
+        }
+
+        var queryParams = getRangeQueryParameters(lat, lon, range);
+        logger.debug("Stations subscription query={} filter={}", queryParams, filterParams);
+        return entityChangeSubscriptionService.getStationUpdates(queryParams, filterParams);
+    }
+
+    private boolean isBoundingBox(Double minimumLatitude, Double minimumLongitude, Double maximumLatitude, Double maximumLongitude) {
+        return minimumLatitude != null || minimumLongitude != null || maximumLatitude != null || maximumLongitude != null;
+    }
+
+    private RangeQueryParameters getRangeQueryParameters(Double lat, Double lon, Double range) {
+        validate(p -> p.stream().allMatch(Objects::nonNull), Arrays.asList(lat, lon, range), "Either lat, lon and range or a bounding box is required");
+        validate(p -> p > -1, range, "Range must be non-negative");
+
+        var queryParams = new RangeQueryParameters();
+        queryParams.setLat(lat);
+        queryParams.setLon(lon);
+        queryParams.setRange(range);
+        return queryParams;
+    }
+
+    private BoundingBoxQueryParameters getBoundingBoxQueryParameters(Double minimumLatitude, Double minimumLongitude, Double maximumLatitude, Double maximumLongitude) {
+        validate(p -> p.stream().allMatch(Objects::nonNull), Arrays.asList(minimumLatitude, minimumLongitude, maximumLatitude, maximumLongitude), "All bounding box coordinates are required");
+        validate(p -> p <= maximumLatitude, minimumLatitude, "Minimum latitude must not be greater than maximum latitude");
+        validate(p -> p <= maximumLongitude, minimumLongitude, "Minimum longitude must not be greater than maximum longitude");
+
+        var boundingBoxParams = new BoundingBoxQueryParameters();
+        boundingBoxParams.setMinimumLatitude(minimumLatitude);
+        boundingBoxParams.setMinimumLongitude(minimumLongitude);
+        boundingBoxParams.setMaximumLatitude(maximumLatitude);
+        boundingBoxParams.setMaximumLongitude(maximumLongitude);
+        return boundingBoxParams;
+    }
+
+    private void validateFilter(List<String> codespaces, List<String> systems) {
+        if (codespaces != null) {
+            validate(getFeedProviderValues(FeedProvider::getCodespace)::containsAll, codespaces, "Unknown codespace(s)");
+        }
+        if (systems != null) {
+            validate(getFeedProviderValues(FeedProvider::getSystemId)::containsAll, systems, "Unknown system(s)");
+        }
+    }
+
+    private List<String> getFeedProviderValues(Function<FeedProvider, String> value) {
+        return feedProviderService.getFeedProviders().stream().map(value).collect(Collectors.toList());
+    }
+
+    private <T> void validate(Predicate<T> predicate, T value, String message) {
+        if (predicate.negate().test(value)) {
+            throw new GraphqlErrorException.Builder().message(message).build();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.entur.lamassu.controller;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import org.entur.lamassu.cache.SpatialIndex;
+import org.entur.lamassu.cache.StationSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
+import org.entur.lamassu.cache.impl.SpatialGrid;
+import org.entur.lamassu.service.FeedProviderService;
+import org.redisson.api.GeoUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Estimates the cost of root query fields as the number of entities they return times a weight
+ * for the fields selected on each entity. The number of vehicles and stations within a range or
+ * bounding box is estimated from the density of the spatial index around it.
+ */
+@Component
+public class QueryCostEstimator {
+    static final String VEHICLES = "vehicles";
+    static final String STATIONS = "stations";
+    static final String GEOFENCING_ZONES = "geofencingZones";
+
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final StationSpatialIndex stationSpatialIndex;
+    private final FeedProviderService feedProviderService;
+
+    @Value("${org.entur.lamassu.queryCost.geofencingZonesWeight:5000}")
+    private int geofencingZonesWeight = 5000;
+
+    @Autowired
+    public QueryCostEstimator(VehicleSpatialIndex vehicleSpatialIndex, StationSpatialIndex stationSpatialIndex, FeedProviderService feedProviderService) {
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.stationSpatialIndex = stationSpatialIndex;
+        this.feedProviderService = feedProviderService;
+    }
+
+    /**
+     * Whether the number of results of the field can be limited with the count argument
+     */
+    public boolean isClampable(String fieldName, Map<String, Object> arguments) {
+        return (VEHICLES.equals(fieldName) || STATIONS.equals(fieldName)) && arguments.get("ids") == null;
+    }
+
+    /**
+     * The estimated number of entities returned by the field. Estimates beyond limit are reported as limit + 1.
+     */
+    public long estimateResults(String fieldName, Map<String, Object> arguments, int limit) {
+        switch (fieldName) {
+            case VEHICLES:
+                return estimateResults(vehicleSpatialIndex, arguments, limit);
+            case STATIONS:
+                return estimateResults(stationSpatialIndex, arguments, limit);
+            case GEOFENCING_ZONES:
+                var systemIds = (Collection<?>) arguments.get("systemIds");
+                return systemIds != null ? systemIds.size() : feedProviderService.getFeedProviders().size();
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * The cost of each entity returned by the field
+     */
+    public int estimateWeight(String fieldName, DataFetchingFieldSelectionSet selectionSet) {
+        switch (fieldName) {
+            case VEHICLES:
+                // Answered from the spatial index alone, without reading the vehicles
+                if (SpatialIndexFieldSelection.isCoveredBySpatialIndex(selectionSet)) {
+                    return 1;
+                }
+                return 1 + selectionSet.getFields().size();
+            case STATIONS:
+                return 1 + selectionSet.getFields().size();
+            case GEOFENCING_ZONES:
+                return geofencingZonesWeight;
+            default:
+                return 1;
+        }
+    }
+
+    private long estimateResults(SpatialIndex<?, ?> spatialIndex, Map<String, Object> arguments, int limit) {
+        var ids = (Collection<?>) arguments.get("ids");
+        if (ids != null) {
+            return ids.size();
+        }
+
+        var count = getInteger(arguments, "count");
+        if (count != null && count <= limit) {
+            return count;
+        }
+
+        var minimumLatitude = getDouble(arguments, "minimumLatitude");
+        var minimumLongitude = getDouble(arguments, "minimumLongitude");
+        var maximumLatitude = getDouble(arguments, "maximumLatitude");
+        var maximumLongitude = getDouble(arguments, "maximumLongitude");
+
+        if (minimumLatitude != null && minimumLongitude != null && maximumLatitude != null && maximumLongitude != null) {
+            // Count within the circle around the bounding box, which overestimates by at most the corners
+            var latitude = (minimumLatitude + maximumLatitude) / 2;
+            var longitude = (minimumLongitude + maximumLongitude) / 2;
+            var radius = SpatialGrid.distance(longitude, latitude, maximumLongitude, maximumLatitude);
+            return spatialIndex.count(longitude, latitude, radius, GeoUnit.METERS, limit + 1);
+        }
+
+        var latitude = getDouble(arguments, "lat");
+        var longitude = getDouble(arguments, "lon");
+        var range = getDouble(arguments, "range");
+
+        if (latitude != null && longitude != null && range != null) {
+            return spatialIndex.count(longitude, latitude, range, GeoUnit.METERS, limit + 1);
+        }
+
+        // Invalid arguments, rejected by the query controller
+        return count != null ? count : 0;
+    }
+
+    private static Integer getInteger(Map<String, Object> arguments, String name) {
+        var value = (Number) arguments.get(name);
+        return value != null ? value.intValue() : null;
+    }
+
+    private static Double getDouble(Map<String, Object> arguments, String name) {
+        var value = (Number) arguments.get(name);
+        return value != null ? value.doubleValue() : null;
+    }
+}
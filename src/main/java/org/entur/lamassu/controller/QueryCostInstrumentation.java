@@ -0,0 +1,115 @@
+package org.entur.lamassu.controller;
+
+import graphql.GraphqlErrorException;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.OperationDefinition;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import org.entur.lamassu.metrics.MetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guards the root fields of queries by their estimated cost. Vehicle and station searches expected to
+ * return more than maxResults entities, or to bring the total cost of the query above maxCost, are limited
+ * to the nearest ones within both, by setting count. Fields which can't be limited are rejected.
+ */
+@Component
+@ConditionalOnProperty(value = "org.entur.lamassu.queryCost.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryCostInstrumentation extends SimpleInstrumentation {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final QueryCostEstimator queryCostEstimator;
+    private final MetricsService metricsService;
+
+    @Value("${org.entur.lamassu.queryCost.maxResults:5000}")
+    private int maxResults = 5000;
+
+    @Value("${org.entur.lamassu.queryCost.maxCost:200000}")
+    private long maxCost = 200000;
+
+    @Autowired
+    public QueryCostInstrumentation(QueryCostEstimator queryCostEstimator, MetricsService metricsService) {
+        this.queryCostEstimator = queryCostEstimator;
+        this.metricsService = metricsService;
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new QueryCostState();
+    }
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher, InstrumentationFieldFetchParameters parameters) {
+        if (parameters.isTrivialDataFetcher()
+                || parameters.getExecutionStepInfo().getPath().getLevel() != 1
+                || parameters.getExecutionContext().getOperationDefinition().getOperation() != OperationDefinition.Operation.QUERY) {
+            return dataFetcher;
+        }
+
+        var fieldName = parameters.getField().getName();
+        QueryCostState state = parameters.getInstrumentationState();
+
+        return env -> {
+            var arguments = env.getArguments();
+            var weight = queryCostEstimator.estimateWeight(fieldName, env.getSelectionSet());
+
+            // The most results the field can return without exceeding maxResults or the remaining cost of the query
+            var remainingCost = maxCost - (state != null ? state.getCost() : 0);
+            var limit = (int) Math.max(0, Math.min(maxResults, remainingCost / weight));
+            var results = queryCostEstimator.estimateResults(fieldName, arguments, limit);
+
+            if (results > limit) {
+                if (limit == 0 || !queryCostEstimator.isClampable(fieldName, arguments)) {
+                    metricsService.registerQueryRejected(fieldName);
+                    throw new GraphqlErrorException.Builder()
+                            .message(limit == maxResults
+                                    ? "Query would return more than " + maxResults + " results"
+                                    : "Query is too expensive, estimated cost exceeds " + maxCost + ". Reduce the range, count or selected fields")
+                            .build();
+                }
+
+                logger.debug("Limiting {} to the {} nearest results, arguments={}", fieldName, limit, arguments);
+                metricsService.registerQueryClamped(fieldName);
+                var clampedArguments = new HashMap<>(arguments);
+                clampedArguments.put("count", limit);
+                env = DataFetchingEnvironmentImpl.newDataFetchingEnvironment(env).arguments(clampedArguments).build();
+                results = limit;
+            }
+
+            var cost = results * weight;
+            metricsService.registerQueryCost(fieldName, cost);
+
+            if (state != null && state.add(cost) > maxCost) {
+                metricsService.registerQueryRejected(fieldName);
+                throw new GraphqlErrorException.Builder()
+                        .message("Query is too expensive, estimated cost " + state.getCost() + " exceeds " + maxCost + ". Reduce the range, count or selected fields")
+                        .build();
+            }
+
+            return dataFetcher.get(env);
+        };
+    }
+
+    static class QueryCostState implements InstrumentationState {
+        private final AtomicLong cost = new AtomicLong();
+
+        long add(long fieldCost) {
+            return cost.addAndGet(fieldCost);
+        }
+
+        long getCost() {
+            return cost.get();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+
+import java.util.Set;
+
+/**
+ * Tells whether the fields selected on vehicles can be answered from the spatial index alone,
+ * without reading the vehicles from the cache.
+ */
+final class SpatialIndexFieldSelection {
+    private static final Set<String> SPATIAL_INDEX_VEHICLE_FIELDS = Set.of(
+            "__typename",
+            "id",
+            "lat",
+            "lon",
+            "isReserved",
+            "isDisabled",
+            "vehicleType",
+            "vehicleType/__typename",
+            "vehicleType/formFactor",
+            "vehicleType/propulsionType",
+            "system",
+            "system/__typename",
+            "system/id"
+    );
+
+    private SpatialIndexFieldSelection() {}
+
+    static boolean isCoveredBySpatialIndex(DataFetchingFieldSelectionSet selectionSet) {
+        return selectionSet != null && selectionSet.getFields().stream()
+                .map(SelectedField::getQualifiedName)
+                .allMatch(SPATIAL_INDEX_VEHICLE_FIELDS::contains);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.System;
+import org.entur.lamassu.util.CacheUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the system and pricing plans of stations only when they are selected,
+ * batched per request by the data loaders of {@link GraphQLDataLoaderContextBuilder}.
+ */
+@Component
+public class StationFieldResolver implements GraphQLResolver<Station> {
+
+    public CompletableFuture<System> getSystem(Station station, DataFetchingEnvironment env) {
+        if (station.getSystem() != null || station.getSystemId() == null) {
+            return CompletableFuture.completedFuture(station.getSystem());
+        }
+        return env.<String, System>getDataLoader(GraphQLDataLoaderContextBuilder.SYSTEM_LOADER)
+                .load(station.getSystemId());
+    }
+
+    public CompletableFuture<List<PricingPlan>> getPricingPlans(Station station, DataFetchingEnvironment env) {
+        if (station.getPricingPlans() != null || station.getPricingPlanIds() == null) {
+            return CompletableFuture.completedFuture(station.getPricingPlans());
+        }
+        return env.<String, PricingPlan>getDataLoader(GraphQLDataLoaderContextBuilder.PRICING_PLAN_LOADER)
+                .loadMany(CacheUtil.getPricingPlanKeys(station))
+                .thenApply(pricingPlans -> pricingPlans.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import graphql.kickstart.tools.GraphQLResolver;
+import graphql.schema.DataFetchingEnvironment;
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.System;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleType;
+import org.entur.lamassu.util.CacheUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Loads the vehicle type, pricing plan and system of vehicles only when they are selected,
+ * batched per request by the data loaders of {@link GraphQLDataLoaderContextBuilder}.
+ */
+@Component
+public class VehicleFieldResolver implements GraphQLResolver<Vehicle> {
+
+    public CompletableFuture<VehicleType> getVehicleType(Vehicle vehicle, DataFetchingEnvironment env) {
+        if (vehicle.getVehicleType() != null || vehicle.getVehicleTypeId() == null) {
+            return CompletableFuture.completedFuture(vehicle.getVehicleType());
+        }
+        return env.<String, VehicleType>getDataLoader(GraphQLDataLoaderContextBuilder.VEHICLE_TYPE_LOADER)
+                .load(CacheUtil.getVehicleTypeKey(vehicle));
+    }
+
+    public CompletableFuture<PricingPlan> getPricingPlan(Vehicle vehicle, DataFetchingEnvironment env) {
+        if (vehicle.getPricingPlan() != null || vehicle.getPricingPlanId() == null) {
+            return CompletableFuture.completedFuture(vehicle.getPricingPlan());
+        }
+        return env.<String, PricingPlan>getDataLoader(GraphQLDataLoaderContextBuilder.PRICING_PLAN_LOADER)
+                .load(CacheUtil.getPricingPlanKey(vehicle));
+    }
+
+    public CompletableFuture<System> getSystem(Vehicle vehicle, DataFetchingEnvironment env) {
+        if (vehicle.getSystem() != null || vehicle.getSystemId() == null) {
+            return CompletableFuture.completedFuture(vehicle.getSystem());
+        }
+        return env.<String, System>getDataLoader(GraphQLDataLoaderContextBuilder.SYSTEM_LOADER)
+                .load(vehicle.getSystemId());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Plans when to poll each provider next, on a timer wheel with one slot per tick. Delays are clamped
+ * between the minimum and maximum interval, and a random jitter of up to the given fraction of the delay
+ * is added to spread out polls of providers whose feeds expire at the same time.
+ */
+public class AdaptivePollingScheduler {
+    private final long tickMillis;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final double jitter;
+
+    private final List<Set<String>> wheel;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int cursor;
+
+    public AdaptivePollingScheduler(long tickMillis, long minIntervalMillis, long maxIntervalMillis, double jitter) {
+        this.tickMillis = tickMillis;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+        this.jitter = jitter;
+
+        int size = (int) ((this.maxIntervalMillis + tickMillis - 1) / tickMillis) + 1;
+        wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * Schedule the next poll of the given key, replacing any poll already scheduled for it
+     */
+    public synchronized void schedule(String key, long delayMillis) {
+        var delay = Math.min(Math.max(delayMillis, minIntervalMillis), maxIntervalMillis);
+        if (jitter > 0) {
+            delay = Math.min(delay + (long) (delay * jitter * ThreadLocalRandom.current().nextDouble()), maxIntervalMillis);
+        }
+
+        int ticks = (int) Math.min(Math.max((delay + tickMillis - 1) / tickMillis, 1), wheel.size() - 1);
+        int slot = (cursor + ticks) % wheel.size();
+
+        var previousSlot = slots.put(key, slot);
+        if (previousSlot != null) {
+            wheel.get(previousSlot).remove(key);
+        }
+        wheel.get(slot).add(key);
+    }
+
+    /**
+     * Advance the wheel by one tick and return the keys which are due for polling
+     */
+    public synchronized Set<String> advance() {
+        cursor = (cursor + 1) % wheel.size();
+        var due = wheel.get(cursor);
+        wheel.set(cursor, new HashSet<>());
+        due.forEach(slots::remove);
+        return due;
+    }
+
+    public synchronized boolean isScheduled(String key) {
+        return slots.containsKey(key);
+    }
+}
@@ -18,12 +18,15 @@
 
 package org.entur.lamassu.leader;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.entur.gbfs.GbfsDelivery;
 import org.entur.gbfs.GbfsSubscriptionManager;
 import org.entur.gbfs.GbfsSubscriptionOptions;
+import org.entur.gbfs.v2_3.gbfs.GBFSFeedName;
 import org.entur.gbfs.validation.model.ValidationResult;
 import org.entur.lamassu.config.feedprovider.FeedProviderConfig;
 import org.entur.lamassu.leader.entityupdater.EntityCachesUpdater;
+import org.entur.lamassu.leader.entityupdater.FreeBikeStatusSource;
 import org.entur.lamassu.leader.feedcachesupdater.FeedCachesUpdater;
 import org.entur.lamassu.mapper.feedmapper.GbfsDeliveryMapper;
 import org.entur.lamassu.metrics.MetricsService;
@@ -38,10 +41,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
@@ -54,18 +68,48 @@ public class FeedUpdater {
     private final GbfsDeliveryMapper gbfsDeliveryMapper;
     private final FeedCachesUpdater feedCachesUpdater;
     private final EntityCachesUpdater entityCachesUpdater;
+    private final FreeBikeStatusStreamReader freeBikeStatusStreamReader;
+    private final ObjectMapper objectMapper;
     private final RBucket<Boolean> cacheReady;
 
     private static final int NUM_CORES = Runtime.getRuntime().availableProcessors();
 
     private GbfsSubscriptionManager subscriptionManager;
     private ForkJoinPool updaterThreadPool;
+    private ProviderUpdateExecutor providerUpdateExecutor;
+    private AdaptivePollingScheduler pollingScheduler;
+    private UnchangedDeliveryDetector unchangedDeliveryDetector;
+    private final Map<String, GbfsSubscriptionManager> providerSubscriptionManagers = new ConcurrentHashMap<>();
 
     private final RListMultimap<String, ValidationResult> validationResultsCache;
 
     @Value("${org.entur.lamassu.enableValidation:false}")
     private boolean enableValidation;
 
+    @Value("${org.entur.lamassu.updaterExecutor:forkjoin}")
+    private String updaterExecutor;
+
+    @Value("${org.entur.lamassu.feedupdateinterval:30000}")
+    private long feedUpdateInterval;
+
+    @Value("${org.entur.lamassu.adaptivePolling.enabled:false}")
+    private boolean enableAdaptivePolling;
+
+    @Value("${org.entur.lamassu.adaptivePolling.minInterval:5000}")
+    private long adaptivePollingMinInterval;
+
+    @Value("${org.entur.lamassu.adaptivePolling.maxInterval:300000}")
+    private long adaptivePollingMaxInterval;
+
+    @Value("${org.entur.lamassu.adaptivePolling.jitter:0.1}")
+    private double adaptivePollingJitter;
+
+    @Value("${org.entur.lamassu.skipUnchangedDeliveries.enabled:true}")
+    private boolean skipUnchangedDeliveries;
+
+    @Value("${org.entur.lamassu.skipUnchangedDeliveries.maxSkipInterval:60000}")
+    private long maxSkipInterval;
+
     private MetricsService metricsService;
 
     @Autowired
@@ -74,6 +118,8 @@ public class FeedUpdater {
             GbfsDeliveryMapper gbfsDeliveryMapper,
             FeedCachesUpdater feedCachesUpdater,
             EntityCachesUpdater entityCachesUpdater,
+            FreeBikeStatusStreamReader freeBikeStatusStreamReader,
+            ObjectMapper objectMapper,
             RListMultimap<String, ValidationResult> validationResultsCache,
             RBucket<Boolean> cacheReady,
             MetricsService metricsService
@@ -82,6 +128,8 @@ public class FeedUpdater {
         this.gbfsDeliveryMapper = gbfsDeliveryMapper;
         this.feedCachesUpdater = feedCachesUpdater;
         this.entityCachesUpdater = entityCachesUpdater;
+        this.freeBikeStatusStreamReader = freeBikeStatusStreamReader;
+        this.objectMapper = objectMapper;
         this.validationResultsCache = validationResultsCache;
         this.cacheReady = cacheReady;
         this.metricsService = metricsService;
@@ -95,15 +143,51 @@ public class FeedUpdater {
                 true
         );
         subscriptionManager = new GbfsSubscriptionManager(updaterThreadPool);
-        updaterThreadPool.execute(this::createSubscriptions);
+
+        if (skipUnchangedDeliveries) {
+            unchangedDeliveryDetector = new UnchangedDeliveryDetector(maxSkipInterval);
+        }
+
+        if (enableAdaptivePolling) {
+            pollingScheduler = new AdaptivePollingScheduler(
+                    feedUpdateInterval,
+                    adaptivePollingMinInterval,
+                    adaptivePollingMaxInterval,
+                    adaptivePollingJitter
+            );
+        }
+
+        if ("virtual".equals(updaterExecutor)) {
+            providerUpdateExecutor = ProviderUpdateExecutor.create(NUM_CORES * 2);
+            feedProviderConfig.getProviders().forEach(
+                    feedProvider -> providerUpdateExecutor.execute(() -> createSubscription(feedProvider))
+            );
+        } else {
+            updaterThreadPool.execute(this::createSubscriptions);
+        }
     }
 
     public void update() {
-        subscriptionManager.update();
+        if (pollingScheduler == null) {
+            subscriptionManager.update();
+            return;
+        }
+
+        pollingScheduler.advance().forEach(systemId -> {
+            var providerSubscriptionManager = providerSubscriptionManagers.get(systemId);
+            if (providerSubscriptionManager != null) {
+                // Poll again after the maximum interval if the provider doesn't deliver an update
+                pollingScheduler.schedule(systemId, adaptivePollingMaxInterval);
+                providerSubscriptionManager.update();
+            }
+        });
     }
 
     public void stop() {
         updaterThreadPool.shutdown();
+        if (providerUpdateExecutor != null) {
+            providerUpdateExecutor.shutdown();
+        }
     }
 
     private void createSubscriptions() {
@@ -118,19 +202,81 @@ public class FeedUpdater {
             options.setRequestAuthenticator(feedProvider.getAuthentication().getRequestAuthenticator());
         }
         options.setEnableValidation(enableValidation);
-        String id = subscriptionManager.subscribe(options, delivery -> receiveUpdate(feedProvider, delivery));
+        String id = getSubscriptionManager(feedProvider).subscribe(options, delivery -> {
+            if (pollingScheduler != null) {
+                pollingScheduler.schedule(feedProvider.getSystemId(), getNextPollDelay(delivery));
+            }
+
+            if (providerUpdateExecutor != null) {
+                providerUpdateExecutor.submit(feedProvider.getSystemId(), () -> receiveUpdate(feedProvider, delivery));
+            } else {
+                receiveUpdate(feedProvider, delivery);
+            }
+        });
 
         if (id == null) {
             logger.warn("Failed to setup subscription, trying again in 5 seconds - systemId={}", feedProvider.getSystemId());
             metricsService.registerSubscriptionSetup(feedProvider, false);
-            CompletableFuture.delayedExecutor(60, TimeUnit.SECONDS).execute(() -> updaterThreadPool.execute(() -> createSubscription(feedProvider)));
+            CompletableFuture.delayedExecutor(60, TimeUnit.SECONDS).execute(() -> getSubscriptionExecutor().execute(() -> createSubscription(feedProvider)));
         } else {
             logger.info("Setup subscription complete systemId={}", feedProvider.getSystemId());
             metricsService.registerSubscriptionSetup(feedProvider, true);
+            if (pollingScheduler != null) {
+                pollingScheduler.schedule(feedProvider.getSystemId(), 0);
+            }
         }
     }
 
+    /**
+     * With adaptive polling, each provider gets its own subscription manager, so that it can be polled
+     * independently of the others
+     */
+    private GbfsSubscriptionManager getSubscriptionManager(FeedProvider feedProvider) {
+        if (pollingScheduler == null) {
+            return subscriptionManager;
+        }
+
+        return providerSubscriptionManagers.computeIfAbsent(
+                feedProvider.getSystemId(),
+                systemId -> new GbfsSubscriptionManager(updaterThreadPool)
+        );
+    }
+
+    /**
+     * Poll the provider again when the first of its realtime feeds expires, or after the maximum interval
+     * if it has none
+     */
+    private long getNextPollDelay(GbfsDelivery delivery) {
+        var expiresAt = Long.MAX_VALUE;
+
+        var freeBikeStatus = delivery.getFreeBikeStatus();
+        if (freeBikeStatus != null && freeBikeStatus.getLastUpdated() != null && freeBikeStatus.getTtl() != null) {
+            expiresAt = Math.min(expiresAt, (long) freeBikeStatus.getLastUpdated() + freeBikeStatus.getTtl());
+        }
+
+        var stationStatus = delivery.getStationStatus();
+        if (stationStatus != null && stationStatus.getLastUpdated() != null && stationStatus.getTtl() != null) {
+            expiresAt = Math.min(expiresAt, (long) stationStatus.getLastUpdated() + stationStatus.getTtl());
+        }
+
+        if (expiresAt == Long.MAX_VALUE) {
+            return adaptivePollingMaxInterval;
+        }
+
+        return TimeUnit.SECONDS.toMillis(expiresAt - Instant.now().getEpochSecond());
+    }
+
+    private Executor getSubscriptionExecutor() {
+        return providerUpdateExecutor != null ? providerUpdateExecutor::execute : updaterThreadPool;
+    }
+
     private void receiveUpdate(FeedProvider feedProvider, GbfsDelivery delivery) {
+        var contentDigest = unchangedDeliveryDetector != null ? getContentDigest(delivery) : null;
+        if (unchangedDeliveryDetector != null && unchangedDeliveryDetector.isUnchanged(feedProvider.getSystemId(), contentDigest)) {
+            logger.debug("Skipping unchanged feed update for system {}", feedProvider.getSystemId());
+            return;
+        }
+
         if (enableValidation) {
             if (delivery.getValidationResult().getSummary().getErrorsCount() > 0) {
                 logger.info("Validation errors in feed update for system {}", feedProvider.getSystemId());
@@ -139,10 +285,69 @@ public class FeedUpdater {
             metricsService.registerValidationResult(feedProvider, delivery.getValidationResult());
         }
 
+        FreeBikeStatusSource freeBikeStatusSource = null;
+        if (feedProvider.isStreamFreeBikeStatus()) {
+            freeBikeStatusSource = getFreeBikeStatusSource(feedProvider, delivery);
+            // Release the loader's copy of the feed before mapping, the vehicles are read from the stream instead
+            delivery.setFreeBikeStatus(null);
+        }
+
         var mappedDelivery = gbfsDeliveryMapper.mapGbfsDelivery(delivery, feedProvider);
         var oldDelivery =  feedCachesUpdater.updateFeedCaches(feedProvider, mappedDelivery);
-        entityCachesUpdater.updateEntityCaches(feedProvider, mappedDelivery, oldDelivery);
+        entityCachesUpdater.updateEntityCaches(feedProvider, mappedDelivery, oldDelivery, freeBikeStatusSource);
         cacheReady.set(true);
+
+        if (unchangedDeliveryDetector != null) {
+            unchangedDeliveryDetector.registerProcessed(feedProvider.getSystemId(), contentDigest);
+        }
+    }
+
+    private FreeBikeStatusSource getFreeBikeStatusSource(FeedProvider feedProvider, GbfsDelivery delivery) {
+        var discovery = delivery.getDiscovery();
+        if (discovery == null || discovery.getFeedsData() == null || discovery.getFeedsData().isEmpty()) {
+            return null;
+        }
+
+        var feeds = discovery.getFeedsData().containsKey(feedProvider.getLanguage())
+                ? discovery.getFeedsData().get(feedProvider.getLanguage())
+                : discovery.getFeedsData().values().iterator().next();
+
+        return feeds.getFeeds().stream()
+                .filter(feed -> GBFSFeedName.FreeBikeStatus.equals(feed.getName()))
+                .findFirst()
+                .map(feed -> freeBikeStatusStreamReader.getSource(feedProvider, feed.getUrl()))
+                .orElse(null);
+    }
+
+    /**
+     * MD5 digest of the serialized content of all feeds in the delivery, including their last_updated.
+     * The validation result is left out, as it follows from the content. Returns null if the delivery
+     * can't be serialized, so that it is always processed.
+     */
+    private String getContentDigest(GbfsDelivery delivery) {
+        var feeds = Arrays.asList(
+                delivery.getDiscovery(),
+                delivery.getSystemInformation(),
+                delivery.getSystemAlerts(),
+                delivery.getSystemCalendar(),
+                delivery.getSystemRegions(),
+                delivery.getSystemPricingPlans(),
+                delivery.getSystemHours(),
+                delivery.getVehicleTypes(),
+                delivery.getGeofencingZones(),
+                delivery.getStationInformation(),
+                delivery.getStationStatus(),
+                delivery.getFreeBikeStatus()
+        );
+
+        try {
+            var digest = MessageDigest.getInstance("MD5");
+            objectMapper.writeValue(new DigestOutputStream(OutputStream.nullOutputStream(), digest), feeds);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.warn("Unable to compute content digest of feed update", e);
+            return null;
+        }
     }
 
     private void updateValidationReportsCache(String systemId, ValidationResult validationResult) {
@@ -0,0 +1,197 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSBike;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
+import org.entur.lamassu.leader.entityupdater.FreeBikeStatusSource;
+import org.entur.lamassu.mapper.feedmapper.FreeBikeStatusFeedMapper;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads free_bike_status feeds with the Jackson streaming API while they are downloaded, so that their
+ * vehicles can be processed in chunks without the feed being held in memory as a whole.
+ */
+@Component
+@Profile("leader")
+public class FreeBikeStatusStreamReader {
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final FreeBikeStatusFeedMapper freeBikeStatusFeedMapper;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    public FreeBikeStatusStreamReader(WebClient webClient, ObjectMapper objectMapper, FreeBikeStatusFeedMapper freeBikeStatusFeedMapper) {
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.freeBikeStatusFeedMapper = freeBikeStatusFeedMapper;
+    }
+
+    /**
+     * The free_bike_status feed of the provider at uri, with its vehicles mapped as by the feed mapper.
+     * The feed is downloaded each time it is read.
+     */
+    public FreeBikeStatusSource getSource(FeedProvider feedProvider, URI uri) {
+        return (chunkSize, consumer) -> {
+            try (var in = open(feedProvider, uri)) {
+                read(in, chunkSize, (feed, bikes) -> consumer.accept(
+                        feed,
+                        bikes.stream().map(bike -> freeBikeStatusFeedMapper.mapBike(bike, feedProvider)).collect(Collectors.toList())
+                ));
+            }
+        };
+    }
+
+    /**
+     * Read a free_bike_status feed, handing its vehicles to the consumer in chunks of at most chunkSize
+     * vehicles. Returns the feed without its vehicles.
+     */
+    public GBFSFreeBikeStatus read(InputStream in, int chunkSize, BiConsumer<GBFSFreeBikeStatus, List<GBFSBike>> consumer) throws IOException {
+        var feed = new GBFSFreeBikeStatus();
+
+        try (var parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected free_bike_status feed to be an object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "last_updated":
+                        feed.setLastUpdated(parser.getIntValue());
+                        break;
+                    case "ttl":
+                        feed.setTtl(parser.getIntValue());
+                        break;
+                    case "version":
+                        feed.setVersion(parser.getText());
+                        break;
+                    case "data":
+                        readData(parser, feed, chunkSize, consumer);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        return feed;
+    }
+
+    private void readData(JsonParser parser, GBFSFreeBikeStatus feed, int chunkSize, BiConsumer<GBFSFreeBikeStatus, List<GBFSBike>> consumer) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var fieldName = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "bikes".equals(fieldName)) {
+                readBikes(parser, feed, chunkSize, consumer);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readBikes(JsonParser parser, GBFSFreeBikeStatus feed, int chunkSize, BiConsumer<GBFSFreeBikeStatus, List<GBFSBike>> consumer) throws IOException {
+        List<GBFSBike> chunk = new ArrayList<>(chunkSize);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            chunk.add(objectMapper.readValue(parser, GBFSBike.class));
+            if (chunk.size() == chunkSize) {
+                consumer.accept(feed, chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(feed, chunk);
+        }
+    }
+
+    /**
+     * Open the body of the feed as a stream. If the download fails, the stream ends early, so that reading
+     * it fails as well.
+     */
+    private InputStream open(FeedProvider feedProvider, URI uri) throws IOException {
+        var headers = new HashMap<String, String>();
+        if (feedProvider.getAuthentication() != null) {
+            try {
+                feedProvider.getAuthentication().getRequestAuthenticator().authenticateRequest(headers);
+            } catch (Exception e) {
+                throw new IOException("Failed to authenticate request for " + uri, e);
+            }
+        }
+
+        var in = new PipedInputStream(PIPE_SIZE);
+        var out = new PipedOutputStream(in);
+
+        var body = webClient.get()
+                .uri(uri)
+                .headers(httpHeaders -> httpHeaders.setAll(headers))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                // Writing blocks while the pipe is full, which must not happen on the event loop
+                .publishOn(Schedulers.boundedElastic());
+
+        DataBufferUtils.write(body, out)
+                .doFinally(signal -> close(out))
+                .subscribe(
+                        DataBufferUtils.releaseConsumer(),
+                        e -> logger.warn("Failed to download free_bike_status feed {}", uri, e)
+                );
+
+        return in;
+    }
+
+    private void close(OutputStream out) {
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close free_bike_status feed stream", e);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.entur.lamassu.leader;
 
-import org.entur.lamassu.service.GeoSearchService;
+import org.entur.lamassu.cache.StationSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -16,11 +18,23 @@ import javax.annotation.PreDestroy;
 public class LeaderSingletonService {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final FeedUpdater feedUpdater;
-    private final GeoSearchService geoSearchService;
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final StationSpatialIndex stationSpatialIndex;
+    private final VehicleSpatialIndexOrphanReconciler vehicleSpatialIndexOrphanReconciler;
 
-    public LeaderSingletonService(@Autowired FeedUpdater feedUpdater, @Autowired GeoSearchService geoSearchService) {
+    @Value("${org.entur.lamassu.orphanReconciliation.enabled:false}")
+    private boolean orphanReconciliationEnabled;
+
+    public LeaderSingletonService(
+            @Autowired FeedUpdater feedUpdater,
+            @Autowired VehicleSpatialIndex vehicleSpatialIndex,
+            @Autowired StationSpatialIndex stationSpatialIndex,
+            @Autowired VehicleSpatialIndexOrphanReconciler vehicleSpatialIndexOrphanReconciler
+    ) {
         this.feedUpdater = feedUpdater;
-        this.geoSearchService = geoSearchService;
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.stationSpatialIndex = stationSpatialIndex;
+        this.vehicleSpatialIndexOrphanReconciler = vehicleSpatialIndexOrphanReconciler;
     }
 
     @PostConstruct
@@ -40,9 +54,27 @@ public class LeaderSingletonService {
         feedUpdater.update();
     }
 
-    @Scheduled(fixedRate = 60000)
+    @Scheduled(fixedDelayString = "${org.entur.lamassu.spatialIndexExpiryInterval:10000}")
+    public void removeExpiredSpatialIndexEntries() {
+        var removedVehicles = vehicleSpatialIndex.removeExpired();
+        var removedStations = stationSpatialIndex.removeExpired();
+        if (!removedVehicles.isEmpty() || !removedStations.isEmpty()) {
+            logger.debug("Removed {} expired vehicles and {} expired stations from spatial indexes", removedVehicles.size(), removedStations.size());
+        }
+    }
+
+    /**
+     * Entries in the spatial indexes expire along with their entities, so orphans are only expected
+     * from entries added without expiry, e.g. before expiry was introduced. Unless enabled, the index is
+     * therefore only scanned once after startup, which removes such entries left by earlier versions.
+     */
+    @Scheduled(fixedDelayString = "${org.entur.lamassu.orphanReconciliation.interval:10000}")
     public void removeOrphans() {
-        var removedOrphans = geoSearchService.removeVehicleSpatialIndexOrphans();
+        if (!orphanReconciliationEnabled && vehicleSpatialIndexOrphanReconciler.getCompletedScans() > 0) {
+            return;
+        }
+
+        var removedOrphans = vehicleSpatialIndexOrphanReconciler.reconcile();
         if (!removedOrphans.isEmpty()) {
             logger.info("Removed {} orphans in vehicle spatial index", removedOrphans.size());
         }
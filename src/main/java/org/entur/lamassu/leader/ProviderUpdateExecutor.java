@@ -0,0 +1,146 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs feed updates on a separate executor, so that slow providers blocking on redis can't starve the
+ * thread pool which fetches feeds. At most one update runs per provider at a time. When another update
+ * for the same provider arrives while one is running, only the most recent one is kept and run next.
+ */
+public class ProviderUpdateExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ProviderUpdateExecutor.class);
+
+    private final ExecutorService executor;
+    private final Map<String, ProviderQueue> queues = new ConcurrentHashMap<>();
+
+    public ProviderUpdateExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Create an executor running each task in a virtual thread, if the runtime supports it (Java 21),
+     * and otherwise in a pool of at most maxPlatformThreads threads, queueing tasks while all are busy
+     */
+    public static ProviderUpdateExecutor create(int maxPlatformThreads) {
+        return new ProviderUpdateExecutor(createExecutorService(maxPlatformThreads));
+    }
+
+    static ExecutorService createExecutorService(int maxPlatformThreads) {
+        try {
+            var executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Running feed updates in virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not available in this runtime, running feed updates in a pool of {} threads", maxPlatformThreads);
+            var executor = new ThreadPoolExecutor(
+                    maxPlatformThreads,
+                    maxPlatformThreads,
+                    60,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ProviderUpdateThreadFactory()
+            );
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    public void submit(String systemId, Runnable update) {
+        var queue = queues.computeIfAbsent(systemId, k -> new ProviderQueue());
+
+        synchronized (queue) {
+            if (queue.pending != null) {
+                logger.debug("Skipping update for provider {} superseded by a more recent one", systemId);
+            }
+            queue.pending = update;
+            if (queue.running) {
+                return;
+            }
+            queue.running = true;
+        }
+
+        try {
+            executor.execute(() -> drain(systemId, queue));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected update for provider {}", systemId, e);
+            synchronized (queue) {
+                queue.pending = null;
+                queue.running = false;
+            }
+        }
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain(String systemId, ProviderQueue queue) {
+        while (true) {
+            Runnable update;
+            synchronized (queue) {
+                update = queue.pending;
+                queue.pending = null;
+                if (update == null) {
+                    queue.running = false;
+                    return;
+                }
+            }
+
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                logger.warn("Caught exception while updating provider {}", systemId, e);
+            }
+        }
+    }
+
+    private static class ProviderQueue {
+        private Runnable pending;
+        private boolean running;
+    }
+
+    private static class ProviderUpdateThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "provider-update-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the content digest of the most recently processed delivery of each provider, so that deliveries
+ * identical to it can be skipped instead of being mapped and written to the caches again.
+ *
+ * An unchanged delivery is still processed once the maximum skip interval has passed since the
+ * previous one was processed, to keep its entities from expiring in caches with a ttl.
+ */
+public class UnchangedDeliveryDetector {
+    private final long maxSkipIntervalMillis;
+    private final LongSupplier clock;
+    private final Map<String, ProcessedDelivery> processedDeliveries = new ConcurrentHashMap<>();
+
+    public UnchangedDeliveryDetector(long maxSkipIntervalMillis) {
+        this(maxSkipIntervalMillis, java.lang.System::currentTimeMillis);
+    }
+
+    UnchangedDeliveryDetector(long maxSkipIntervalMillis, LongSupplier clock) {
+        this.maxSkipIntervalMillis = maxSkipIntervalMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * A delivery without a digest is never considered unchanged
+     */
+    public boolean isUnchanged(String systemId, String contentDigest) {
+        if (contentDigest == null) {
+            return false;
+        }
+        var previous = processedDeliveries.get(systemId);
+        return previous != null
+                && contentDigest.equals(previous.contentDigest)
+                && clock.getAsLong() - previous.processedAt < maxSkipIntervalMillis;
+    }
+
+    /**
+     * Register a delivery as processed. Only call this after it was successfully written to the caches,
+     * so that a failed update isn't skipped when it's delivered again.
+     */
+    public void registerProcessed(String systemId, String contentDigest) {
+        if (contentDigest == null) {
+            return;
+        }
+        processedDeliveries.put(systemId, new ProcessedDelivery(contentDigest, clock.getAsLong()));
+    }
+
+    private static class ProcessedDelivery {
+        private final String contentDigest;
+        private final long processedAt;
+
+        private ProcessedDelivery(String contentDigest, long processedAt) {
+            this.contentDigest = contentDigest;
+            this.processedAt = processedAt;
+        }
+    }
+}
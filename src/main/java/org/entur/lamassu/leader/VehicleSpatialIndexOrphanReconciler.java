@@ -0,0 +1,143 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import org.entur.lamassu.cache.VehicleCache;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.metrics.MetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Removes entries from the vehicle spatial index whose vehicle is no longer in the vehicle cache,
+ * e.g. because it expired. Each run continues a scan of the index where the previous run stopped,
+ * and checks a bounded number of entries in batches, so the work is spread over several runs.
+ */
+@Component
+public class VehicleSpatialIndexOrphanReconciler {
+    static final String INDEX_NAME = "vehicle";
+
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final VehicleCache vehicleCache;
+    private final MetricsService metricsService;
+    private final int batchSize;
+    private final int maxScannedPerRun;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private Iterator<VehicleSpatialIndexId> cursor;
+    private int completedScans;
+
+    @Autowired
+    public VehicleSpatialIndexOrphanReconciler(
+            VehicleSpatialIndex vehicleSpatialIndex,
+            VehicleCache vehicleCache,
+            MetricsService metricsService,
+            @Value("${org.entur.lamassu.orphanReconciliation.batchSize:1000}") int batchSize,
+            @Value("${org.entur.lamassu.orphanReconciliation.maxScannedPerRun:20000}") int maxScannedPerRun
+    ) {
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.vehicleCache = vehicleCache;
+        this.metricsService = metricsService;
+        this.batchSize = batchSize;
+        this.maxScannedPerRun = maxScannedPerRun;
+    }
+
+    /**
+     * Scan up to maxScannedPerRun entries of the index and remove the orphans among them.
+     *
+     * @return the ids of the removed vehicles
+     */
+    public synchronized List<String> reconcile() {
+        if (cursor == null) {
+            cursor = vehicleSpatialIndex.scan(batchSize);
+        }
+
+        var scanned = 0;
+        var found = 0;
+        List<String> removed = new ArrayList<>();
+
+        try {
+            while (scanned < maxScannedPerRun && cursor.hasNext()) {
+                List<VehicleSpatialIndexId> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && scanned < maxScannedPerRun && cursor.hasNext()) {
+                    var indexId = cursor.next();
+                    scanned++;
+                    if (indexId != null) {
+                        batch.add(indexId);
+                    }
+                }
+
+                var orphans = getOrphans(batch);
+                found += orphans.size();
+
+                // Check again before removing, in case a vehicle was added while checking the batch
+                orphans = getOrphans(orphans);
+                if (!orphans.isEmpty()) {
+                    vehicleSpatialIndex.removeAll(new HashSet<>(orphans));
+                    orphans.forEach(orphan -> removed.add(orphan.getId()));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Caught exception while scanning vehicle spatial index for orphans, restarting scan on next run", e);
+            cursor = null;
+        }
+
+        if (cursor != null && !cursor.hasNext()) {
+            logger.debug("Completed scan of vehicle spatial index for orphans");
+            cursor = null;
+            completedScans++;
+        }
+
+        metricsService.registerOrphanReconciliation(INDEX_NAME, scanned, found, removed.size());
+        logger.debug("Scanned {} entries in vehicle spatial index, found {} orphans and removed {}", scanned, found, removed.size());
+        return removed;
+    }
+
+    /**
+     * The number of scans of the whole index completed so far
+     */
+    public synchronized int getCompletedScans() {
+        return completedScans;
+    }
+
+    private List<VehicleSpatialIndexId> getOrphans(List<VehicleSpatialIndexId> indexIds) {
+        if (indexIds.isEmpty()) {
+            return indexIds;
+        }
+
+        Set<String> existing = vehicleCache.getExistingKeys(
+                indexIds.stream().map(VehicleSpatialIndexId::getId).collect(Collectors.toSet())
+        );
+
+        return indexIds.stream()
+                .filter(indexId -> !existing.contains(indexId.getId()))
+                .collect(Collectors.toList());
+    }
+}
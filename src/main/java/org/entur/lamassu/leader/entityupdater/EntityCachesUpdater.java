@@ -20,41 +20,81 @@ package org.entur.lamassu.leader.entityupdater;
 
 import org.entur.gbfs.GbfsDelivery;
 import org.entur.gbfs.v2_3.gbfs.GBFSFeedName;
+import org.entur.lamassu.mapper.entitymapper.MappingContext;
+import org.entur.lamassu.mapper.entitymapper.MappingContextFactory;
 import org.entur.lamassu.model.provider.FeedProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+
 @Component
 public class EntityCachesUpdater {
     private final VehiclesUpdater vehiclesUpdater;
     private final StationsUpdater stationsUpdater;
     private final GeofencingZonesUpdater geofencingZonesUpdater;
+    private final MappingContextFactory mappingContextFactory;
+    private final EntityReferencesUpdater entityReferencesUpdater;
 
     @Autowired
     public EntityCachesUpdater(
             VehiclesUpdater vehiclesUpdater,
             StationsUpdater stationsUpdater,
-            GeofencingZonesUpdater geofencingZonesUpdater
+            GeofencingZonesUpdater geofencingZonesUpdater,
+            MappingContextFactory mappingContextFactory,
+            EntityReferencesUpdater entityReferencesUpdater
     ) {
         this.vehiclesUpdater = vehiclesUpdater;
         this.stationsUpdater = stationsUpdater;
         this.geofencingZonesUpdater = geofencingZonesUpdater;
+        this.mappingContextFactory = mappingContextFactory;
+        this.entityReferencesUpdater = entityReferencesUpdater;
     }
 
     public void updateEntityCaches(FeedProvider feedProvider, GbfsDelivery delivery, GbfsDelivery oldDelivery) {
-        if (canUpdateVehicles(delivery, feedProvider)) {
+        updateEntityCaches(feedProvider, delivery, oldDelivery, null);
+    }
+
+    /**
+     * Update the entity caches, reading vehicles from freeBikeStatusSource instead of the delivery if given
+     */
+    public void updateEntityCaches(FeedProvider feedProvider, GbfsDelivery delivery, GbfsDelivery oldDelivery, FreeBikeStatusSource freeBikeStatusSource) {
+        var canUpdateVehicles = canUpdateVehicles(delivery, feedProvider, freeBikeStatusSource);
+        var canUpdateStations = canUpdateStations(delivery, feedProvider);
+
+        // Shared by vehicles and stations, so system, pricing plans, vehicle types and regions are mapped once per delivery
+        MappingContext mappingContext = null;
+        if (canUpdateVehicles || canUpdateStations) {
+            mappingContext = mappingContextFactory.createMappingContext(feedProvider, delivery);
+
+            // Vehicles and stations only reference these by id, so they must be cached before them
+            entityReferencesUpdater.updateEntityReferences(
+                    feedProvider,
+                    mappingContext,
+                    mappingContext.getContextHash()
+            );
+        }
+
+        if (canUpdateVehicles && freeBikeStatusSource != null) {
+            vehiclesUpdater.addOrUpdateVehicles(
+                    feedProvider,
+                    freeBikeStatusSource,
+                    mappingContext
+            );
+        } else if (canUpdateVehicles) {
             vehiclesUpdater.addOrUpdateVehicles(
                     feedProvider,
                     delivery,
-                    oldDelivery
+                    oldDelivery,
+                    mappingContext
             );
         }
 
-        if (canUpdateStations(delivery, feedProvider)) {
+        if (canUpdateStations) {
             stationsUpdater.addOrUpdateStations(
                     feedProvider,
                     delivery,
-                    oldDelivery
+                    oldDelivery,
+                    mappingContext
             );
         }
 
@@ -68,13 +108,12 @@ public class EntityCachesUpdater {
         }
     }
 
-    private boolean canUpdateVehicles(GbfsDelivery delivery, FeedProvider feedProvider) {
+    private boolean canUpdateVehicles(GbfsDelivery delivery, FeedProvider feedProvider, FreeBikeStatusSource freeBikeStatusSource) {
         if (feedProvider.getExcludeFeeds() != null && feedProvider.getExcludeFeeds().contains(GBFSFeedName.FreeBikeStatus)) {
             return false;
         }
 
-        return delivery.getFreeBikeStatus() != null
-                && delivery.getFreeBikeStatus().getData() != null
+        return (freeBikeStatusSource != null || (delivery.getFreeBikeStatus() != null && delivery.getFreeBikeStatus().getData() != null))
                 && delivery.getSystemInformation() != null
                 && delivery.getSystemInformation().getData() != null
                 && delivery.getVehicleTypes() != null
@@ -0,0 +1,173 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.leader.entityupdater;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the content hash of each entity of each provider in memory, so that entities that
+ * did not change since the previous update can be left out when writing to the caches.
+ *
+ * Unchanged entities are still reported as changed once their refresh interval has passed,
+ * to keep them from expiring in caches with a ttl. A change of the context hash (i.e. shared
+ * data the entities are mapped with) reports all entities as changed.
+ */
+public class EntityChangeDetector<T> {
+    private final Function<T, String> idFunction;
+    private final LongSupplier clock;
+    private final Map<String, ProviderState> providers = new ConcurrentHashMap<>();
+
+    public EntityChangeDetector(Function<T, String> idFunction) {
+        this(idFunction, java.lang.System::currentTimeMillis);
+    }
+
+    EntityChangeDetector(Function<T, String> idFunction, LongSupplier clock) {
+        this.idFunction = idFunction;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the entities that were added or changed since the previous call for the same provider,
+     * or that are due for a refresh. Refreshes are spread over the second half of the refresh interval.
+     */
+    public List<T> getChangedEntities(String systemId, int contextHash, Collection<T> entities, long refreshIntervalMillis) {
+        return getChangedEntities(systemId, contextHash, entities, refreshIntervalMillis, null);
+    }
+
+    /**
+     * Like {@link #getChangedEntities(String, int, Collection, long)}, additionally collecting the ids of the
+     * returned entities which did not change, but are only due for a refresh, in refreshedIds.
+     */
+    public List<T> getChangedEntities(String systemId, int contextHash, Collection<T> entities, long refreshIntervalMillis, Set<String> refreshedIds) {
+        var update = startUpdate(systemId, contextHash);
+        var changed = update.getChangedEntities(entities, refreshIntervalMillis, refreshedIds);
+        update.finish();
+        return changed;
+    }
+
+    /**
+     * Start an update of the entities of a provider which are checked in several calls, e.g. one per chunk
+     * of a feed which is read incrementally. The entities of the provider are only replaced by the ones
+     * of the update when it is finished.
+     */
+    public Update startUpdate(String systemId, int contextHash) {
+        return new Update(systemId, contextHash);
+    }
+
+    /**
+     * Forget the entities of a provider, so all of them are reported as changed in the next update.
+     */
+    public void reset(String systemId) {
+        providers.remove(systemId);
+    }
+
+    public class Update {
+        private final String systemId;
+        private final int contextHash;
+        private final ProviderState previous;
+        private final boolean fullUpdate;
+        private final long now = clock.getAsLong();
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private Update(String systemId, int contextHash) {
+            this.systemId = systemId;
+            this.contextHash = contextHash;
+            this.previous = providers.get(systemId);
+            this.fullUpdate = previous == null || previous.contextHash != contextHash;
+        }
+
+        /**
+         * Like {@link EntityChangeDetector#getChangedEntities(String, int, Collection, long, Set)}, for the
+         * next entities of the update.
+         */
+        public List<T> getChangedEntities(Collection<T> entities, long refreshIntervalMillis, Set<String> refreshedIds) {
+            var changed = new ArrayList<T>();
+
+            for (T entity : entities) {
+                var id = idFunction.apply(entity);
+                var hash = entity.hashCode();
+                var previousEntry = fullUpdate ? null : previous.entries.get(id);
+
+                if (previousEntry != null && previousEntry.hash == hash && previousEntry.refreshAt > now) {
+                    entries.put(id, previousEntry);
+                } else {
+                    if (refreshedIds != null && previousEntry != null && previousEntry.hash == hash) {
+                        refreshedIds.add(id);
+                    }
+                    entries.put(id, new Entry(hash, now + refreshIntervalMillis / 2 + ThreadLocalRandom.current().nextLong(refreshIntervalMillis / 2 + 1)));
+                    changed.add(entity);
+                }
+            }
+
+            return changed;
+        }
+
+        /**
+         * The ids of the entities of the previous update of the provider which were not part of this one
+         */
+        public Set<String> getRemovedIds() {
+            if (previous == null) {
+                return new HashSet<>();
+            }
+
+            return previous.entries.keySet().stream()
+                    .filter(id -> !entries.containsKey(id))
+                    .collect(Collectors.toSet());
+        }
+
+        /**
+         * Replace the entities of the provider with the ones of this update
+         */
+        public void finish() {
+            providers.put(systemId, new ProviderState(contextHash, entries));
+        }
+    }
+
+    private static class ProviderState {
+        private final int contextHash;
+        private final Map<String, Entry> entries;
+
+        private ProviderState(int contextHash, Map<String, Entry> entries) {
+            this.contextHash = contextHash;
+            this.entries = entries;
+        }
+    }
+
+    private static class Entry {
+        private final int hash;
+        private final long refreshAt;
+
+        private Entry(int hash, long refreshAt) {
+            this.hash = hash;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
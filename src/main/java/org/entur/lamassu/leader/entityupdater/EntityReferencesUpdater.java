@@ -0,0 +1,123 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader.entityupdater;
+
+import org.entur.lamassu.cache.PricingPlanCache;
+import org.entur.lamassu.cache.SystemCache;
+import org.entur.lamassu.cache.VehicleTypeCache;
+import org.entur.lamassu.mapper.entitymapper.MappingContext;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.entur.lamassu.util.CacheUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the vehicle types, pricing plans and system which vehicles and stations reference by id
+ * to their caches, with vehicle types and pricing plans keyed by system id and id (see
+ * {@link CacheUtil#getSystemScopedKey(String, String)}). They are only written when they changed, or when half of their ttl has passed,
+ * as every write evicts them from the near caches of all instances.
+ */
+@Component
+public class EntityReferencesUpdater {
+    private final VehicleTypeCache vehicleTypeCache;
+    private final PricingPlanCache pricingPlanCache;
+    private final SystemCache systemCache;
+    private final int ttl;
+    private final LongSupplier clock;
+    private final Map<String, WrittenReferences> writtenReferences = new ConcurrentHashMap<>();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    public EntityReferencesUpdater(
+            VehicleTypeCache vehicleTypeCache,
+            PricingPlanCache pricingPlanCache,
+            SystemCache systemCache,
+            @Value("${org.entur.lamassu.referenceCache.ttl:3600}") int ttl
+    ) {
+        this(vehicleTypeCache, pricingPlanCache, systemCache, ttl, java.lang.System::currentTimeMillis);
+    }
+
+    EntityReferencesUpdater(
+            VehicleTypeCache vehicleTypeCache,
+            PricingPlanCache pricingPlanCache,
+            SystemCache systemCache,
+            int ttl,
+            LongSupplier clock
+    ) {
+        this.vehicleTypeCache = vehicleTypeCache;
+        this.pricingPlanCache = pricingPlanCache;
+        this.systemCache = systemCache;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * @param contextHash Hash of the feeds the mapping context was mapped from
+     */
+    public void updateEntityReferences(FeedProvider feedProvider, MappingContext mappingContext, int contextHash) {
+        var now = clock.getAsLong();
+        var previous = writtenReferences.get(feedProvider.getSystemId());
+        if (previous != null && previous.contextHash == contextHash && previous.refreshAt > now) {
+            return;
+        }
+
+        logger.debug("Updating vehicle types, pricing plans and system for provider {}", feedProvider.getSystemId());
+
+        var systemId = mappingContext.getSystem().getId();
+        vehicleTypeCache.updateAll(getSystemScoped(systemId, mappingContext.getVehicleTypesById()), ttl, TimeUnit.SECONDS);
+        pricingPlanCache.updateAll(getSystemScoped(systemId, mappingContext.getPricingPlansById()), ttl, TimeUnit.SECONDS);
+        systemCache.updateAll(
+                Map.of(systemId, mappingContext.getSystem()),
+                ttl,
+                TimeUnit.SECONDS
+        );
+
+        writtenReferences.put(
+                feedProvider.getSystemId(),
+                new WrittenReferences(contextHash, now + TimeUnit.SECONDS.toMillis(ttl) / 2)
+        );
+    }
+
+    private <T> Map<String, T> getSystemScoped(String systemId, Map<String, T> entitiesById) {
+        return entitiesById.entrySet().stream()
+                .collect(Collectors.toMap(
+                        entry -> CacheUtil.getSystemScopedKey(systemId, entry.getKey()),
+                        Map.Entry::getValue
+                ));
+    }
+
+    private static class WrittenReferences {
+        private final int contextHash;
+        private final long refreshAt;
+
+        private WrittenReferences(int contextHash, long refreshAt) {
+            this.contextHash = contextHash;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader.entityupdater;
+
+import org.entur.gbfs.v2_3.free_bike_status.GBFSBike;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A free_bike_status feed which is read incrementally. Its vehicles are handed to the consumer in chunks,
+ * along with the feed holding the fields read before them.
+ */
+@FunctionalInterface
+public interface FreeBikeStatusSource {
+    void forEachChunk(int chunkSize, BiConsumer<GBFSFreeBikeStatus, List<GBFSBike>> consumer) throws IOException;
+}
@@ -20,6 +20,7 @@ package org.entur.lamassu.leader.entityupdater;
 
 import org.entur.gbfs.v2_3.geofencing_zones.GBFSGeofencingZones;
 import org.entur.lamassu.cache.GeofencingZonesCache;
+import org.entur.lamassu.cache.GeofencingZonesIndex;
 import org.entur.lamassu.mapper.entitymapper.GeofencingZonesMapper;
 import org.entur.lamassu.model.provider.FeedProvider;
 import org.entur.lamassu.util.CacheUtil;
@@ -32,14 +33,17 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class GeofencingZonesUpdater {
     private final GeofencingZonesCache geofencingZonesCache;
+    private final GeofencingZonesIndex geofencingZonesIndex;
     private final GeofencingZonesMapper geofencingZonesMapper;
 
     @Autowired
     public GeofencingZonesUpdater(
             GeofencingZonesCache geofencingZonesCache,
+            GeofencingZonesIndex geofencingZonesIndex,
             GeofencingZonesMapper geofencingZonesMapper
     ) {
         this.geofencingZonesCache = geofencingZonesCache;
+        this.geofencingZonesIndex = geofencingZonesIndex;
         this.geofencingZonesMapper = geofencingZonesMapper;
     }
 
@@ -52,5 +56,6 @@ public class GeofencingZonesUpdater {
         var ttl = feed.getTtl();
 
         geofencingZonesCache.updateAll(Map.of(mapped.getId(), mapped), CacheUtil.getTtl(lastUpdated, ttl, 3600), TimeUnit.SECONDS);
+        geofencingZonesIndex.update(mapped.getId());
     }
 }
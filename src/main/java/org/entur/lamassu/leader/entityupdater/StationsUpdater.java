@@ -23,17 +23,14 @@ import org.entur.gbfs.v2_3.station_information.GBFSData;
 import org.entur.gbfs.v2_3.station_information.GBFSStationInformation;
 import org.entur.gbfs.v2_3.station_status.GBFSStation;
 import org.entur.gbfs.v2_3.station_status.GBFSStationStatus;
-import org.entur.gbfs.v2_3.system_information.GBFSSystemInformation;
-import org.entur.gbfs.v2_3.system_pricing_plans.GBFSSystemPricingPlans;
-import org.entur.gbfs.v2_3.system_regions.GBFSSystemRegions;
-import org.entur.gbfs.v2_3.vehicle_types.GBFSVehicleTypes;
+import org.entur.lamassu.cache.CacheBatchFactory;
+import org.entur.lamassu.cache.EntityChange;
 import org.entur.lamassu.cache.StationCache;
+import org.entur.lamassu.cache.StationChangeTopic;
 import org.entur.lamassu.cache.StationSpatialIndex;
 import org.entur.lamassu.cache.StationSpatialIndexId;
-import org.entur.lamassu.mapper.entitymapper.PricingPlanMapper;
+import org.entur.lamassu.mapper.entitymapper.MappingContext;
 import org.entur.lamassu.mapper.entitymapper.StationMapper;
-import org.entur.lamassu.mapper.entitymapper.SystemMapper;
-import org.entur.lamassu.model.entities.PricingPlan;
 import org.entur.lamassu.model.entities.Station;
 import org.entur.lamassu.model.provider.FeedProvider;
 import org.entur.lamassu.util.CacheUtil;
@@ -44,11 +41,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -56,38 +56,40 @@ import java.util.stream.Collectors;
 public class StationsUpdater {
     private final StationCache stationCache;
     private final StationSpatialIndex spatialIndex;
-    private final SystemMapper systemMapper;
-    private final PricingPlanMapper pricingPlanMapper;
     private final StationMapper stationMapper;
+    private final CacheBatchFactory cacheBatchFactory;
+    private final StationChangeTopic stationChangeTopic;
+    private final Map<String, GBFSStationStatus> stationStatusBeforeFailure = new ConcurrentHashMap<>();
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Autowired
     public StationsUpdater(
             StationCache stationCache,
             StationSpatialIndex spatialIndex,
-            SystemMapper systemMapper,
-            PricingPlanMapper pricingPlanMapper,
-            StationMapper stationMapper
+            StationMapper stationMapper,
+            CacheBatchFactory cacheBatchFactory,
+            StationChangeTopic stationChangeTopic
     ) {
         this.stationCache = stationCache;
         this.spatialIndex = spatialIndex;
-        this.systemMapper = systemMapper;
-        this.pricingPlanMapper = pricingPlanMapper;
         this.stationMapper = stationMapper;
+        this.cacheBatchFactory = cacheBatchFactory;
+        this.stationChangeTopic = stationChangeTopic;
     }
 
     public void addOrUpdateStations(
             FeedProvider feedProvider,
             GbfsDelivery delivery,
-            GbfsDelivery oldDelivery
+            GbfsDelivery oldDelivery,
+            MappingContext mappingContext
     ) {
         GBFSStationStatus stationStatusFeed = delivery.getStationStatus();
-        GBFSStationStatus oldStationStatusFeed = oldDelivery.getStationStatus();
+        // After a failed update, the feed cache holds station_status of an update that may not have been written,
+        // so removed and changed stations are found by comparing with the last one written before the failure
+        GBFSStationStatus oldStationStatusFeed = stationStatusBeforeFailure.containsKey(feedProvider.getSystemId())
+                ? stationStatusBeforeFailure.get(feedProvider.getSystemId())
+                : oldDelivery.getStationStatus();
         GBFSStationInformation stationInformationFeed = delivery.getStationInformation();
-        GBFSSystemInformation systemInformationFeed = delivery.getSystemInformation();
-        GBFSSystemPricingPlans pricingPlansFeed = delivery.getSystemPricingPlans();
-        GBFSVehicleTypes vehicleTypesFeed = delivery.getVehicleTypes();
-        GBFSSystemRegions systemRegionsFeed = delivery.getSystemRegions();
 
         var stationIds = stationStatusFeed.getData().getStations().stream()
                 .map(GBFSStation::getStationId)
@@ -113,9 +115,6 @@ public class StationsUpdater {
 
         var originalStations = stationCache.getAllAsMap(stationIds);
 
-        var system = getSystem(feedProvider, systemInformationFeed);
-        var pricingPlans = getPricingPlans(pricingPlansFeed, system.getLanguage());
-
         var stationInfo = Optional.ofNullable(stationInformationFeed)
                 .map(GBFSStationInformation::getData)
                 .map(GBFSData::getStations)
@@ -131,61 +130,95 @@ public class StationsUpdater {
                     return true;
                 })
                 .map(station -> stationMapper.mapStation(
-                        system,
-                        pricingPlans,
+                        mappingContext,
                         stationInfo.get(station.getStationId()),
-                        station,
-                        vehicleTypesFeed,
-                        systemRegionsFeed,
-                        system.getLanguage())
+                        station)
                 ).collect(Collectors.toMap(Station::getId, s->s));
 
         Set<StationSpatialIndexId> spatialIndicesToRemove = new java.util.HashSet<>(Set.of());
         Map<StationSpatialIndexId, Station> spatialIndexUpdateMap = new java.util.HashMap<>(Map.of());
 
+        // Stations are rewritten on every update, but only published as changed if their status changed
+        var statuses = getStatusesById(stationStatusFeed);
+        var oldStatuses = getStatusesById(oldStationStatusFeed);
+        List<EntityChange<StationSpatialIndexId, Station>> changes = new ArrayList<>();
+
         stations.forEach((key, station) -> {
             var spatialIndexId = SpatialIndexIdUtil.createStationSpatialIndexId(station, feedProvider);
             var previousStation = originalStations.get(key);
+            StationSpatialIndexId oldSpatialIndexId = null;
 
             if (previousStation != null) {
-                var oldSpatialIndexId = SpatialIndexIdUtil.createStationSpatialIndexId(previousStation, feedProvider);
+                oldSpatialIndexId = SpatialIndexIdUtil.createStationSpatialIndexId(previousStation, feedProvider);
                 if (!oldSpatialIndexId.equals(spatialIndexId)) {
                     spatialIndicesToRemove.add(oldSpatialIndexId);
                 }
             }
             spatialIndexUpdateMap.put(spatialIndexId, station);
+
+            if (previousStation == null || !Objects.equals(statuses.get(key), oldStatuses.get(key))) {
+                changes.add(EntityChange.of(key, oldSpatialIndexId, previousStation, spatialIndexId, station));
+            }
         });
 
-        if (!spatialIndicesToRemove.isEmpty()) {
-            logger.debug("Removing {} stale entries in spatial index", spatialIndicesToRemove.size());
-            spatialIndex.removeAll(spatialIndicesToRemove);
-        }
+        stationIdsToRemove.stream()
+                .filter(stationId -> !stations.containsKey(stationId))
+                .map(originalStations::get)
+                .filter(Objects::nonNull)
+                .forEach(station -> changes.add(EntityChange.of(
+                        station.getId(),
+                        SpatialIndexIdUtil.createStationSpatialIndexId(station, feedProvider),
+                        station,
+                        null,
+                        null
+                )));
 
-        if (!stationIdsToRemove.isEmpty()) {
-            logger.debug("Removing {} stations from station cache", stationIdsToRemove.size());
-            stationCache.removeAll(stationIdsToRemove);
-        }
+        var lastUpdated = stationStatusFeed.getLastUpdated();
+        var ttl = stationStatusFeed.getTtl();
+        var cacheTtl = CacheUtil.getTtl(lastUpdated, ttl, 300);
 
-        if (!stations.isEmpty()) {
-            logger.debug("Adding/updating {} stations in station cache", stations.size());
-            var lastUpdated = stationStatusFeed.getLastUpdated();
-            var ttl = stationStatusFeed.getTtl();
-            stationCache.updateAll(stations, CacheUtil.getTtl(lastUpdated, ttl, 300), TimeUnit.SECONDS);
-        }
+        var batch = cacheBatchFactory.createBatch();
+
+        try {
+            if (!spatialIndicesToRemove.isEmpty()) {
+                logger.debug("Removing {} stale entries in spatial index", spatialIndicesToRemove.size());
+                spatialIndex.removeAll(batch, spatialIndicesToRemove);
+            }
 
-        if (!spatialIndexUpdateMap.isEmpty()) {
-            logger.debug("Updating {} entries in spatial index", spatialIndexUpdateMap.size());
-            spatialIndex.addAll(spatialIndexUpdateMap);
+            if (!stationIdsToRemove.isEmpty()) {
+                logger.debug("Removing {} stations from station cache", stationIdsToRemove.size());
+                stationCache.removeAll(batch, stationIdsToRemove);
+            }
+
+            if (!stations.isEmpty()) {
+                logger.debug("Adding/updating {} stations in station cache", stations.size());
+                stationCache.updateAll(batch, stations, cacheTtl, TimeUnit.SECONDS);
+            }
+
+            if (!spatialIndexUpdateMap.isEmpty()) {
+                logger.debug("Updating {} entries in spatial index", spatialIndexUpdateMap.size());
+                spatialIndex.addAll(batch, spatialIndexUpdateMap, cacheTtl, TimeUnit.SECONDS);
+            }
+
+            stationChangeTopic.publish(batch, changes);
+
+            batch.execute();
+        } catch (RuntimeException e) {
+            // Keep the station_status written before the first of consecutive failures
+            if (oldStationStatusFeed != null) {
+                stationStatusBeforeFailure.putIfAbsent(feedProvider.getSystemId(), oldStationStatusFeed);
+            }
+            throw e;
         }
-    }
 
-    private List<PricingPlan> getPricingPlans(GBFSSystemPricingPlans pricingPlansFeed, String language) {
-        return pricingPlansFeed.getData().getPlans().stream()
-                .map(pricingPlan -> pricingPlanMapper.mapPricingPlan(pricingPlan, language))
-                .collect(Collectors.toList());
+        stationStatusBeforeFailure.remove(feedProvider.getSystemId());
     }
 
-    private org.entur.lamassu.model.entities.System getSystem(FeedProvider feedProvider, GBFSSystemInformation systemInformationFeed) {
-        return systemMapper.mapSystem(systemInformationFeed.getData(), feedProvider);
+    private Map<String, GBFSStation> getStatusesById(GBFSStationStatus stationStatusFeed) {
+        if (stationStatusFeed == null || stationStatusFeed.getData() == null) {
+            return Map.of();
+        }
+        return stationStatusFeed.getData().getStations().stream()
+                .collect(Collectors.toMap(GBFSStation::getStationId, s -> s, (a, b) -> b));
     }
 }
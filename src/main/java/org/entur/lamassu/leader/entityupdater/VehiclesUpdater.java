@@ -21,71 +21,73 @@ package org.entur.lamassu.leader.entityupdater;
 import org.entur.gbfs.GbfsDelivery;
 import org.entur.gbfs.v2_3.free_bike_status.GBFSBike;
 import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
-import org.entur.gbfs.v2_3.system_information.GBFSSystemInformation;
-import org.entur.gbfs.v2_3.system_pricing_plans.GBFSSystemPricingPlans;
-import org.entur.gbfs.v2_3.vehicle_types.GBFSVehicleTypes;
+import org.entur.lamassu.cache.CacheBatch;
+import org.entur.lamassu.cache.CacheBatchFactory;
+import org.entur.lamassu.cache.EntityChange;
+import org.entur.lamassu.cache.VehicleChangeTopic;
 import org.entur.lamassu.cache.VehicleCache;
 import org.entur.lamassu.cache.VehicleSpatialIndex;
 import org.entur.lamassu.cache.VehicleSpatialIndexId;
-import org.entur.lamassu.mapper.entitymapper.PricingPlanMapper;
-import org.entur.lamassu.mapper.entitymapper.SystemMapper;
+import org.entur.lamassu.mapper.entitymapper.MappingContext;
 import org.entur.lamassu.mapper.entitymapper.VehicleMapper;
-import org.entur.lamassu.mapper.entitymapper.VehicleTypeMapper;
-import org.entur.lamassu.model.entities.PricingPlan;
 import org.entur.lamassu.model.entities.Vehicle;
-import org.entur.lamassu.model.entities.VehicleType;
 import org.entur.lamassu.model.provider.FeedProvider;
 import org.entur.lamassu.util.CacheUtil;
 import org.entur.lamassu.util.SpatialIndexIdUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Component
 public class VehiclesUpdater {
     private final VehicleCache vehicleCache;
     private final VehicleSpatialIndex spatialIndex;
-    private final SystemMapper systemMapper;
-    private final PricingPlanMapper pricingPlanMapper;
-    private final VehicleTypeMapper vehicleTypeMapper;
     private final VehicleMapper vehicleMapper;
+    private final CacheBatchFactory cacheBatchFactory;
+    private final VehicleChangeTopic vehicleChangeTopic;
+    private final EntityChangeDetector<GBFSBike> changeDetector = new EntityChangeDetector<>(GBFSBike::getBikeId);
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    @Value("${org.entur.lamassu.enableDeltaUpdates:true}")
+    private boolean enableDeltaUpdates;
+
     @Autowired
     public VehiclesUpdater(
             VehicleCache vehicleCache,
             VehicleSpatialIndex spatialIndex,
             VehicleMapper vehicleMapper,
-            SystemMapper systemMapper,
-            PricingPlanMapper pricingPlanMapper,
-            VehicleTypeMapper vehicleTypeMapper
+            CacheBatchFactory cacheBatchFactory,
+            VehicleChangeTopic vehicleChangeTopic
     ) {
         this.vehicleCache = vehicleCache;
         this.spatialIndex = spatialIndex;
         this.vehicleMapper = vehicleMapper;
-        this.systemMapper = systemMapper;
-        this.pricingPlanMapper = pricingPlanMapper;
-        this.vehicleTypeMapper = vehicleTypeMapper;
+        this.cacheBatchFactory = cacheBatchFactory;
+        this.vehicleChangeTopic = vehicleChangeTopic;
     }
 
     public void addOrUpdateVehicles(
             FeedProvider feedProvider,
             GbfsDelivery delivery,
-            GbfsDelivery oldDelivery
+            GbfsDelivery oldDelivery,
+            MappingContext mappingContext
     ) {
         GBFSFreeBikeStatus freeBikeStatusFeed = delivery.getFreeBikeStatus();
         GBFSFreeBikeStatus oldFreeBikeStatusFeed = oldDelivery.getFreeBikeStatus();
-        GBFSSystemInformation systemInformationFeed = delivery.getSystemInformation();
-        GBFSSystemPricingPlans pricingPlansFeed = delivery.getSystemPricingPlans();
-        GBFSVehicleTypes vehicleTypesFeed = delivery.getVehicleTypes();
 
         var vehicleIds = freeBikeStatusFeed.getData().getBikes().stream()
                 .map(GBFSBike::getBikeId)
@@ -100,23 +102,139 @@ public class VehiclesUpdater {
             // Find vehicle ids in old feed not present in new feed
             vehicleIdsToRemove.removeAll(vehicleIds);
             logger.trace("Found {} vehicleIds to remove from old free_bike_status feed: {}", vehicleIdsToRemove.size(), oldFreeBikeStatusFeed);
-
-            // Add vehicle ids that are staged for removal to the set of vehicle ids that will be used to
-            // fetch current vehicles from cache
-            vehicleIds.addAll(vehicleIdsToRemove);
         }
 
         if (vehicleIdsToRemove == null) {
             vehicleIdsToRemove = new HashSet<>(vehicleIds);
             logger.debug("Old free_bike_status feed was not available or had no data. As a workaround, removing all vehicles for provider {}", feedProvider.getSystemId());
+
+            // All vehicles are removed, so all of them must be written again
+            changeDetector.reset(feedProvider.getSystemId());
         }
 
+        var lastUpdated = freeBikeStatusFeed.getLastUpdated();
+        var ttl = freeBikeStatusFeed.getTtl();
+        var cacheTtl = CacheUtil.getTtl(lastUpdated, ttl, 300);
+
+        Set<String> refreshedIds = new HashSet<>();
+        var bikes = getChangedBikes(feedProvider, delivery, mappingContext, cacheTtl, refreshedIds);
+
+        // Removed and changed vehicles are processed in chunks that fit in a batch, so that the
+        // current and mapped vehicles and the queued writes are held for one chunk at a time. The
+        // free_bike_status feed itself is deserialized in full by the gbfs loader, so it is not bounded by this
+        var batch = cacheBatchFactory.createBatch();
+
+        try {
+            if (!vehicleIdsToRemove.isEmpty()) {
+                logger.debug("Removing {} vehicles from vehicle cache", vehicleIdsToRemove.size());
+                batch.forEachChunk(vehicleIdsToRemove, chunk -> removeVehicles(feedProvider, batch, chunk, mappingContext));
+            }
+
+            if (!bikes.isEmpty()) {
+                logger.debug("Adding/updating {} vehicles in vehicle cache", bikes.size());
+                batch.forEachChunk(bikes, chunk -> addOrUpdateVehicles(feedProvider, batch, chunk, mappingContext, cacheTtl, refreshedIds));
+            }
+
+            batch.execute();
+        } catch (RuntimeException e) {
+            // The change detector has already recorded the vehicles as written, so forget them
+            // to have all of them written again by the next update
+            changeDetector.reset(feedProvider.getSystemId());
+            throw e;
+        }
+    }
+
+    /**
+     * Update the vehicles of a provider from a free_bike_status feed which is read in chunks, so that
+     * only one chunk of the feed is held at a time. The vehicles to remove are the ones of the previous
+     * update which are not in the feed, as tracked by the change detector. After a restart there is no
+     * previous update, so vehicles removed in the meantime are left to expire.
+     */
+    public void addOrUpdateVehicles(
+            FeedProvider feedProvider,
+            FreeBikeStatusSource freeBikeStatusSource,
+            MappingContext mappingContext
+    ) {
+        var batch = cacheBatchFactory.createBatch();
+        var update = changeDetector.startUpdate(feedProvider.getSystemId(), mappingContext.getContextHash());
+        var vehicleCount = new AtomicInteger();
+
+        try {
+            freeBikeStatusSource.forEachChunk(batch.getChunkSize(), (freeBikeStatusFeed, bikes) -> {
+                var cacheTtl = freeBikeStatusFeed.getLastUpdated() != null && freeBikeStatusFeed.getTtl() != null
+                        ? CacheUtil.getTtl(freeBikeStatusFeed.getLastUpdated(), freeBikeStatusFeed.getTtl(), 300)
+                        : 300;
+
+                Set<String> refreshedIds = new HashSet<>();
+                var changedBikes = update.getChangedEntities(bikes, TimeUnit.SECONDS.toMillis(cacheTtl) / 2, refreshedIds);
+                vehicleCount.addAndGet(bikes.size());
+
+                var bikesToWrite = enableDeltaUpdates ? changedBikes : bikes;
+                if (!bikesToWrite.isEmpty()) {
+                    addOrUpdateVehicles(feedProvider, batch, bikesToWrite, mappingContext, cacheTtl, refreshedIds);
+                }
+            });
+
+            var vehicleIdsToRemove = update.getRemovedIds();
+            if (!vehicleIdsToRemove.isEmpty()) {
+                logger.debug("Removing {} vehicles from vehicle cache", vehicleIdsToRemove.size());
+                batch.forEachChunk(vehicleIdsToRemove, chunk -> removeVehicles(feedProvider, batch, chunk, mappingContext));
+            }
+
+            batch.execute();
+        } catch (IOException e) {
+            // Chunks written so far are not recorded by the change detector, so have all vehicles
+            // written again by the next update
+            changeDetector.reset(feedProvider.getSystemId());
+            throw new UncheckedIOException("Failed to read free_bike_status feed of provider " + feedProvider.getSystemId(), e);
+        } catch (RuntimeException e) {
+            changeDetector.reset(feedProvider.getSystemId());
+            throw e;
+        }
+
+        update.finish();
+        logger.debug("Streamed {} vehicles for provider {}", vehicleCount.get(), feedProvider.getSystemId());
+    }
+
+    private void removeVehicles(FeedProvider feedProvider, CacheBatch batch, List<String> vehicleIds, MappingContext mappingContext) {
         var currentVehicles = vehicleCache.getAllAsMap(new HashSet<>(vehicleIds));
-        var system = getSystem(feedProvider, systemInformationFeed);
-        var pricingPlans = getPricingPlans(pricingPlansFeed, system.getLanguage());
-        var vehicleTypes = getVehicleTypes(vehicleTypesFeed, pricingPlans, system.getLanguage());
 
-        var vehicles = freeBikeStatusFeed.getData().getBikes().stream()
+        Set<VehicleSpatialIndexId> spatialIndicesToRemove = new HashSet<>();
+        List<EntityChange<VehicleSpatialIndexId, Vehicle>> changes = new ArrayList<>();
+
+        currentVehicles.values().forEach(vehicle -> {
+            var spatialIndexId = getPreviousSpatialIndexId(vehicle, feedProvider, mappingContext);
+            if (spatialIndexId != null) {
+                spatialIndicesToRemove.add(spatialIndexId);
+                changes.add(EntityChange.of(vehicle.getId(), spatialIndexId, vehicle, null, null));
+            }
+        });
+
+        if (!spatialIndicesToRemove.isEmpty()) {
+            logger.debug("Removing {} stale entries in spatial index", spatialIndicesToRemove.size());
+            spatialIndex.removeAll(batch, spatialIndicesToRemove);
+        }
+
+        vehicleCache.removeAll(batch, new HashSet<>(vehicleIds));
+        vehicleChangeTopic.publish(batch, changes);
+    }
+
+    private void addOrUpdateVehicles(
+            FeedProvider feedProvider,
+            CacheBatch batch,
+            List<GBFSBike> bikes,
+            MappingContext mappingContext,
+            int cacheTtl,
+            Set<String> refreshedIds
+    ) {
+        var currentVehicles = vehicleCache.getAllAsMap(
+                bikes.stream().map(GBFSBike::getBikeId).collect(Collectors.toSet())
+        );
+        var system = mappingContext.getSystem();
+        var pricingPlans = mappingContext.getPricingPlansById();
+        var vehicleTypes = mappingContext.getVehicleTypesById();
+
+        var vehicles = bikes.stream()
                 .filter(new VehicleFilter(pricingPlans, vehicleTypes))
                 .map(vehicle -> vehicleMapper.mapVehicle(
                         vehicle,
@@ -126,65 +244,83 @@ public class VehiclesUpdater {
                 ))
                 .collect(Collectors.toMap(Vehicle::getId, v -> v));
 
-        Set<VehicleSpatialIndexId> spatialIndicesToRemove = new java.util.HashSet<>(Set.of());
-        Map<VehicleSpatialIndexId, Vehicle> spatialIndexUpdateMap = new java.util.HashMap<>(Map.of());
+        Set<VehicleSpatialIndexId> spatialIndicesToRemove = new HashSet<>();
+        Map<VehicleSpatialIndexId, Vehicle> spatialIndexUpdateMap = new HashMap<>();
+        List<EntityChange<VehicleSpatialIndexId, Vehicle>> changes = new ArrayList<>();
 
         vehicles.forEach((key, vehicle) -> {
             var spatialIndexId = SpatialIndexIdUtil.createVehicleSpatialIndexId(vehicle, feedProvider);
             var previousVehicle = currentVehicles.get(key);
+            VehicleSpatialIndexId oldSpatialIndexId = null;
 
             if (previousVehicle != null) {
-                var oldSpatialIndexId = SpatialIndexIdUtil.createVehicleSpatialIndexId(previousVehicle, feedProvider);
-                if (!oldSpatialIndexId.equals(spatialIndexId)) {
+                oldSpatialIndexId = getPreviousSpatialIndexId(previousVehicle, feedProvider, mappingContext);
+                if (oldSpatialIndexId != null && !oldSpatialIndexId.equals(spatialIndexId)) {
                     spatialIndicesToRemove.add(oldSpatialIndexId);
                 }
             }
             spatialIndexUpdateMap.put(spatialIndexId, vehicle);
-        });
 
-        spatialIndicesToRemove.addAll(
-                vehicleIdsToRemove.stream()
-                        .filter(currentVehicles::containsKey)
-                        .map(id -> SpatialIndexIdUtil.createVehicleSpatialIndexId(currentVehicles.get(id), feedProvider))
-                        .collect(Collectors.toSet())
-        );
+            // Vehicles which are only rewritten to keep them from expiring did not change
+            if (previousVehicle == null || !refreshedIds.contains(key)) {
+                changes.add(EntityChange.of(key, oldSpatialIndexId, previousVehicle, spatialIndexId, vehicle));
+            }
+        });
 
         if (!spatialIndicesToRemove.isEmpty()) {
             logger.debug("Removing {} stale entries in spatial index", spatialIndicesToRemove.size());
-            spatialIndex.removeAll(spatialIndicesToRemove);
-        }
-
-        if (!vehicleIdsToRemove.isEmpty()) {
-            logger.debug("Removing {} vehicles from vehicle cache", vehicleIdsToRemove.size());
-            vehicleCache.removeAll(new HashSet<>(vehicleIdsToRemove));
+            spatialIndex.removeAll(batch, spatialIndicesToRemove);
         }
 
         if (!vehicles.isEmpty()) {
-            logger.debug("Adding/updating {} vehicles in vehicle cache", vehicles.size());
-            var lastUpdated = freeBikeStatusFeed.getLastUpdated();
-            var ttl = freeBikeStatusFeed.getTtl();
-            vehicleCache.updateAll(vehicles, CacheUtil.getTtl(lastUpdated, ttl, 300), TimeUnit.SECONDS);
+            vehicleCache.updateAll(batch, vehicles, cacheTtl, TimeUnit.SECONDS);
         }
 
         if (!spatialIndexUpdateMap.isEmpty()) {
             logger.debug("Updating {} entries in spatial index", spatialIndexUpdateMap.size());
-            spatialIndex.addAll(spatialIndexUpdateMap);
+            spatialIndex.addAll(batch, spatialIndexUpdateMap, cacheTtl, TimeUnit.SECONDS);
         }
-    }
 
-    private Map<String, VehicleType> getVehicleTypes(GBFSVehicleTypes vehicleTypesFeed, Map<String, PricingPlan> pricingPlans, String language) {
-        return vehicleTypesFeed.getData().getVehicleTypes().stream()
-                .map(vehicleType -> vehicleTypeMapper.mapVehicleType(vehicleType, new ArrayList<>(pricingPlans.values()), language))
-                .collect(Collectors.toMap(VehicleType::getId, i -> i));
+        vehicleChangeTopic.publish(batch, changes);
     }
 
-    private org.entur.lamassu.model.entities.System getSystem(FeedProvider feedProvider, GBFSSystemInformation systemInformationFeed) {
-        return systemMapper.mapSystem(systemInformationFeed.getData(), feedProvider);
+    /**
+     * The spatial index id a cached vehicle was written with. Its vehicle type reference is resolved from the
+     * reference cache and may be missing, in which case the type is looked up by its raw id in the mapping context.
+     */
+    private VehicleSpatialIndexId getPreviousSpatialIndexId(Vehicle vehicle, FeedProvider feedProvider, MappingContext mappingContext) {
+        var vehicleType = vehicle.getVehicleType() != null
+                ? vehicle.getVehicleType()
+                : mappingContext.getVehicleTypesById().get(vehicle.getVehicleTypeId());
+
+        if (vehicleType == null) {
+            // Neither resolves, so the previous spatial index id can't be derived and it is left to expire
+            logger.warn("Skipping spatial index removal of vehicle {} with unknown vehicle type {}", vehicle.getId(), vehicle.getVehicleTypeId());
+            return null;
+        }
+
+        return SpatialIndexIdUtil.createVehicleSpatialIndexId(vehicle, vehicleType, feedProvider);
     }
 
-    private Map<String, PricingPlan> getPricingPlans(GBFSSystemPricingPlans pricingPlansFeed, String language) {
-        return pricingPlansFeed.getData().getPlans().stream()
-                .map(pricingPlan -> pricingPlanMapper.mapPricingPlan(pricingPlan, language))
-                .collect(Collectors.toMap(PricingPlan::getId, i -> i));
+    private List<GBFSBike> getChangedBikes(FeedProvider feedProvider, GbfsDelivery delivery, MappingContext mappingContext, int cacheTtl, Set<String> refreshedIds) {
+        var bikes = delivery.getFreeBikeStatus().getData().getBikes();
+
+        if (!enableDeltaUpdates) {
+            return bikes;
+        }
+
+        // The spatial index id of a vehicle is derived from its vehicle type, so when the vehicle types may have
+        // changed, all vehicles are rewritten even if their own status is unchanged
+        var changedBikes = changeDetector.getChangedEntities(
+                feedProvider.getSystemId(),
+                mappingContext.getContextHash(),
+                bikes,
+                TimeUnit.SECONDS.toMillis(cacheTtl) / 2,
+                refreshedIds
+        );
+
+        logger.debug("Found {} added or changed vehicles out of {} for provider {}", changedBikes.size(), bikes.size(), feedProvider.getSystemId());
+        return changedBikes;
     }
+
 }
@@ -21,6 +21,7 @@ package org.entur.lamassu.leader.feedcachesupdater;
 import org.entur.gbfs.GbfsDelivery;
 import org.entur.gbfs.v2_3.gbfs.GBFSFeedName;
 import org.entur.lamassu.cache.GBFSFeedCache;
+import org.entur.lamassu.cache.RenderedFeedCache;
 import org.entur.lamassu.model.provider.FeedProvider;
 import org.entur.lamassu.util.CacheUtil;
 import org.slf4j.Logger;
@@ -34,13 +35,22 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class FeedCachesUpdater {
     private final GBFSFeedCache feedCache;
+    private final RenderedFeedCache renderedFeedCache;
+    private final FeedRenderer feedRenderer;
+    private final V3FeedCachesUpdater v3FeedCachesUpdater;
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @Autowired
     public FeedCachesUpdater(
-            GBFSFeedCache feedCache
+            GBFSFeedCache feedCache,
+            RenderedFeedCache renderedFeedCache,
+            FeedRenderer feedRenderer,
+            V3FeedCachesUpdater v3FeedCachesUpdater
     ) {
         this.feedCache = feedCache;
+        this.renderedFeedCache = renderedFeedCache;
+        this.feedRenderer = feedRenderer;
+        this.v3FeedCachesUpdater = v3FeedCachesUpdater;
     }
 
     public GbfsDelivery updateFeedCaches(FeedProvider feedProvider, GbfsDelivery delivery) {
@@ -56,6 +66,7 @@ public class FeedCachesUpdater {
         updateFeedCache(feedProvider, GBFSFeedName.StationInformation, delivery.getStationInformation());
         var oldStationStatus = getAndUpdateFeedCache(feedProvider, GBFSFeedName.StationStatus, delivery.getStationStatus());
         var oldFreeBikeStatus = getAndUpdateFeedCache(feedProvider, GBFSFeedName.FreeBikeStatus, delivery.getFreeBikeStatus());
+        v3FeedCachesUpdater.updateFeedCaches(feedProvider, delivery);
         var oldDelivery = new GbfsDelivery();
         oldDelivery.setStationStatus(oldStationStatus);
         oldDelivery.setFreeBikeStatus(oldFreeBikeStatus);
@@ -68,11 +79,35 @@ public class FeedCachesUpdater {
             logger.trace("updating feed {} for provider {} data {}", feedName, feedProvider.getSystemId(), feed);
             var ttl = getTtl(feedName.implementingClass(), feed, 3600);
             feedCache.update(feedName, feedProvider, feed, ttl, TimeUnit.SECONDS);
+            updateRenderedFeedCache(feedProvider, feedName, feed, ttl);
         } else {
             logger.debug("no feed {} found for provider {}", feedName, feedProvider.getSystemId());
         }
     }
 
+    private <T> void updateRenderedFeedCache(FeedProvider feedProvider, GBFSFeedName feedName, T feed, int ttl) {
+        var renderedFeed = feedRenderer.render(
+                feed,
+                getIntegerProperty(feedName.implementingClass(), feed, "getLastUpdated"),
+                getIntegerProperty(feedName.implementingClass(), feed, "getTtl")
+        );
+
+        // Never leave a stale rendering behind, the controller falls back to the feed cache
+        if (renderedFeed != null) {
+            renderedFeedCache.update(RenderedFeedCache.V2_3, feedName.value(), feedProvider.getSystemId(), renderedFeed, ttl, TimeUnit.SECONDS);
+        } else {
+            renderedFeedCache.remove(RenderedFeedCache.V2_3, feedName.value(), feedProvider.getSystemId());
+        }
+    }
+
+    private <T> Integer getIntegerProperty(Class<?> implementingClass, T feed, String getter) {
+        try {
+            return (Integer) implementingClass.getMethod(getter).invoke(feed);
+        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
     private <T> int getTtl(Class<?> implementingClass, T feed, int minimumTtl) {
         try {
             Integer lastUpdated = (Integer) implementingClass.getMethod("getLastUpdated").invoke(feed);
@@ -90,7 +125,9 @@ public class FeedCachesUpdater {
             logger.debug("updating feed {} for provider {}", feedName, feedProvider.getSystemId());
             logger.trace("updating feed {} for provider {} data {}", feedName, feedProvider.getSystemId(), feed);
             var ttl = getTtl(feedName.implementingClass(), feed, 3600);
-            return feedCache.getAndUpdate(feedName, feedProvider, feed, ttl, TimeUnit.SECONDS);
+            var oldFeed = feedCache.getAndUpdate(feedName, feedProvider, feed, ttl, TimeUnit.SECONDS);
+            updateRenderedFeedCache(feedProvider, feedName, feed, ttl);
+            return oldFeed;
         } else {
             logger.debug("no feed {} found for provider {}", feedName, feedProvider.getSystemId());
             return null;
@@ -0,0 +1,72 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.leader.feedcachesupdater;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.entur.lamassu.cache.RenderedFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes feeds once per update, so they can be served over http without being
+ * deserialized and serialized again for each request.
+ */
+@Component
+public class FeedRenderer {
+    private final ObjectMapper objectMapper;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Autowired
+    public FeedRenderer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public RenderedFeed render(Object feed, Integer lastUpdated, Integer ttl) {
+        try {
+            var json = objectMapper.writeValueAsBytes(feed);
+            return new RenderedFeed(json, gzip(json), etag(json), lastUpdated, ttl);
+        } catch (JsonProcessingException e) {
+            logger.warn("Unable to serialize feed", e);
+        } catch (IOException e) {
+            logger.warn("Unable to compress feed", e);
+        }
+        return null;
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        var out = new ByteArrayOutputStream(json.length / 4);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] json) {
+        return "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.leader.feedcachesupdater;
+
+import org.entur.gbfs.GbfsDelivery;
+import org.entur.gbfs.mapper.GBFSMapper;
+import org.entur.gbfs.v2_3.gbfs.GBFS;
+import org.entur.gbfs.v2_3.gbfs.GBFSFeedName;
+import org.entur.lamassu.cache.RenderedFeed;
+import org.entur.lamassu.cache.RenderedFeedCache;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.entur.lamassu.util.CacheUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Translates each delivery to GBFS v3 once, and stores the rendered result alongside the
+ * v2.3 feeds, so the v3 endpoints don't have to map feeds on every request.
+ */
+@Component
+public class V3FeedCachesUpdater {
+    private final RenderedFeedCache renderedFeedCache;
+    private final FeedRenderer feedRenderer;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @Value("${org.entur.lamassu.baseUrl}")
+    private String baseUrl;
+
+    @Autowired
+    public V3FeedCachesUpdater(RenderedFeedCache renderedFeedCache, FeedRenderer feedRenderer) {
+        this.renderedFeedCache = renderedFeedCache;
+        this.feedRenderer = feedRenderer;
+    }
+
+    public void updateFeedCaches(FeedProvider feedProvider, GbfsDelivery delivery) {
+        var language = feedProvider.getLanguage();
+        updateFeedCache(feedProvider, GBFSFeedName.GBFS, "gbfs", delivery.getDiscovery(), feed -> mapDiscovery(feedProvider, feed));
+        updateFeedCache(feedProvider, GBFSFeedName.SystemInformation, "system_information", delivery.getSystemInformation(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.SystemAlerts, "system_alerts", delivery.getSystemAlerts(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.SystemRegions, "system_regions", delivery.getSystemRegions(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.SystemPricingPlans, "system_pricing_plans", delivery.getSystemPricingPlans(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.VehicleTypes, "vehicle_types", delivery.getVehicleTypes(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.GeofencingZones, "geofencing_zones", delivery.getGeofencingZones(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.StationInformation, "station_information", delivery.getStationInformation(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.StationStatus, "station_status", delivery.getStationStatus(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+        updateFeedCache(feedProvider, GBFSFeedName.FreeBikeStatus, "vehicle_status", delivery.getFreeBikeStatus(), feed -> GBFSMapper.INSTANCE.map(feed, language));
+    }
+
+    private Object mapDiscovery(FeedProvider feedProvider, GBFS discovery) {
+        var mapped = GBFSMapper.INSTANCE.map(discovery, feedProvider.getLanguage());
+        mapped.getData().getFeeds().forEach(localFeed ->
+                localFeed.setUrl(baseUrl + "/gbfs/v3beta/" + feedProvider.getSystemId() + "/" + localFeed.getName())
+        );
+        return mapped;
+    }
+
+    private <T> void updateFeedCache(FeedProvider feedProvider, GBFSFeedName sourceFeedName, String feedName, T feed, Function<T, Object> mapper) {
+        if (feed == null || (feedProvider.getExcludeFeeds() != null && feedProvider.getExcludeFeeds().contains(sourceFeedName))) {
+            return;
+        }
+
+        RenderedFeed renderedFeed = null;
+
+        try {
+            var mapped = mapper.apply(feed);
+            renderedFeed = feedRenderer.render(
+                    mapped,
+                    getIntegerProperty(mapped, "getLastUpdated"),
+                    getIntegerProperty(mapped, "getTtl")
+            );
+        } catch (RuntimeException e) {
+            logger.warn("Unable to map feed {} to v3 for provider {}", feedName, feedProvider.getSystemId(), e);
+        }
+
+        if (renderedFeed != null) {
+            logger.debug("updating v3 feed {} for provider {}", feedName, feedProvider.getSystemId());
+            renderedFeedCache.update(RenderedFeedCache.V3_0_RC, feedName, feedProvider.getSystemId(), renderedFeed, getTtl(renderedFeed), TimeUnit.SECONDS);
+        } else {
+            renderedFeedCache.remove(RenderedFeedCache.V3_0_RC, feedName, feedProvider.getSystemId());
+        }
+    }
+
+    private int getTtl(RenderedFeed renderedFeed) {
+        if (renderedFeed.getLastUpdated() == null || renderedFeed.getTtl() == null) {
+            return 3600;
+        }
+        return CacheUtil.getTtl(renderedFeed.getLastUpdated(), renderedFeed.getTtl(), 3600);
+    }
+
+    private Integer getIntegerProperty(Object feed, String getter) {
+        try {
+            return (Integer) feed.getClass().getMethod(getter).invoke(feed);
+        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | ClassCastException e) {
+            return null;
+        }
+    }
+}
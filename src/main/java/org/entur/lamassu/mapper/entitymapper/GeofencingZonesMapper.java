@@ -22,6 +22,7 @@ import org.entur.gbfs.v2_3.geofencing_zones.GBFSFeature;
 import org.entur.gbfs.v2_3.geofencing_zones.GBFSGeofencingZones__1;
 import org.entur.gbfs.v2_3.geofencing_zones.GBFSProperties;
 import org.entur.gbfs.v2_3.geofencing_zones.GBFSRule;
+import org.entur.lamassu.mapper.feedmapper.IdMappers;
 import org.entur.lamassu.model.entities.MultiPolygon;
 import org.entur.lamassu.model.provider.FeedProvider;
 import org.springframework.stereotype.Component;
@@ -34,47 +35,49 @@ public class GeofencingZonesMapper {
     public org.entur.lamassu.model.entities.GeofencingZones map(GBFSGeofencingZones__1 geofencingZones, FeedProvider feedProvider) {
         var mapped = new org.entur.lamassu.model.entities.GeofencingZones();
         mapped.setSystemId(feedProvider.getSystemId());
-        mapped.setGeojson(mapGeojson(geofencingZones));
+        mapped.setGeojson(mapGeojson(geofencingZones, feedProvider));
         return mapped;
     }
 
-    private org.entur.lamassu.model.entities.GeofencingZones.FeatureCollection mapGeojson(GBFSGeofencingZones__1 geofencingZones) {
+    private org.entur.lamassu.model.entities.GeofencingZones.FeatureCollection mapGeojson(GBFSGeofencingZones__1 geofencingZones, FeedProvider feedProvider) {
         var mapped = new org.entur.lamassu.model.entities.GeofencingZones.FeatureCollection();
-        mapped.setFeatures(mapFeatures(geofencingZones.getFeatures()));
+        mapped.setFeatures(mapFeatures(geofencingZones.getFeatures(), feedProvider));
         return mapped;
     }
 
-    private List<org.entur.lamassu.model.entities.GeofencingZones.Feature> mapFeatures(List<GBFSFeature> features) {
+    private List<org.entur.lamassu.model.entities.GeofencingZones.Feature> mapFeatures(List<GBFSFeature> features, FeedProvider feedProvider) {
         return features.stream()
-                .map(this::mapFeature)
+                .map(feature -> mapFeature(feature, feedProvider))
                 .collect(Collectors.toList());
     }
 
-    private org.entur.lamassu.model.entities.GeofencingZones.Feature mapFeature(GBFSFeature feature) {
+    private org.entur.lamassu.model.entities.GeofencingZones.Feature mapFeature(GBFSFeature feature, FeedProvider feedProvider) {
         var mapped = new org.entur.lamassu.model.entities.GeofencingZones.Feature();
-        mapped.setProperties(mapProperties(feature.getProperties()));
+        mapped.setProperties(mapProperties(feature.getProperties(), feedProvider));
         mapped.setGeometry(MultiPolygon.fromGeoJson(feature.getGeometry()));
         return mapped;
     }
 
-    private org.entur.lamassu.model.entities.GeofencingZones.Properties mapProperties(GBFSProperties properties) {
+    private org.entur.lamassu.model.entities.GeofencingZones.Properties mapProperties(GBFSProperties properties, FeedProvider feedProvider) {
         var mapped = new org.entur.lamassu.model.entities.GeofencingZones.Properties();
         mapped.setName(properties.getName());
         mapped.setStart(properties.getStart() != null ? properties.getStart().longValue() : null);
         mapped.setEnd(properties.getEnd() != null ? properties.getEnd().longValue() : null);
-        mapped.setRules(mapRules(properties.getRules()));
+        mapped.setRules(mapRules(properties.getRules(), feedProvider));
         return mapped;
     }
 
-    private List<org.entur.lamassu.model.entities.GeofencingZones.Rule> mapRules(List<GBFSRule> rules) {
+    private List<org.entur.lamassu.model.entities.GeofencingZones.Rule> mapRules(List<GBFSRule> rules, FeedProvider feedProvider) {
         return rules.stream()
-                .map(this::mapRule)
+                .map(rule -> mapRule(rule, feedProvider))
                 .collect(Collectors.toList());
     }
 
-    private org.entur.lamassu.model.entities.GeofencingZones.Rule mapRule(GBFSRule rule) {
+    private org.entur.lamassu.model.entities.GeofencingZones.Rule mapRule(GBFSRule rule, FeedProvider feedProvider) {
         var mapped = new org.entur.lamassu.model.entities.GeofencingZones.Rule();
-        mapped.setVehicleTypeIds(rule.getVehicleTypeId());
+        // Rules are matched against the vehicle type ids of vehicles, which are always NeTEx ids. Ids which
+        // are NeTEx ids already, e.g. mapped by GeofencingZonesFeedMapper, are kept as they are
+        mapped.setVehicleTypeIds(IdMappers.mapIds(feedProvider.getCodespace(), IdMappers.VEHICLE_TYPE_ID_TYPE, rule.getVehicleTypeId()).orElse(null));
         mapped.setRideAllowed(rule.getRideAllowed());
         mapped.setRideThroughAllowed(rule.getRideThroughAllowed());
         mapped.setMaximumSpeedKph(rule.getMaximumSpeedKph() != null ? rule.getMaximumSpeedKph().intValue() : null);
@@ -0,0 +1,88 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.mapper.entitymapper;
+
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.Region;
+import org.entur.lamassu.model.entities.System;
+import org.entur.lamassu.model.entities.VehicleType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entities shared by all vehicles and stations of a delivery, mapped once per delivery
+ * and indexed by id.
+ */
+public class MappingContext {
+    private final System system;
+    private final List<PricingPlan> pricingPlans;
+    private final Map<String, PricingPlan> pricingPlansById;
+    private final Map<String, VehicleType> vehicleTypesById;
+    private final Map<String, Region> regionsById;
+    private final int contextHash;
+
+    public MappingContext(
+            System system,
+            List<PricingPlan> pricingPlans,
+            Map<String, PricingPlan> pricingPlansById,
+            Map<String, VehicleType> vehicleTypesById,
+            Map<String, Region> regionsById,
+            int contextHash
+    ) {
+        this.system = system;
+        this.pricingPlans = pricingPlans;
+        this.pricingPlansById = pricingPlansById;
+        this.vehicleTypesById = vehicleTypesById;
+        this.regionsById = regionsById;
+        this.contextHash = contextHash;
+    }
+
+    public System getSystem() {
+        return system;
+    }
+
+    public String getLanguage() {
+        return system.getLanguage();
+    }
+
+    public List<PricingPlan> getPricingPlans() {
+        return pricingPlans;
+    }
+
+    public Map<String, PricingPlan> getPricingPlansById() {
+        return pricingPlansById;
+    }
+
+    public Map<String, VehicleType> getVehicleTypesById() {
+        return vehicleTypesById;
+    }
+
+    public Map<String, Region> getRegionsById() {
+        return regionsById;
+    }
+
+    /**
+     * Hash of the system information, pricing plans and vehicle types feeds the context was mapped from
+     */
+    public int getContextHash() {
+        return contextHash;
+    }
+}
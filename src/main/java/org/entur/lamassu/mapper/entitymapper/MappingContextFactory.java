@@ -0,0 +1,104 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.mapper.entitymapper;
+
+import org.entur.gbfs.GbfsDelivery;
+import org.entur.gbfs.v2_3.system_regions.GBFSSystemRegions;
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.Region;
+import org.entur.lamassu.model.entities.VehicleType;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class MappingContextFactory {
+    private final SystemMapper systemMapper;
+    private final PricingPlanMapper pricingPlanMapper;
+    private final VehicleTypeMapper vehicleTypeMapper;
+    private final TranslationMapper translationMapper;
+
+    @Autowired
+    public MappingContextFactory(
+            SystemMapper systemMapper,
+            PricingPlanMapper pricingPlanMapper,
+            VehicleTypeMapper vehicleTypeMapper,
+            TranslationMapper translationMapper
+    ) {
+        this.systemMapper = systemMapper;
+        this.pricingPlanMapper = pricingPlanMapper;
+        this.vehicleTypeMapper = vehicleTypeMapper;
+        this.translationMapper = translationMapper;
+    }
+
+    /**
+     * Requires the delivery to have system_information, system_pricing_plans and vehicle_types.
+     */
+    public MappingContext createMappingContext(FeedProvider feedProvider, GbfsDelivery delivery) {
+        var system = systemMapper.mapSystem(delivery.getSystemInformation().getData(), feedProvider);
+        var language = system.getLanguage();
+
+        List<PricingPlan> pricingPlans = delivery.getSystemPricingPlans().getData().getPlans().stream()
+                .map(pricingPlan -> pricingPlanMapper.mapPricingPlan(pricingPlan, language))
+                .collect(Collectors.toList());
+
+        Map<String, PricingPlan> pricingPlansById = pricingPlans.stream()
+                .collect(Collectors.toMap(PricingPlan::getId, Function.identity(), (first, second) -> first, LinkedHashMap::new));
+
+        Map<String, VehicleType> vehicleTypesById = delivery.getVehicleTypes().getData().getVehicleTypes().stream()
+                .map(vehicleType -> vehicleTypeMapper.mapVehicleType(vehicleType, pricingPlansById, language))
+                .collect(Collectors.toMap(VehicleType::getId, Function.identity(), (first, second) -> first, LinkedHashMap::new));
+
+        return new MappingContext(
+                system,
+                pricingPlans,
+                pricingPlansById,
+                vehicleTypesById,
+                mapRegions(delivery.getSystemRegions(), language),
+                Objects.hash(
+                        delivery.getSystemInformation().getData(),
+                        delivery.getSystemPricingPlans().getData(),
+                        delivery.getVehicleTypes().getData()
+                )
+        );
+    }
+
+    private Map<String, Region> mapRegions(GBFSSystemRegions systemRegions, String language) {
+        if (systemRegions == null || systemRegions.getData() == null || systemRegions.getData().getRegions() == null) {
+            return Map.of();
+        }
+
+        return systemRegions.getData().getRegions().stream()
+                .map(sourceRegion -> {
+                    var region = new Region();
+                    region.setId(sourceRegion.getRegionId());
+                    region.setName(translationMapper.mapSingleTranslation(language, sourceRegion.getName()));
+                    return region;
+                })
+                .collect(Collectors.toMap(Region::getId, Function.identity(), (first, second) -> first));
+    }
+}
@@ -23,15 +23,12 @@ import org.entur.gbfs.v2_3.station_information.GBFSVehicleCapacity;
 import org.entur.gbfs.v2_3.station_information.GBFSVehicleTypeCapacity;
 import org.entur.gbfs.v2_3.station_status.GBFSVehicleDocksAvailable;
 import org.entur.gbfs.v2_3.station_status.GBFSVehicleTypesAvailable;
-import org.entur.gbfs.v2_3.system_regions.GBFSSystemRegions;
-import org.entur.gbfs.v2_3.vehicle_types.GBFSVehicleTypes;
 import org.entur.lamassu.model.entities.MultiPolygon;
 import org.entur.lamassu.model.entities.ParkingType;
 import org.entur.lamassu.model.entities.PricingPlan;
 import org.entur.lamassu.model.entities.Region;
 import org.entur.lamassu.model.entities.RentalMethod;
 import org.entur.lamassu.model.entities.Station;
-import org.entur.lamassu.model.entities.System;
 import org.entur.lamassu.model.entities.VehicleDocksAvailability;
 import org.entur.lamassu.model.entities.VehicleType;
 import org.entur.lamassu.model.entities.VehicleTypeAvailability;
@@ -51,18 +48,18 @@ import java.util.stream.Collectors;
 public class StationMapper {
     private final TranslationMapper translationMapper;
     private final RentalUrisMapper rentalUrisMapper;
-    private final VehicleTypeMapper vehicleTypeMapper;
 
     private static final Logger logger = LoggerFactory.getLogger(StationMapper.class);
 
     @Autowired
-    public StationMapper(TranslationMapper translationMapper, RentalUrisMapper rentalUrisMapper, VehicleTypeMapper vehicleTypeMapper) {
+    public StationMapper(TranslationMapper translationMapper, RentalUrisMapper rentalUrisMapper) {
         this.translationMapper = translationMapper;
         this.rentalUrisMapper = rentalUrisMapper;
-        this.vehicleTypeMapper = vehicleTypeMapper;
     }
 
-    public Station mapStation(System system, List<PricingPlan> pricingPlans, GBFSStation stationInformation, org.entur.gbfs.v2_3.station_status.GBFSStation stationStatus, GBFSVehicleTypes vehicleTypesFeed, GBFSSystemRegions regions, String language) {
+    public Station mapStation(MappingContext context, GBFSStation stationInformation, org.entur.gbfs.v2_3.station_status.GBFSStation stationStatus) {
+        var language = context.getLanguage();
+        var vehicleTypes = context.getVehicleTypesById();
         var station = new Station();
         station.setId(stationStatus.getStationId());
         station.setName(translationMapper.mapSingleTranslation(language, stationInformation.getName()));
@@ -71,7 +68,7 @@ public class StationMapper {
         station.setLon(stationInformation.getLon());
         station.setAddress(stationInformation.getAddress());
         station.setCrossStreet(stationInformation.getCrossStreet());
-        station.setRegion(mapRegion(regions, stationInformation.getRegionId(), language));
+        station.setRegion(mapRegion(context.getRegionsById(), stationInformation.getRegionId()));
         station.setPostCode(stationInformation.getPostCode());
         station.setRentalMethods(mapRentalMethods(stationInformation.getRentalMethods()));
         station.setVirtualStation(stationInformation.getIsVirtualStation());
@@ -80,23 +77,25 @@ public class StationMapper {
         station.setParkingHoop(stationInformation.getParkingHoop());
         station.setContactPhone(stationInformation.getContactPhone());
         station.setCapacity(stationInformation.getCapacity() != null ? stationInformation.getCapacity().intValue() : null);
-        station.setVehicleCapacity(stationInformation.getVehicleCapacity() != null ? mapVehicleCapacities(stationInformation.getVehicleCapacity(), mapVehicleTypes(vehicleTypesFeed, pricingPlans, language)) : null);
-        station.setVehicleTypeCapacity(stationInformation.getVehicleTypeCapacity() != null ? mapVehicleTypeCapacities(stationInformation.getVehicleTypeCapacity(), mapVehicleTypes(vehicleTypesFeed, pricingPlans, language)) : null);
+        station.setVehicleCapacity(stationInformation.getVehicleCapacity() != null ? mapVehicleCapacities(stationInformation.getVehicleCapacity(), vehicleTypes) : null);
+        station.setVehicleTypeCapacity(stationInformation.getVehicleTypeCapacity() != null ? mapVehicleTypeCapacities(stationInformation.getVehicleTypeCapacity(), vehicleTypes) : null);
         station.setValetStation(stationInformation.getIsValetStation());
         station.setChargingStation(stationInformation.getIsChargingStation());
         station.setRentalUris(rentalUrisMapper.mapRentalUris(stationInformation.getRentalUris()));
         station.setNumBikesAvailable(stationStatus.getNumBikesAvailable() != null ? stationStatus.getNumBikesAvailable().intValue() : null);
-        station.setVehicleTypesAvailable(stationStatus.getVehicleTypesAvailable() != null ? mapVehicleTypesAvailable(vehicleTypesFeed, stationStatus.getVehicleTypesAvailable(), pricingPlans, language) : null);
+        station.setVehicleTypesAvailable(stationStatus.getVehicleTypesAvailable() != null ? mapVehicleTypesAvailable(stationStatus.getVehicleTypesAvailable(), vehicleTypes) : null);
         station.setNumBikesDisabled(stationStatus.getNumBikesDisabled() != null ? stationStatus.getNumBikesDisabled().intValue() : null);
         station.setNumDocksAvailable(stationStatus.getNumDocksAvailable() != null ? stationStatus.getNumDocksAvailable().intValue() : null);
-        station.setVehicleDocksAvailable(stationStatus.getVehicleDocksAvailable() != null ? mapVehicleDocksAvailable(vehicleTypesFeed, stationStatus.getVehicleDocksAvailable(), pricingPlans, language) : null);
+        station.setVehicleDocksAvailable(stationStatus.getVehicleDocksAvailable() != null ? mapVehicleDocksAvailable(stationStatus.getVehicleDocksAvailable(), vehicleTypes) : null);
         station.setNumDocksDisabled(station.getNumDocksDisabled());
         station.setInstalled(stationStatus.getIsInstalled());
         station.setRenting(stationStatus.getIsRenting());
         station.setReturning(stationStatus.getIsReturning());
         station.setLastReported(stationStatus.getLastReported() != null ? stationStatus.getLastReported().longValue() : null);
-        station.setSystem(system);
-        station.setPricingPlans(pricingPlans);
+        station.setSystemId(context.getSystem().getId());
+        station.setSystem(context.getSystem());
+        station.setPricingPlanIds(context.getPricingPlans().stream().map(PricingPlan::getId).collect(Collectors.toList()));
+        station.setPricingPlans(context.getPricingPlans());
         return station;
     }
 
@@ -125,26 +124,18 @@ public class StationMapper {
                 ).orElse(null);
     }
 
-    private Region mapRegion(GBFSSystemRegions regions, String regionId, String language) {
+    private Region mapRegion(Map<String, Region> regions, String regionId) {
         if (regionId == null || regionId.isBlank()) {
             return null;
         }
 
-        var sourceRegion = Optional.ofNullable(regions)
-                .flatMap(r -> r.getData().getRegions().stream()
-                        .filter(region -> region.getRegionId().equals(regionId))
-                        .findFirst()
-                );
-
-        if (sourceRegion.isPresent()) {
-            var region = new Region();
-            region.setId(regionId);
-            region.setName(translationMapper.mapSingleTranslation(language, sourceRegion.get().getName()));
-            return region;
-        } else {
+        var region = regions.get(regionId);
+
+        if (region == null) {
             logger.warn("Could not map regionId to a region from system_regions feed {}", regionId);
-            return null;
         }
+
+        return region;
     }
 
     private List<VehicleTypeCapacity> mapVehicleCapacities(GBFSVehicleCapacity vehicleCapacity, Map<String, VehicleType> vehicleTypes) {
@@ -170,19 +161,9 @@ public class StationMapper {
         return mapped;
     }
 
-    private Map<String, VehicleType> mapVehicleTypes(GBFSVehicleTypes vehicleTypesFeed, List<PricingPlan> pricingPlans, String language) {
-        return vehicleTypesFeed.getData().getVehicleTypes().stream()
-                .map(vehicleType -> vehicleTypeMapper.mapVehicleType(vehicleType, pricingPlans, language))
-                .collect(Collectors.toMap(VehicleType::getId, vehicleType -> vehicleType));
-    }
-
-    private List<VehicleTypeAvailability> mapVehicleTypesAvailable(GBFSVehicleTypes vehicleTypesFeed, List<GBFSVehicleTypesAvailable> vehicleTypesAvailable, List<PricingPlan> pricingPlans, String language) {
-        var mappedVehicleTypes = vehicleTypesFeed.getData().getVehicleTypes().stream()
-                .map(vehicleType -> vehicleTypeMapper.mapVehicleType(vehicleType, pricingPlans, language))
-                .collect(Collectors.toMap(VehicleType::getId, vehicleType -> vehicleType));
-
+    private List<VehicleTypeAvailability> mapVehicleTypesAvailable(List<GBFSVehicleTypesAvailable> vehicleTypesAvailable, Map<String, VehicleType> vehicleTypes) {
         return vehicleTypesAvailable.stream()
-                .map(vehicleTypeAvailability -> mapVehicleTypeAvailability(mappedVehicleTypes.get(vehicleTypeAvailability.getVehicleTypeId()), vehicleTypeAvailability))
+                .map(vehicleTypeAvailability -> mapVehicleTypeAvailability(vehicleTypes.get(vehicleTypeAvailability.getVehicleTypeId()), vehicleTypeAvailability))
                 .collect(Collectors.toList());
     }
 
@@ -193,13 +174,9 @@ public class StationMapper {
         return mapped;
     }
 
-    private List<VehicleDocksAvailability> mapVehicleDocksAvailable(GBFSVehicleTypes vehicleTypesFeed, List<GBFSVehicleDocksAvailable> vehicleDocksAvailable, List<PricingPlan> pricingPlans, String language) {
-        var mappedVehicleTypes = vehicleTypesFeed.getData().getVehicleTypes().stream()
-                .map(vehicleType -> vehicleTypeMapper.mapVehicleType(vehicleType, pricingPlans, language))
-                .collect(Collectors.toMap(VehicleType::getId, vehicleType -> vehicleType));
-
+    private List<VehicleDocksAvailability> mapVehicleDocksAvailable(List<GBFSVehicleDocksAvailable> vehicleDocksAvailable, Map<String, VehicleType> vehicleTypes) {
         return vehicleDocksAvailable.stream()
-                .map(vehicleDocksAvailability -> mapVehicleDocksAvailability(mappedVehicleTypes, vehicleDocksAvailability))
+                .map(vehicleDocksAvailability -> mapVehicleDocksAvailability(vehicleTypes, vehicleDocksAvailability))
                 .collect(Collectors.toList());
     }
 
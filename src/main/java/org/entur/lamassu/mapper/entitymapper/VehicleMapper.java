@@ -48,11 +48,14 @@ public class VehicleMapper {
         vehicle.setDisabled(bike.getIsDisabled());
         vehicle.setCurrentRangeMeters(bike.getCurrentRangeMeters());
         vehicle.setCurrentFuelPercent(bike.getCurrentFuelPercent());
+        vehicle.setVehicleTypeId(vehicleType != null ? vehicleType.getId() : null);
         vehicle.setVehicleType(vehicleType);
+        vehicle.setPricingPlanId(pricingPlan != null ? pricingPlan.getId() : null);
         vehicle.setPricingPlan(pricingPlan);
         vehicle.setVehicleEquipment(mapVehicleEquipment(bike.getVehicleEquipment()));
         vehicle.setRentalUris(rentalUrisMapper.mapRentalUris(bike.getRentalUris()));
         vehicle.setAvailableUntil(bike.getAvailableUntil());
+        vehicle.setSystemId(system.getId());
         vehicle.setSystem(system);
         return vehicle;
     }
@@ -33,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Component
@@ -45,7 +46,7 @@ public class VehicleTypeMapper {
         this.translationMapper = translationMapper;
     }
 
-    public VehicleType mapVehicleType(GBFSVehicleType vehicleType, List<PricingPlan> pricingPlans, String language) {
+    public VehicleType mapVehicleType(GBFSVehicleType vehicleType, Map<String, PricingPlan> pricingPlans, String language) {
         var mapped = new VehicleType();
         mapped.setId(vehicleType.getVehicleTypeId());
         mapped.setFormFactor(FormFactor.valueOf(vehicleType.getFormFactor().name()));
@@ -84,7 +85,7 @@ public class VehicleTypeMapper {
         return mapped;
     }
 
-    private List<PricingPlan> mapPricingPlans(List<String> pricingPlanIds, List<PricingPlan> pricingPlans) {
+    private List<PricingPlan> mapPricingPlans(List<String> pricingPlanIds, Map<String, PricingPlan> pricingPlans) {
         if (pricingPlans == null || pricingPlanIds == null) {
             return null;
         }
@@ -92,12 +93,12 @@ public class VehicleTypeMapper {
         return pricingPlanIds.stream().map(id -> getPricingPlanWithId(pricingPlans, id)).collect(Collectors.toList());
     }
 
-    private PricingPlan getPricingPlanWithId(List<PricingPlan> pricingPlans, String id) {
+    private PricingPlan getPricingPlanWithId(Map<String, PricingPlan> pricingPlans, String id) {
         if (pricingPlans == null || id == null) {
             return null;
         }
 
-        return pricingPlans.stream().filter(pricingPlan -> pricingPlan.getId().equals(id)).findFirst().orElse(null);
+        return pricingPlans.get(id);
     }
 
     private VehicleAssets mapVehicleAssets(GBFSVehicleAssets vehicleAssets) {
@@ -70,6 +70,7 @@ public class DiscoveryFeedMapper extends AbstractFeedMapper<GBFS> {
                 .getFeeds()
                 .stream()
                 .filter(feed -> feedProvider.getExcludeFeeds() == null || feedProvider.getExcludeFeeds().stream().noneMatch(excluded -> excluded.equals(feed.getName())))
+                .filter(feed -> !feedProvider.isStreamFreeBikeStatus() || !feed.getName().equals(GBFSFeedName.FreeBikeStatus))
                 .map(feed -> {
                     var mappedFeed = new GBFSFeed();
                     mappedFeed.setName(feed.getName());
@@ -56,7 +56,7 @@ public class FreeBikeStatusFeedMapper extends AbstractFeedMapper<GBFSFreeBikeSta
         return mapped;
     }
 
-    protected GBFSBike mapBike(GBFSBike bike, FeedProvider feedProvider) {
+    public GBFSBike mapBike(GBFSBike bike, FeedProvider feedProvider) {
         var mapped = new GBFSBike();
         mapped.setBikeId(IdMappers.mapId(feedProvider.getCodespace(), IdMappers.BIKE_ID_TYPE, bike.getBikeId()));
         mapped.setLat(bike.getLat());
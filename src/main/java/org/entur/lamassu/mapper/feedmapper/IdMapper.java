@@ -0,0 +1,72 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.mapper.feedmapper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import no.entur.abt.netex.id.NetexIdBuilder;
+import no.entur.abt.netex.id.predicate.NetexIdPredicate;
+import no.entur.abt.netex.id.predicate.NetexIdPredicateBuilder;
+
+import java.util.function.Function;
+
+/**
+ * Maps ids to NeTEx ids of a single codespace and type. The predicate is built once, and
+ * mapped ids are remembered in a bounded cache, since the same ids recur in every feed update.
+ */
+class IdMapper {
+    private final String codespace;
+    private final String type;
+    private final NetexIdPredicate predicate;
+    private final Cache<String, String> mappedIds;
+    private final Function<String, String> mappingFunction = this::mapUncached;
+
+    IdMapper(String codespace, String type, long maximumSize) {
+        this.codespace = codespace;
+        this.type = type;
+        this.predicate = NetexIdPredicateBuilder.newInstance()
+                .withCodespace(codespace)
+                .withType(type)
+                .build();
+        this.mappedIds = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    String map(String value) {
+        return mappedIds.get(value, mappingFunction);
+    }
+
+    long estimatedSize() {
+        mappedIds.cleanUp();
+        return mappedIds.estimatedSize();
+    }
+
+    private String mapUncached(String value) {
+        if (predicate.test(value)) {
+            return value;
+        }
+
+        return NetexIdBuilder.newInstance()
+                .withCodespace(codespace)
+                .withType(type)
+                .withValue(value)
+                .build();
+    }
+}
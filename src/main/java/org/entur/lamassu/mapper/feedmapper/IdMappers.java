@@ -18,11 +18,10 @@
 
 package org.entur.lamassu.mapper.feedmapper;
 
-import no.entur.abt.netex.id.NetexIdBuilder;
-import no.entur.abt.netex.id.predicate.NetexIdPredicateBuilder;
-
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class IdMappers {
@@ -33,6 +32,11 @@ public class IdMappers {
     public static final String VEHICLE_TYPE_ID_TYPE = "VehicleType";
     public static final String BIKE_ID_TYPE = "Vehicle";
 
+    // Upper bound of remembered ids per codespace and type
+    static final long MAX_CACHED_IDS = 200_000;
+
+    private static final Map<String, Map<String, IdMapper>> ID_MAPPERS = new ConcurrentHashMap<>();
+
     private IdMappers() {}
 
     public static String mapId(String codespace, String type, String value) {
@@ -42,19 +46,16 @@ public class IdMappers {
             return value;
         }
 
-        var predicate = NetexIdPredicateBuilder.newInstance()
-                .withCodespace(codespace)
-                .withType(type)
-                .build();
-        if (predicate.test(value)) {
-            return value;
-        } else {
-            return NetexIdBuilder.newInstance()
-                    .withCodespace(codespace)
-                    .withType(type)
-                    .withValue(value)
-                    .build();
+        return getIdMapper(codespace, type).map(value);
+    }
+
+    static IdMapper getIdMapper(String codespace, String type) {
+        var idMappersByType = ID_MAPPERS.computeIfAbsent(codespace, c -> new ConcurrentHashMap<>());
+        var idMapper = idMappersByType.get(type);
+        if (idMapper == null) {
+            idMapper = idMappersByType.computeIfAbsent(type, t -> new IdMapper(codespace, t, MAX_CACHED_IDS));
         }
+        return idMapper;
     }
 
     public static Optional<List<String>> mapIds(String codespace, String type, List<String> values) {
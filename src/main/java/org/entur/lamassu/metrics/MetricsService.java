@@ -35,6 +35,14 @@ public class MetricsService {
     public static final String LABEL_VERSION = "version";
     public static final String LABEL_FILE = "file";
     public static final String SUBSCRIPTION_FAILEDSETUP = "app.lamassu.gbfs.subscription.failedsetup";
+    public static final String SPATIAL_INDEX_ORPHANS_SCANNED = "app.lamassu.spatialindex.orphans.scanned";
+    public static final String SPATIAL_INDEX_ORPHANS_FOUND = "app.lamassu.spatialindex.orphans.found";
+    public static final String SPATIAL_INDEX_ORPHANS_REMOVED = "app.lamassu.spatialindex.orphans.removed";
+    public static final String LABEL_INDEX = "index";
+    public static final String GRAPHQL_QUERY_COST = "app.lamassu.graphql.query.cost";
+    public static final String GRAPHQL_QUERY_CLAMPED = "app.lamassu.graphql.query.clamped";
+    public static final String GRAPHQL_QUERY_REJECTED = "app.lamassu.graphql.query.rejected";
+    public static final String LABEL_FIELD = "field";
 
     private final MeterRegistry meterRegistry;
 
@@ -88,4 +96,23 @@ public class MetricsService {
                     }
                 });
     }
+
+    public void registerOrphanReconciliation(String index, int scanned, int found, int removed) {
+        var tags = List.of(Tag.of(LABEL_INDEX, index));
+        meterRegistry.counter(SPATIAL_INDEX_ORPHANS_SCANNED, tags).increment(scanned);
+        meterRegistry.counter(SPATIAL_INDEX_ORPHANS_FOUND, tags).increment(found);
+        meterRegistry.counter(SPATIAL_INDEX_ORPHANS_REMOVED, tags).increment(removed);
+    }
+
+    public void registerQueryCost(String field, long cost) {
+        meterRegistry.summary(GRAPHQL_QUERY_COST, List.of(Tag.of(LABEL_FIELD, field))).record(cost);
+    }
+
+    public void registerQueryClamped(String field) {
+        meterRegistry.counter(GRAPHQL_QUERY_CLAMPED, List.of(Tag.of(LABEL_FIELD, field))).increment();
+    }
+
+    public void registerQueryRejected(String field) {
+        meterRegistry.counter(GRAPHQL_QUERY_REJECTED, List.of(Tag.of(LABEL_FIELD, field))).increment();
+    }
 }
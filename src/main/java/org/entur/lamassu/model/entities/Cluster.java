@@ -0,0 +1,69 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.model.entities;
+
+import java.util.List;
+
+public class Cluster {
+    private Double lat;
+    private Double lon;
+    private Integer count;
+    private List<FormFactorCount> formFactors;
+    private List<PropulsionTypeCount> propulsionTypes;
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public void setLat(Double lat) {
+        this.lat = lat;
+    }
+
+    public Double getLon() {
+        return lon;
+    }
+
+    public void setLon(Double lon) {
+        this.lon = lon;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public List<FormFactorCount> getFormFactors() {
+        return formFactors;
+    }
+
+    public void setFormFactors(List<FormFactorCount> formFactors) {
+        this.formFactors = formFactors;
+    }
+
+    public List<PropulsionTypeCount> getPropulsionTypes() {
+        return propulsionTypes;
+    }
+
+    public void setPropulsionTypes(List<PropulsionTypeCount> propulsionTypes) {
+        this.propulsionTypes = propulsionTypes;
+    }
+}
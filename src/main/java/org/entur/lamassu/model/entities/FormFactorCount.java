@@ -0,0 +1,48 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.model.entities;
+
+public class FormFactorCount {
+    private FormFactor formFactor;
+    private Integer count;
+
+    public FormFactorCount() {
+    }
+
+    public FormFactorCount(FormFactor formFactor, Integer count) {
+        this.formFactor = formFactor;
+        this.count = count;
+    }
+
+    public FormFactor getFormFactor() {
+        return formFactor;
+    }
+
+    public void setFormFactor(FormFactor formFactor) {
+        this.formFactor = formFactor;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.model.entities;
+
+public class GeofencingRules {
+    private String systemId;
+    private String zoneName;
+    private Boolean rideAllowed;
+    private Boolean rideThroughAllowed;
+    private Integer maximumSpeedKph;
+    private Boolean stationParking;
+
+    public String getSystemId() {
+        return systemId;
+    }
+
+    public void setSystemId(String systemId) {
+        this.systemId = systemId;
+    }
+
+    public String getZoneName() {
+        return zoneName;
+    }
+
+    public void setZoneName(String zoneName) {
+        this.zoneName = zoneName;
+    }
+
+    public Boolean getRideAllowed() {
+        return rideAllowed;
+    }
+
+    public void setRideAllowed(Boolean rideAllowed) {
+        this.rideAllowed = rideAllowed;
+    }
+
+    public Boolean getRideThroughAllowed() {
+        return rideThroughAllowed;
+    }
+
+    public void setRideThroughAllowed(Boolean rideThroughAllowed) {
+        this.rideThroughAllowed = rideThroughAllowed;
+    }
+
+    public Integer getMaximumSpeedKph() {
+        return maximumSpeedKph;
+    }
+
+    public void setMaximumSpeedKph(Integer maximumSpeedKph) {
+        this.maximumSpeedKph = maximumSpeedKph;
+    }
+
+    public Boolean getStationParking() {
+        return stationParking;
+    }
+
+    public void setStationParking(Boolean stationParking) {
+        this.stationParking = stationParking;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.model.entities;
+
+public class PropulsionTypeCount {
+    private PropulsionType propulsionType;
+    private Integer count;
+
+    public PropulsionTypeCount() {
+    }
+
+    public PropulsionTypeCount(PropulsionType propulsionType, Integer count) {
+        this.propulsionType = propulsionType;
+        this.count = count;
+    }
+
+    public PropulsionType getPropulsionType() {
+        return propulsionType;
+    }
+
+    public void setPropulsionType(PropulsionType propulsionType) {
+        this.propulsionType = propulsionType;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
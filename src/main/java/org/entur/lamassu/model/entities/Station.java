@@ -53,8 +53,12 @@ public class Station implements LocationEntity {
     private Boolean isRenting;
     private Boolean isReturning;
     private Long lastReported;
-    private System system;
-    private List<PricingPlan> pricingPlans;
+    private String systemId;
+    private List<String> pricingPlanIds;
+
+    // Shared by many entities, so only their ids are stored in the cache. See EntityReferenceResolver
+    private transient System system;
+    private transient List<PricingPlan> pricingPlans;
 
     @Override
     public String getId() {
@@ -307,6 +311,14 @@ public class Station implements LocationEntity {
         this.lastReported = lastReported;
     }
 
+    public String getSystemId() {
+        return systemId;
+    }
+
+    public void setSystemId(String systemId) {
+        this.systemId = systemId;
+    }
+
     public System getSystem() {
         return system;
     }
@@ -315,6 +327,14 @@ public class Station implements LocationEntity {
         this.system = system;
     }
 
+    public List<String> getPricingPlanIds() {
+        return pricingPlanIds;
+    }
+
+    public void setPricingPlanIds(List<String> pricingPlanIds) {
+        this.pricingPlanIds = pricingPlanIds;
+    }
+
     public List<PricingPlan> getPricingPlans() {
         return pricingPlans;
     }
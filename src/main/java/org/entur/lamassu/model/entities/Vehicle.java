@@ -11,13 +11,18 @@ public class Vehicle implements LocationEntity {
     private Boolean isDisabled;
     private Double currentRangeMeters;
     private Double currentFuelPercent;
-    private VehicleType vehicleType;
+    private String vehicleTypeId;
     private List<VehicleEquipment> vehicleEquipment;
     private String availableUntil;
-    private PricingPlan pricingPlan;
-    private System system;
+    private String pricingPlanId;
+    private String systemId;
     private RentalUris rentalUris;
 
+    // Shared by many entities, so only their ids are stored in the cache. See EntityReferenceResolver
+    private transient VehicleType vehicleType;
+    private transient PricingPlan pricingPlan;
+    private transient System system;
+
     @Override
     public String getId() {
         return id;
@@ -77,6 +82,14 @@ public class Vehicle implements LocationEntity {
         this.currentFuelPercent = currentFuelPercent;
     }
 
+    public String getVehicleTypeId() {
+        return vehicleTypeId;
+    }
+
+    public void setVehicleTypeId(String vehicleTypeId) {
+        this.vehicleTypeId = vehicleTypeId;
+    }
+
     public VehicleType getVehicleType() {
         return vehicleType;
     }
@@ -101,6 +114,14 @@ public class Vehicle implements LocationEntity {
         this.availableUntil = availableUntil;
     }
 
+    public String getPricingPlanId() {
+        return pricingPlanId;
+    }
+
+    public void setPricingPlanId(String pricingPlanId) {
+        this.pricingPlanId = pricingPlanId;
+    }
+
     public PricingPlan getPricingPlan() {
         return pricingPlan;
     }
@@ -109,6 +130,14 @@ public class Vehicle implements LocationEntity {
         this.pricingPlan = pricingPlan;
     }
 
+    public String getSystemId() {
+        return systemId;
+    }
+
+    public void setSystemId(String systemId) {
+        this.systemId = systemId;
+    }
+
     public System getSystem() {
         return system;
     }
@@ -38,6 +38,10 @@ public class FeedProvider {
     private List<GBFSVehicleType> vehicleTypes;
     private List<GBFSPlan> pricingPlans;
 
+    // Read free_bike_status in chunks while it is downloaded, instead of from the delivery. The feed is
+    // then not republished as a GBFS feed
+    private boolean streamFreeBikeStatus;
+
     public String getSystemId() {
         return systemId;
     }
@@ -118,6 +122,14 @@ public class FeedProvider {
         this.excludeFeeds = excludeFeeds;
     }
 
+    public boolean isStreamFreeBikeStatus() {
+        return streamFreeBikeStatus;
+    }
+
+    public void setStreamFreeBikeStatus(boolean streamFreeBikeStatus) {
+        this.streamFreeBikeStatus = streamFreeBikeStatus;
+    }
+
     @Override
     public String toString() {
         return "FeedProvider{" +
@@ -131,6 +143,7 @@ public class FeedProvider {
                 ", excludeFeeds=" + excludeFeeds +
                 ", vehicleTypes=" + vehicleTypes +
                 ", pricingPlans=" + pricingPlans +
+                ", streamFreeBikeStatus=" + streamFreeBikeStatus +
                 '}';
     }
 }
@@ -0,0 +1,49 @@
+package org.entur.lamassu.service;
+
+public class BoundingBoxQueryParameters {
+    private Double minimumLatitude;
+    private Double minimumLongitude;
+    private Double maximumLatitude;
+    private Double maximumLongitude;
+    private Integer count;
+
+    public Double getMinimumLatitude() {
+        return minimumLatitude;
+    }
+
+    public void setMinimumLatitude(Double minimumLatitude) {
+        this.minimumLatitude = minimumLatitude;
+    }
+
+    public Double getMinimumLongitude() {
+        return minimumLongitude;
+    }
+
+    public void setMinimumLongitude(Double minimumLongitude) {
+        this.minimumLongitude = minimumLongitude;
+    }
+
+    public Double getMaximumLatitude() {
+        return maximumLatitude;
+    }
+
+    public void setMaximumLatitude(Double maximumLatitude) {
+        this.maximumLatitude = maximumLatitude;
+    }
+
+    public Double getMaximumLongitude() {
+        return maximumLongitude;
+    }
+
+    public void setMaximumLongitude(Double maximumLongitude) {
+        this.maximumLongitude = maximumLongitude;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,16 @@
+package org.entur.lamassu.service;
+
+import org.entur.lamassu.model.entities.StationUpdate;
+import org.entur.lamassu.model.entities.VehicleUpdate;
+import org.reactivestreams.Publisher;
+
+/**
+ * Streams of the vehicles and stations entering (CREATE), changing within (UPDATE) or leaving (DELETE)
+ * an area and filter, as published by the leader on the entity change topics.
+ */
+public interface EntityChangeSubscriptionService {
+    Publisher<VehicleUpdate> getVehicleUpdates(RangeQueryParameters rangeQueryParameters, VehicleFilterParameters vehicleFilterParameters);
+    Publisher<VehicleUpdate> getVehicleUpdates(BoundingBoxQueryParameters boundingBoxQueryParameters, VehicleFilterParameters vehicleFilterParameters);
+    Publisher<StationUpdate> getStationUpdates(RangeQueryParameters rangeQueryParameters, StationFilterParameters stationFilterParameters);
+    Publisher<StationUpdate> getStationUpdates(BoundingBoxQueryParameters boundingBoxQueryParameters, StationFilterParameters stationFilterParameters);
+}
@@ -1,14 +1,32 @@
 package org.entur.lamassu.service;
 
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.model.entities.Cluster;
 import org.entur.lamassu.model.entities.Station;
 import org.entur.lamassu.model.entities.Vehicle;
 
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Vehicles and stations are returned without resolving their references to vehicle types, pricing plans
+ * and systems, which are loaded on demand by the GraphQL field resolvers.
+ */
 public interface GeoSearchService {
     List<Vehicle> getVehiclesNearby(RangeQueryParameters rangeQueryParameters, VehicleFilterParameters vehicleFilterParameters);
+    List<VehicleSpatialIndexId> getVehicleIdsNearby(RangeQueryParameters rangeQueryParameters, VehicleFilterParameters vehicleFilterParameters);
     List<Station> getStationsNearby(RangeQueryParameters rangeQueryParameters, StationFilterParameters stationFilterParameters);
+    List<Vehicle> getVehiclesWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters, VehicleFilterParameters vehicleFilterParameters);
+    List<VehicleSpatialIndexId> getVehicleIdsWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters, VehicleFilterParameters vehicleFilterParameters);
+
+    /**
+     * Vehicles with only the attributes kept in the spatial index: id, position, reserved and disabled
+     * state, the form factor and propulsion type of the vehicle type and the id of the system.
+     */
+    List<Vehicle> getVehiclesFromSpatialIndex(List<VehicleSpatialIndexId> indexIds);
+    List<Station> getStationsWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters, StationFilterParameters stationFilterParameters);
+    List<Cluster> getVehicleClusters(BoundingBoxQueryParameters boundingBoxQueryParameters, int zoom, VehicleFilterParameters vehicleFilterParameters);
+    List<Cluster> getStationClusters(BoundingBoxQueryParameters boundingBoxQueryParameters, int zoom, StationFilterParameters stationFilterParameters);
     Collection<String> getVehicleSpatialIndexOrphans();
     Collection<String> removeVehicleSpatialIndexOrphans();
 }
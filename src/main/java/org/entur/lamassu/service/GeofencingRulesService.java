@@ -0,0 +1,15 @@
+package org.entur.lamassu.service;
+
+import org.entur.lamassu.model.entities.GeofencingRules;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface GeofencingRulesService {
+
+    /**
+     * The geofencing rules applying to a vehicle type at a point, for each of the systems having a zone
+     * there with a rule for the vehicle type. Rules without vehicle type ids apply to all vehicle types.
+     */
+    List<GeofencingRules> getRulesAt(double longitude, double latitude, String vehicleTypeId, Collection<String> systemIds);
+}
@@ -0,0 +1,10 @@
+package org.entur.lamassu.service;
+
+public interface GeofencingZonesTileService {
+
+    /**
+     * The geofencing zones of the system within the web mercator tile, encoded as a Mapbox Vector Tile
+     * with a single layer named geofencingZones. Empty when no zone is within the tile.
+     */
+    byte[] getTile(String systemId, int z, int x, int y);
+}
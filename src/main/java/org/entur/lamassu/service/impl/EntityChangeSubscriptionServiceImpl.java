@@ -0,0 +1,219 @@
+package org.entur.lamassu.service.impl;
+
+import org.entur.lamassu.cache.EntityChange;
+import org.entur.lamassu.cache.EntityChangeTopic;
+import org.entur.lamassu.cache.SpatialIndexId;
+import org.entur.lamassu.cache.StationChangeTopic;
+import org.entur.lamassu.cache.StationSpatialIndexId;
+import org.entur.lamassu.cache.VehicleChangeTopic;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.cache.impl.EntityReferenceResolver;
+import org.entur.lamassu.cache.impl.SpatialGrid;
+import org.entur.lamassu.model.entities.LocationEntity;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.StationUpdate;
+import org.entur.lamassu.model.entities.UpdateType;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleUpdate;
+import org.entur.lamassu.service.BoundingBoxQueryParameters;
+import org.entur.lamassu.service.EntityChangeSubscriptionService;
+import org.entur.lamassu.service.RangeQueryParameters;
+import org.entur.lamassu.service.StationFilterParameters;
+import org.entur.lamassu.service.VehicleFilterParameters;
+import org.entur.lamassu.util.SpatialIndexIdFilter;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+@Component
+public class EntityChangeSubscriptionServiceImpl implements EntityChangeSubscriptionService {
+    // Each change set is received once per instance and fanned out to all subscriptions. Every subscription
+    // buffers change sets it hasn't consumed yet, so the sink always has demand from it
+    private final Sinks.Many<List<EntityChange<VehicleSpatialIndexId, Vehicle>>> vehicleChanges = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Many<List<EntityChange<StationSpatialIndexId, Station>>> stationChanges = Sinks.many().multicast().directBestEffort();
+
+    private final TopicListener<VehicleSpatialIndexId, Vehicle> vehicleChangeListener;
+    private final TopicListener<StationSpatialIndexId, Station> stationChangeListener;
+    private final int maxBufferedChangeSets;
+
+    @Autowired
+    public EntityChangeSubscriptionServiceImpl(
+            VehicleChangeTopic vehicleChangeTopic,
+            StationChangeTopic stationChangeTopic,
+            EntityReferenceResolver entityReferenceResolver,
+            @Value("${org.entur.lamassu.subscriptions.maxBufferedChangeSets:256}") int maxBufferedChangeSets
+    ) {
+        this.maxBufferedChangeSets = maxBufferedChangeSets;
+        this.vehicleChangeListener = new TopicListener<>(
+                vehicleChangeTopic,
+                changes -> emit(vehicleChanges, changes, entityReferenceResolver::resolveVehicleReferences)
+        );
+        this.stationChangeListener = new TopicListener<>(
+                stationChangeTopic,
+                changes -> emit(stationChanges, changes, entityReferenceResolver::resolveStationReferences)
+        );
+    }
+
+    @Override
+    public Publisher<VehicleUpdate> getVehicleUpdates(RangeQueryParameters rangeQueryParameters, VehicleFilterParameters vehicleFilterParameters) {
+        return getVehicleUpdates(isWithinRange(rangeQueryParameters), vehicleFilterParameters);
+    }
+
+    @Override
+    public Publisher<VehicleUpdate> getVehicleUpdates(BoundingBoxQueryParameters boundingBoxQueryParameters, VehicleFilterParameters vehicleFilterParameters) {
+        return getVehicleUpdates(isWithinBoundingBox(boundingBoxQueryParameters), vehicleFilterParameters);
+    }
+
+    @Override
+    public Publisher<StationUpdate> getStationUpdates(RangeQueryParameters rangeQueryParameters, StationFilterParameters stationFilterParameters) {
+        return getStationUpdates(isWithinRange(rangeQueryParameters), stationFilterParameters);
+    }
+
+    @Override
+    public Publisher<StationUpdate> getStationUpdates(BoundingBoxQueryParameters boundingBoxQueryParameters, StationFilterParameters stationFilterParameters) {
+        return getStationUpdates(isWithinBoundingBox(boundingBoxQueryParameters), stationFilterParameters);
+    }
+
+    private Flux<VehicleUpdate> getVehicleUpdates(BiPredicate<Double, Double> area, VehicleFilterParameters filterParameters) {
+        Predicate<VehicleSpatialIndexId> filter = id -> SpatialIndexIdFilter.filterVehicle(id, filterParameters);
+        return withBoundedBuffer(vehicleChanges.asFlux())
+                .doOnSubscribe(subscription -> vehicleChangeListener.subscribe())
+                .doFinally(signal -> vehicleChangeListener.unsubscribe())
+                .flatMapIterable(changes -> getUpdates(changes, area, filter, VehicleUpdate::new), 1);
+    }
+
+    private Flux<StationUpdate> getStationUpdates(BiPredicate<Double, Double> area, StationFilterParameters filterParameters) {
+        Predicate<StationSpatialIndexId> filter = id -> SpatialIndexIdFilter.filterStation(id, filterParameters);
+        return withBoundedBuffer(stationChanges.asFlux())
+                .doOnSubscribe(subscription -> stationChangeListener.subscribe())
+                .doFinally(signal -> stationChangeListener.unsubscribe())
+                .flatMapIterable(changes -> getUpdates(changes, area, filter, StationUpdate::new), 1);
+    }
+
+    /**
+     * Ends the subscription with an error once it falls more than maxBufferedChangeSets behind, rather than
+     * silently dropping changes, so the client knows to query the current state and subscribe again. The
+     * error is merged in ahead of the buffered change sets, which are discarded.
+     */
+    private <T> Flux<T> withBoundedBuffer(Flux<T> changes) {
+        return Flux.defer(() -> {
+            Sinks.Empty<T> overflow = Sinks.empty();
+            return Flux.merge(
+                    1,
+                    changes.onBackpressureBuffer(
+                            maxBufferedChangeSets,
+                            dropped -> overflow.tryEmitError(new IllegalStateException(
+                                    "Subscription fell too far behind the updates, query again and resubscribe"
+                            )),
+                            BufferOverflowStrategy.DROP_LATEST
+                    ),
+                    overflow.asMono()
+            );
+        });
+    }
+
+    private <S extends SpatialIndexId, T extends LocationEntity> void emit(
+            Sinks.Many<List<EntityChange<S, T>>> sink,
+            List<EntityChange<S, T>> changes,
+            Consumer<List<T>> referenceResolver
+    ) {
+        if (sink.currentSubscriberCount() == 0) {
+            return;
+        }
+
+        // References are resolved once per change set rather than per subscription
+        referenceResolver.accept(changes.stream()
+                .map(EntityChange::getEntity)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+
+        synchronized (sink) {
+            sink.tryEmitNext(changes);
+        }
+    }
+
+    private static <S extends SpatialIndexId, T extends LocationEntity, U> List<U> getUpdates(
+            List<EntityChange<S, T>> changes,
+            BiPredicate<Double, Double> area,
+            Predicate<S> filter,
+            UpdateFactory<T, U> updateFactory
+    ) {
+        List<U> updates = new ArrayList<>();
+        changes.forEach(change -> {
+            var wasIncluded = change.getPreviousIndexId() != null
+                    && filter.test(change.getPreviousIndexId())
+                    && area.test(change.getPreviousLat(), change.getPreviousLon());
+            var isIncluded = change.getIndexId() != null
+                    && filter.test(change.getIndexId())
+                    && area.test(change.getEntity().getLat(), change.getEntity().getLon());
+
+            if (isIncluded) {
+                updates.add(updateFactory.create(wasIncluded ? UpdateType.UPDATE : UpdateType.CREATE, change.getEntityId(), change.getEntity()));
+            } else if (wasIncluded) {
+                updates.add(updateFactory.create(UpdateType.DELETE, change.getEntityId(), null));
+            }
+        });
+        return updates;
+    }
+
+    private static BiPredicate<Double, Double> isWithinRange(RangeQueryParameters rangeQueryParameters) {
+        return (lat, lon) -> lat != null && lon != null && SpatialGrid.distance(
+                rangeQueryParameters.getLon(),
+                rangeQueryParameters.getLat(),
+                lon,
+                lat
+        ) <= rangeQueryParameters.getRange();
+    }
+
+    private static BiPredicate<Double, Double> isWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters) {
+        return (lat, lon) -> lat != null && lon != null
+                && lat >= boundingBoxQueryParameters.getMinimumLatitude()
+                && lat <= boundingBoxQueryParameters.getMaximumLatitude()
+                && lon >= boundingBoxQueryParameters.getMinimumLongitude()
+                && lon <= boundingBoxQueryParameters.getMaximumLongitude();
+    }
+
+    private interface UpdateFactory<T, U> {
+        U create(UpdateType updateType, String entityId, T entity);
+    }
+
+    /**
+     * Listens to a change topic only while this instance has subscriptions, so that the leader
+     * can leave out publishing changes nobody receives.
+     */
+    private static class TopicListener<S extends SpatialIndexId, T extends LocationEntity> {
+        private final EntityChangeTopic<S, T> topic;
+        private final Consumer<List<EntityChange<S, T>>> listener;
+        private int subscriptions;
+        private int listenerId;
+
+        private TopicListener(EntityChangeTopic<S, T> topic, Consumer<List<EntityChange<S, T>>> listener) {
+            this.topic = topic;
+            this.listener = listener;
+        }
+
+        private synchronized void subscribe() {
+            if (subscriptions++ == 0) {
+                listenerId = topic.addListener(listener);
+            }
+        }
+
+        private synchronized void unsubscribe() {
+            if (--subscriptions == 0) {
+                topic.removeListener(listenerId);
+            }
+        }
+    }
+}
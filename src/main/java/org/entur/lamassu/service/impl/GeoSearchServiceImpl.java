@@ -1,37 +1,55 @@
 package org.entur.lamassu.service.impl;
 
+import org.entur.lamassu.cache.SpatialIndexCluster;
 import org.entur.lamassu.cache.StationCache;
 import org.entur.lamassu.cache.StationSpatialIndex;
 import org.entur.lamassu.cache.StationSpatialIndexId;
 import org.entur.lamassu.cache.VehicleCache;
 import org.entur.lamassu.cache.VehicleSpatialIndex;
 import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.model.entities.Cluster;
+import org.entur.lamassu.model.entities.FormFactor;
+import org.entur.lamassu.model.entities.FormFactorCount;
+import org.entur.lamassu.model.entities.PropulsionType;
+import org.entur.lamassu.model.entities.PropulsionTypeCount;
 import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.System;
 import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleType;
+import org.entur.lamassu.service.BoundingBoxQueryParameters;
 import org.entur.lamassu.service.GeoSearchService;
 import org.entur.lamassu.service.RangeQueryParameters;
 import org.entur.lamassu.service.StationFilterParameters;
 import org.entur.lamassu.service.VehicleFilterParameters;
 import org.entur.lamassu.util.SpatialIndexIdFilter;
-import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoPosition;
 import org.redisson.api.GeoUnit;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Component
 public class GeoSearchServiceImpl implements GeoSearchService {
+    private static final int CLUSTERS_PER_TILE = 4;
 
     private final VehicleSpatialIndex vehicleSpatialIndex;
     private final StationSpatialIndex stationSpatialIndex;
     private final VehicleCache vehicleCache;
     private final StationCache stationCache;
 
+    @Value("${org.entur.lamassu.maxNearestRange:50000}")
+    private double maxNearestRange;
+
     @Autowired
     public GeoSearchServiceImpl(VehicleSpatialIndex vehicleSpatialIndex, StationSpatialIndex stationSpatialIndex, VehicleCache vehicleCache, StationCache stationCache) {
         this.vehicleSpatialIndex = vehicleSpatialIndex;
@@ -42,25 +60,21 @@ public class GeoSearchServiceImpl implements GeoSearchService {
 
     @Override
     public List<Vehicle> getVehiclesNearby(RangeQueryParameters rangeQueryParameters, VehicleFilterParameters vehicleFilterParameters) {
+        return getVehicles(getVehicleIdsNearby(rangeQueryParameters, vehicleFilterParameters));
+    }
+
+    @Override
+    public List<VehicleSpatialIndexId> getVehicleIdsNearby(RangeQueryParameters rangeQueryParameters, VehicleFilterParameters vehicleFilterParameters) {
         Double longitude = rangeQueryParameters.getLon();
         Double latitude = rangeQueryParameters.getLat();
         Double range = rangeQueryParameters.getRange();
         Integer count = rangeQueryParameters.getCount();
 
-        List<VehicleSpatialIndexId> indexIds = vehicleSpatialIndex.radius(longitude, latitude, range, GeoUnit.METERS, GeoOrder.ASC);
-
-        var stream = indexIds.stream()
-                .filter(Objects::nonNull)
-                .filter(id -> SpatialIndexIdFilter.filterVehicle(id, vehicleFilterParameters));
-
-        if (count != null) {
-            stream = stream.limit(count.longValue());
-        }
+        Predicate<VehicleSpatialIndexId> filter = id -> SpatialIndexIdFilter.filterVehicle(id, vehicleFilterParameters);
 
-        Set<String> vehicleIds = stream.map(VehicleSpatialIndexId::getId)
-                .collect(Collectors.toSet());
-
-        return vehicleCache.getAll(vehicleIds);
+        return range != null
+                ? vehicleSpatialIndex.radius(longitude, latitude, range, GeoUnit.METERS, filter, count)
+                : vehicleSpatialIndex.nearest(longitude, latitude, maxNearestRange, GeoUnit.METERS, filter, count);
     }
 
     @Override
@@ -70,41 +84,185 @@ public class GeoSearchServiceImpl implements GeoSearchService {
         Double range = rangeQueryParameters.getRange();
         Integer count = rangeQueryParameters.getCount();
 
-        List<StationSpatialIndexId> indexIds = stationSpatialIndex.radius(longitude, latitude, range, GeoUnit.METERS, GeoOrder.ASC);
+        Predicate<StationSpatialIndexId> filter = id -> SpatialIndexIdFilter.filterStation(id, filterParameters);
 
-        var stream = indexIds.stream()
-                .filter(Objects::nonNull)
-                .filter(id -> SpatialIndexIdFilter.filterStation(id, filterParameters));
+        List<StationSpatialIndexId> indexIds = range != null
+                ? stationSpatialIndex.radius(longitude, latitude, range, GeoUnit.METERS, filter, count)
+                : stationSpatialIndex.nearest(longitude, latitude, maxNearestRange, GeoUnit.METERS, filter, count);
 
-        if (count != null) {
-            stream = stream.limit(count.longValue());
-        }
+        // Keep the order of the spatial index, nearest first
+        Set<String> stationIds = indexIds.stream().map(StationSpatialIndexId::getId).collect(Collectors.toCollection(LinkedHashSet::new));
 
-        Set<String> stationIds = stream.map(StationSpatialIndexId::getId).collect(Collectors.toSet());
+        return stationCache.getAll(stationIds, false);
+    }
 
-        return stationCache.getAll(stationIds);
+    @Override
+    public List<Vehicle> getVehiclesWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters, VehicleFilterParameters vehicleFilterParameters) {
+        return getVehicles(getVehicleIdsWithinBoundingBox(boundingBoxQueryParameters, vehicleFilterParameters));
     }
 
     @Override
-    public Collection<String> getVehicleSpatialIndexOrphans() {
-        var indexIds = vehicleSpatialIndex.getAll();
+    public List<VehicleSpatialIndexId> getVehicleIdsWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters, VehicleFilterParameters vehicleFilterParameters) {
+        return vehicleSpatialIndex.box(
+                boundingBoxQueryParameters.getMinimumLongitude(),
+                boundingBoxQueryParameters.getMinimumLatitude(),
+                boundingBoxQueryParameters.getMaximumLongitude(),
+                boundingBoxQueryParameters.getMaximumLatitude(),
+                id -> SpatialIndexIdFilter.filterVehicle(id, vehicleFilterParameters),
+                boundingBoxQueryParameters.getCount()
+        );
+    }
+
+    @Override
+    public List<Vehicle> getVehiclesFromSpatialIndex(List<VehicleSpatialIndexId> indexIds) {
+        var positions = vehicleSpatialIndex.getPositions(indexIds);
+
         return indexIds.stream()
-                .filter(Objects::nonNull)
+                .filter(positions::containsKey)
+                .map(indexId -> mapVehicle(indexId, positions.get(indexId)))
+                .collect(Collectors.toList());
+    }
+
+    private List<Vehicle> getVehicles(List<VehicleSpatialIndexId> indexIds) {
+        // Keep the order of the spatial index, nearest first
+        Set<String> vehicleIds = indexIds.stream().map(VehicleSpatialIndexId::getId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return vehicleCache.getAll(vehicleIds, false);
+    }
+
+    private Vehicle mapVehicle(VehicleSpatialIndexId indexId, GeoPosition position) {
+        var vehicleType = new VehicleType();
+        vehicleType.setFormFactor(indexId.getFormFactor());
+        vehicleType.setPropulsionType(indexId.getPropulsionType());
+
+        var system = new System();
+        system.setId(indexId.getSystemId());
+
+        var vehicle = new Vehicle();
+        vehicle.setId(indexId.getId());
+        vehicle.setLat(position.getLatitude());
+        vehicle.setLon(position.getLongitude());
+        vehicle.setReserved(indexId.getReserved());
+        vehicle.setDisabled(indexId.getDisabled());
+        vehicle.setVehicleType(vehicleType);
+        vehicle.setSystemId(indexId.getSystemId());
+        vehicle.setSystem(system);
+        return vehicle;
+    }
+
+    @Override
+    public List<Station> getStationsWithinBoundingBox(BoundingBoxQueryParameters boundingBoxQueryParameters, StationFilterParameters filterParameters) {
+        List<StationSpatialIndexId> indexIds = stationSpatialIndex.box(
+                boundingBoxQueryParameters.getMinimumLongitude(),
+                boundingBoxQueryParameters.getMinimumLatitude(),
+                boundingBoxQueryParameters.getMaximumLongitude(),
+                boundingBoxQueryParameters.getMaximumLatitude(),
+                id -> SpatialIndexIdFilter.filterStation(id, filterParameters),
+                boundingBoxQueryParameters.getCount()
+        );
+
+        Set<String> stationIds = indexIds.stream().map(StationSpatialIndexId::getId).collect(Collectors.toCollection(LinkedHashSet::new));
+
+        return stationCache.getAll(stationIds, false);
+    }
+
+    @Override
+    public List<Cluster> getVehicleClusters(BoundingBoxQueryParameters boundingBoxQueryParameters, int zoom, VehicleFilterParameters vehicleFilterParameters) {
+        var clusters = vehicleSpatialIndex.clusters(
+                boundingBoxQueryParameters.getMinimumLongitude(),
+                boundingBoxQueryParameters.getMinimumLatitude(),
+                boundingBoxQueryParameters.getMaximumLongitude(),
+                boundingBoxQueryParameters.getMaximumLatitude(),
+                getClusterSize(zoom),
+                id -> SpatialIndexIdFilter.filterVehicle(id, vehicleFilterParameters)
+        );
+
+        return clusters.stream().map(spatialIndexCluster -> {
+            Map<FormFactor, Integer> formFactors = new EnumMap<>(FormFactor.class);
+            Map<PropulsionType, Integer> propulsionTypes = new EnumMap<>(PropulsionType.class);
+            spatialIndexCluster.getCounts().forEach((group, count) -> {
+                if (group.getFormFactor() != null) {
+                    formFactors.merge(group.getFormFactor(), count, Integer::sum);
+                }
+                if (group.getPropulsionType() != null) {
+                    propulsionTypes.merge(group.getPropulsionType(), count, Integer::sum);
+                }
+            });
+            return mapCluster(spatialIndexCluster, formFactors, propulsionTypes);
+        }).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Cluster> getStationClusters(BoundingBoxQueryParameters boundingBoxQueryParameters, int zoom, StationFilterParameters filterParameters) {
+        var clusters = stationSpatialIndex.clusters(
+                boundingBoxQueryParameters.getMinimumLongitude(),
+                boundingBoxQueryParameters.getMinimumLatitude(),
+                boundingBoxQueryParameters.getMaximumLongitude(),
+                boundingBoxQueryParameters.getMaximumLatitude(),
+                getClusterSize(zoom),
+                id -> SpatialIndexIdFilter.filterStation(id, filterParameters)
+        );
+
+        return clusters.stream().map(spatialIndexCluster -> {
+            Map<FormFactor, Integer> formFactors = new EnumMap<>(FormFactor.class);
+            Map<PropulsionType, Integer> propulsionTypes = new EnumMap<>(PropulsionType.class);
+            spatialIndexCluster.getCounts().forEach((group, count) -> {
+                group.getAvailableFormFactors().stream().filter(Objects::nonNull).distinct()
+                        .forEach(formFactor -> formFactors.merge(formFactor, count, Integer::sum));
+                group.getAvailablePropulsionTypes().stream().filter(Objects::nonNull).distinct()
+                        .forEach(propulsionType -> propulsionTypes.merge(propulsionType, count, Integer::sum));
+            });
+            return mapCluster(spatialIndexCluster, formFactors, propulsionTypes);
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Size of the cluster buckets in degrees, giving CLUSTERS_PER_TILE x CLUSTERS_PER_TILE clusters per map tile
+     */
+    private double getClusterSize(int zoom) {
+        return 360d / (1L << zoom) / CLUSTERS_PER_TILE;
+    }
+
+    private Cluster mapCluster(SpatialIndexCluster<?> spatialIndexCluster, Map<FormFactor, Integer> formFactors, Map<PropulsionType, Integer> propulsionTypes) {
+        var cluster = new Cluster();
+        cluster.setLat(spatialIndexCluster.getLatitude());
+        cluster.setLon(spatialIndexCluster.getLongitude());
+        cluster.setCount(spatialIndexCluster.getCount());
+        cluster.setFormFactors(formFactors.entrySet().stream()
+                .map(entry -> new FormFactorCount(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList()));
+        cluster.setPropulsionTypes(propulsionTypes.entrySet().stream()
+                .map(entry -> new PropulsionTypeCount(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList()));
+        return cluster;
+    }
+
+    @Override
+    public Collection<String> getVehicleSpatialIndexOrphans() {
+        return getVehicleSpatialIndexOrphanIds().stream()
                 .map(VehicleSpatialIndexId::getId)
-                .filter(key -> !vehicleCache.hasKey(key))
                 .collect(Collectors.toList());
     }
 
     @Override
     public Collection<String> removeVehicleSpatialIndexOrphans() {
-        var indexIds = vehicleSpatialIndex.getAll();
-        var orphans = indexIds.stream()
-                .filter(Objects::nonNull)
-                .filter(indexId -> !vehicleCache.hasKey(indexId.getId()))
-                .collect(Collectors.toSet());
+        var orphans = getVehicleSpatialIndexOrphanIds();
 
         vehicleSpatialIndex.removeAll(orphans);
 
         return orphans.stream().map(VehicleSpatialIndexId::getId).collect(Collectors.toList());
     }
+
+    private Set<VehicleSpatialIndexId> getVehicleSpatialIndexOrphanIds() {
+        var indexIds = vehicleSpatialIndex.getAll().stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        var existing = vehicleCache.getExistingKeys(
+                indexIds.stream().map(VehicleSpatialIndexId::getId).collect(Collectors.toSet())
+        );
+        return indexIds.stream()
+                .filter(indexId -> !existing.contains(indexId.getId()))
+                .collect(Collectors.toSet());
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.service.impl;
+
+import org.entur.lamassu.cache.GeofencingZonesIndex;
+import org.entur.lamassu.model.entities.GeofencingRules;
+import org.entur.lamassu.model.entities.GeofencingZones;
+import org.entur.lamassu.service.GeofencingRulesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Component
+public class GeofencingRulesServiceImpl implements GeofencingRulesService {
+    private final GeofencingZonesIndex geofencingZonesIndex;
+
+    @Autowired
+    public GeofencingRulesServiceImpl(GeofencingZonesIndex geofencingZonesIndex) {
+        this.geofencingZonesIndex = geofencingZonesIndex;
+    }
+
+    @Override
+    public List<GeofencingRules> getRulesAt(double longitude, double latitude, String vehicleTypeId, Collection<String> systemIds) {
+        var now = Instant.now().getEpochSecond();
+        var result = new ArrayList<GeofencingRules>();
+
+        for (String systemId : systemIds) {
+            // Where zones overlap, the zone listed first takes precedence, and within a zone the rule listed first
+            for (GeofencingZones.Feature zone : geofencingZonesIndex.getZonesAt(systemId, longitude, latitude)) {
+                var properties = zone.getProperties();
+                if (properties == null || !isActive(properties, now)) {
+                    continue;
+                }
+
+                var rule = getRule(properties, vehicleTypeId);
+                if (rule != null) {
+                    result.add(mapRules(systemId, properties.getName(), rule));
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private boolean isActive(GeofencingZones.Properties properties, long now) {
+        return (properties.getStart() == null || properties.getStart() <= now)
+                && (properties.getEnd() == null || properties.getEnd() > now);
+    }
+
+    private GeofencingZones.Rule getRule(GeofencingZones.Properties properties, String vehicleTypeId) {
+        if (properties.getRules() == null) {
+            return null;
+        }
+
+        return properties.getRules().stream()
+                .filter(rule -> rule.getVehicleTypeIds() == null
+                        || rule.getVehicleTypeIds().isEmpty()
+                        || (vehicleTypeId != null && rule.getVehicleTypeIds().contains(vehicleTypeId)))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private GeofencingRules mapRules(String systemId, String zoneName, GeofencingZones.Rule rule) {
+        var rules = new GeofencingRules();
+        rules.setSystemId(systemId);
+        rules.setZoneName(zoneName);
+        rules.setRideAllowed(rule.getRideAllowed());
+        rules.setRideThroughAllowed(rule.getRideThroughAllowed());
+        rules.setMaximumSpeedKph(rule.getMaximumSpeedKph());
+        rules.setStationParking(rule.getStationParking());
+        return rules;
+    }
+}
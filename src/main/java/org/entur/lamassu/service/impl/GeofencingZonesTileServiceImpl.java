@@ -0,0 +1,183 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.entur.lamassu.cache.GeofencingZonesIndex;
+import org.entur.lamassu.model.entities.GeofencingZones;
+import org.entur.lamassu.service.GeofencingZonesTileService;
+import org.entur.lamassu.util.TileGeometryUtil;
+import org.entur.lamassu.util.VectorTileEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders tiles on their first request and keeps them until the geofencing zones index of their
+ * system is rebuilt. Coordinates are clipped to the tile plus a buffer, and simplified within one unit
+ * of the tile extent, so that each zoom level only carries the detail it can display.
+ */
+@Component
+public class GeofencingZonesTileServiceImpl implements GeofencingZonesTileService {
+    static final String LAYER_NAME = "geofencingZones";
+    static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    private static final double SIMPLIFICATION_TOLERANCE = 1.0;
+
+    private final GeofencingZonesIndex geofencingZonesIndex;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Cache<String, byte[]> tiles;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Logger logger = LoggerFactory.getLogger(GeofencingZonesTileServiceImpl.class);
+
+    @Autowired
+    public GeofencingZonesTileServiceImpl(
+            GeofencingZonesIndex geofencingZonesIndex,
+            @Value("${org.entur.lamassu.geofencingZonesTiles.maximumSize:10000}") long maximumSize,
+            @Value("${org.entur.lamassu.geofencingZonesTiles.expireAfterWriteSeconds:300}") long expireAfterWriteSeconds
+    ) {
+        this.geofencingZonesIndex = geofencingZonesIndex;
+        this.tiles = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        geofencingZonesIndex.addListener(systemId -> {
+            getGeneration(systemId).incrementAndGet();
+            tiles.asMap().keySet().removeIf(key -> key.startsWith(systemId + "/"));
+        });
+    }
+
+    @Override
+    public byte[] getTile(String systemId, int z, int x, int y) {
+        // Keys carry the generation of the index they were rendered from, so that a tile whose render
+        // started before a rebuild is never served after it, even if it is stored after the keys were removed
+        var generation = getGeneration(systemId).get();
+        return tiles.get(systemId + "/" + generation + "/" + z + "/" + x + "/" + y, key -> render(systemId, z, x, y));
+    }
+
+    private AtomicLong getGeneration(String systemId) {
+        return generations.computeIfAbsent(systemId, key -> new AtomicLong());
+    }
+
+    private byte[] render(String systemId, int z, int x, int y) {
+        var bounds = TileGeometryUtil.getBounds(z, x, y, EXTENT, BUFFER);
+        var zones = geofencingZonesIndex.getZonesWithin(systemId, bounds[0], bounds[1], bounds[2], bounds[3]);
+        var encoder = new VectorTileEncoder(LAYER_NAME, EXTENT);
+
+        for (GeofencingZones.Feature zone : zones) {
+            var rings = new ArrayList<int[]>();
+            for (List<List<List<Double>>> polygon : zone.getGeometry().getCoordinates()) {
+                rings.addAll(getRings(polygon, z, x, y));
+            }
+
+            if (!rings.isEmpty()) {
+                encoder.addPolygonFeature(rings, getProperties(zone.getProperties()));
+            }
+        }
+
+        logger.debug("Rendered geofencing zones tile {}/{}/{}/{} with {} zones", systemId, z, x, y, zones.size());
+        return encoder.encode();
+    }
+
+    private List<int[]> getRings(List<List<List<Double>>> polygon, int z, int x, int y) {
+        var rings = new ArrayList<int[]>();
+
+        for (int i = 0; i < polygon.size(); i++) {
+            var ring = TileGeometryUtil.project(toCoordinates(polygon.get(i)), z, x, y, EXTENT);
+            ring = TileGeometryUtil.clip(ring, -BUFFER, EXTENT + BUFFER);
+            ring = TileGeometryUtil.simplify(ring, SIMPLIFICATION_TOLERANCE);
+            var rounded = TileGeometryUtil.round(ring);
+            var area = TileGeometryUtil.getArea(rounded);
+
+            if (rounded.length < 6 || area == 0) {
+                if (i == 0) {
+                    // The exterior ring is outside the tile or too small to display, and so are its holes
+                    return rings;
+                }
+                continue;
+            }
+
+            // Exterior rings are clockwise and interior rings counterclockwise in tile coordinates
+            if ((i == 0) != (area > 0)) {
+                rounded = reverse(rounded);
+            }
+            rings.add(rounded);
+        }
+
+        return rings;
+    }
+
+    private Map<String, Object> getProperties(GeofencingZones.Properties properties) {
+        var mapped = new LinkedHashMap<String, Object>();
+        if (properties == null) {
+            return mapped;
+        }
+
+        mapped.put("name", properties.getName());
+        mapped.put("start", properties.getStart());
+        mapped.put("end", properties.getEnd());
+
+        if (properties.getRules() != null) {
+            try {
+                mapped.put("rules", objectMapper.writeValueAsString(properties.getRules()));
+            } catch (JsonProcessingException e) {
+                logger.warn("Failed to write geofencing zone rules of {}", properties.getName(), e);
+            }
+        }
+
+        return mapped;
+    }
+
+    private static double[] toCoordinates(List<List<Double>> ring) {
+        var coordinates = new double[ring.size() * 2];
+        for (int i = 0; i < ring.size(); i++) {
+            coordinates[2 * i] = ring.get(i).get(0);
+            coordinates[2 * i + 1] = ring.get(i).get(1);
+        }
+        return coordinates;
+    }
+
+    private static int[] reverse(int[] ring) {
+        var reversed = new int[ring.length];
+        for (int i = 0; i < ring.length; i += 2) {
+            reversed[ring.length - 2 - i] = ring[i];
+            reversed[ring.length - 1 - i] = ring[i + 1];
+        }
+        return reversed;
+    }
+}
@@ -18,7 +18,12 @@
 
 package org.entur.lamassu.util;
 
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.Vehicle;
+
 import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class CacheUtil {
     private CacheUtil() {}
@@ -27,4 +32,26 @@ public class CacheUtil {
         var now = (int) Instant.now().getEpochSecond();
         return Math.max(lastUpdated + ttl - now, minimumTtl);
     }
+
+    /**
+     * Vehicle type and pricing plan ids are only unique within a codespace, which may be shared by
+     * several systems, so they are cached by the id of their system and their own id.
+     */
+    public static String getSystemScopedKey(String systemId, String id) {
+        return systemId + "_" + id;
+    }
+
+    public static String getVehicleTypeKey(Vehicle vehicle) {
+        return vehicle.getVehicleTypeId() != null ? getSystemScopedKey(vehicle.getSystemId(), vehicle.getVehicleTypeId()) : null;
+    }
+
+    public static String getPricingPlanKey(Vehicle vehicle) {
+        return vehicle.getPricingPlanId() != null ? getSystemScopedKey(vehicle.getSystemId(), vehicle.getPricingPlanId()) : null;
+    }
+
+    public static List<String> getPricingPlanKeys(Station station) {
+        return station.getPricingPlanIds().stream()
+                .map(id -> getSystemScopedKey(station.getSystemId(), id))
+                .collect(Collectors.toList());
+    }
 }
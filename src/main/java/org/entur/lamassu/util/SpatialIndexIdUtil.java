@@ -4,6 +4,7 @@ import org.entur.lamassu.cache.StationSpatialIndexId;
 import org.entur.lamassu.cache.VehicleSpatialIndexId;
 import org.entur.lamassu.model.entities.Station;
 import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleType;
 import org.entur.lamassu.model.entities.VehicleTypeAvailability;
 import org.entur.lamassu.model.provider.FeedProvider;
 
@@ -13,13 +14,17 @@ public class SpatialIndexIdUtil {
     private SpatialIndexIdUtil() {}
 
     public static VehicleSpatialIndexId createVehicleSpatialIndexId(Vehicle vehicle, FeedProvider feedProvider) {
+        return createVehicleSpatialIndexId(vehicle, vehicle.getVehicleType(), feedProvider);
+    }
+
+    public static VehicleSpatialIndexId createVehicleSpatialIndexId(Vehicle vehicle, VehicleType vehicleType, FeedProvider feedProvider) {
         var id = new VehicleSpatialIndexId();
         id.setId(vehicle.getId());
         id.setCodespace(feedProvider.getCodespace());
         id.setSystemId(feedProvider.getSystemId());
         id.setOperatorId(feedProvider.getOperatorId());
-        id.setFormFactor(vehicle.getVehicleType().getFormFactor());
-        id.setPropulsionType(vehicle.getVehicleType().getPropulsionType());
+        id.setFormFactor(vehicleType.getFormFactor());
+        id.setPropulsionType(vehicleType.getPropulsionType());
         id.setReserved(vehicle.getReserved());
         id.setDisabled(vehicle.getDisabled());
         return id;
@@ -0,0 +1,212 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.util;
+
+import java.util.Arrays;
+
+/**
+ * Projection of rings of interleaved longitude and latitude coordinates to the coordinates of a web
+ * mercator tile, and their clipping and simplification within the tile.
+ */
+public class TileGeometryUtil {
+    private static final double MAX_LATITUDE = 85.0511287798;
+
+    private TileGeometryUtil() {}
+
+    /**
+     * The minimum longitude, minimum latitude, maximum longitude and maximum latitude of the tile,
+     * extended on each side by buffer in tile coordinates
+     */
+    public static double[] getBounds(int z, int x, int y, int extent, int buffer) {
+        double margin = buffer / (double) extent;
+        double n = Math.pow(2, z);
+
+        return new double[] {
+                x2lon(x - margin, n),
+                y2lat(y + 1 + margin, n),
+                x2lon(x + 1 + margin, n),
+                y2lat(y - margin, n)
+        };
+    }
+
+    /**
+     * Project a closed ring to tile coordinates, leaving out the closing point
+     */
+    public static double[] project(double[] ring, int z, int x, int y, int extent) {
+        double n = Math.pow(2, z);
+        int points = ring.length / 2;
+        if (points > 1 && ring[0] == ring[ring.length - 2] && ring[1] == ring[ring.length - 1]) {
+            points--;
+        }
+
+        var projected = new double[points * 2];
+        for (int i = 0; i < points; i++) {
+            double lon = ring[2 * i];
+            double lat = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, ring[2 * i + 1]));
+            double sin = Math.sin(Math.toRadians(lat));
+
+            projected[2 * i] = ((lon + 180) / 360 * n - x) * extent;
+            projected[2 * i + 1] = ((0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI)) * n - y) * extent;
+        }
+        return projected;
+    }
+
+    /**
+     * Clip an open ring to the square from min to max on both axes, with Sutherland-Hodgman
+     */
+    public static double[] clip(double[] ring, double min, double max) {
+        ring = clipEdge(ring, 0, min, false);
+        ring = clipEdge(ring, 0, max, true);
+        ring = clipEdge(ring, 1, min, false);
+        return clipEdge(ring, 1, max, true);
+    }
+
+    private static double[] clipEdge(double[] ring, int axis, double edge, boolean keepBelow) {
+        int points = ring.length / 2;
+        var clipped = new double[points * 4];
+        int size = 0;
+
+        for (int i = 0; i < points; i++) {
+            int j = (i + points - 1) % points;
+            boolean inside = keepBelow ? ring[2 * i + axis] <= edge : ring[2 * i + axis] >= edge;
+            boolean previousInside = keepBelow ? ring[2 * j + axis] <= edge : ring[2 * j + axis] >= edge;
+
+            if (inside != previousInside) {
+                double t = (edge - ring[2 * j + axis]) / (ring[2 * i + axis] - ring[2 * j + axis]);
+                clipped[size++] = ring[2 * j] + t * (ring[2 * i] - ring[2 * j]);
+                clipped[size++] = ring[2 * j + 1] + t * (ring[2 * i + 1] - ring[2 * j + 1]);
+            }
+            if (inside) {
+                clipped[size++] = ring[2 * i];
+                clipped[size++] = ring[2 * i + 1];
+            }
+        }
+
+        return Arrays.copyOf(clipped, size);
+    }
+
+    /**
+     * Simplify an open ring with Douglas-Peucker, keeping the points further than tolerance from the simplified ring
+     */
+    public static double[] simplify(double[] ring, double tolerance) {
+        int points = ring.length / 2;
+        if (points < 4) {
+            return ring;
+        }
+
+        var keep = new boolean[points + 1];
+        keep[0] = true;
+        keep[points] = true;
+        simplify(ring, points, 0, points, tolerance * tolerance, keep);
+
+        var simplified = new double[points * 2];
+        int size = 0;
+        for (int i = 0; i < points; i++) {
+            if (keep[i]) {
+                simplified[size++] = ring[2 * i];
+                simplified[size++] = ring[2 * i + 1];
+            }
+        }
+        return Arrays.copyOf(simplified, size);
+    }
+
+    private static void simplify(double[] ring, int points, int first, int last, double squaredTolerance, boolean[] keep) {
+        double maxSquaredDistance = squaredTolerance;
+        int index = -1;
+
+        for (int i = first + 1; i < last; i++) {
+            double squaredDistance = squaredSegmentDistance(ring, i, first, last % points);
+            if (squaredDistance > maxSquaredDistance) {
+                maxSquaredDistance = squaredDistance;
+                index = i;
+            }
+        }
+
+        if (index != -1) {
+            keep[index] = true;
+            simplify(ring, points, first, index, squaredTolerance, keep);
+            simplify(ring, points, index, last, squaredTolerance, keep);
+        }
+    }
+
+    private static double squaredSegmentDistance(double[] ring, int point, int start, int end) {
+        double x = ring[2 * start];
+        double y = ring[2 * start + 1];
+        double dx = ring[2 * end] - x;
+        double dy = ring[2 * end + 1] - y;
+
+        if (dx != 0 || dy != 0) {
+            double t = ((ring[2 * point] - x) * dx + (ring[2 * point + 1] - y) * dy) / (dx * dx + dy * dy);
+            if (t > 1) {
+                x = ring[2 * end];
+                y = ring[2 * end + 1];
+            } else if (t > 0) {
+                x += dx * t;
+                y += dy * t;
+            }
+        }
+
+        dx = ring[2 * point] - x;
+        dy = ring[2 * point + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Round an open ring to integer coordinates, dropping repeated points
+     */
+    public static int[] round(double[] ring) {
+        var rounded = new int[ring.length];
+        int size = 0;
+
+        for (int i = 0; i + 1 < ring.length; i += 2) {
+            int x = (int) Math.round(ring[i]);
+            int y = (int) Math.round(ring[i + 1]);
+            if (size == 0 || x != rounded[size - 2] || y != rounded[size - 1]) {
+                rounded[size++] = x;
+                rounded[size++] = y;
+            }
+        }
+
+        while (size > 2 && rounded[0] == rounded[size - 2] && rounded[1] == rounded[size - 1]) {
+            size -= 2;
+        }
+        return Arrays.copyOf(rounded, size);
+    }
+
+    /**
+     * Twice the signed area of an open ring, positive when clockwise in tile coordinates where y points down
+     */
+    public static long getArea(int[] ring) {
+        long area = 0;
+        int points = ring.length / 2;
+        for (int i = 0, j = points - 1; i < points; j = i++) {
+            area += (long) ring[2 * j] * ring[2 * i + 1] - (long) ring[2 * i] * ring[2 * j + 1];
+        }
+        return area;
+    }
+
+    private static double x2lon(double x, double n) {
+        return x / n * 360 - 180;
+    }
+
+    private static double y2lat(double y, double n) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a single layer of polygon features as a Mapbox Vector Tile (version 2.1), writing the
+ * protocol buffers wire format of vector_tile.proto directly.
+ */
+public class VectorTileEncoder {
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_64_BIT = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+    private static final int COMMAND_MOVE_TO = 1;
+    private static final int COMMAND_LINE_TO = 2;
+    private static final int COMMAND_CLOSE_PATH = 7;
+
+    private static final int GEOMETRY_TYPE_POLYGON = 3;
+
+    private final String layerName;
+    private final int extent;
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    private final Map<Object, Integer> values = new LinkedHashMap<>();
+    private final List<byte[]> features = new ArrayList<>();
+
+    public VectorTileEncoder(String layerName, int extent) {
+        this.layerName = layerName;
+        this.extent = extent;
+    }
+
+    /**
+     * Add a polygon feature from rings in tile coordinates, each exterior ring clockwise and followed by its
+     * interior rings counterclockwise. Properties with null values are left out.
+     */
+    public void addPolygonFeature(List<int[]> rings, Map<String, Object> properties) {
+        var feature = new ProtobufWriter();
+        feature.writePacked(2, getTags(properties));
+        feature.writeVarint(3, GEOMETRY_TYPE_POLYGON);
+        feature.writePacked(4, getGeometry(rings));
+        features.add(feature.toByteArray());
+    }
+
+    public byte[] encode() {
+        if (features.isEmpty()) {
+            return new byte[0];
+        }
+
+        var layer = new ProtobufWriter();
+        layer.writeVarint(15, 2);
+        layer.writeString(1, layerName);
+        features.forEach(feature -> layer.writeBytes(2, feature));
+        keys.keySet().forEach(key -> layer.writeString(3, key));
+        values.keySet().forEach(value -> layer.writeBytes(4, encodeValue(value)));
+        layer.writeVarint(5, extent);
+
+        var tile = new ProtobufWriter();
+        tile.writeBytes(3, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    private List<Long> getTags(Map<String, Object> properties) {
+        var tags = new ArrayList<Long>();
+        properties.forEach((key, value) -> {
+            if (value != null) {
+                tags.add((long) keys.computeIfAbsent(key, k -> keys.size()));
+                tags.add((long) values.computeIfAbsent(value, v -> values.size()));
+            }
+        });
+        return tags;
+    }
+
+    private static List<Long> getGeometry(List<int[]> rings) {
+        var geometry = new ArrayList<Long>();
+        int cursorX = 0;
+        int cursorY = 0;
+
+        for (int[] ring : rings) {
+            int points = ring.length / 2;
+            for (int i = 0; i < points; i++) {
+                if (i == 0) {
+                    geometry.add(command(COMMAND_MOVE_TO, 1));
+                } else if (i == 1) {
+                    geometry.add(command(COMMAND_LINE_TO, points - 1));
+                }
+                geometry.add(zigZag(ring[2 * i] - cursorX));
+                geometry.add(zigZag(ring[2 * i + 1] - cursorY));
+                cursorX = ring[2 * i];
+                cursorY = ring[2 * i + 1];
+            }
+            geometry.add(command(COMMAND_CLOSE_PATH, 1));
+        }
+
+        return geometry;
+    }
+
+    private static byte[] encodeValue(Object value) {
+        var writer = new ProtobufWriter();
+        if (value instanceof Boolean) {
+            writer.writeVarint(7, (Boolean) value ? 1 : 0);
+        } else if (value instanceof Integer || value instanceof Long) {
+            writer.writeVarint(6, zigZag(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            writer.writeDouble(3, ((Number) value).doubleValue());
+        } else {
+            writer.writeString(1, value.toString());
+        }
+        return writer.toByteArray();
+    }
+
+    private static long command(int id, int count) {
+        return (id & 0x7) | ((long) count << 3);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static class ProtobufWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void writeVarint(int field, long value) {
+            writeTag(field, WIRE_TYPE_VARINT);
+            writeRawVarint(value);
+        }
+
+        void writeDouble(int field, double value) {
+            writeTag(field, WIRE_TYPE_64_BIT);
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)) & 0xFF);
+            }
+        }
+
+        void writeString(int field, String value) {
+            writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeBytes(int field, byte[] value) {
+            writeTag(field, WIRE_TYPE_LENGTH_DELIMITED);
+            writeRawVarint(value.length);
+            out.write(value, 0, value.length);
+        }
+
+        void writePacked(int field, List<Long> values) {
+            var packed = new ProtobufWriter();
+            values.forEach(packed::writeRawVarint);
+            writeBytes(field, packed.toByteArray());
+        }
+
+        private void writeTag(int field, int wireType) {
+            writeRawVarint(((long) field << 3) | wireType);
+        }
+
+        private void writeRawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
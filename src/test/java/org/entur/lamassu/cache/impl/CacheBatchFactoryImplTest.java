@@ -0,0 +1,173 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisTimeoutException;
+import org.redisson.codec.Kryo5Codec;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheBatchFactoryImplTest {
+    private static final int REDIS_PORT = 6391;
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    private VehicleCacheImpl vehicleCache;
+    private VehicleSpatialIndexImpl spatialIndex;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        var config = new Config();
+        config.setCodec(new Kryo5Codec(CacheBatchFactoryImplTest.class.getClassLoader()));
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setup() {
+        vehicleCache = new VehicleCacheImpl(
+                redissonClient.getMapCache("vehicleCacheTest"),
+                Optional.empty(),
+                mock(EntityReferenceResolver.class)
+        );
+        spatialIndex = new VehicleSpatialIndexImpl(
+                redissonClient.getGeo("vehicleSpatialIndexTest"),
+                redissonClient.getScoredSortedSet("vehicleSpatialIndexExpiriesTest"),
+                redissonClient
+        );
+    }
+
+    @AfterEach
+    void cleanup() {
+        redissonClient.getKeys().flushall();
+    }
+
+    @Test
+    void testWritesAreSentOnExecute() {
+        var batch = new CacheBatchFactoryImpl(redissonClient, false, 10).createBatch();
+
+        vehicleCache.updateAll(batch, Map.of("foo", getVehicle("foo")), 60, TimeUnit.SECONDS);
+        spatialIndex.addAll(batch, Map.of(getIndexId("foo"), getVehicle("foo")), 60, TimeUnit.SECONDS);
+
+        Assertions.assertFalse(vehicleCache.hasKey("foo"));
+        Assertions.assertTrue(spatialIndex.getAll().isEmpty());
+
+        batch.execute();
+
+        Assertions.assertTrue(vehicleCache.hasKey("foo"));
+        Assertions.assertEquals(1, spatialIndex.getAll().size());
+
+        vehicleCache.removeAll(batch, Set.of("foo"));
+        spatialIndex.removeAll(batch, Set.of(getIndexId("foo")));
+        batch.execute();
+
+        Assertions.assertFalse(vehicleCache.hasKey("foo"));
+        Assertions.assertTrue(spatialIndex.getAll().isEmpty());
+        Assertions.assertTrue(spatialIndex.removeExpired().isEmpty());
+    }
+
+    @Test
+    void testFullChunksAreExecutedBeforeAddingMoreWrites() {
+        var batch = new CacheBatchFactoryImpl(redissonClient, true, 2).createBatch();
+
+        var vehicles = new HashMap<String, Vehicle>();
+        for (int i = 0; i < 5; i++) {
+            vehicles.put("vehicle" + i, getVehicle("vehicle" + i));
+        }
+
+        vehicleCache.updateAll(batch, vehicles, 60, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(4, vehicleCache.getAllAsMap(vehicles.keySet()).size());
+
+        batch.execute();
+
+        Assertions.assertEquals(5, vehicleCache.getAllAsMap(vehicles.keySet()).size());
+    }
+
+    @Test
+    void testFailedChunkThrowsWithoutRunningCallbacks() {
+        var failingClient = mock(RedissonClient.class);
+        var failingBatch = mock(RBatch.class);
+        when(failingClient.createBatch(any())).thenReturn(failingBatch);
+        when(failingBatch.execute()).thenThrow(new RedisTimeoutException("timed out"));
+
+        var batch = new CacheBatchFactoryImpl(failingClient, false, 10).createBatch();
+        var callbackRun = new AtomicBoolean();
+        batch.getBatch(1);
+        batch.onExecuted(() -> callbackRun.set(true));
+
+        Assertions.assertThrows(RedisTimeoutException.class, batch::execute);
+        Assertions.assertFalse(callbackRun.get());
+
+        // The failed chunk is discarded
+        batch.execute();
+        verify(failingBatch, times(1)).execute();
+    }
+
+    private VehicleSpatialIndexId getIndexId(String id) {
+        var indexId = new VehicleSpatialIndexId();
+        indexId.setId(id);
+        indexId.setCodespace("TST");
+        indexId.setSystemId("test");
+        return indexId;
+    }
+
+    private Vehicle getVehicle(String id) {
+        var vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setLon(10.75);
+        vehicle.setLat(59.91);
+        return vehicle;
+    }
+}
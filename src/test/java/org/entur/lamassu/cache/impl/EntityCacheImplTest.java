@@ -0,0 +1,121 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.CacheBatch;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RMapCacheAsync;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.misc.CompletableFutureWrapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EntityCacheImplTest {
+
+    @SuppressWarnings("unchecked")
+    private final RMapCache<String, Vehicle> redisCache = mock(RMapCache.class);
+    private final RTopic invalidations = mock(RTopic.class);
+    private final VehicleCacheImpl vehicleCache = new VehicleCacheImpl(
+            redisCache,
+            Optional.of(new NearCache<>(invalidations, 100, Duration.ofMinutes(1))),
+            mock(EntityReferenceResolver.class)
+    );
+
+    @Test
+    void getIsServedFromNearCacheAfterFirstRead() {
+        var vehicle = getVehicle("foo_1");
+        when(redisCache.getAsync("foo_1")).thenReturn(new CompletableFutureWrapper<>(vehicle));
+
+        Assertions.assertEquals(vehicle, vehicleCache.get("foo_1"));
+        Assertions.assertEquals(vehicle, vehicleCache.get("foo_1"));
+        verify(redisCache, times(1)).getAsync("foo_1");
+    }
+
+    @Test
+    void getAllAsMapOnlyFetchesMissingKeys() {
+        var vehicle1 = getVehicle("foo_1");
+        var vehicle2 = getVehicle("foo_2");
+        when(redisCache.getAsync("foo_1")).thenReturn(new CompletableFutureWrapper<>(vehicle1));
+        when(redisCache.getAllAsync(Set.of("foo_2"))).thenReturn(new CompletableFutureWrapper<>(Map.of("foo_2", vehicle2)));
+
+        vehicleCache.get("foo_1");
+
+        Assertions.assertEquals(Map.of("foo_1", vehicle1, "foo_2", vehicle2), vehicleCache.getAllAsMap(Set.of("foo_1", "foo_2")));
+        verify(redisCache).getAllAsync(Set.of("foo_2"));
+    }
+
+    @Test
+    void updateAllInvalidatesNearCache() {
+        var vehicle = getVehicle("foo_1");
+        when(redisCache.getAsync("foo_1")).thenReturn(new CompletableFutureWrapper<>(vehicle));
+
+        vehicleCache.get("foo_1");
+        vehicleCache.updateAll(Map.of("foo_1", vehicle), 60, TimeUnit.SECONDS);
+        vehicleCache.get("foo_1");
+
+        verify(redisCache, times(2)).getAsync("foo_1");
+        verify(invalidations).publishAsync(Set.of("foo_1"));
+    }
+
+    @Test
+    void failedBatchUpdateInvalidatesNearCache() {
+        var redisBatch = mock(RBatch.class);
+        var redissonClient = mock(RedissonClient.class);
+        when(redissonClient.createBatch(any())).thenReturn(redisBatch);
+        when(redisBatch.getMapCache(any(), any())).thenReturn(mock(RMapCacheAsync.class));
+        when(redisBatch.execute()).thenThrow(new RedisException("Partly applied"));
+        var batch = new CacheBatch(redissonClient, BatchOptions.defaults(), 100);
+
+        vehicleCache.updateAll(batch, Map.of("foo_1", getVehicle("foo_1")), 60, TimeUnit.SECONDS);
+
+        Assertions.assertThrows(RedisException.class, batch::execute);
+        verify(invalidations).publishAsync(Set.of("foo_1"));
+    }
+
+    @Test
+    void getExistingKeysReturnsKeysInCache() {
+        when(redisCache.containsKeyAsync("foo_1")).thenReturn(new CompletableFutureWrapper<>(true));
+        when(redisCache.containsKeyAsync("foo_2")).thenReturn(new CompletableFutureWrapper<>(false));
+
+        Assertions.assertEquals(Set.of("foo_1"), vehicleCache.getExistingKeys(Set.of("foo_1", "foo_2")));
+    }
+
+    private Vehicle getVehicle(String id) {
+        var vehicle = new Vehicle();
+        vehicle.setId(id);
+        return vehicle;
+    }
+}
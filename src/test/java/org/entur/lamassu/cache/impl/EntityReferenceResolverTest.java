@@ -0,0 +1,219 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.Station;
+import org.entur.lamassu.model.entities.System;
+import org.entur.lamassu.model.entities.TranslatedString;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleType;
+import org.entur.lamassu.util.CacheUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.Kryo5Codec;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+class EntityReferenceResolverTest {
+    private static final int REDIS_PORT = 6392;
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    private RMapCache<String, Vehicle> vehicleRedisCache;
+    private VehicleTypeCacheImpl vehicleTypeCache;
+    private PricingPlanCacheImpl pricingPlanCache;
+    private SystemCacheImpl systemCache;
+    private VehicleCacheImpl vehicleCache;
+    private StationCacheImpl stationCache;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        var config = new Config();
+        config.setCodec(new Kryo5Codec(EntityReferenceResolverTest.class.getClassLoader()));
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setup() {
+        vehicleTypeCache = new VehicleTypeCacheImpl(redissonClient.getMapCache("vehicleTypeCacheTest"), createNearCache("vehicleTypeCacheInvalidationsTest"));
+        pricingPlanCache = new PricingPlanCacheImpl(redissonClient.getMapCache("pricingPlanCacheTest"), createNearCache("pricingPlanCacheInvalidationsTest"));
+        systemCache = new SystemCacheImpl(redissonClient.getMapCache("systemCacheTest"), createNearCache("systemCacheInvalidationsTest"));
+
+        var resolver = new EntityReferenceResolver(vehicleTypeCache, pricingPlanCache, systemCache);
+        vehicleRedisCache = redissonClient.getMapCache("vehicleCacheTest");
+        vehicleCache = new VehicleCacheImpl(vehicleRedisCache, Optional.empty(), resolver);
+        stationCache = new StationCacheImpl(redissonClient.getMapCache("stationCacheTest"), Optional.empty(), resolver);
+    }
+
+    @AfterEach
+    void cleanup() {
+        redissonClient.getKeys().flushall();
+    }
+
+    @Test
+    void testVehiclesAreCachedWithReferencesById() {
+        vehicleCache.updateAll(Map.of("foo", getVehicle()), 60, TimeUnit.SECONDS);
+
+        var cached = vehicleRedisCache.get("foo");
+        Assertions.assertEquals("TST:VehicleType:1", cached.getVehicleTypeId());
+        Assertions.assertNull(cached.getVehicleType());
+        Assertions.assertNull(cached.getPricingPlan());
+        Assertions.assertNull(cached.getSystem());
+    }
+
+    @Test
+    void testVehicleReferencesAreResolved() {
+        writeReferences();
+        vehicleCache.updateAll(Map.of("foo", getVehicle()), 60, TimeUnit.SECONDS);
+
+        var vehicle = vehicleCache.get("foo");
+        Assertions.assertEquals("TST:VehicleType:1", vehicle.getVehicleType().getId());
+        Assertions.assertEquals("TST:PricingPlan:1", vehicle.getPricingPlan().getId());
+        Assertions.assertEquals("tst", vehicle.getSystem().getId());
+
+        var vehicles = vehicleCache.getAll(Set.of("foo"));
+        Assertions.assertEquals("TST:VehicleType:1", vehicles.get(0).getVehicleType().getId());
+    }
+
+    @Test
+    void testVehicleReferencesAreNotResolvedWhenNotRequested() {
+        writeReferences();
+        vehicleCache.updateAll(Map.of("foo", getVehicle()), 60, TimeUnit.SECONDS);
+
+        var vehicle = vehicleCache.getAll(Set.of("foo"), false).get(0);
+        Assertions.assertEquals("TST:VehicleType:1", vehicle.getVehicleTypeId());
+        Assertions.assertNull(vehicle.getVehicleType());
+    }
+
+    @Test
+    void testReferencesAreNotResolvedOntoNearCachedVehicles() {
+        writeReferences();
+        NearCache<Vehicle> nearCache = createNearCache("vehicleCacheInvalidationsTest");
+        var nearCachedVehicleCache = new VehicleCacheImpl(
+                vehicleRedisCache,
+                Optional.of(nearCache),
+                new EntityReferenceResolver(vehicleTypeCache, pricingPlanCache, systemCache)
+        );
+        nearCachedVehicleCache.updateAll(Map.of("foo", getVehicle()), 60, TimeUnit.SECONDS);
+
+        var vehicle = nearCachedVehicleCache.getAllAsMap(Set.of("foo")).get("foo");
+        Assertions.assertEquals("TST:VehicleType:1", vehicle.getVehicleType().getId());
+        Assertions.assertNull(nearCache.getIfPresent("foo").getVehicleType());
+        Assertions.assertNotSame(vehicle, nearCachedVehicleCache.get("foo"));
+        Assertions.assertNull(nearCache.getIfPresent("foo").getVehicleType());
+    }
+
+    @Test
+    void testStationReferencesAreResolved() {
+        writeReferences();
+
+        var station = new Station();
+        station.setId("bar");
+        station.setSystemId("tst");
+        station.setPricingPlanIds(List.of("TST:PricingPlan:1", "TST:PricingPlan:missing"));
+        stationCache.updateAll(Map.of("bar", station), 60, TimeUnit.SECONDS);
+
+        var cached = stationCache.get("bar");
+        Assertions.assertEquals("tst", cached.getSystem().getId());
+        Assertions.assertEquals(1, cached.getPricingPlans().size());
+        Assertions.assertEquals("TST:PricingPlan:1", cached.getPricingPlans().get(0).getId());
+    }
+
+    @Test
+    void testReferencesOfSystemsSharingACodespaceAreKeptApart() {
+        writeReferences();
+
+        var otherVehicleType = new VehicleType();
+        otherVehicleType.setId("TST:VehicleType:1");
+        otherVehicleType.setName(new TranslatedString());
+        vehicleTypeCache.updateAll(Map.of(CacheUtil.getSystemScopedKey("other", otherVehicleType.getId()), otherVehicleType), 60, TimeUnit.SECONDS);
+
+        var otherVehicle = getVehicle();
+        otherVehicle.setId("baz");
+        otherVehicle.setSystemId("other");
+        vehicleCache.updateAll(Map.of("foo", getVehicle(), "baz", otherVehicle), 60, TimeUnit.SECONDS);
+
+        Assertions.assertNull(vehicleCache.get("foo").getVehicleType().getName());
+        Assertions.assertNotNull(vehicleCache.get("baz").getVehicleType().getName());
+    }
+
+    private void writeReferences() {
+        var vehicleType = new VehicleType();
+        vehicleType.setId("TST:VehicleType:1");
+        vehicleTypeCache.updateAll(Map.of(CacheUtil.getSystemScopedKey("tst", vehicleType.getId()), vehicleType), 60, TimeUnit.SECONDS);
+
+        var pricingPlan = new PricingPlan();
+        pricingPlan.setId("TST:PricingPlan:1");
+        pricingPlanCache.updateAll(Map.of(CacheUtil.getSystemScopedKey("tst", pricingPlan.getId()), pricingPlan), 60, TimeUnit.SECONDS);
+
+        var system = new System();
+        system.setId("tst");
+        systemCache.updateAll(Map.of(system.getId(), system), 60, TimeUnit.SECONDS);
+    }
+
+    private Vehicle getVehicle() {
+        var vehicleType = new VehicleType();
+        vehicleType.setId("TST:VehicleType:1");
+        var pricingPlan = new PricingPlan();
+        pricingPlan.setId("TST:PricingPlan:1");
+        var system = new System();
+        system.setId("tst");
+
+        var vehicle = new Vehicle();
+        vehicle.setId("foo");
+        vehicle.setVehicleTypeId(vehicleType.getId());
+        vehicle.setVehicleType(vehicleType);
+        vehicle.setPricingPlanId(pricingPlan.getId());
+        vehicle.setPricingPlan(pricingPlan);
+        vehicle.setSystemId(system.getId());
+        vehicle.setSystem(system);
+        return vehicle;
+    }
+
+    private <T> NearCache<T> createNearCache(String invalidationsKey) {
+        return new NearCache<>(redissonClient.getTopic(invalidationsKey), 100, Duration.ofMinutes(1));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.cache.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class PolygonRTreeTest {
+
+    @Test
+    void testPointWithinPolygon() {
+        var tree = new PolygonRTree(List.of(square(0, 0, 0, 1)));
+
+        Assertions.assertEquals(List.of(0), new ArrayList<>(tree.query(0.5, 0.5)));
+        Assertions.assertTrue(tree.query(1.5, 0.5).isEmpty());
+    }
+
+    @Test
+    void testPointWithinHoleIsOutside() {
+        var polygon = new PolygonRTree.Polygon(0, new double[][] {
+                ring(0, 0, 4),
+                ring(1, 1, 2)
+        });
+        var tree = new PolygonRTree(List.of(polygon));
+
+        Assertions.assertTrue(tree.query(2, 2).isEmpty());
+        Assertions.assertFalse(tree.query(0.5, 0.5).isEmpty());
+    }
+
+    @Test
+    void testOverlappingPolygonsAreReturnedInOrder() {
+        var tree = new PolygonRTree(List.of(square(2, 0, 0, 2), square(1, 1, 1, 2)));
+
+        Assertions.assertEquals(List.of(1, 2), new ArrayList<>(tree.query(1.5, 1.5)));
+    }
+
+    @Test
+    void testManyPolygons() {
+        var polygons = new ArrayList<PolygonRTree.Polygon>();
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 100; y++) {
+                polygons.add(square(x * 100 + y, x, y, 1));
+            }
+        }
+        var tree = new PolygonRTree(polygons);
+
+        Assertions.assertEquals(10000, tree.size());
+        Assertions.assertEquals(List.of(4217), new ArrayList<>(tree.query(42.5, 17.5)));
+        Assertions.assertTrue(tree.query(-0.5, 17.5).isEmpty());
+    }
+
+    @Test
+    void testEnvelopeQuery() {
+        var tree = new PolygonRTree(List.of(square(0, 0, 0, 1), square(1, 5, 5, 1), square(2, 10, 10, 1)));
+
+        Assertions.assertEquals(List.of(0, 1), new ArrayList<>(tree.query(0.5, 0.5, 5.5, 5.5)));
+        Assertions.assertTrue(tree.query(2, 2, 4, 4).isEmpty());
+    }
+
+    @Test
+    void testEmptyTree() {
+        Assertions.assertTrue(new PolygonRTree(List.of()).query(0, 0).isEmpty());
+    }
+
+    private static PolygonRTree.Polygon square(int value, double x, double y, double size) {
+        return new PolygonRTree.Polygon(value, new double[][] { ring(x, y, size) });
+    }
+
+    private static double[] ring(double x, double y, double size) {
+        return new double[] { x, y, x + size, y, x + size, y + size, x, y + size, x, y };
+    }
+}
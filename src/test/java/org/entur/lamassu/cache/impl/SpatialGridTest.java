@@ -0,0 +1,230 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.GeoOrder;
+import org.redisson.api.GeoUnit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+class SpatialGridTest {
+
+    private SpatialGrid<String> grid;
+
+    @BeforeEach
+    void setup() {
+        grid = new SpatialGrid<>(0.01);
+        grid.put("center", 10.7522, 59.9139);
+        grid.put("near", 10.7540, 59.9139);
+        grid.put("far", 10.8000, 59.9139);
+    }
+
+    @Test
+    void radiusReturnsEntriesWithinRadiusInAscendingOrder() {
+        Assertions.assertEquals(
+                List.of("center", "near"),
+                grid.radius(10.7522, 59.9139, 500d, GeoUnit.METERS, GeoOrder.ASC)
+        );
+    }
+
+    @Test
+    void radiusReturnsEntriesInDescendingOrder() {
+        Assertions.assertEquals(
+                List.of("far", "near", "center"),
+                grid.radius(10.7522, 59.9139, 5d, GeoUnit.KILOMETERS, GeoOrder.DESC)
+        );
+    }
+
+    @Test
+    void radiusSpansMultipleCells() {
+        grid.put("north", 10.7522, 59.9350);
+        Assertions.assertEquals(
+                List.of("center", "near", "north"),
+                grid.radius(10.7522, 59.9139, 2500d, GeoUnit.METERS, GeoOrder.ASC)
+        );
+    }
+
+    @Test
+    void putMovesExistingEntry() {
+        grid.put("far", 10.7530, 59.9139);
+        Assertions.assertEquals(
+                List.of("center", "far", "near"),
+                grid.radius(10.7522, 59.9139, 500d, GeoUnit.METERS, GeoOrder.ASC)
+        );
+        Assertions.assertEquals(3, grid.size());
+    }
+
+    @Test
+    void removeDeletesEntry() {
+        grid.remove("near");
+        Assertions.assertEquals(
+                List.of("center"),
+                grid.radius(10.7522, 59.9139, 500d, GeoUnit.METERS, GeoOrder.ASC)
+        );
+        Assertions.assertEquals(2, grid.getAll().size());
+    }
+
+    @Test
+    void filteredRadiusReturnsNearestMatchesUpToCount() {
+        grid.put("north", 10.7522, 59.9350);
+        Assertions.assertEquals(
+                List.of("near", "north"),
+                grid.radius(10.7522, 59.9139, 5000d, GeoUnit.METERS, id -> !id.equals("center"), 2)
+        );
+    }
+
+    @Test
+    void filteredRadiusWithoutCountReturnsAllMatches() {
+        Assertions.assertEquals(
+                List.of("center", "far"),
+                grid.radius(10.7522, 59.9139, 5000d, GeoUnit.METERS, id -> !id.equals("near"), null)
+        );
+    }
+
+    @Test
+    void nearestReturnsCountNearestMatches() {
+        grid.put("north", 10.7522, 59.9350);
+        Assertions.assertEquals(
+                List.of("center", "near", "north"),
+                grid.nearest(10.7522, 59.9139, 50d, GeoUnit.KILOMETERS, id -> true, 3)
+        );
+        Assertions.assertEquals(
+                List.of("far"),
+                grid.nearest(10.7522, 59.9139, 50d, GeoUnit.KILOMETERS, id -> id.equals("far"), 3)
+        );
+    }
+
+    @Test
+    void nearestGivesUpAtMaxRadius() {
+        Assertions.assertEquals(
+                List.of("center", "near"),
+                grid.nearest(10.7522, 59.9139, 1d, GeoUnit.KILOMETERS, id -> true, 3)
+        );
+    }
+
+    @Test
+    void nearestMatchesExhaustiveSearch() {
+        var random = new Random(42);
+        var randomGrid = new SpatialGrid<Integer>(0.01);
+        for (int i = 0; i < 2000; i++) {
+            randomGrid.put(i, 10.6 + random.nextDouble() * 0.3, 59.85 + random.nextDouble() * 0.15);
+        }
+
+        var expected = randomGrid.radius(10.75, 59.91, 100d, GeoUnit.KILOMETERS, id -> id % 7 == 0, null).subList(0, 10);
+        Assertions.assertEquals(expected, randomGrid.nearest(10.75, 59.91, 100d, GeoUnit.KILOMETERS, id -> id % 7 == 0, 10));
+        Assertions.assertEquals(expected, randomGrid.radius(10.75, 59.91, 100d, GeoUnit.KILOMETERS, id -> id % 7 == 0, 10));
+    }
+
+    @Test
+    void nearestNearPoleMatchesExhaustiveSearch() {
+        var random = new Random(42);
+        var randomGrid = new SpatialGrid<Integer>(0.01);
+        for (int i = 0; i < 2000; i++) {
+            randomGrid.put(i, -180 + random.nextDouble() * 360, 89.5 + random.nextDouble() * 0.5);
+        }
+
+        var expected = randomGrid.radius(0, 89.9, 50d, GeoUnit.KILOMETERS, id -> true, null).subList(0, 10);
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                Assertions.assertEquals(expected, randomGrid.nearest(0, 89.9, 50d, GeoUnit.KILOMETERS, id -> true, 10))
+        );
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                Assertions.assertEquals(List.of(), randomGrid.nearest(0, 89.9, 50d, GeoUnit.KILOMETERS, id -> false, 10))
+        );
+    }
+
+    @Test
+    void countMatchesRadiusUpToLimit() {
+        var random = new Random(42);
+        var randomGrid = new SpatialGrid<Integer>(0.01);
+        for (int i = 0; i < 2000; i++) {
+            randomGrid.put(i, 10.6 + random.nextDouble() * 0.3, 59.85 + random.nextDouble() * 0.15);
+        }
+
+        for (var radius : List.of(100d, 1000d, 3000d, 10000d)) {
+            var expected = randomGrid.radius(10.75, 59.91, radius, GeoUnit.METERS, GeoOrder.ASC).size();
+            Assertions.assertEquals(expected, randomGrid.count(10.75, 59.91, radius, GeoUnit.METERS, Integer.MAX_VALUE));
+            Assertions.assertEquals(Math.min(expected, 50), randomGrid.count(10.75, 59.91, radius, GeoUnit.METERS, 50));
+        }
+        Assertions.assertEquals(0, randomGrid.count(10.75, 59.91, 10000d, GeoUnit.METERS, 0));
+    }
+
+    @Test
+    void boxReturnsEntriesInsideBounds() {
+        grid.put("north", 10.7522, 59.9350);
+        Assertions.assertEquals(
+                List.of("north", "near", "center"),
+                grid.box(10.75, 59.91, 10.76, 59.94, id -> true, null)
+        );
+        Assertions.assertEquals(
+                List.of("north", "near"),
+                grid.box(10.75, 59.91, 10.76, 59.94, id -> true, 2)
+        );
+        Assertions.assertEquals(
+                List.of("center"),
+                grid.box(10.75, 59.91, 10.76, 59.94, id -> id.equals("center"), 2)
+        );
+    }
+
+    @Test
+    void boxLargerThanTheNonEmptyCellsVisitsOnlyThose() {
+        grid.put("west", -0.1276, 51.5072);
+        Assertions.assertEquals(
+                List.of("west"),
+                grid.box(-10, 45, 5, 55, id -> true, null)
+        );
+        Assertions.assertEquals(
+                List.of("center", "near", "far"),
+                grid.box(10, 59, 11, 60, id -> true, null)
+        );
+    }
+
+    @Test
+    void clustersCountEntriesPerGroupAndBucket() {
+        var clusterGrid = new SpatialGrid<String>(0.01, id -> id.substring(0, 1));
+        clusterGrid.put("a1", 10.7522, 59.9139);
+        clusterGrid.put("a2", 10.7540, 59.9139);
+        clusterGrid.put("b1", 10.7530, 59.9145);
+        clusterGrid.put("a3", 10.9522, 59.9139);
+
+        var clusters = clusterGrid.clusters(10.7, 59.9, 11, 60, 0.1, group -> true);
+        Assertions.assertEquals(2, clusters.size());
+
+        var cityCluster = clusters.stream().filter(cluster -> cluster.getCount() == 3).findFirst().orElseThrow();
+        Assertions.assertEquals(Map.of("a", 2, "b", 1), cityCluster.getCounts());
+        Assertions.assertEquals(10.7531, cityCluster.getLongitude(), 1e-4);
+
+        clusterGrid.remove("b1");
+        clusterGrid.put("a3", 10.7522, 59.9139);
+        clusters = clusterGrid.clusters(10.7, 59.9, 11, 60, 0.1, group -> group.equals("a"));
+        Assertions.assertEquals(1, clusters.size());
+        Assertions.assertEquals(Map.of("a", 3), clusters.get(0).getCounts());
+    }
+
+    @Test
+    void distanceMatchesHaversine() {
+        // One degree of latitude along a meridian
+        Assertions.assertEquals(111226, SpatialGrid.distance(10, 59, 10, 60), 1);
+    }
+}
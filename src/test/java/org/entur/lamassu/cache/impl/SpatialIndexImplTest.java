@@ -0,0 +1,147 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.cache.impl;
+
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.GeoUnit;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.Kryo5Codec;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+class SpatialIndexImplTest {
+    private static final int REDIS_PORT = 6390;
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    private VehicleSpatialIndexImpl spatialIndex;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+
+        var config = new Config();
+        config.setCodec(new Kryo5Codec(SpatialIndexImplTest.class.getClassLoader()));
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setup() {
+        spatialIndex = new VehicleSpatialIndexImpl(
+                redissonClient.getGeo("vehicleSpatialIndexTest"),
+                redissonClient.getScoredSortedSet("vehicleSpatialIndexExpiriesTest"),
+                redissonClient
+        );
+    }
+
+    @AfterEach
+    void cleanup() {
+        redissonClient.getKeys().flushall();
+    }
+
+    @Test
+    void testExpiredEntriesAreLeftOutOfQueries() {
+        spatialIndex.addAll(Map.of(getIndexId("expired"), getVehicle("expired", 10.75, 59.91)), 0, TimeUnit.SECONDS);
+        spatialIndex.addAll(Map.of(getIndexId("active"), getVehicle("active", 10.751, 59.911)), 60, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(List.of(getIndexId("active")), spatialIndex.radius(10.75, 59.91, 1000d, GeoUnit.METERS, id -> true, null));
+        Assertions.assertEquals(List.of(getIndexId("active")), spatialIndex.radius(10.75, 59.91, 1000d, GeoUnit.METERS, id -> true, 10));
+        Assertions.assertEquals(List.of(getIndexId("active")), spatialIndex.box(10.7, 59.9, 10.8, 60.0, id -> true, null));
+        Assertions.assertEquals(1, spatialIndex.clusters(10.7, 59.9, 10.8, 60.0, 1, id -> true).get(0).getCount());
+    }
+
+    @Test
+    void testRemoveExpired() {
+        spatialIndex.addAll(Map.of(getIndexId("expired"), getVehicle("expired", 10.75, 59.91)), 0, TimeUnit.SECONDS);
+        spatialIndex.addAll(Map.of(getIndexId("active"), getVehicle("active", 10.751, 59.911)), 60, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(List.of(getIndexId("expired")), spatialIndex.removeExpired());
+        Assertions.assertEquals(Set.of(getIndexId("active")), Set.copyOf(spatialIndex.getAll()));
+        Assertions.assertTrue(spatialIndex.removeExpired().isEmpty());
+    }
+
+    @Test
+    void testEntriesWithoutExpiryDoNotExpire() {
+        spatialIndex.addAll(Map.of(getIndexId("foo"), getVehicle("foo", 10.75, 59.91)));
+
+        Assertions.assertTrue(spatialIndex.removeExpired().isEmpty());
+        Assertions.assertEquals(List.of(getIndexId("foo")), spatialIndex.radius(10.75, 59.91, 1000d, GeoUnit.METERS, id -> true, null));
+    }
+
+    @Test
+    void testRefreshedEntriesDoNotExpire() {
+        spatialIndex.addAll(Map.of(getIndexId("foo"), getVehicle("foo", 10.75, 59.91)), 0, TimeUnit.SECONDS);
+        spatialIndex.addAll(Map.of(getIndexId("foo"), getVehicle("foo", 10.75, 59.91)), 60, TimeUnit.SECONDS);
+
+        Assertions.assertTrue(spatialIndex.removeExpired().isEmpty());
+        Assertions.assertEquals(List.of(getIndexId("foo")), spatialIndex.radius(10.75, 59.91, 1000d, GeoUnit.METERS, id -> true, null));
+    }
+
+    @Test
+    void testCountStopsAtLimit() {
+        spatialIndex.addAll(Map.of(
+                getIndexId("foo"), getVehicle("foo", 10.75, 59.91),
+                getIndexId("bar"), getVehicle("bar", 10.751, 59.911),
+                getIndexId("baz"), getVehicle("baz", 10.752, 59.912),
+                getIndexId("far"), getVehicle("far", 11.75, 59.91)
+        ));
+
+        Assertions.assertEquals(3, spatialIndex.count(10.75, 59.91, 1000d, GeoUnit.METERS, 10));
+        Assertions.assertEquals(2, spatialIndex.count(10.75, 59.91, 1000d, GeoUnit.METERS, 2));
+    }
+
+    private VehicleSpatialIndexId getIndexId(String id) {
+        var indexId = new VehicleSpatialIndexId();
+        indexId.setId(id);
+        indexId.setCodespace("TST");
+        indexId.setSystemId("test");
+        return indexId;
+    }
+
+    private Vehicle getVehicle(String id, double lon, double lat) {
+        var vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setLon(lon);
+        vehicle.setLat(lat);
+        return vehicle;
+    }
+}
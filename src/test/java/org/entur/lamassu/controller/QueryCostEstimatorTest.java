@@ -0,0 +1,90 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import org.entur.lamassu.cache.StationSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.entur.lamassu.service.FeedProviderService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.GeoUnit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryCostEstimatorTest {
+    private final VehicleSpatialIndex vehicleSpatialIndex = mock(VehicleSpatialIndex.class);
+    private final FeedProviderService feedProviderService = mock(FeedProviderService.class);
+    private final QueryCostEstimator estimator = new QueryCostEstimator(vehicleSpatialIndex, mock(StationSpatialIndex.class), feedProviderService);
+
+    @Test
+    void testSmallCountIsUsedWithoutReadingTheSpatialIndex() {
+        var arguments = Map.<String, Object>of("lat", 59.91, "lon", 10.75, "range", 100000, "count", 10);
+
+        Assertions.assertEquals(10, estimator.estimateResults(QueryCostEstimator.VEHICLES, arguments, 100));
+        verify(vehicleSpatialIndex, never()).count(anyDouble(), anyDouble(), anyDouble(), eq(GeoUnit.METERS), anyInt());
+    }
+
+    @Test
+    void testRangeIsEstimatedFromTheSpatialIndex() {
+        when(vehicleSpatialIndex.count(10.75, 59.91, 100000d, GeoUnit.METERS, 101)).thenReturn(101);
+        var arguments = Map.<String, Object>of("lat", 59.91, "lon", 10.75, "range", 100000);
+
+        Assertions.assertEquals(101, estimator.estimateResults(QueryCostEstimator.VEHICLES, arguments, 100));
+        Assertions.assertTrue(estimator.isClampable(QueryCostEstimator.VEHICLES, arguments));
+    }
+
+    @Test
+    void testIdsAreNotClampable() {
+        var arguments = new HashMap<String, Object>();
+        arguments.put("ids", List.of("a", "b", "c"));
+
+        Assertions.assertEquals(3, estimator.estimateResults(QueryCostEstimator.VEHICLES, arguments, 100));
+        Assertions.assertFalse(estimator.isClampable(QueryCostEstimator.VEHICLES, arguments));
+    }
+
+    @Test
+    void testGeofencingZonesOfAllSystems() {
+        when(feedProviderService.getFeedProviders()).thenReturn(List.of(new FeedProvider(), new FeedProvider()));
+
+        Assertions.assertEquals(2, estimator.estimateResults(QueryCostEstimator.GEOFENCING_ZONES, Map.of(), 100));
+        Assertions.assertEquals(1, estimator.estimateResults(QueryCostEstimator.GEOFENCING_ZONES, Map.of("systemIds", List.of("foo")), 100));
+        Assertions.assertFalse(estimator.isClampable(QueryCostEstimator.GEOFENCING_ZONES, Map.of()));
+    }
+
+    @Test
+    void testWeightOfVehiclesAnsweredFromTheSpatialIndex() {
+        var selectionSet = mock(DataFetchingFieldSelectionSet.class);
+        when(selectionSet.getFields()).thenReturn(List.of());
+
+        Assertions.assertEquals(1, estimator.estimateWeight(QueryCostEstimator.VEHICLES, selectionSet));
+    }
+}
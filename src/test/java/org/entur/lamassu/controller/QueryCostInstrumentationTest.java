@@ -0,0 +1,148 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.controller;
+
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.DataFetcher;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.entur.lamassu.cache.StationSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
+import org.entur.lamassu.metrics.MetricsService;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.entur.lamassu.service.FeedProviderService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.GeoUnit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryCostInstrumentationTest {
+    private static final String SCHEMA = "type Query {\n"
+            + "  vehicles(lat: Float, lon: Float, range: Int, count: Int, ids: [String]): [Vehicle]\n"
+            + "  geofencingZones(systemIds: [String]): [String]\n"
+            + "}\n"
+            + "type Vehicle {\n"
+            + "  id: String\n"
+            + "  currentRangeMeters: Float\n"
+            + "}\n";
+
+    // Selects two fields which are not in the spatial index, so each vehicle weighs 3
+    private static final String VEHICLES = "vehicles(lat: 59.91, lon: 10.75, range: 100000) { id currentRangeMeters }";
+
+    private final VehicleSpatialIndex vehicleSpatialIndex = mock(VehicleSpatialIndex.class);
+    private final FeedProviderService feedProviderService = mock(FeedProviderService.class);
+    private final MetricsService metricsService = mock(MetricsService.class);
+    private final List<Integer> fetchedCounts = new ArrayList<>();
+
+    private QueryCostInstrumentation instrumentation;
+    private GraphQL graphQL;
+
+    @BeforeEach
+    void setup() {
+        var estimator = new QueryCostEstimator(vehicleSpatialIndex, mock(StationSpatialIndex.class), feedProviderService);
+        instrumentation = new QueryCostInstrumentation(estimator, metricsService);
+        ReflectionTestUtils.setField(instrumentation, "maxResults", 5000);
+        ReflectionTestUtils.setField(instrumentation, "maxCost", 6000L);
+
+        // Every range contains more vehicles than any limit
+        when(vehicleSpatialIndex.count(anyDouble(), anyDouble(), anyDouble(), eq(GeoUnit.METERS), anyInt()))
+                .thenAnswer(invocation -> invocation.<Integer>getArgument(4));
+        when(feedProviderService.getFeedProviders()).thenReturn(List.of(new FeedProvider(), new FeedProvider()));
+
+        DataFetcher<List<Map<String, Object>>> vehiclesFetcher = env -> {
+            fetchedCounts.add(env.getArgument("count"));
+            return List.of();
+        };
+        DataFetcher<List<String>> geofencingZonesFetcher = env -> List.of();
+        var runtimeWiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", builder -> builder
+                        .dataFetcher("vehicles", vehiclesFetcher)
+                        .dataFetcher("geofencingZones", geofencingZonesFetcher))
+                .build();
+        var schema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SCHEMA), runtimeWiring);
+        graphQL = GraphQL.newGraphQL(schema).instrumentation(instrumentation).build();
+    }
+
+    @Test
+    void testVehiclesAreClampedToMaxResults() {
+        ReflectionTestUtils.setField(instrumentation, "maxResults", 100);
+
+        var result = execute("{ " + VEHICLES + " }");
+
+        Assertions.assertTrue(result.getErrors().isEmpty());
+        Assertions.assertEquals(List.of(100), fetchedCounts);
+        verify(metricsService).registerQueryClamped("vehicles");
+    }
+
+    @Test
+    void testVehiclesAreClampedToTheRemainingCost() {
+        var result = execute("{ " + VEHICLES + " }");
+
+        Assertions.assertTrue(result.getErrors().isEmpty());
+        Assertions.assertEquals(List.of(2000), fetchedCounts);
+        verify(metricsService).registerQueryCost("vehicles", 6000);
+    }
+
+    @Test
+    void testVehiclesAreClampedToTheCostLeftByPreviousFields() {
+        var result = execute("{ geofencingZones(systemIds: [\"foo\"]) " + VEHICLES + " }");
+
+        Assertions.assertTrue(result.getErrors().isEmpty());
+        Assertions.assertEquals(List.of(333), fetchedCounts);
+    }
+
+    @Test
+    void testFieldsWhichCantBeClampedAreRejected() {
+        var result = execute("{ geofencingZones }");
+
+        Assertions.assertEquals(1, result.getErrors().size());
+        verify(metricsService).registerQueryRejected("geofencingZones");
+    }
+
+    @Test
+    void testVehiclesAreRejectedWithoutRemainingCost() {
+        ReflectionTestUtils.setField(instrumentation, "maxCost", 5002L);
+
+        var result = execute("{ geofencingZones(systemIds: [\"foo\"]) " + VEHICLES + " }");
+
+        Assertions.assertEquals(1, result.getErrors().size());
+        Assertions.assertTrue(fetchedCounts.isEmpty());
+        verify(metricsService).registerQueryRejected("vehicles");
+        verify(metricsService, never()).registerQueryClamped("vehicles");
+    }
+
+    private ExecutionResult execute(String query) {
+        return graphQL.execute(query);
+    }
+}
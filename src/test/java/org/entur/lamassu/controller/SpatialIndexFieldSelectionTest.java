@@ -0,0 +1,61 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.controller;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SpatialIndexFieldSelectionTest {
+
+    @Test
+    void testPositionSelectionIsCoveredBySpatialIndex() {
+        var selectionSet = getSelectionSet("id", "lat", "lon", "vehicleType", "vehicleType/formFactor", "system", "system/id");
+        Assertions.assertTrue(SpatialIndexFieldSelection.isCoveredBySpatialIndex(selectionSet));
+    }
+
+    @Test
+    void testSelectionOfOtherFieldsIsNotCoveredBySpatialIndex() {
+        var selectionSet = getSelectionSet("id", "lat", "lon", "vehicleType", "vehicleType/name");
+        Assertions.assertFalse(SpatialIndexFieldSelection.isCoveredBySpatialIndex(selectionSet));
+
+        selectionSet = getSelectionSet("id", "pricingPlan", "pricingPlan/id");
+        Assertions.assertFalse(SpatialIndexFieldSelection.isCoveredBySpatialIndex(selectionSet));
+    }
+
+    private DataFetchingFieldSelectionSet getSelectionSet(String... qualifiedNames) {
+        var fields = Arrays.stream(qualifiedNames).map(qualifiedName -> {
+            var field = mock(SelectedField.class);
+            when(field.getQualifiedName()).thenReturn(qualifiedName);
+            return field;
+        }).collect(Collectors.toList());
+
+        var selectionSet = mock(DataFetchingFieldSelectionSet.class);
+        when(selectionSet.getFields()).thenReturn(fields);
+        return selectionSet;
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -132,6 +133,38 @@ public class GBFSRestIntegrationTest extends AbstractIntegrationTestBase {
                 .andExpect(jsonPath("$.data.geofencing_zones.features[0].properties.name").value("Nes"));
     }
 
+    @Test
+    public void testFreeBikeStatusGzip() throws Exception {
+        mockMvc.perform(get("/gbfs/testatlantis/free_bike_status")
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().exists("ETag"));
+    }
+
+    @Test
+    public void testMatchingETagResponds304() throws Exception {
+        var etag = mockMvc.perform(get("/gbfs/testatlantis/free_bike_status"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/gbfs/testatlantis/free_bike_status")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    public void testV3VehicleStatus() throws Exception {
+        mockMvc.perform(get("/gbfs/v3beta/testatlantis/vehicle_status")
+                .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.data.vehicles[0].vehicle_id").value("TST:Vehicle:1234"));
+    }
+
     @Test
     public void testUnknownProviderResponds404() throws Exception {
             mockMvc.perform(get("/gbfs/foobar/gbfs")
@@ -87,6 +87,30 @@ public class GraphQLIntegrationTest extends AbstractIntegrationTestBase {
         assertEquals("testatlantis", response.get("$.data.geofencingZones[0].systemId"));
     }
 
+    @Test
+    public void testGeofencingRules() throws IOException {
+        GraphQLResponse response = graphQLTestTemplate.postForResource("geofencing_rules_query.graphql");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Nes", response.get("$.data.geofencingRules[0].zoneName"));
+        assertEquals("20", response.get("$.data.geofencingRules[0].maximumSpeedKph"));
+    }
+
+    @Test
+    public void testGeofencingRulesOfVehicleTypeWithMappedId() throws IOException {
+        GraphQLResponse response = graphQLTestTemplate.postForResource("geofencing_rules_scooter_query.graphql");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Nes", response.get("$.data.geofencingRules[0].zoneName"));
+        assertEquals("10", response.get("$.data.geofencingRules[0].maximumSpeedKph"));
+        assertEquals("false", response.get("$.data.geofencingRules[0].rideAllowed"));
+    }
+
+    @Test
+    public void testVehiclesQueryWithInvalidLatitude() throws IOException {
+        GraphQLResponse response = graphQLTestTemplate.postForResource("vehicles_query_invalid_latitude.graphql");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("Latitude must be between -90 and 90", response.get("$.errors[0].message"));
+    }
+
     @Test
     public void testUnknownOperatorDoesNotThrow() throws IOException {
         GraphQLResponse response = graphQLTestTemplate.postForResource("stations_query_unknown_operator.graphql");
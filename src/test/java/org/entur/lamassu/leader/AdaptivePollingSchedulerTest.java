@@ -0,0 +1,71 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+class AdaptivePollingSchedulerTest {
+
+    @Test
+    void testDelayIsClampedToMinimumInterval() {
+        var scheduler = new AdaptivePollingScheduler(1000, 2000, 10000, 0);
+        scheduler.schedule("foo", -5000);
+
+        Assertions.assertTrue(scheduler.advance().isEmpty());
+        Assertions.assertEquals(Set.of("foo"), scheduler.advance());
+        Assertions.assertFalse(scheduler.isScheduled("foo"));
+    }
+
+    @Test
+    void testDelayIsClampedToMaximumInterval() {
+        var scheduler = new AdaptivePollingScheduler(1000, 2000, 10000, 0);
+        scheduler.schedule("foo", 3_600_000);
+
+        for (int i = 0; i < 9; i++) {
+            Assertions.assertTrue(scheduler.advance().isEmpty());
+        }
+        Assertions.assertEquals(Set.of("foo"), scheduler.advance());
+    }
+
+    @Test
+    void testRescheduleReplacesPreviousPoll() {
+        var scheduler = new AdaptivePollingScheduler(1000, 1000, 10000, 0);
+        scheduler.schedule("foo", 1000);
+        scheduler.schedule("foo", 3000);
+
+        Assertions.assertTrue(scheduler.advance().isEmpty());
+        Assertions.assertTrue(scheduler.advance().isEmpty());
+        Assertions.assertEquals(Set.of("foo"), scheduler.advance());
+    }
+
+    @Test
+    void testJitterStaysWithinBounds() {
+        var scheduler = new AdaptivePollingScheduler(1000, 1000, 10000, 0.5);
+        scheduler.schedule("foo", 4000);
+
+        int ticks = 1;
+        while (scheduler.advance().isEmpty()) {
+            ticks++;
+        }
+        Assertions.assertTrue(ticks >= 4 && ticks <= 6);
+    }
+}
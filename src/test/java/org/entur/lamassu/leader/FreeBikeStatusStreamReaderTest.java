@@ -0,0 +1,89 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSBike;
+import org.entur.lamassu.mapper.feedmapper.FreeBikeStatusFeedMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+
+class FreeBikeStatusStreamReaderTest {
+    private final FreeBikeStatusStreamReader reader = new FreeBikeStatusStreamReader(
+            mock(WebClient.class),
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false),
+            mock(FreeBikeStatusFeedMapper.class)
+    );
+
+    @Test
+    void testVehiclesAreReadInChunks() throws IOException {
+        var json = "{\"last_updated\":1700000000,\"ttl\":60,\"version\":\"2.3\",\"data\":{\"bikes\":["
+                + "{\"bike_id\":\"a\",\"lat\":59.9,\"lon\":10.7,\"is_reserved\":false,\"is_disabled\":false},"
+                + "{\"bike_id\":\"b\",\"lat\":59.9,\"lon\":10.7,\"is_reserved\":false,\"is_disabled\":false,\"rental_uris\":{\"web\":\"https://example.com\"}},"
+                + "{\"bike_id\":\"c\",\"lat\":59.9,\"lon\":10.7,\"is_reserved\":false,\"is_disabled\":false}"
+                + "]}}";
+        List<List<String>> chunks = new ArrayList<>();
+        List<Integer> ttls = new ArrayList<>();
+
+        var feed = reader.read(stream(json), 2, (freeBikeStatus, bikes) -> {
+            ttls.add(freeBikeStatus.getTtl());
+            chunks.add(bikes.stream().map(GBFSBike::getBikeId).collect(Collectors.toList()));
+        });
+
+        Assertions.assertEquals(List.of(List.of("a", "b"), List.of("c")), chunks);
+        Assertions.assertEquals(List.of(60, 60), ttls);
+        Assertions.assertEquals(1700000000, feed.getLastUpdated());
+        Assertions.assertEquals("2.3", feed.getVersion());
+    }
+
+    @Test
+    void testFieldsAroundVehiclesAreRead() throws IOException {
+        var json = "{\"data\":{\"extra\":[1,{\"bikes\":[]}],\"bikes\":[{\"bike_id\":\"a\"}]},\"extra\":{\"ttl\":1},\"last_updated\":1700000000,\"ttl\":60}";
+        List<String> ids = new ArrayList<>();
+
+        var feed = reader.read(stream(json), 2, (freeBikeStatus, bikes) -> bikes.forEach(bike -> ids.add(bike.getBikeId())));
+
+        Assertions.assertEquals(List.of("a"), ids);
+        Assertions.assertEquals(1700000000, feed.getLastUpdated());
+        Assertions.assertEquals(60, feed.getTtl());
+    }
+
+    @Test
+    void testTruncatedFeedFails() {
+        var json = "{\"last_updated\":1700000000,\"ttl\":60,\"data\":{\"bikes\":[{\"bike_id\":\"a\"},{\"bike_";
+
+        Assertions.assertThrows(JsonProcessingException.class, () -> reader.read(stream(json), 2, (freeBikeStatus, bikes) -> {}));
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,6 +1,7 @@
 package org.entur.lamassu.leader;
 
-import org.entur.lamassu.service.GeoSearchService;
+import org.entur.lamassu.cache.StationSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
 import org.junit.Test;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -9,12 +10,32 @@ import static org.mockito.Mockito.*;
 public class LeaderSingletonServiceTest {
 
     FeedUpdater mockedFeedUpdater = mock(FeedUpdater.class);
-    GeoSearchService mockedGeoSearchService = mock(GeoSearchService.class);
+    VehicleSpatialIndex mockedVehicleSpatialIndex = mock(VehicleSpatialIndex.class);
+    StationSpatialIndex mockedStationSpatialIndex = mock(StationSpatialIndex.class);
+    VehicleSpatialIndexOrphanReconciler mockedOrphanReconciler = mock(VehicleSpatialIndexOrphanReconciler.class);
 
     @Test
     public void testStartsScheduling() {
-        var service = new LeaderSingletonService(mockedFeedUpdater, mockedGeoSearchService);
+        var service = new LeaderSingletonService(mockedFeedUpdater, mockedVehicleSpatialIndex, mockedStationSpatialIndex, mockedOrphanReconciler);
         service.init();
         verify(mockedFeedUpdater).start();
     }
+
+    @Test
+    public void testRemovesExpiredSpatialIndexEntries() {
+        var service = new LeaderSingletonService(mockedFeedUpdater, mockedVehicleSpatialIndex, mockedStationSpatialIndex, mockedOrphanReconciler);
+        service.removeExpiredSpatialIndexEntries();
+        verify(mockedVehicleSpatialIndex).removeExpired();
+        verify(mockedStationSpatialIndex).removeExpired();
+    }
+
+    @Test
+    public void testRemovesOrphansOnceWhenReconciliationIsDisabled() {
+        var service = new LeaderSingletonService(mockedFeedUpdater, mockedVehicleSpatialIndex, mockedStationSpatialIndex, mockedOrphanReconciler);
+        when(mockedOrphanReconciler.getCompletedScans()).thenReturn(0);
+        service.removeOrphans();
+        when(mockedOrphanReconciler.getCompletedScans()).thenReturn(1);
+        service.removeOrphans();
+        verify(mockedOrphanReconciler, times(1)).reconcile();
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+class ProviderUpdateExecutorTest {
+
+    @Test
+    void testOnlyMostRecentPendingUpdateRunsAfterRunningUpdate() throws InterruptedException {
+        var executor = new ProviderUpdateExecutor(Executors.newCachedThreadPool());
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+        List<String> updates = new CopyOnWriteArrayList<>();
+
+        executor.submit("foo", () -> {
+            started.countDown();
+            await(release);
+            updates.add("first");
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.submit("foo", () -> updates.add("second"));
+        executor.submit("foo", () -> {
+            updates.add("third");
+            done.countDown();
+        });
+        release.countDown();
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of("first", "third"), updates);
+        executor.shutdown();
+    }
+
+    @Test
+    void testProvidersAreUpdatedConcurrently() throws InterruptedException {
+        var executor = new ProviderUpdateExecutor(Executors.newCachedThreadPool());
+        var bothRunning = new CountDownLatch(2);
+
+        Runnable update = () -> {
+            bothRunning.countDown();
+            await(bothRunning);
+        };
+        executor.submit("foo", update);
+        executor.submit("bar", update);
+
+        Assertions.assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void testFailingUpdateDoesNotBlockProvider() throws InterruptedException {
+        var executor = new ProviderUpdateExecutor(Executors.newSingleThreadExecutor());
+        var done = new CountDownLatch(1);
+
+        executor.submit("foo", () -> {
+            throw new IllegalStateException("test");
+        });
+        executor.submit("foo", done::countDown);
+
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    void testCreateExecutorService() {
+        var executorService = ProviderUpdateExecutor.createExecutorService(2);
+        Assertions.assertNotNull(executorService);
+        executorService.shutdown();
+    }
+
+    @Test
+    void testFallbackExecutorServiceIsBounded() {
+        var executorService = ProviderUpdateExecutor.createExecutorService(2);
+        if (executorService instanceof ThreadPoolExecutor) {
+            Assertions.assertEquals(2, ((ThreadPoolExecutor) executorService).getMaximumPoolSize());
+        }
+        executorService.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
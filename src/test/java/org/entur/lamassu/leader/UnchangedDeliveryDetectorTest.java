@@ -0,0 +1,63 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class UnchangedDeliveryDetectorTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private final UnchangedDeliveryDetector detector = new UnchangedDeliveryDetector(60_000, clock::get);
+
+    @Test
+    void testFirstDeliveryIsChanged() {
+        Assertions.assertFalse(detector.isUnchanged("foo", "a"));
+    }
+
+    @Test
+    void testIdenticalDeliveryIsUnchanged() {
+        detector.registerProcessed("foo", "a");
+        clock.set(30_000);
+
+        Assertions.assertTrue(detector.isUnchanged("foo", "a"));
+        Assertions.assertFalse(detector.isUnchanged("foo", "b"));
+        Assertions.assertFalse(detector.isUnchanged("bar", "a"));
+    }
+
+    @Test
+    void testIdenticalDeliveryIsProcessedAfterMaxSkipInterval() {
+        detector.registerProcessed("foo", "a");
+        clock.set(60_000);
+
+        Assertions.assertFalse(detector.isUnchanged("foo", "a"));
+
+        detector.registerProcessed("foo", "a");
+        Assertions.assertTrue(detector.isUnchanged("foo", "a"));
+    }
+
+    @Test
+    void testDeliveryWithoutDigestIsChanged() {
+        detector.registerProcessed("foo", null);
+
+        Assertions.assertFalse(detector.isUnchanged("foo", null));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader;
+
+import org.entur.lamassu.cache.VehicleSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.metrics.MetricsService;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.stubs.VehicleCacheStub;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VehicleSpatialIndexOrphanReconcilerTest {
+
+    private final VehicleSpatialIndex vehicleSpatialIndex = mock(VehicleSpatialIndex.class);
+    private final VehicleCacheStub vehicleCache = new VehicleCacheStub();
+    private final MetricsService metricsService = mock(MetricsService.class);
+    private final VehicleSpatialIndexOrphanReconciler reconciler = new VehicleSpatialIndexOrphanReconciler(
+            vehicleSpatialIndex, vehicleCache, metricsService, 3, 5
+    );
+
+    private List<VehicleSpatialIndexId> indexIds;
+
+    @BeforeEach
+    void setup() {
+        indexIds = IntStream.range(0, 8).mapToObj(i -> getIndexId("foo_" + i)).collect(Collectors.toList());
+        when(vehicleSpatialIndex.scan(anyInt())).then(invocation -> indexIds.iterator());
+
+        vehicleCache.updateAll(
+                indexIds.stream().map(indexId -> getVehicle(indexId.getId())).collect(Collectors.toMap(Vehicle::getId, v -> v)),
+                0,
+                TimeUnit.SECONDS
+        );
+    }
+
+    @Test
+    void testReconcileContinuesScanOnNextRun() {
+        vehicleCache.removeAll(Set.of("foo_1", "foo_6"));
+
+        Assertions.assertEquals(List.of("foo_1"), reconciler.reconcile());
+        verify(metricsService).registerOrphanReconciliation(VehicleSpatialIndexOrphanReconciler.INDEX_NAME, 5, 1, 1);
+
+        Assertions.assertEquals(List.of("foo_6"), reconciler.reconcile());
+        verify(metricsService).registerOrphanReconciliation(VehicleSpatialIndexOrphanReconciler.INDEX_NAME, 3, 1, 1);
+
+        verify(vehicleSpatialIndex, times(1)).scan(3);
+        verify(vehicleSpatialIndex).removeAll(Set.of(indexIds.get(1)));
+        verify(vehicleSpatialIndex).removeAll(Set.of(indexIds.get(6)));
+    }
+
+    @Test
+    void testReconcileStartsNewScanWhenScanIsComplete() {
+        reconciler.reconcile();
+        reconciler.reconcile();
+        vehicleCache.removeAll(Set.of("foo_2"));
+
+        Assertions.assertEquals(List.of("foo_2"), reconciler.reconcile());
+        verify(vehicleSpatialIndex, times(2)).scan(3);
+    }
+
+    @Test
+    void testCompletedScansAreCounted() {
+        reconciler.reconcile();
+        Assertions.assertEquals(0, reconciler.getCompletedScans());
+
+        reconciler.reconcile();
+        Assertions.assertEquals(1, reconciler.getCompletedScans());
+    }
+
+    @Test
+    void testReconcileDoesNotRemoveWhenNoOrphans() {
+        Assertions.assertTrue(reconciler.reconcile().isEmpty());
+        verify(vehicleSpatialIndex, never()).removeAll(any());
+    }
+
+    private VehicleSpatialIndexId getIndexId(String id) {
+        var indexId = new VehicleSpatialIndexId();
+        indexId.setId(id);
+        return indexId;
+    }
+
+    private Vehicle getVehicle(String id) {
+        var vehicle = new Vehicle();
+        vehicle.setId(id);
+        return vehicle;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.leader.entityupdater;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+class EntityChangeDetectorTest {
+    private static final long REFRESH_INTERVAL = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+    private EntityChangeDetector<String> detector;
+
+    @BeforeEach
+    void setUp() {
+        now.set(0);
+        // Entities are "id:content"
+        detector = new EntityChangeDetector<>(entity -> entity.split(":")[0], now::get);
+    }
+
+    @Test
+    void testFirstUpdateReportsAllEntities() {
+        var changed = detector.getChangedEntities("system", 1, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+        Assertions.assertEquals(List.of("a:1", "b:1"), changed);
+    }
+
+    @Test
+    void testReportsOnlyAddedAndChangedEntities() {
+        detector.getChangedEntities("system", 1, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+        var changed = detector.getChangedEntities("system", 1, List.of("a:1", "b:2", "c:1"), REFRESH_INTERVAL);
+        Assertions.assertEquals(List.of("b:2", "c:1"), changed);
+    }
+
+    @Test
+    void testRemovedEntityIsReportedWhenAddedAgain() {
+        detector.getChangedEntities("system", 1, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+        detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL);
+        var changed = detector.getChangedEntities("system", 1, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+        Assertions.assertEquals(List.of("b:1"), changed);
+    }
+
+    @Test
+    void testContextChangeReportsAllEntities() {
+        detector.getChangedEntities("system", 1, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+        var changed = detector.getChangedEntities("system", 2, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+        Assertions.assertEquals(List.of("a:1", "b:1"), changed);
+    }
+
+    @Test
+    void testProvidersAreTrackedSeparately() {
+        detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL);
+        var changed = detector.getChangedEntities("other", 1, List.of("a:1"), REFRESH_INTERVAL);
+        Assertions.assertEquals(List.of("a:1"), changed);
+    }
+
+    @Test
+    void testResetReportsAllEntities() {
+        detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL);
+        detector.reset("system");
+        var changed = detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL);
+        Assertions.assertEquals(List.of("a:1"), changed);
+    }
+
+    @Test
+    void testUnchangedEntityIsRefreshedWithinRefreshInterval() {
+        detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL);
+
+        now.set(REFRESH_INTERVAL / 2 - 1);
+        Assertions.assertTrue(detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL).isEmpty());
+
+        now.set(REFRESH_INTERVAL + 1);
+        Assertions.assertEquals(List.of("a:1"), detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL));
+    }
+
+    @Test
+    void testRefreshedEntitiesAreCollected() {
+        detector.getChangedEntities("system", 1, List.of("a:1", "b:1"), REFRESH_INTERVAL);
+
+        now.set(REFRESH_INTERVAL + 1);
+        var refreshedIds = new HashSet<String>();
+        var changed = detector.getChangedEntities("system", 1, List.of("a:1", "b:2", "c:1"), REFRESH_INTERVAL, refreshedIds);
+
+        Assertions.assertEquals(List.of("a:1", "b:2", "c:1"), changed);
+        Assertions.assertEquals(Set.of("a"), refreshedIds);
+    }
+
+    @Test
+    void testUpdateInChunksReportsChangedAndRemovedEntities() {
+        detector.getChangedEntities("system", 1, List.of("a:1", "b:1", "c:1"), REFRESH_INTERVAL);
+
+        var update = detector.startUpdate("system", 1);
+        Assertions.assertEquals(List.of("b:2"), update.getChangedEntities(List.of("a:1", "b:2"), REFRESH_INTERVAL, null));
+        Assertions.assertEquals(List.of("d:1"), update.getChangedEntities(List.of("d:1"), REFRESH_INTERVAL, null));
+        Assertions.assertEquals(Set.of("c"), update.getRemovedIds());
+        update.finish();
+
+        Assertions.assertEquals(List.of("c:1"), detector.getChangedEntities("system", 1, List.of("a:1", "b:2", "c:1", "d:1"), REFRESH_INTERVAL));
+    }
+
+    @Test
+    void testUnfinishedUpdateKeepsPreviousEntities() {
+        detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL);
+
+        detector.startUpdate("system", 1).getChangedEntities(List.of("a:2"), REFRESH_INTERVAL, null);
+
+        Assertions.assertTrue(detector.getChangedEntities("system", 1, List.of("a:1"), REFRESH_INTERVAL).isEmpty());
+    }
+}
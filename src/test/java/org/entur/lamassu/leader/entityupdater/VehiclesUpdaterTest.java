@@ -0,0 +1,234 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+package org.entur.lamassu.leader.entityupdater;
+
+import org.entur.gbfs.GbfsDelivery;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSBike;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSData;
+import org.entur.gbfs.v2_3.free_bike_status.GBFSFreeBikeStatus;
+import org.entur.lamassu.cache.CacheBatch;
+import org.entur.lamassu.cache.CacheBatchFactory;
+import org.entur.lamassu.cache.VehicleCache;
+import org.entur.lamassu.cache.VehicleChangeTopic;
+import org.entur.lamassu.cache.VehicleSpatialIndex;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.mapper.entitymapper.MappingContext;
+import org.entur.lamassu.mapper.entitymapper.VehicleMapper;
+import org.entur.lamassu.model.entities.PricingPlan;
+import org.entur.lamassu.model.entities.System;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleType;
+import org.entur.lamassu.model.provider.FeedProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RedissonClient;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VehiclesUpdaterTest {
+    private static final int CHUNK_SIZE = 2;
+
+    private VehicleCache vehicleCache;
+    private VehicleSpatialIndex spatialIndex;
+    private VehicleChangeTopic vehicleChangeTopic;
+    private VehiclesUpdater vehiclesUpdater;
+
+    private final FeedProvider feedProvider = getFeedProvider();
+    private final MappingContext mappingContext = getMappingContext();
+
+    @BeforeEach
+    void setup() {
+        vehicleCache = mock(VehicleCache.class);
+        spatialIndex = mock(VehicleSpatialIndex.class);
+        vehicleChangeTopic = mock(VehicleChangeTopic.class);
+
+        var vehicleMapper = mock(VehicleMapper.class);
+        when(vehicleMapper.mapVehicle(any(), any(), any(), any()))
+                .thenAnswer(invocation -> getVehicle(invocation.<GBFSBike>getArgument(0).getBikeId()));
+
+        CacheBatchFactory cacheBatchFactory = () -> new CacheBatch(mock(RedissonClient.class), BatchOptions.defaults(), CHUNK_SIZE);
+
+        vehiclesUpdater = new VehiclesUpdater(vehicleCache, spatialIndex, vehicleMapper, cacheBatchFactory, vehicleChangeTopic);
+    }
+
+    @Test
+    void testRemovedVehiclesAreRemovedInChunks() {
+        var removedIds = Set.of("bike-0", "bike-1", "bike-2", "bike-3", "bike-4");
+        when(vehicleCache.getAllAsMap(anySet())).thenAnswer(invocation -> getVehicles(invocation.getArgument(0)));
+
+        vehiclesUpdater.addOrUpdateVehicles(feedProvider, getDelivery(0), getDelivery(5), mappingContext);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Set<String>> removed = ArgumentCaptor.forClass(Set.class);
+        verify(vehicleCache, times(3)).removeAll(any(CacheBatch.class), removed.capture());
+        verify(spatialIndex, times(3)).removeAll(any(CacheBatch.class), anySet());
+        verify(vehicleCache, never()).updateAll(any(CacheBatch.class), anyMap(), anyInt(), any());
+
+        var removedInChunks = new HashSet<String>();
+        removed.getAllValues().forEach(chunk -> {
+            Assertions.assertTrue(chunk.size() <= CHUNK_SIZE);
+            removedInChunks.addAll(chunk);
+        });
+        Assertions.assertEquals(removedIds, removedInChunks);
+    }
+
+    @Test
+    void testRemovedVehicleWithUnresolvedVehicleTypeIsRemovedFromSpatialIndex() {
+        var vehicle = getVehicle("bike-0");
+        vehicle.setVehicleType(null);
+        vehicle.setVehicleTypeId("TST:VehicleType:Scooter");
+        when(vehicleCache.getAllAsMap(anySet())).thenReturn(Map.of(vehicle.getId(), vehicle));
+
+        vehiclesUpdater.addOrUpdateVehicles(feedProvider, getDelivery(0), getDelivery(1), mappingContext);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Set<VehicleSpatialIndexId>> removed = ArgumentCaptor.forClass(Set.class);
+        verify(spatialIndex).removeAll(any(CacheBatch.class), removed.capture());
+        Assertions.assertEquals(1, removed.getValue().size());
+        Assertions.assertEquals("bike-0", removed.getValue().iterator().next().getId());
+    }
+
+    @Test
+    void testChangedVehiclesAreUpdatedInChunks() {
+        when(vehicleCache.getAllAsMap(anySet())).thenReturn(Map.of());
+
+        vehiclesUpdater.addOrUpdateVehicles(feedProvider, getDelivery(5), getDelivery(5), mappingContext);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Vehicle>> updated = ArgumentCaptor.forClass(Map.class);
+        verify(vehicleCache, times(3)).updateAll(any(CacheBatch.class), updated.capture(), anyInt(), eq(TimeUnit.SECONDS));
+        verify(spatialIndex, times(3)).addAll(any(CacheBatch.class), anyMap(), anyInt(), eq(TimeUnit.SECONDS));
+        verify(vehicleChangeTopic, times(3)).publish(any(CacheBatch.class), any());
+        verify(vehicleCache, never()).removeAll(any(CacheBatch.class), anySet());
+
+        var updatedInChunks = new HashSet<String>();
+        updated.getAllValues().forEach(chunk -> {
+            Assertions.assertTrue(chunk.size() <= CHUNK_SIZE);
+            updatedInChunks.addAll(chunk.keySet());
+        });
+        Assertions.assertEquals(5, updatedInChunks.size());
+    }
+
+    @Test
+    void testStreamedVehiclesAreUpdatedInChunksAndMissingOnesRemoved() {
+        when(vehicleCache.getAllAsMap(anySet())).thenAnswer(invocation -> getVehicles(invocation.getArgument(0)));
+
+        vehiclesUpdater.addOrUpdateVehicles(feedProvider, getSource(5), mappingContext);
+
+        verify(vehicleCache, times(3)).updateAll(any(CacheBatch.class), anyMap(), anyInt(), eq(TimeUnit.SECONDS));
+        verify(vehicleCache, never()).removeAll(any(CacheBatch.class), anySet());
+
+        vehiclesUpdater.addOrUpdateVehicles(feedProvider, getSource(3), mappingContext);
+
+        verify(vehicleCache, times(3)).updateAll(any(CacheBatch.class), anyMap(), anyInt(), eq(TimeUnit.SECONDS));
+        verify(vehicleCache).removeAll(any(CacheBatch.class), eq(Set.of("bike-3", "bike-4")));
+    }
+
+    private FreeBikeStatusSource getSource(int numberOfBikes) {
+        var freeBikeStatus = getDelivery(numberOfBikes).getFreeBikeStatus();
+        return (chunkSize, consumer) -> {
+            var bikes = freeBikeStatus.getData().getBikes();
+            for (int i = 0; i < bikes.size(); i += chunkSize) {
+                consumer.accept(freeBikeStatus, bikes.subList(i, Math.min(i + chunkSize, bikes.size())));
+            }
+        };
+    }
+
+    private GbfsDelivery getDelivery(int numberOfBikes) {
+        var data = new GBFSData();
+        data.setBikes(IntStream.range(0, numberOfBikes).mapToObj(this::getBike).collect(Collectors.toList()));
+
+        var freeBikeStatus = new GBFSFreeBikeStatus();
+        freeBikeStatus.setLastUpdated((int) (java.lang.System.currentTimeMillis() / 1000));
+        freeBikeStatus.setTtl(60);
+        freeBikeStatus.setData(data);
+
+        var delivery = new GbfsDelivery();
+        delivery.setFreeBikeStatus(freeBikeStatus);
+        return delivery;
+    }
+
+    private GBFSBike getBike(int i) {
+        var bike = new GBFSBike();
+        bike.setBikeId("bike-" + i);
+        bike.setLat(59.91);
+        bike.setLon(10.75);
+        bike.setVehicleTypeId("TST:VehicleType:Scooter");
+        bike.setPricingPlanId("TST:PricingPlan:Basic");
+        return bike;
+    }
+
+    private Map<String, Vehicle> getVehicles(Set<String> ids) {
+        return ids.stream().map(this::getVehicle).collect(Collectors.toMap(Vehicle::getId, Function.identity()));
+    }
+
+    private Vehicle getVehicle(String id) {
+        var vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setLat(59.91);
+        vehicle.setLon(10.75);
+        vehicle.setVehicleType(mappingContext.getVehicleTypesById().get("TST:VehicleType:Scooter"));
+        return vehicle;
+    }
+
+    private MappingContext getMappingContext() {
+        var vehicleType = new VehicleType();
+        vehicleType.setId("TST:VehicleType:Scooter");
+        var pricingPlan = new PricingPlan();
+        pricingPlan.setId("TST:PricingPlan:Basic");
+
+        return new MappingContext(
+                new System(),
+                List.of(pricingPlan),
+                Map.of(pricingPlan.getId(), pricingPlan),
+                Map.of(vehicleType.getId(), vehicleType),
+                Map.of(),
+                0
+        );
+    }
+
+    private FeedProvider getFeedProvider() {
+        var provider = new FeedProvider();
+        provider.setSystemId("testsystem");
+        provider.setCodespace("TST");
+        provider.setOperatorId("TST:Operator:test");
+        return provider;
+    }
+}
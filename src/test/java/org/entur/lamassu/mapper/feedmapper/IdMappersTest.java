@@ -35,4 +35,27 @@ class IdMappersTest {
         Assertions.assertEquals("TST:Type:1", IdMappers.mapId("TST", "Type", "TST:Type:1"));
         Assertions.assertEquals("TST:Type:1", IdMappers.mapId("TST", "Type", "1"));
     }
+
+    @Test
+    void testMapIdReusesIdMapperPerCodespaceAndType() {
+        Assertions.assertSame(IdMappers.getIdMapper("TST", "Type"), IdMappers.getIdMapper("TST", "Type"));
+        Assertions.assertNotSame(IdMappers.getIdMapper("TST", "Type"), IdMappers.getIdMapper("TST", "OtherType"));
+        Assertions.assertNotSame(IdMappers.getIdMapper("TST", "Type"), IdMappers.getIdMapper("OTH", "Type"));
+    }
+
+    @Test
+    void testMapIdDoesNotMixCodespacesOrTypes() {
+        Assertions.assertEquals("TST:Type:1", IdMappers.mapId("TST", "Type", "1"));
+        Assertions.assertEquals("OTH:Type:1", IdMappers.mapId("OTH", "Type", "1"));
+        Assertions.assertEquals("TST:OtherType:1", IdMappers.mapId("TST", "OtherType", "1"));
+    }
+
+    @Test
+    void testIdMapperIsBounded() {
+        var idMapper = new IdMapper("TST", "Type", 100);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals("TST:Type:" + i, idMapper.map(String.valueOf(i)));
+        }
+        Assertions.assertTrue(idMapper.estimatedSize() <= 100);
+    }
 }
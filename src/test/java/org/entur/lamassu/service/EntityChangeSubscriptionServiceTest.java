@@ -0,0 +1,185 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.service;
+
+import org.entur.lamassu.cache.EntityChange;
+import org.entur.lamassu.cache.StationChangeTopic;
+import org.entur.lamassu.cache.VehicleChangeTopic;
+import org.entur.lamassu.cache.VehicleSpatialIndexId;
+import org.entur.lamassu.cache.impl.EntityReferenceResolver;
+import org.entur.lamassu.model.entities.FormFactor;
+import org.entur.lamassu.model.entities.PropulsionType;
+import org.entur.lamassu.model.entities.UpdateType;
+import org.entur.lamassu.model.entities.Vehicle;
+import org.entur.lamassu.model.entities.VehicleUpdate;
+import org.entur.lamassu.service.impl.EntityChangeSubscriptionServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EntityChangeSubscriptionServiceTest {
+    private final VehicleChangeTopic vehicleChangeTopic = mock(VehicleChangeTopic.class);
+    private final EntityReferenceResolver entityReferenceResolver = mock(EntityReferenceResolver.class);
+    private final EntityChangeSubscriptionServiceImpl service = new EntityChangeSubscriptionServiceImpl(
+            vehicleChangeTopic,
+            mock(StationChangeTopic.class),
+            entityReferenceResolver,
+            2
+    );
+
+    @Test
+    void testVehicleUpdatesWithinRange() {
+        var updates = Flux.from(service.getVehicleUpdates(getRangeQueryParameters(), getFilterParameters()))
+                .take(3)
+                .collectList()
+                .toFuture();
+
+        getVehicleChangeListener().accept(List.of(
+                // Added inside the range
+                EntityChange.of("a", null, null, getIndexId("a"), getVehicle("a", 59.91, 10.75)),
+                // Added outside the range
+                EntityChange.of("b", null, null, getIndexId("b"), getVehicle("b", 60.5, 10.75)),
+                // Moved within the range
+                EntityChange.of("c", getIndexId("c"), getVehicle("c", 59.911, 10.75), getIndexId("c"), getVehicle("c", 59.912, 10.75)),
+                // Moved out of the range
+                EntityChange.of("d", getIndexId("d"), getVehicle("d", 59.911, 10.75), getIndexId("d"), getVehicle("d", 60.5, 10.75))
+        ));
+
+        var result = updates.join();
+        Assertions.assertEquals(List.of("a", "c", "d"), result.stream().map(VehicleUpdate::getVehicleId).collect(Collectors.toList()));
+        Assertions.assertEquals(UpdateType.CREATE, result.get(0).getUpdateType());
+        Assertions.assertEquals(UpdateType.UPDATE, result.get(1).getUpdateType());
+        Assertions.assertEquals(UpdateType.DELETE, result.get(2).getUpdateType());
+        Assertions.assertNull(result.get(2).getVehicle());
+        verify(entityReferenceResolver).resolveVehicleReferences(any());
+    }
+
+    @Test
+    void testVehicleUpdatesFiltered() {
+        var filterParameters = getFilterParameters();
+        filterParameters.setFormFactors(List.of(FormFactor.BICYCLE));
+
+        var updates = Flux.from(service.getVehicleUpdates(getRangeQueryParameters(), filterParameters))
+                .take(Duration.ofMillis(100))
+                .collectList()
+                .toFuture();
+
+        getVehicleChangeListener().accept(List.of(
+                EntityChange.of("a", null, null, getIndexId("a"), getVehicle("a", 59.91, 10.75))
+        ));
+
+        Assertions.assertTrue(updates.join().isEmpty());
+    }
+
+    @Test
+    void testTopicIsOnlyListenedToWhileThereAreSubscriptions() {
+        verify(vehicleChangeTopic, never()).addListener(any());
+        when(vehicleChangeTopic.addListener(any())).thenReturn(42);
+
+        var first = Flux.from(service.getVehicleUpdates(getRangeQueryParameters(), getFilterParameters())).subscribe();
+        var second = Flux.from(service.getVehicleUpdates(getRangeQueryParameters(), getFilterParameters())).subscribe();
+        verify(vehicleChangeTopic, times(1)).addListener(any());
+
+        first.dispose();
+        verify(vehicleChangeTopic, never()).removeListener(anyInt());
+
+        second.dispose();
+        verify(vehicleChangeTopic).removeListener(42);
+    }
+
+    @Test
+    void testSlowSubscriptionIsEndedWhenItsBufferOverflows() {
+        var error = new AtomicReference<Throwable>();
+        service.getVehicleUpdates(getRangeQueryParameters(), getFilterParameters()).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(org.reactivestreams.Subscription subscription) {
+                // Never request any updates
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                error.set(throwable);
+            }
+        });
+
+        var listener = getVehicleChangeListener();
+        for (int i = 0; i < 5; i++) {
+            listener.accept(List.of(EntityChange.of("a", null, null, getIndexId("a"), getVehicle("a", 59.91, 10.75))));
+        }
+
+        Assertions.assertTrue(error.get() instanceof IllegalStateException);
+        verify(vehicleChangeTopic).removeListener(anyInt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<List<EntityChange<VehicleSpatialIndexId, Vehicle>>> getVehicleChangeListener() {
+        ArgumentCaptor<Consumer<List<EntityChange<VehicleSpatialIndexId, Vehicle>>>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(vehicleChangeTopic).addListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private RangeQueryParameters getRangeQueryParameters() {
+        var rangeQueryParameters = new RangeQueryParameters();
+        rangeQueryParameters.setLat(59.91);
+        rangeQueryParameters.setLon(10.75);
+        rangeQueryParameters.setRange(1000d);
+        return rangeQueryParameters;
+    }
+
+    private VehicleFilterParameters getFilterParameters() {
+        var filterParameters = new VehicleFilterParameters();
+        filterParameters.setIncludeReserved(false);
+        filterParameters.setIncludeDisabled(false);
+        return filterParameters;
+    }
+
+    private VehicleSpatialIndexId getIndexId(String id) {
+        var indexId = new VehicleSpatialIndexId();
+        indexId.setId(id);
+        indexId.setSystemId("tst");
+        indexId.setFormFactor(FormFactor.SCOOTER);
+        indexId.setPropulsionType(PropulsionType.ELECTRIC);
+        return indexId;
+    }
+
+    private Vehicle getVehicle(String id, double lat, double lon) {
+        var vehicle = new Vehicle();
+        vehicle.setId(id);
+        vehicle.setLat(lat);
+        vehicle.setLon(lon);
+        return vehicle;
+    }
+}
@@ -33,14 +33,19 @@ import org.entur.lamassu.util.SpatialIndexIdUtil;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
+import org.redisson.api.GeoPosition;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -103,6 +108,41 @@ public class GeoSearchServiceTest {
         verify(vehicleSpatialIndex).removeAll(Set.of(SpatialIndexIdUtil.createVehicleSpatialIndexId(vehicleToRemove, feedProvider)));
     }
 
+    @Test
+    public void testGetVehiclesFromSpatialIndex() {
+        var vehicle = getVehicle(1);
+        var indexId = SpatialIndexIdUtil.createVehicleSpatialIndexId(vehicle, feedProvider);
+        when(vehicleSpatialIndex.getPositions(List.of(indexId))).thenReturn(Map.of(indexId, new GeoPosition(10.7, 59.9)));
+
+        var vehicles = service.getVehiclesFromSpatialIndex(List.of(indexId));
+
+        Assertions.assertEquals(1, vehicles.size());
+        Assertions.assertEquals("foo_1", vehicles.get(0).getId());
+        Assertions.assertEquals(59.9, vehicles.get(0).getLat());
+        Assertions.assertEquals(10.7, vehicles.get(0).getLon());
+        Assertions.assertEquals(FormFactor.SCOOTER, vehicles.get(0).getVehicleType().getFormFactor());
+        Assertions.assertEquals("bar", vehicles.get(0).getSystem().getId());
+    }
+
+    @Test
+    public void testVehiclesNearbyAreReturnedNearestFirst() {
+        var indexIds = IntStream.of(7, 2, 5, 0, 9)
+                .mapToObj(i -> SpatialIndexIdUtil.createVehicleSpatialIndexId(getVehicle(i), feedProvider))
+                .collect(Collectors.toList());
+        when(vehicleSpatialIndex.nearest(any(), any(), any(), any(), any(), anyInt())).thenReturn(indexIds);
+
+        var queryParameters = new RangeQueryParameters();
+        queryParameters.setLat(59.9);
+        queryParameters.setLon(10.7);
+        queryParameters.setCount(5);
+        var vehicles = service.getVehiclesNearby(queryParameters, new VehicleFilterParameters());
+
+        Assertions.assertEquals(
+                List.of("foo_7", "foo_2", "foo_5", "foo_0", "foo_9"),
+                vehicles.stream().map(Vehicle::getId).collect(Collectors.toList())
+        );
+    }
+
     private Vehicle getVehicle(int i) {
         var vehicle = new Vehicle();
         vehicle.setId("foo_" + i);
@@ -0,0 +1,85 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.service;
+
+import org.entur.lamassu.cache.GeofencingZonesIndex;
+import org.entur.lamassu.model.entities.GeofencingZones;
+import org.entur.lamassu.service.impl.GeofencingRulesServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GeofencingRulesServiceTest {
+    private final GeofencingZonesIndex geofencingZonesIndex = mock(GeofencingZonesIndex.class);
+    private final GeofencingRulesService service = new GeofencingRulesServiceImpl(geofencingZonesIndex);
+
+    @Test
+    void testFirstZoneWithRuleForVehicleTypeApplies() {
+        when(geofencingZonesIndex.getZonesAt("foo", 10.0, 60.0)).thenReturn(List.of(
+                zone("scooters", null, rule(List.of("Scooter"), false, 10)),
+                zone("all", null, rule(null, true, 20)),
+                zone("last", null, rule(null, false, 30))
+        ));
+
+        var scooterRules = service.getRulesAt(10.0, 60.0, "Scooter", List.of("foo"));
+        Assertions.assertEquals(1, scooterRules.size());
+        Assertions.assertEquals("scooters", scooterRules.get(0).getZoneName());
+        Assertions.assertEquals(10, scooterRules.get(0).getMaximumSpeedKph());
+
+        var bikeRules = service.getRulesAt(10.0, 60.0, "Bike", List.of("foo"));
+        Assertions.assertEquals("all", bikeRules.get(0).getZoneName());
+        Assertions.assertTrue(bikeRules.get(0).getRideAllowed());
+    }
+
+    @Test
+    void testEndedZonesDoNotApply() {
+        var ended = Instant.now().minusSeconds(60).getEpochSecond();
+        when(geofencingZonesIndex.getZonesAt("foo", 10.0, 60.0)).thenReturn(List.of(
+                zone("ended", ended, rule(null, false, 10))
+        ));
+
+        Assertions.assertTrue(service.getRulesAt(10.0, 60.0, null, List.of("foo")).isEmpty());
+    }
+
+    private static GeofencingZones.Feature zone(String name, Long end, GeofencingZones.Rule rule) {
+        var properties = new GeofencingZones.Properties();
+        properties.setName(name);
+        properties.setEnd(end);
+        properties.setRules(List.of(rule));
+
+        var feature = new GeofencingZones.Feature();
+        feature.setProperties(properties);
+        return feature;
+    }
+
+    private static GeofencingZones.Rule rule(List<String> vehicleTypeIds, boolean rideAllowed, int maximumSpeedKph) {
+        var rule = new GeofencingZones.Rule();
+        rule.setVehicleTypeIds(vehicleTypeIds);
+        rule.setRideAllowed(rideAllowed);
+        rule.setRideThroughAllowed(rideAllowed);
+        rule.setMaximumSpeedKph(maximumSpeedKph);
+        return rule;
+    }
+}
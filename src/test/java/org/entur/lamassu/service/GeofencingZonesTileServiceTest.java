@@ -0,0 +1,123 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.service;
+
+import org.entur.lamassu.cache.GeofencingZonesIndex;
+import org.entur.lamassu.model.entities.GeofencingZones;
+import org.entur.lamassu.model.entities.MultiPolygon;
+import org.entur.lamassu.service.impl.GeofencingZonesTileServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GeofencingZonesTileServiceTest {
+    private final GeofencingZonesIndex geofencingZonesIndex = mock(GeofencingZonesIndex.class);
+    private final GeofencingZonesTileServiceImpl service = new GeofencingZonesTileServiceImpl(geofencingZonesIndex, 100, 300);
+
+    @Test
+    void testTileWithZone() {
+        when(geofencingZonesIndex.getZonesWithin(eq("foo"), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of(zone("Nes")));
+
+        var tile = service.getTile("foo", 10, 544, 296);
+
+        Assertions.assertTrue(tile.length > 0);
+        var decoded = new String(tile, StandardCharsets.ISO_8859_1);
+        Assertions.assertTrue(decoded.contains("geofencingZones"));
+        Assertions.assertTrue(decoded.contains("Nes"));
+    }
+
+    @Test
+    void testEmptyTile() {
+        when(geofencingZonesIndex.getZonesWithin(eq("foo"), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of());
+
+        Assertions.assertEquals(0, service.getTile("foo", 10, 0, 0).length);
+    }
+
+    @Test
+    void testTilesAreRenderedAgainWhenIndexIsRebuilt() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        service.init();
+        verify(geofencingZonesIndex).addListener(listener.capture());
+        when(geofencingZonesIndex.getZonesWithin(eq("foo"), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenReturn(List.of(zone("Nes")));
+
+        service.getTile("foo", 10, 544, 296);
+        service.getTile("foo", 10, 544, 296);
+        listener.getValue().accept("foo");
+        service.getTile("foo", 10, 544, 296);
+
+        verify(geofencingZonesIndex, times(2)).getZonesWithin(any(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void testTileRenderedDuringRebuildIsNotServedAfterIt() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        service.init();
+        verify(geofencingZonesIndex).addListener(listener.capture());
+        when(geofencingZonesIndex.getZonesWithin(eq("foo"), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenAnswer(invocation -> {
+                    // The index is rebuilt after this render read the zones, but before its tile is stored
+                    listener.getValue().accept("foo");
+                    return List.of(zone("Nes"));
+                })
+                .thenReturn(List.of(zone("Hvaler")));
+
+        service.getTile("foo", 10, 544, 296);
+        var tile = service.getTile("foo", 10, 544, 296);
+
+        Assertions.assertTrue(new String(tile, StandardCharsets.ISO_8859_1).contains("Hvaler"));
+    }
+
+    private static GeofencingZones.Feature zone(String name) {
+        var geometry = new MultiPolygon();
+        geometry.setCoordinates(List.of(List.of(List.of(
+                List.of(11.40, 60.10),
+                List.of(11.50, 60.10),
+                List.of(11.50, 60.20),
+                List.of(11.40, 60.20),
+                List.of(11.40, 60.10)
+        ))));
+
+        var properties = new GeofencingZones.Properties();
+        properties.setName(name);
+        properties.setRules(List.of(new GeofencingZones.Rule()));
+
+        var feature = new GeofencingZones.Feature();
+        feature.setGeometry(geometry);
+        feature.setProperties(properties);
+        return feature;
+    }
+}
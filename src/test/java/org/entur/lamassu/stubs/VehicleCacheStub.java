@@ -18,14 +18,18 @@
 
 package org.entur.lamassu.stubs;
 
+import org.entur.lamassu.cache.CacheBatch;
 import org.entur.lamassu.cache.VehicleCache;
 import org.entur.lamassu.model.entities.Vehicle;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class VehicleCacheStub implements VehicleCache {
     private final Map<String, Vehicle> map = new HashMap<>();
@@ -35,6 +39,11 @@ public class VehicleCacheStub implements VehicleCache {
         return null;
     }
 
+    @Override
+    public List<Vehicle> getAll(Set<String> keys, boolean resolveReferences) {
+        return keys.stream().map(map::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     @Override
     public List<Vehicle> getAll() {
         return null;
@@ -45,6 +54,11 @@ public class VehicleCacheStub implements VehicleCache {
         return null;
     }
 
+    @Override
+    public Map<String, Vehicle> getAllAsMap(Set<String> keys, boolean resolveReferences) {
+        return null;
+    }
+
     @Override
     public Vehicle get(String key) {
         return map.get(key);
@@ -55,13 +69,28 @@ public class VehicleCacheStub implements VehicleCache {
         map.putAll(entities);
     }
 
+    @Override
+    public void updateAll(CacheBatch batch, Map<String, Vehicle> entities, int ttl, TimeUnit timeUnit) {
+        updateAll(entities, ttl, timeUnit);
+    }
+
     @Override
     public void removeAll(Set<String> keys) {
         keys.forEach(map::remove);
     }
 
+    @Override
+    public void removeAll(CacheBatch batch, Set<String> keys) {
+        removeAll(keys);
+    }
+
     @Override
     public boolean hasKey(String key) {
         return map.containsKey(key);
     }
+
+    @Override
+    public Set<String> getExistingKeys(Collection<String> keys) {
+        return keys.stream().filter(map::containsKey).collect(Collectors.toSet());
+    }
 }
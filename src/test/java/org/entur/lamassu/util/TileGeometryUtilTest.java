@@ -0,0 +1,87 @@
+/*
+ *
+ *
+ *  * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by
+ *  * the European Commission - subsequent versions of the EUPL (the "Licence");
+ *  * You may not use this work except in compliance with the Licence.
+ *  * You may obtain a copy of the Licence at:
+ *  *
+ *  *   https://joinup.ec.europa.eu/software/page/eupl
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the Licence is distributed on an "AS IS" basis,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the Licence for the specific language governing permissions and
+ *  * limitations under the Licence.
+ *
+ */
+
+
+package org.entur.lamassu.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TileGeometryUtilTest {
+
+    @Test
+    void testProjectToTile() {
+        // Corners of tile 1/1/0, the north-east quarter of the world
+        var ring = TileGeometryUtil.project(new double[] { 0, 0, 180, 0, 180, 85.0511287798, 0, 0 }, 1, 1, 0, 4096);
+
+        Assertions.assertEquals(6, ring.length);
+        Assertions.assertEquals(0, ring[0], 1e-6);
+        Assertions.assertEquals(4096, ring[1], 1e-6);
+        Assertions.assertEquals(4096, ring[2], 1e-6);
+        Assertions.assertEquals(0, ring[5], 1e-6);
+    }
+
+    @Test
+    void testBoundsContainTile() {
+        var bounds = TileGeometryUtil.getBounds(1, 1, 0, 4096, 0);
+
+        Assertions.assertArrayEquals(new double[] { 0, 0, 180, 85.0511287798 }, bounds, 1e-6);
+    }
+
+    @Test
+    void testClipToSquare() {
+        var ring = TileGeometryUtil.clip(new double[] { -10, -10, 20, -10, 20, 20, -10, 20 }, 0, 10);
+
+        Assertions.assertArrayEquals(new int[] { 0, 0, 10, 0, 10, 10, 0, 10 }, sorted(TileGeometryUtil.round(ring)));
+    }
+
+    @Test
+    void testClipOutside() {
+        var ring = TileGeometryUtil.clip(new double[] { 20, 20, 30, 20, 30, 30 }, 0, 10);
+
+        Assertions.assertEquals(0, ring.length);
+    }
+
+    @Test
+    void testSimplifyDropsPointsWithinTolerance() {
+        var ring = TileGeometryUtil.simplify(new double[] { 0, 0, 5, 0.2, 10, 0, 10, 10, 0, 10 }, 1.0);
+
+        Assertions.assertArrayEquals(new double[] { 0, 0, 10, 0, 10, 10, 0, 10 }, ring);
+    }
+
+    @Test
+    void testAreaIsPositiveWhenClockwise() {
+        Assertions.assertTrue(TileGeometryUtil.getArea(new int[] { 0, 0, 10, 0, 10, 10, 0, 10 }) > 0);
+        Assertions.assertTrue(TileGeometryUtil.getArea(new int[] { 0, 0, 0, 10, 10, 10, 10, 0 }) < 0);
+    }
+
+    private static int[] sorted(int[] ring) {
+        // Rotate the ring to start at its smallest point, since clipping may start it anywhere
+        int start = 0;
+        for (int i = 2; i < ring.length; i += 2) {
+            if (ring[i] + ring[i + 1] < ring[start] + ring[start + 1]) {
+                start = i;
+            }
+        }
+        var rotated = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            rotated[i] = ring[(start + i) % ring.length];
+        }
+        return rotated;
+    }
+}